@@ -0,0 +1,13 @@
+package aqms.bench;
+
+import aqms.domain.model.QueueEntry;
+import aqms.repository.QueueEntryRepository;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+@Configuration(proxyBeanMethods = false)
+@EntityScan(basePackageClasses = QueueEntry.class)
+@EnableJpaRepositories(basePackageClasses = QueueEntryRepository.class)
+/** The application's Spring Data JPA repositories on an in-process H2 database. */
+class H2Backend {}
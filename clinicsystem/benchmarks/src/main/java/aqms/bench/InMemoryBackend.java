@@ -0,0 +1,132 @@
+package aqms.bench;
+
+import aqms.domain.model.AppointmentSlot;
+import aqms.domain.model.Clinic;
+import aqms.domain.model.ClinicQueueState;
+import aqms.domain.model.QueueEntry;
+import aqms.domain.model.QueueEntryArchive;
+import aqms.domain.model.QueueEventLog;
+import aqms.domain.model.UserAccount;
+import aqms.repository.AppointmentSlotRepository;
+import aqms.repository.ClinicQueueStateRepository;
+import aqms.repository.ClinicRepository;
+import aqms.repository.QueueEntryArchiveRepository;
+import aqms.repository.QueueEntryRepository;
+import aqms.repository.QueueEventLogRepository;
+import aqms.repository.UserAccountRepository;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Configuration(proxyBeanMethods = false)
+/**
+ * InMemoryBackend
+ *
+ * {@link InMemoryRepository} stand-ins for the repositories the queue uses, and a transaction
+ * manager that only runs transaction synchronizations, so after-commit work happens exactly as it
+ * would against a database. Comparing a benchmark on this backend with the H2 one separates the
+ * queue's own cost from the cost of its SQL.
+ */
+class InMemoryBackend {
+  @Bean
+  QueueEntryRepository queueEntryRepository() {
+    var entries = new InMemoryRepository<>(QueueEntry.class);
+    var bySlot = entries.index(e -> e.getSlot() != null ? e.getSlot().getId() : null);
+    return entries
+        .on("findBySlotId", args -> Optional.ofNullable(bySlot.get(args[0])))
+        .on("findBySlotIdIn", args -> lookUp(bySlot::get, (Collection<?>) args[0]))
+        .as(QueueEntryRepository.class);
+  }
+
+  @Bean
+  AppointmentSlotRepository appointmentSlotRepository() {
+    var slots = new InMemoryRepository<>(AppointmentSlot.class);
+    return slots
+        .on("findForCheckIn", args -> lookUp(slots::get, (Collection<?>) args[0]))
+        .as(AppointmentSlotRepository.class);
+  }
+
+  @Bean
+  ClinicQueueStateRepository clinicQueueStateRepository() {
+    var states = new InMemoryRepository<>(ClinicQueueState.class);
+    var byClinic = states.index(ClinicQueueState::getClinicId);
+    return states
+        .on("findByClinicId", args -> Optional.ofNullable(byClinic.get(args[0])))
+        .as(ClinicQueueStateRepository.class);
+  }
+
+  @Bean
+  QueueEntryArchiveRepository queueEntryArchiveRepository() {
+    return new InMemoryRepository<>(QueueEntryArchive.class).as(QueueEntryArchiveRepository.class);
+  }
+
+  @Bean
+  QueueEventLogRepository queueEventLogRepository() {
+    return new InMemoryRepository<>(QueueEventLog.class).as(QueueEventLogRepository.class);
+  }
+
+  @Bean
+  ClinicRepository clinicRepository() {
+    return new InMemoryRepository<>(Clinic.class).as(ClinicRepository.class);
+  }
+
+  @Bean
+  UserAccountRepository userAccountRepository() {
+    return new InMemoryRepository<>(UserAccount.class).as(UserAccountRepository.class);
+  }
+
+  // never connected to: only the archiver's partition maintenance would use it
+  @Bean
+  JdbcTemplate jdbcTemplate() {
+    return new JdbcTemplate(new SimpleDriverDataSource());
+  }
+
+  @Bean
+  PlatformTransactionManager transactionManager() {
+    return new SynchronizationOnlyTransactionManager();
+  }
+
+  private static <T> List<T> lookUp(Function<Object, T> get, Collection<?> keys) {
+    return keys.stream().map(get).filter(Objects::nonNull).toList();
+  }
+
+  static class SynchronizationOnlyTransactionManager extends AbstractPlatformTransactionManager {
+    @Override
+    protected Object doGetTransaction() {
+      return TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction) {
+      return (Boolean) transaction;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {}
+
+    @Override
+    protected Object doSuspend(Object transaction) {
+      return transaction;
+    }
+
+    @Override
+    protected void doResume(Object transaction, Object suspendedResources) {}
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {}
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {}
+  }
+}
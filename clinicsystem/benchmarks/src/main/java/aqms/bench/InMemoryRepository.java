@@ -0,0 +1,179 @@
+package aqms.bench;
+
+import jakarta.persistence.Id;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * InMemoryRepository
+ *
+ * Map-backed stand-in for a Spring Data repository interface, so the queue can be benchmarked
+ * without a database. The CRUD methods work on a concurrent map keyed by the entity's @Id field,
+ * which is assigned on first save like an identity column. Query methods the queue's hot paths
+ * depend on are registered with {@link #on}, usually answered from an index kept with {@link
+ * #index}; any other method returns an empty result (empty list or Optional, zero, null).
+ */
+final class InMemoryRepository<T> implements InvocationHandler {
+  private final Field idField;
+  private final AtomicLong ids = new AtomicLong();
+  private final Map<Long, T> rows = new ConcurrentHashMap<>();
+  private final Map<String, Function<Object[], Object>> queries = new ConcurrentHashMap<>();
+  private final List<Index<T>> indexes = new ArrayList<>();
+
+  private record Index<T>(Function<T, Object> key, Map<Object, T> rows) {}
+
+  InMemoryRepository(Class<T> entityType) {
+    this.idField = idField(entityType);
+  }
+
+  /** A proxy implementing {@code repositoryType} on top of this store. */
+  <R> R as(Class<R> repositoryType) {
+    return repositoryType.cast(
+        Proxy.newProxyInstance(
+            repositoryType.getClassLoader(), new Class<?>[] {repositoryType}, this));
+  }
+
+  /** Answer the repository method {@code name} with {@code query}. */
+  InMemoryRepository<T> on(String name, Function<Object[], Object> query) {
+    queries.put(name, query);
+    return this;
+  }
+
+  /** Keep saved rows findable by {@code key}; the returned map is live. */
+  Map<Object, T> index(Function<T, Object> key) {
+    var index = new Index<>(key, new ConcurrentHashMap<Object, T>());
+    indexes.add(index);
+    return index.rows();
+  }
+
+  T get(Object id) {
+    return id == null ? null : rows.get((Long) id);
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) {
+    var query = queries.get(method.getName());
+    if (query != null) return query.apply(args);
+    return switch (method.getName()) {
+      case "save", "saveAndFlush" -> save(cast(args[0]));
+      case "saveAll", "saveAllAndFlush" -> saveAll((Iterable<?>) args[0]);
+      case "findById" -> Optional.ofNullable(get(args[0]));
+      case "getReferenceById", "getById" -> get(args[0]);
+      case "existsById" -> rows.containsKey((Long) args[0]);
+      case "findAllById" -> findAllById((Iterable<?>) args[0]);
+      case "findAll" -> List.copyOf(rows.values());
+      case "count" -> (long) rows.size();
+      case "deleteById" -> remove(get(args[0]));
+      case "delete" -> remove(cast(args[0]));
+      case "deleteAll", "deleteAllInBatch" -> clear(args);
+      case "flush" -> null;
+      case "toString" -> "InMemoryRepository" + List.of(proxy.getClass().getInterfaces());
+      case "hashCode" -> System.identityHashCode(proxy);
+      case "equals" -> proxy == args[0];
+      default -> empty(method.getReturnType());
+    };
+  }
+
+  private T save(T row) {
+    Long id = id(row);
+    if (id == null) {
+      id = ids.incrementAndGet();
+      setId(row, id);
+    }
+    rows.put(id, row);
+    for (var index : indexes) {
+      var key = index.key().apply(row);
+      if (key != null) index.rows().put(key, row);
+    }
+    return row;
+  }
+
+  private List<T> saveAll(Iterable<?> rows) {
+    var saved = new ArrayList<T>();
+    for (var row : rows) saved.add(save(cast(row)));
+    return saved;
+  }
+
+  private List<T> findAllById(Iterable<?> ids) {
+    var found = new ArrayList<T>();
+    for (var id : ids) {
+      var row = get(id);
+      if (row != null) found.add(row);
+    }
+    return found;
+  }
+
+  private Object remove(T row) {
+    if (row == null) return null;
+    rows.remove(id(row));
+    for (var index : indexes) {
+      var key = index.key().apply(row);
+      if (key != null) index.rows().remove(key, row);
+    }
+    return null;
+  }
+
+  private Object clear(Object[] args) {
+    if (args == null || args.length == 0) {
+      rows.clear();
+      indexes.forEach(i -> i.rows().clear());
+    } else {
+      for (var row : (Iterable<?>) args[0]) remove(cast(row));
+    }
+    return null;
+  }
+
+  private static Object empty(Class<?> type) {
+    if (type == Optional.class) return Optional.empty();
+    if (type == List.class || type == Collection.class || type == Iterable.class) return List.of();
+    if (type == Stream.class) return Stream.empty();
+    if (type == int.class) return 0;
+    if (type == long.class) return 0L;
+    if (type == boolean.class) return false;
+    return null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private T cast(Object row) {
+    return (T) row;
+  }
+
+  private Long id(T row) {
+    try {
+      return (Long) idField.get(row);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void setId(T row, Long id) {
+    try {
+      idField.set(row, id);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Field idField(Class<?> type) {
+    for (var c = type; c != null; c = c.getSuperclass()) {
+      for (var f : c.getDeclaredFields()) {
+        if (f.isAnnotationPresent(Id.class)) {
+          f.setAccessible(true);
+          return f;
+        }
+      }
+    }
+    throw new IllegalArgumentException(type.getSimpleName() + " has no @Id field");
+  }
+}
@@ -0,0 +1,66 @@
+package aqms.bench;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import aqms.config.AppProperties;
+import aqms.service.NotificationService;
+import aqms.service.QueuePositionNotifier;
+import aqms.service.QueueService;
+import aqms.service.event.ClinicEventBus;
+import aqms.service.queue.ClinicQueueStateRegistry;
+import aqms.service.queue.ClusterQueueCaller;
+import aqms.service.queue.FastTrackFirstPolicy;
+import aqms.service.queue.QueueArchiver;
+import aqms.service.queue.QueueEngine;
+import aqms.service.queue.QueueJournal;
+import aqms.service.queue.QueueNumberAllocator;
+import aqms.service.queue.QueueVersions;
+import aqms.service.queue.QueueWriteBehind;
+import aqms.service.queue.WaitTimeEstimator;
+import aqms.service.queue.WeightedFairPolicy;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@EnableScheduling
+@EnableConfigurationProperties(AppProperties.class)
+@Import({
+  QueueService.class,
+  QueueEngine.class,
+  QueueNumberAllocator.class,
+  QueueVersions.class,
+  QueueWriteBehind.class,
+  QueueJournal.class,
+  QueueArchiver.class,
+  ClinicQueueStateRegistry.class,
+  ClusterQueueCaller.class,
+  WaitTimeEstimator.class,
+  FastTrackFirstPolicy.class,
+  WeightedFairPolicy.class,
+  ClinicEventBus.class
+})
+/**
+ * QueueBenchConfig
+ *
+ * The queue as the application wires it (service, engine, write-behind, number allocator, event
+ * bus and scheduling) without the web layer. Patient emails are stubbed out: they are handed to
+ * background workers in production and are not what the benchmarks measure. The repositories come
+ * from {@link H2Backend} or {@link InMemoryBackend}.
+ */
+class QueueBenchConfig {
+  @Bean
+  NotificationService notificationService() {
+    return mock(NotificationService.class, withSettings().stubOnly());
+  }
+
+  @Bean
+  QueuePositionNotifier queuePositionNotifier() {
+    return mock(QueuePositionNotifier.class, withSettings().stubOnly());
+  }
+}
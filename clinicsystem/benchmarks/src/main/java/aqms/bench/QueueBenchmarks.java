@@ -0,0 +1,173 @@
+package aqms.bench;
+
+import aqms.service.PatientQueueResponse;
+import aqms.service.QueueEntryView;
+import aqms.service.QueueService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+/**
+ * QueueBenchmarks
+ *
+ * Time per call of the queue's hot paths for one clinic with {@code size} patients waiting, on
+ * H2 and on the in-memory repositories. Calls that change the queue run {@value #BATCH} at a time
+ * in one single-shot invocation per iteration, against patients prepared before the iteration
+ * and cleaned up after it (per-invocation fixtures would cost more than the calls they wrap), so
+ * the queue holds between {@code size} and {@code size + BATCH} waiting patients while they run.
+ * Run with {@code -prof gc} for the allocation rate per call.
+ */
+public class QueueBenchmarks {
+  static final int BATCH = 200;
+
+  @State(Scope.Benchmark)
+  public static class QueueState {
+    @Param({"h2", "memory"})
+    public String backend;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int size;
+
+    QueueFixture fixture;
+    QueueService queue;
+    Long clinicId;
+    Long middle;
+    // one room per call, so call-next never waits for a room's patient to be completed
+    final String[] rooms = new String[BATCH];
+
+    @Setup(Level.Trial)
+    public void start() {
+      fixture = QueueFixture.start(backend);
+      queue = fixture.queue();
+      clinicId = fixture.clinicId();
+      fixture.checkIn(size);
+      middle = fixture.waitingAt(size / 2);
+      for (int i = 0; i < BATCH; i++) rooms[i] = "bench-" + i;
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+      fixture.close();
+    }
+  }
+
+  /** {@value #BATCH} booked appointments that have not checked in yet. */
+  @State(Scope.Thread)
+  public static class Arrivals {
+    final List<Long> slotIds = new ArrayList<>(BATCH);
+
+    @Setup(Level.Iteration)
+    public void book(QueueState clinic) {
+      slotIds.clear();
+      for (int i = 0; i < BATCH; i++) slotIds.add(clinic.fixture.book());
+    }
+
+    @TearDown(Level.Iteration)
+    public void leave(QueueState clinic) {
+      for (var slotId : slotIds) clinic.fixture.complete(slotId);
+    }
+  }
+
+  /** {@value #BATCH} extra patients checked in behind the others, who leave after the iteration. */
+  @State(Scope.Thread)
+  public static class Extra {
+    List<Long> slotIds;
+
+    @Setup(Level.Iteration)
+    public void checkIn(QueueState clinic) {
+      slotIds = clinic.fixture.checkIn(BATCH);
+    }
+
+    @TearDown(Level.Iteration)
+    public void leave(QueueState clinic) {
+      for (var slotId : slotIds) clinic.fixture.complete(slotId);
+    }
+  }
+
+  /**
+   * Patients called during the iteration, completed after it. {@value #BATCH} extra patients are
+   * checked in first, so the queue is back at {@code size} once they are gone.
+   */
+  @State(Scope.Thread)
+  public static class Called {
+    final List<Long> slotIds = new ArrayList<>(BATCH);
+
+    @Setup(Level.Iteration)
+    public void checkIn(QueueState clinic) {
+      clinic.fixture.checkIn(BATCH);
+      slotIds.clear();
+    }
+
+    @TearDown(Level.Iteration)
+    public void complete(QueueState clinic) {
+      for (var slotId : slotIds) clinic.fixture.complete(slotId);
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 20)
+  @Measurement(iterations = 20)
+  @OperationsPerInvocation(BATCH)
+  public void enqueue(QueueState clinic, Arrivals arrivals, Blackhole bh) {
+    for (var slotId : arrivals.slotIds) bh.consume(clinic.queue.enqueue(slotId));
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 20)
+  @Measurement(iterations = 20)
+  @OperationsPerInvocation(BATCH)
+  public void callNext(QueueState clinic, Called called) {
+    for (var room : clinic.rooms) {
+      called.slotIds.add(clinic.queue.callNext(clinic.clinicId, room, null).appointmentId());
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 20)
+  @Measurement(iterations = 20)
+  @OperationsPerInvocation(BATCH)
+  public void fastTrack(QueueState clinic, Extra urgent, Blackhole bh) {
+    for (var slotId : urgent.slotIds) bh.consume(clinic.queue.fastTrack(slotId, "benchmark"));
+  }
+
+  /** Status read after a queue change, so the view is rebuilt (includes one version bump). */
+  @Benchmark
+  public List<QueueEntryView> statusView(QueueState clinic) {
+    clinic.fixture.invalidateViews();
+    return clinic.queue.getQueueStatusView(clinic.clinicId);
+  }
+
+  @Benchmark
+  public List<QueueEntryView> statusViewUnchanged(QueueState clinic) {
+    return clinic.queue.getQueueStatusView(clinic.clinicId);
+  }
+
+  @Benchmark
+  public Optional<PatientQueueResponse> patientQueue(QueueState clinic) {
+    return clinic.queue.findPatientQueue(clinic.middle, true);
+  }
+}
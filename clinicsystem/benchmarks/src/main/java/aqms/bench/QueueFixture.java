@@ -0,0 +1,178 @@
+package aqms.bench;
+
+import aqms.domain.enums.AppointmentStatus;
+import aqms.domain.enums.UserRole;
+import aqms.domain.model.AppointmentSlot;
+import aqms.domain.model.Clinic;
+import aqms.domain.model.UserAccount;
+import aqms.repository.AppointmentSlotRepository;
+import aqms.repository.ClinicRepository;
+import aqms.repository.UserAccountRepository;
+import aqms.service.QueueService;
+import aqms.service.queue.QueueEngine;
+import aqms.service.queue.QueueVersions;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * QueueFixture
+ *
+ * One clinic's queue running in a Spring context on the chosen backend ("h2" or "memory"), with
+ * helpers to book and check in patients through the same service calls the application makes.
+ * The application's own configuration is loaded and then overridden so nothing is logged per
+ * statement and nothing touches Postgres, the mail server or the journal directory.
+ */
+final class QueueFixture implements AutoCloseable {
+  private static final int FILL_BATCH = 500;
+
+  private static final String[] COMMON = {
+    "--spring.main.banner-mode=off",
+    "--spring.jpa.show-sql=false",
+    "--spring.flyway.enabled=false",
+    "--logging.file.name=",
+    "--logging.level.root=WARN",
+    "--logging.level.aqms=WARN",
+    "--logging.level.org.hibernate.SQL=OFF",
+    "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=OFF",
+    "--aqms.journal.enabled=false"
+  };
+
+  private static final List<String> EXCLUDES =
+      List.of(
+          "org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration",
+          "org.springframework.boot.autoconfigure.security.servlet"
+              + ".UserDetailsServiceAutoConfiguration");
+
+  // no DataSource at all: the repositories come from InMemoryBackend
+  private static final List<String> MEMORY_EXCLUDES =
+      List.of(
+          "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration",
+          "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration",
+          "org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration",
+          "org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration");
+
+  private final ConfigurableApplicationContext context;
+  private final QueueService queue;
+  private final QueueEngine engine;
+  private final QueueVersions versions;
+  private final AppointmentSlotRepository slotRepo;
+  private final TransactionTemplate tx;
+  private final Clinic clinic;
+  private final UserAccount patient;
+
+  private QueueFixture(ConfigurableApplicationContext context) {
+    this.context = context;
+    this.queue = context.getBean(QueueService.class);
+    this.engine = context.getBean(QueueEngine.class);
+    this.versions = context.getBean(QueueVersions.class);
+    this.slotRepo = context.getBean(AppointmentSlotRepository.class);
+    this.tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+    var c = new Clinic();
+    c.setName("Benchmark Clinic");
+    c.setClinicType("GP");
+    c.setAddress("1 Benchmark Road");
+    this.clinic = context.getBean(ClinicRepository.class).save(c);
+    this.patient =
+        context
+            .getBean(UserAccountRepository.class)
+            .save(
+                new UserAccount(
+                    "Bench Patient", "patient@bench.example", "x", UserRole.PATIENT));
+  }
+
+  static QueueFixture start(String backend) {
+    var args = new ArrayList<>(List.of(COMMON));
+    var excludes = new ArrayList<>(EXCLUDES);
+    Class<?> repositories;
+    switch (backend) {
+      case "h2" -> {
+        repositories = H2Backend.class;
+        args.addAll(
+            List.of(
+                "--spring.datasource.url=jdbc:h2:mem:bench-"
+                    + UUID.randomUUID()
+                    + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.properties.hibernate.hbm2ddl.auto=create-drop",
+                "--spring.jpa.properties.hibernate.dialect="
+                    + "org.hibernate.dialect.PostgreSQLDialect"));
+      }
+      case "memory" -> {
+        repositories = InMemoryBackend.class;
+        excludes.addAll(MEMORY_EXCLUDES);
+      }
+      default -> throw new IllegalArgumentException("Unknown backend: " + backend);
+    }
+    args.add("--spring.autoconfigure.exclude=" + String.join(",", excludes));
+    var context =
+        new SpringApplicationBuilder(QueueBenchConfig.class, repositories)
+            .web(WebApplicationType.NONE)
+            .run(args.toArray(String[]::new));
+    return new QueueFixture(context);
+  }
+
+  QueueService queue() {
+    return queue;
+  }
+
+  Long clinicId() {
+    return clinic.getId();
+  }
+
+  /** Book a new appointment starting now; returns its slot id, ready for {@link #checkIn}. */
+  Long book() {
+    var slot = new AppointmentSlot();
+    slot.setClinic(clinic);
+    slot.setPatient(patient);
+    slot.setStatus(AppointmentStatus.BOOKED);
+    slot.setStartTime(LocalDateTime.now());
+    slot.setEndTime(slot.getStartTime().plusMinutes(15));
+    return slotRepo.save(slot).getId();
+  }
+
+  /** Book and enqueue {@code count} new patients, as a bulk check-in would. */
+  List<Long> checkIn(int count) {
+    var ids = new ArrayList<Long>(count);
+    while (ids.size() < count) {
+      var batch = new ArrayList<Long>();
+      while (batch.size() < FILL_BATCH && ids.size() + batch.size() < count) batch.add(book());
+      tx.executeWithoutResult(s -> queue.enqueueAll(slotRepo.findForCheckIn(batch)));
+      ids.addAll(batch);
+    }
+    return ids;
+  }
+
+  /** Slot id of the waiting patient at {@code index} in call order. */
+  Long waitingAt(int index) {
+    return engine.locked(clinicId(), q -> q.waiting().get(index).getSlotId());
+  }
+
+  int waiting() {
+    return engine.summary(clinicId()).waiting();
+  }
+
+  void complete(Long slotId) {
+    queue.complete(slotId);
+  }
+
+  /** Make the next status read rebuild its view, as a queue change would. */
+  void invalidateViews() {
+    versions.bump(clinicId());
+  }
+
+  @Override
+  public void close() {
+    context.close();
+  }
+}
@@ -1,5 +1,7 @@
 package aqms.config;
 
+import java.util.HashMap;
+import java.util.Map;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -16,12 +18,130 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 public class AppProperties {
   private Queue queue = new Queue();
   private Rules rules = new Rules();
+  private Stream stream = new Stream();
+  private Notify notify = new Notify();
+  private Outbox outbox = new Outbox();
+  private Archive archive = new Archive();
+  private Journal journal = new Journal();
+  private Events events = new Events();
+  private Slots slots = new Slots();
 
   @Getter
   @Setter
   public static class Queue {
     private double expressFraction = 0.333;
     private double emergencyFraction = 0.125;
+    // how often pending queue transitions are flushed to queue_entries
+    private long writeBehindMillis = 250;
+    // queue scheduling policy (fast-track-first or weighted-fair), optionally per clinic id
+    private String policy = "fast-track-first";
+    private Map<Long, String> clinicPolicies = new HashMap<>();
+    // weighted-fair: a lane head waiting longer than this is called next
+    private long maxWaitMinutes = 45;
+    // wait-time estimate: EWMA weight of the newest consultation, and the service time assumed
+    // before any consultation has been completed
+    private double serviceTimeAlpha = 0.2;
+    private double defaultServiceMinutes = 10;
+    // queue numbers reserved in clinic_queue_state per write; a restart skips what is left
+    private int numberBlockSize = 20;
+    // several instances share the database: call-next and queue numbers are decided there, and
+    // the in-memory queues are refreshed at this interval
+    private boolean cluster = false;
+    private long clusterRefreshMillis = 1000;
+  }
+
+  @Getter
+  @Setter
+  public static class Stream {
+    // upper bounds on open patient queue streams; further subscribers get 503 and keep polling
+    private int maxSubscribers = 5000;
+    private int maxSubscribersPerClinic = 500;
+    private long heartbeatMillis = 15000;
+    private long timeoutMillis = 1800000;
+    // threads writing to clients; each handles one subscriber's send at a time
+    private int senderThreads = 4;
+  }
+
+  @Getter
+  @Setter
+  public static class Notify {
+    // queue position emails: sender threads, max queued batches, and the window in which
+    // repeated position changes for the same patient collapse into one message
+    private int workers = 2;
+    private int queueCapacity = 1000;
+    private long coalesceMillis = 2000;
+  }
+
+  @Getter
+  @Setter
+  public static class Outbox {
+    // email outbox delivery; failed sends back off exponentially and are marked DEAD after
+    // maxAttempts
+    private int workers = 2;
+    private int batchSize = 50;
+    private long pollMillis = 500;
+    private int maxAttempts = 8;
+    private long initialBackoffMillis = 5000;
+    private long maxBackoffMillis = 900000;
+    private long leaseMillis = 120000;
+  }
+
+  @Getter
+  @Setter
+  public static class Archive {
+    // daily roll-over of finished queue days into queue_entries_archive: days kept in the live
+    // table besides today, and rows moved per transaction
+    private int retainDays = 0;
+    private int batchSize = 1000;
+  }
+
+  @Getter
+  @Setter
+  public static class Journal {
+    // crash recovery for the in-memory queues: directory of the snapshot and memory-mapped
+    // journal, size of the journal file, and how often the journal is folded into the snapshot
+    private boolean enabled = false;
+    private String dir = "data/queue-journal";
+    private int sizeBytes = 16 * 1024 * 1024;
+    private long snapshotMillis = 60000;
+  }
+
+  @Getter
+  @Setter
+  public static class Events {
+    // clinic event bus: dispatcher threads (each clinic always uses the same one) and how often
+    // delivered events are written to queue_event_log
+    private int dispatchThreads = 4;
+    private long flushMillis = 500;
+  }
+
+  @Getter
+  @Setter
+  public static class Slots {
+    // slot generation: new slots written per flush, after which the persistence context is
+    // cleared so a long run does not keep every slot it created managed
+    private int generateChunkSize = 500;
+    // bulk generation jobs: clinics generated at once (each holds a connection while it writes a
+    // day, so keep below the pool size), longest date range, and finished jobs kept for status
+    private int jobWorkers = 2;
+    private int jobMaxDays = 92;
+    private int jobHistory = 50;
+    // availability from weekly templates (operating hours, apptInterval, doctor sessions) rather
+    // than stored AVAILABLE rows; a slot row is created when it is booked. Templates are cached
+    // per clinic for templateTtlMillis
+    private boolean templates = false;
+    private long templateTtlMillis = 60000;
+    // in-memory availability bitsets per clinic-day for stored slots, the next indexWarmDays
+    // loaded at startup (also how far ahead a first-free search looks); ignored in cluster mode
+    private boolean index = true;
+    private int indexWarmDays = 14;
+    // booking holds: how long a patient has to confirm a held slot, how many slots one patient
+    // may hold at once, and the expiry sweep's tick and wheel size (holds longer than one turn of
+    // the wheel wait for later turns)
+    private long holdTtlMillis = 120000;
+    private int maxHoldsPerPatient = 3;
+    private long holdTickMillis = 1000;
+    private int holdWheelSize = 512;
   }
 
   @Getter
@@ -1,5 +1,6 @@
 package aqms.config;
 
+import jakarta.servlet.DispatcherType;
 import java.util.Arrays;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
@@ -74,6 +75,9 @@ public class SecurityConfig {
                   // Allow OPTIONS requests for CORS preflight
                   .requestMatchers(req -> req.getMethod().equals("OPTIONS"))
                   .permitAll()
+                  // async dispatches of already-authorized streaming responses (SSE)
+                  .dispatcherTypeMatchers(DispatcherType.ASYNC)
+                  .permitAll()
                   // common static resources (css/js/images) and index
                   .requestMatchers(PathRequest.toStaticResources().atCommonLocations())
                   .permitAll()
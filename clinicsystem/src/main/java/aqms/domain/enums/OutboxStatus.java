@@ -0,0 +1,9 @@
+package aqms.domain.enums;
+
+/** Delivery states for a row in the notification outbox. */
+public enum OutboxStatus {
+  PENDING,
+  SENDING,
+  SENT,
+  DEAD
+}
@@ -1,4 +1,4 @@
 package aqms.domain.event;
 
-/** Event emitted when an appointment is successfully booked. */
+/** Event emitted when an appointment is successfully booked; published after commit. */
 public record AppointmentBookedEvent(Long slotId, Long patientId) {}
@@ -1,4 +1,4 @@
 package aqms.domain.event;
 
-/** Event emitted when an appointment is cancelled. */
+/** Event emitted when an appointment is cancelled; published after commit. */
 public record AppointmentCancelledEvent(Long slotId) {}
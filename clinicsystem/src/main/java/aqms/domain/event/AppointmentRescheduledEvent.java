@@ -1,4 +1,4 @@
 package aqms.domain.event;
 
-/** Event emitted when an appointment is rescheduled. */
+/** Event emitted when an appointment is rescheduled; published after commit. */
 public record AppointmentRescheduledEvent(Long slotId) {}
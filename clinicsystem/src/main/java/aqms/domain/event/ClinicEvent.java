@@ -0,0 +1,14 @@
+package aqms.domain.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * A domain event as delivered by the clinic event bus: the event itself plus its clinic and its
+ * position in that clinic's stream. Listeners receive a clinic's events one at a time in {@code
+ * seq} order.
+ */
+public record ClinicEvent(Long clinicId, long seq, LocalDateTime occurredAt, Object event) {
+  public String type() {
+    return event.getClass().getSimpleName();
+  }
+}
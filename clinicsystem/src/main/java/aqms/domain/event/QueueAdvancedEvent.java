@@ -1,7 +1,41 @@
 package aqms.domain.event;
 
+import aqms.domain.enums.QueuePriority;
+import aqms.domain.enums.QueueStatus;
+import java.time.LocalDateTime;
+
 /**
  * Event published when a clinic's queue has advanced (for example when a customer has been called
- * and the head of the queue moved).
+ * and the head of the queue moved) or otherwise changed: a check-in, fast-track, completion, or
+ * the queue being started, paused or resumed. Published once the change is committed.
+ *
+ * @param change what happened
+ * @param entry the queue entry after the change, or null for changes to the whole queue
  */
-public record QueueAdvancedEvent(Long clinicId) {}
+public record QueueAdvancedEvent(Long clinicId, Change change, Entry entry) {
+  public enum Change {
+    ENQUEUED,
+    CALLED,
+    FAST_TRACKED,
+    PRIORITY_CHANGED,
+    COMPLETED,
+    STARTED,
+    PAUSED,
+    RESUMED,
+    RESET
+  }
+
+  /** State of the changed queue entry; {@code appointmentId} is its slot. */
+  public record Entry(
+      Long id,
+      Integer queueNumber,
+      QueueStatus status,
+      Long appointmentId,
+      Long patientId,
+      String doctorName,
+      String room,
+      LocalDateTime calledAt,
+      Boolean fastTracked,
+      String fastTrackReason,
+      QueuePriority priority) {}
+}
@@ -20,8 +20,13 @@ import lombok.*;
  * patient.
  */
 public class AppointmentSlot {
+  // pooled sequence (V19) rather than IDENTITY so generated slots are inserted in JDBC batches
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "appointment_slot_seq")
+  @SequenceGenerator(
+      name = "appointment_slot_seq",
+      sequenceName = "appointment_slot_seq",
+      allocationSize = 50)
   private Long id;
 
   @ManyToOne(optional = false)
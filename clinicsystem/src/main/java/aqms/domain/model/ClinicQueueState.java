@@ -1,6 +1,7 @@
 package aqms.domain.model;
 
 import jakarta.persistence.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
@@ -10,8 +11,8 @@ import java.time.LocalDateTime;
 /**
  * ClinicQueueState
  *
- * Holds runtime state for a clinic's queue (running/paused flags and last updated timestamps).
- * There should be at most one row per clinic.
+ * Holds runtime state for a clinic's queue (running/paused flags, last updated timestamps and the
+ * daily queue-number sequence). There should be at most one row per clinic.
  */
 public class ClinicQueueState {
   @Id
@@ -33,6 +34,18 @@ public class ClinicQueueState {
   @Column(name = "last_reset_at")
   private LocalDateTime lastResetAt;
 
+  @Version
+  @Column(name = "version", nullable = false)
+  private long version;
+
+  // sequence columns are only changed through ClinicQueueStateRepository's bulk updates so that
+  // saving a stale copy of this row (e.g. on start/pause) can never move the sequence backwards
+  @Column(name = "queue_date", updatable = false)
+  private LocalDate queueDate;
+
+  @Column(name = "last_queue_number", nullable = false, updatable = false)
+  private int lastQueueNumber = 0;
+
   public ClinicQueueState() {}
 
   public ClinicQueueState(Long clinicId) {
@@ -86,4 +99,24 @@ public class ClinicQueueState {
   public void setLastResetAt(LocalDateTime lastResetAt) {
     this.lastResetAt = lastResetAt;
   }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public LocalDate getQueueDate() {
+    return queueDate;
+  }
+
+  public void setQueueDate(LocalDate queueDate) {
+    this.queueDate = queueDate;
+  }
+
+  public int getLastQueueNumber() {
+    return lastQueueNumber;
+  }
+
+  public void setLastQueueNumber(int lastQueueNumber) {
+    this.lastQueueNumber = lastQueueNumber;
+  }
 }
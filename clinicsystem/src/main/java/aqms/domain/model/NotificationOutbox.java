@@ -0,0 +1,108 @@
+package aqms.domain.model;
+
+import aqms.domain.enums.OutboxStatus;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "notification_outbox")
+/**
+ * NotificationOutbox
+ *
+ * An email waiting to be delivered (or already delivered) by the outbox dispatcher, together
+ * with its retry bookkeeping.
+ */
+public class NotificationOutbox {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(nullable = false)
+  private String recipient;
+
+  private String subject;
+
+  @Column(columnDefinition = "text")
+  private String body;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false)
+  private OutboxStatus status = OutboxStatus.PENDING;
+
+  private int attempts;
+  private LocalDateTime nextAttemptAt = LocalDateTime.now();
+
+  @Column(columnDefinition = "text")
+  private String lastError;
+
+  private LocalDateTime createdAt = LocalDateTime.now();
+  private LocalDateTime sentAt;
+
+  protected NotificationOutbox() {}
+
+  public NotificationOutbox(String recipient, String subject, String body) {
+    this.recipient = recipient;
+    this.subject = subject;
+    this.body = body;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public String getRecipient() {
+    return recipient;
+  }
+
+  public String getSubject() {
+    return subject;
+  }
+
+  public String getBody() {
+    return body;
+  }
+
+  public OutboxStatus getStatus() {
+    return status;
+  }
+
+  public void setStatus(OutboxStatus status) {
+    this.status = status;
+  }
+
+  public int getAttempts() {
+    return attempts;
+  }
+
+  public void setAttempts(int attempts) {
+    this.attempts = attempts;
+  }
+
+  public LocalDateTime getNextAttemptAt() {
+    return nextAttemptAt;
+  }
+
+  public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+    this.nextAttemptAt = nextAttemptAt;
+  }
+
+  public String getLastError() {
+    return lastError;
+  }
+
+  public void setLastError(String lastError) {
+    this.lastError = lastError;
+  }
+
+  public LocalDateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  public LocalDateTime getSentAt() {
+    return sentAt;
+  }
+
+  public void setSentAt(LocalDateTime sentAt) {
+    this.sentAt = sentAt;
+  }
+}
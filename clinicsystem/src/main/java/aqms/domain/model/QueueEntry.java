@@ -37,6 +37,9 @@ public class QueueEntry {
   private LocalDateTime fastTrackedAt;
   private String fastTrackReason;
 
+  @Enumerated(EnumType.STRING)
+  private aqms.domain.enums.QueuePriority priority = aqms.domain.enums.QueuePriority.NORMAL;
+
   public Long getId() {
     return id;
   }
@@ -128,4 +131,12 @@ public class QueueEntry {
   public void setFastTrackReason(String fastTrackReason) {
     this.fastTrackReason = fastTrackReason;
   }
+
+  public aqms.domain.enums.QueuePriority getPriority() {
+    return priority;
+  }
+
+  public void setPriority(aqms.domain.enums.QueuePriority priority) {
+    this.priority = priority;
+  }
 }
@@ -0,0 +1,104 @@
+package aqms.domain.model;
+
+import aqms.domain.enums.QueuePriority;
+import aqms.domain.enums.QueueStatus;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import org.hibernate.annotations.Immutable;
+
+@Entity
+@Immutable
+@Table(
+    name = "queue_entries_archive",
+    indexes = {@Index(columnList = "clinic_id, created_at, id")})
+/**
+ * QueueEntryArchive
+ *
+ * A queue entry from a finished queue day, moved out of queue_entries by {@code QueueArchiver}.
+ * Rows are written only by the archiver's INSERT ... SELECT and are read-only here. In PostgreSQL
+ * the table is range-partitioned by month on created_at (see V17).
+ */
+public class QueueEntryArchive {
+  @Id private Long id;
+
+  private Long clinicId;
+
+  // slots may be cleaned up independently of the archive, so no foreign key
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "slot_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+  private AppointmentSlot slot;
+
+  private Integer queueNumber;
+
+  @Enumerated(EnumType.STRING)
+  private QueueStatus status;
+
+  private LocalDateTime createdAt;
+  private LocalDateTime calledAt;
+  private String room;
+  private String doctorName;
+  private Boolean fastTracked;
+  private LocalDateTime fastTrackedAt;
+  private String fastTrackReason;
+
+  @Enumerated(EnumType.STRING)
+  private QueuePriority priority;
+
+  private LocalDateTime archivedAt;
+
+  public Long getId() {
+    return id;
+  }
+
+  public Long getClinicId() {
+    return clinicId;
+  }
+
+  public AppointmentSlot getSlot() {
+    return slot;
+  }
+
+  public Integer getQueueNumber() {
+    return queueNumber;
+  }
+
+  public QueueStatus getStatus() {
+    return status;
+  }
+
+  public LocalDateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  public LocalDateTime getCalledAt() {
+    return calledAt;
+  }
+
+  public String getRoom() {
+    return room;
+  }
+
+  public String getDoctorName() {
+    return doctorName;
+  }
+
+  public Boolean getFastTracked() {
+    return fastTracked;
+  }
+
+  public LocalDateTime getFastTrackedAt() {
+    return fastTrackedAt;
+  }
+
+  public String getFastTrackReason() {
+    return fastTrackReason;
+  }
+
+  public QueuePriority getPriority() {
+    return priority;
+  }
+
+  public LocalDateTime getArchivedAt() {
+    return archivedAt;
+  }
+}
@@ -0,0 +1,81 @@
+package aqms.domain.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "queue_event_log")
+/**
+ * QueueEventLog
+ *
+ * One stored clinic event: its position in the clinic's stream, type, the appointment it concerns
+ * (if any) and the event serialized as JSON. Rows are never updated.
+ */
+public class QueueEventLog {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "clinic_id", nullable = false)
+  private Long clinicId;
+
+  @Column(nullable = false)
+  private long seq;
+
+  @Column(name = "event_type", nullable = false, length = 64)
+  private String eventType;
+
+  @Column(name = "slot_id")
+  private Long slotId;
+
+  @Column(columnDefinition = "text")
+  private String payload;
+
+  @Column(name = "occurred_at", nullable = false)
+  private LocalDateTime occurredAt;
+
+  protected QueueEventLog() {}
+
+  public QueueEventLog(
+      Long clinicId,
+      long seq,
+      String eventType,
+      Long slotId,
+      String payload,
+      LocalDateTime occurredAt) {
+    this.clinicId = clinicId;
+    this.seq = seq;
+    this.eventType = eventType;
+    this.slotId = slotId;
+    this.payload = payload;
+    this.occurredAt = occurredAt;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public Long getClinicId() {
+    return clinicId;
+  }
+
+  public long getSeq() {
+    return seq;
+  }
+
+  public String getEventType() {
+    return eventType;
+  }
+
+  public Long getSlotId() {
+    return slotId;
+  }
+
+  public String getPayload() {
+    return payload;
+  }
+
+  public LocalDateTime getOccurredAt() {
+    return occurredAt;
+  }
+}
@@ -0,0 +1,41 @@
+package aqms.domain.model;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(
+    name = "queue_room_guard",
+    uniqueConstraints =
+        @UniqueConstraint(name = "uq_queue_room_guard", columnNames = {"clinic_id", "room"}))
+/**
+ * QueueRoomGuard
+ *
+ * One row per room of a clinic that has called a patient in cluster mode. The row carries no data:
+ * ClusterQueueCaller locks it while it checks the room is free and calls into it. Callers without
+ * a room share the row whose room is empty.
+ */
+public class QueueRoomGuard {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "clinic_id", nullable = false)
+  private Long clinicId;
+
+  @Column(nullable = false)
+  private String room;
+
+  protected QueueRoomGuard() {}
+
+  public Long getId() {
+    return id;
+  }
+
+  public Long getClinicId() {
+    return clinicId;
+  }
+
+  public String getRoom() {
+    return room;
+  }
+}
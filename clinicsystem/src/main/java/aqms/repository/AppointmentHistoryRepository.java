@@ -14,4 +14,7 @@ import org.springframework.data.jpa.repository.*;
  */
 public interface AppointmentHistoryRepository extends JpaRepository<AppointmentHistory, Long> {
   boolean existsBySlotId(Long slotId);
+
+  @Query("select distinct h.slot.id from AppointmentHistory h where h.slot.id in :slotIds")
+  Set<Long> findSlotIdsWithHistory(Collection<Long> slotIds);
 }
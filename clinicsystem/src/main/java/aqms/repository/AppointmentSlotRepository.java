@@ -139,4 +139,15 @@ public interface AppointmentSlotRepository extends JpaRepository<AppointmentSlot
       @Param("doctorId") Long doctorId);
 
   List<AppointmentSlot> findByStatus(AppointmentStatus status);
+
+  // Check-in: slots with everything enqueueing and notification read, in one statement
+  @Query(
+      """
+      select s from AppointmentSlot s
+      join fetch s.clinic
+      left join fetch s.doctor
+      left join fetch s.patient
+      where s.id in :ids
+      """)
+  List<AppointmentSlot> findForCheckIn(@Param("ids") Collection<Long> ids);
 }
@@ -1,15 +1,58 @@
 package aqms.repository;
 
 import aqms.domain.model.ClinicQueueState;
+import jakarta.persistence.LockModeType;
+import java.time.LocalDate;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 /**
  * Repository for persisting and retrieving the per-clinic queue state.
  *
  * Provides convenience finder methods used by QueueService to maintain and query the current
- * queue position for a clinic.
+ * queue position for a clinic, and the write-through updates of the daily queue-number sequence.
  */
 public interface ClinicQueueStateRepository extends JpaRepository<ClinicQueueState, Long> {
   Optional<ClinicQueueState> findByClinicId(Long clinicId);
+
+  // Row lock on the clinic's state; serialises queue-number allocation across app instances
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT s FROM ClinicQueueState s WHERE s.clinicId = :clinicId")
+  Optional<ClinicQueueState> lockByClinicId(@Param("clinicId") Long clinicId);
+
+  // Move the clinic's sequence forward to :number (never backwards within the same day)
+  @Modifying
+  @Query(
+    """
+    UPDATE ClinicQueueState s
+    SET s.lastQueueNumber = :number, s.queueDate = :day
+    WHERE s.clinicId = :clinicId
+    AND (s.queueDate IS NULL OR s.queueDate <> :day OR s.lastQueueNumber < :number)
+    """)
+  int advanceQueueNumber(
+      @Param("clinicId") Long clinicId,
+      @Param("day") LocalDate day,
+      @Param("number") int number);
+
+  // Restart every clinic's sequence for a new day (midnight reset)
+  @Modifying
+  @Query("UPDATE ClinicQueueState s SET s.queueDate = :day, s.lastQueueNumber = 0")
+  int resetQueueNumbers(@Param("day") LocalDate day);
+
+  // Create the state row for a clinic that has never had one; a concurrent insert wins silently
+  @Modifying
+  @Query(
+      value =
+          "INSERT INTO clinic_queue_state (clinic_id, running, paused, last_updated, queue_date, "
+              + "last_queue_number, version) "
+              + "VALUES (:clinicId, false, false, now(), :day, :number, 0) ON CONFLICT DO NOTHING",
+      nativeQuery = true)
+  int insertQueueNumberIfAbsent(
+      @Param("clinicId") Long clinicId,
+      @Param("day") LocalDate day,
+      @Param("number") int number);
 }
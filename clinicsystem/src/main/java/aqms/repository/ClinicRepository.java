@@ -2,6 +2,7 @@ package aqms.repository;
 
 import aqms.domain.enums.*;
 import aqms.domain.model.*;
+import jakarta.persistence.LockModeType;
 import java.time.*;
 import java.util.*;
 import org.springframework.data.jpa.repository.*;
@@ -12,4 +13,15 @@ import org.springframework.data.jpa.repository.*;
  * Data access for Clinic entities. Used to load and persist clinic metadata and relationships to
  * doctors and appointment configuration.
  */
-public interface ClinicRepository extends JpaRepository<Clinic, Long> {}
+public interface ClinicRepository extends JpaRepository<Clinic, Long> {
+  @Query("select c.id from Clinic c order by c.id")
+  List<Long> findAllIds();
+
+  @Query("select c.id from Clinic c where c.id in :ids")
+  List<Long> findExistingIds(Collection<Long> ids);
+
+  // Row lock on the clinic; serialises turning template slots into appointment_slot rows
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select c from Clinic c where c.id = :id")
+  Optional<Clinic> lockById(Long id);
+}
@@ -0,0 +1,50 @@
+package aqms.repository;
+
+import aqms.domain.enums.OutboxStatus;
+import aqms.domain.model.NotificationOutbox;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * Repository for the notification outbox.
+ *
+ * Rows are claimed with SKIP LOCKED so several dispatcher threads or instances can drain the
+ * table without handing out the same email twice.
+ */
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+  // Due rows: pending ones whose backoff has elapsed, and SENDING ones whose lease expired
+  @Query(
+      value =
+          "SELECT * FROM notification_outbox "
+              + "WHERE status IN ('PENDING','SENDING') AND next_attempt_at <= :now "
+              + "ORDER BY next_attempt_at, id LIMIT :limit FOR UPDATE SKIP LOCKED",
+      nativeQuery = true)
+  List<NotificationOutbox> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+  @Modifying
+  @Query(
+    """
+    UPDATE NotificationOutbox o
+    SET o.status = aqms.domain.enums.OutboxStatus.SENDING, o.nextAttemptAt = :leaseUntil
+    WHERE o.id IN :ids
+    """)
+  int lease(@Param("ids") Collection<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+  @Modifying
+  @Query(
+    """
+    UPDATE NotificationOutbox o
+    SET o.status = aqms.domain.enums.OutboxStatus.SENT, o.sentAt = :at,
+        o.attempts = o.attempts + 1, o.lastError = NULL
+    WHERE o.id IN :ids
+    """)
+  int markSent(@Param("ids") Collection<Long> ids, @Param("at") LocalDateTime at);
+
+  long countByStatus(OutboxStatus status);
+}
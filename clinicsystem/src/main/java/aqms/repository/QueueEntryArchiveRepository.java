@@ -0,0 +1,84 @@
+package aqms.repository;
+
+import aqms.domain.model.QueueEntryArchive;
+import aqms.service.QueueEntryView;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * Repository for archived queue entries (finished queue days).
+ *
+ * Mirrors the view queries of {@link QueueEntryRepository} so history and past-date views can read
+ * both tables, plus the INSERT ... SELECT used by the daily roll-over.
+ */
+public interface QueueEntryArchiveRepository extends JpaRepository<QueueEntryArchive, Long> {
+  String VIEW_SELECT =
+      """
+      SELECT new aqms.service.QueueEntryView(
+        q.id, q.queueNumber, q.status, s.id, s.startTime, p.id, p.fullname, q.doctorName,
+        q.room, q.calledAt, q.createdAt, q.fastTracked, q.fastTrackedAt, q.fastTrackReason,
+        q.priority)
+      FROM QueueEntryArchive q
+      LEFT JOIN q.slot s
+      LEFT JOIN s.patient p
+      """;
+
+  @Query(
+      VIEW_SELECT
+          + """
+          WHERE q.clinicId = :clinicId
+          AND q.createdAt BETWEEN :from AND :to
+          ORDER BY q.queueNumber ASC
+          """)
+  List<QueueEntryView> findViewsByClinicAndCreatedAtBetween(
+      @Param("clinicId") Long clinicId,
+      @Param("from") LocalDateTime from,
+      @Param("to") LocalDateTime to);
+
+  @Query(VIEW_SELECT + "WHERE q.clinicId = :clinicId ORDER BY q.createdAt DESC, q.id DESC")
+  List<QueueEntryView> findViewsByClinicOrderByCreatedAtDesc(
+      @Param("clinicId") Long clinicId, Limit limit);
+
+  @Query(
+      VIEW_SELECT
+          + """
+          WHERE q.clinicId = :clinicId
+          AND (q.createdAt < :createdAt OR (q.createdAt = :createdAt AND q.id < :id))
+          ORDER BY q.createdAt DESC, q.id DESC
+          """)
+  List<QueueEntryView> findViewsByClinicBefore(
+      @Param("clinicId") Long clinicId,
+      @Param("createdAt") LocalDateTime createdAt,
+      @Param("id") Long id,
+      Limit limit);
+
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  @Query(VIEW_SELECT + "WHERE q.clinicId = :clinicId ORDER BY q.createdAt DESC, q.id DESC")
+  Stream<QueueEntryView> streamViewsByClinic(@Param("clinicId") Long clinicId);
+
+  // Copy live rows into the archive; the caller deletes them from queue_entries in the same
+  // transaction
+  @Modifying
+  @Query(
+      value =
+          """
+          INSERT INTO queue_entries_archive (
+            id, clinic_id, slot_id, queue_number, status, created_at, called_at, room,
+            doctor_name, fast_tracked, fast_tracked_at, fast_track_reason, priority, archived_at)
+          SELECT id, clinic_id, slot_id, queue_number, status, created_at, called_at, room,
+            doctor_name, fast_tracked, fast_tracked_at, fast_track_reason, priority, :archivedAt
+          FROM queue_entries
+          WHERE id IN (:ids)
+          """,
+      nativeQuery = true)
+  int copyFromQueue(@Param("ids") List<Long> ids, @Param("archivedAt") LocalDateTime archivedAt);
+}
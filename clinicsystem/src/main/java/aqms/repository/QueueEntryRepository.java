@@ -2,11 +2,19 @@ package aqms.repository;
 
 import aqms.domain.enums.QueueStatus;
 import aqms.domain.model.QueueEntry;
+import aqms.service.QueueEntryView;
+import jakarta.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 public interface QueueEntryRepository extends JpaRepository<QueueEntry, Long> {
@@ -16,6 +24,56 @@ public interface QueueEntryRepository extends JpaRepository<QueueEntry, Long> {
    * Repository for queue entry persistence and common lookups used by the queue management
    * service (e.g. find next, check active entries, delete old entries).
    */
+
+  // Select/join shared by the queue status view queries: builds QueueEntryView rows directly, so
+  // listing a queue is one statement no matter how many entries (and patients) it has
+  String VIEW_SELECT =
+      """
+      SELECT new aqms.service.QueueEntryView(
+        q.id, q.queueNumber, q.status, s.id, s.startTime, p.id, p.fullname, q.doctorName,
+        q.room, q.calledAt, q.createdAt, q.fastTracked, q.fastTrackedAt, q.fastTrackReason,
+        q.priority)
+      FROM QueueEntry q
+      JOIN q.slot s
+      LEFT JOIN s.patient p
+      """;
+
+  @Query(
+      VIEW_SELECT
+          + """
+          WHERE q.clinicId = :clinicId
+          AND q.createdAt BETWEEN :from AND :to
+          ORDER BY q.queueNumber ASC
+          """)
+  List<QueueEntryView> findViewsByClinicAndCreatedAtBetween(
+      @Param("clinicId") Long clinicId,
+      @Param("from") LocalDateTime from,
+      @Param("to") LocalDateTime to);
+
+  // Queue history, newest first, paged by keyset on (createdAt, id) rather than offset so deep
+  // pages cost the same as the first one
+  @Query(VIEW_SELECT + "WHERE q.clinicId = :clinicId ORDER BY q.createdAt DESC, q.id DESC")
+  List<QueueEntryView> findViewsByClinicOrderByCreatedAtDesc(
+      @Param("clinicId") Long clinicId, Limit limit);
+
+  @Query(
+      VIEW_SELECT
+          + """
+          WHERE q.clinicId = :clinicId
+          AND (q.createdAt < :createdAt OR (q.createdAt = :createdAt AND q.id < :id))
+          ORDER BY q.createdAt DESC, q.id DESC
+          """)
+  List<QueueEntryView> findViewsByClinicBefore(
+      @Param("clinicId") Long clinicId,
+      @Param("createdAt") LocalDateTime createdAt,
+      @Param("id") Long id,
+      Limit limit);
+
+  // Whole history as a cursor-backed stream; must be consumed (and closed) inside a transaction
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  @Query(VIEW_SELECT + "WHERE q.clinicId = :clinicId ORDER BY q.createdAt DESC, q.id DESC")
+  Stream<QueueEntryView> streamViewsByClinic(@Param("clinicId") Long clinicId);
+
   @Query(
       "select q from QueueEntry q where q.clinicId = :clinicId and q.createdAt >= :from and q.createdAt <= :to order by q.queueNumber asc")
   List<QueueEntry> findByClinicAndCreatedAtBetweenOrderByQueueNumber(
@@ -37,6 +95,79 @@ public interface QueueEntryRepository extends JpaRepository<QueueEntry, Long> {
       @Param("from") LocalDateTime from,
       @Param("to") LocalDateTime to);
 
+  // Live entries with slot and patient fetched in the same statement (queue engine warm-up)
+  @Query(
+    """
+    SELECT q FROM QueueEntry q
+    JOIN FETCH q.slot s
+    LEFT JOIN FETCH s.patient
+    WHERE q.createdAt BETWEEN :from AND :to
+    ORDER BY q.clinicId, q.queueNumber
+    """)
+  List<QueueEntry> findLiveWithPatient(
+      @Param("from") LocalDateTime from,
+      @Param("to") LocalDateTime to);
+
+  @Query(
+    """
+    SELECT q FROM QueueEntry q
+    JOIN FETCH q.slot s
+    LEFT JOIN FETCH s.patient
+    WHERE q.clinicId = :clinicId
+    AND q.createdAt BETWEEN :from AND :to
+    ORDER BY q.queueNumber
+    """)
+  List<QueueEntry> findLiveWithPatientByClinic(
+      @Param("clinicId") Long clinicId,
+      @Param("from") LocalDateTime from,
+      @Param("to") LocalDateTime to);
+
+  // Head of one priority lane (fast-tracked entries count as EMERGENCY, as in QueueNode#lane):
+  // fast-tracked first by fast-track time, then by queue number, optionally only a doctor's own and
+  // unassigned patients, locked for the caller's transaction. Rows another node is already calling
+  // are skipped, not waited on.
+  @Query(
+      value =
+          """
+          SELECT * FROM queue_entries
+          WHERE clinic_id = :clinicId
+          AND status = 'QUEUED'
+          AND created_at BETWEEN :from AND :to
+          AND (CAST(:doctorName AS varchar) IS NULL OR doctor_name IS NULL
+               OR doctor_name = CAST(:doctorName AS varchar))
+          AND CASE WHEN fast_tracked = true OR priority = 'EMERGENCY' THEN 'EMERGENCY'
+                   WHEN priority = 'EXPRESS' THEN 'EXPRESS'
+                   ELSE 'NORMAL' END = CAST(:lane AS varchar)
+          ORDER BY fast_tracked_at NULLS LAST, queue_number, id
+          LIMIT 1
+          FOR UPDATE SKIP LOCKED
+          """,
+      nativeQuery = true)
+  Optional<QueueEntry> lockNextQueuedInLane(
+      @Param("clinicId") Long clinicId,
+      @Param("doctorName") String doctorName,
+      @Param("lane") String lane,
+      @Param("from") LocalDateTime from,
+      @Param("to") LocalDateTime to);
+
+  // Called/serving entries of the day in one room, or in the whole clinic when room is null
+  @Query(
+    """
+    SELECT q FROM QueueEntry q
+    JOIN FETCH q.slot s
+    LEFT JOIN FETCH s.patient
+    WHERE q.clinicId = :clinicId
+    AND q.status IN :statuses
+    AND q.createdAt BETWEEN :from AND :to
+    AND (:room IS NULL OR q.room = :room)
+    """)
+  List<QueueEntry> findInRoomWithStatus(
+      @Param("clinicId") Long clinicId,
+      @Param("room") String room,
+      @Param("statuses") Collection<QueueStatus> statuses,
+      @Param("from") LocalDateTime from,
+      @Param("to") LocalDateTime to);
+
   List<QueueEntry> findByClinicIdAndStatusOrderByQueueNumberAsc(Long clinicId, QueueStatus status);
 
   List<QueueEntry> findByClinicIdOrderByQueueNumberAsc(Long clinicId);
@@ -45,22 +176,36 @@ public interface QueueEntryRepository extends JpaRepository<QueueEntry, Long> {
       Long clinicId,
       QueueStatus status);
 
-  // find the earliest fast-tracked queued entry (to be served next)
-  Optional<QueueEntry> findTopByClinicIdAndStatusAndFastTrackedTrueOrderByFastTrackedAtAsc(
-      Long clinicId,
-      QueueStatus status);
-
   Optional<QueueEntry> findBySlotId(Long slotId);
 
+  List<QueueEntry> findBySlotIdIn(Collection<Long> slotIds);
+
   // Find entries for a clinic with a specific status
   List<QueueEntry> findByClinicIdAndStatus(Long clinicId, aqms.domain.enums.QueueStatus status);
 
-  // Return all entries for a clinic (no date filter) ordered by created_at desc
-  List<QueueEntry> findByClinicIdOrderByCreatedAtDesc(Long clinicId);
-
   // Helper to quickly check if there are any active queue entries for a clinic
   boolean existsByClinicIdAndStatusIn(Long clinicId, List<aqms.domain.enums.QueueStatus> statuses);
 
-  // Delete entries created before the provided cutoff (used to reset queues at midnight)
-  long deleteByCreatedAtBefore(java.time.LocalDateTime cutoff);
+  // Daily roll-over (QueueArchiver): oldest entry still in the live table, then batches of ids to
+  // move. Rows another archiver has claimed are skipped, so concurrent instances split the work.
+  @Query("SELECT MIN(q.createdAt) FROM QueueEntry q")
+  Optional<LocalDateTime> findEarliestCreatedAt();
+
+  @Query(
+      value =
+          """
+          SELECT id FROM queue_entries
+          WHERE created_at < :cutoff
+          ORDER BY id
+          LIMIT :limit
+          FOR UPDATE SKIP LOCKED
+          """,
+      nativeQuery = true)
+  List<Long> lockIdsCreatedBefore(
+      @Param("cutoff") LocalDateTime cutoff,
+      @Param("limit") int limit);
+
+  @Modifying
+  @Query("DELETE FROM QueueEntry q WHERE q.id IN :ids")
+  int deleteByIdIn(@Param("ids") List<Long> ids);
 }
@@ -0,0 +1,19 @@
+package aqms.repository;
+
+import aqms.domain.model.QueueEventLog;
+import java.util.List;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/** Repository for the append-only clinic event log. */
+public interface QueueEventLogRepository extends JpaRepository<QueueEventLog, Long> {
+
+  // Highest stored seq of a clinic (0 when it has none), to continue its stream after a restart
+  @Query("SELECT COALESCE(MAX(e.seq), 0) FROM QueueEventLog e WHERE e.clinicId = :clinicId")
+  long findLastSeq(@Param("clinicId") Long clinicId);
+
+  List<QueueEventLog> findByClinicIdAndSeqGreaterThanOrderBySeqAsc(
+      Long clinicId, long seq, Limit limit);
+}
@@ -0,0 +1,28 @@
+package aqms.repository;
+
+import aqms.domain.model.QueueRoomGuard;
+import jakarta.persistence.LockModeType;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/** Repository for the per-room rows that serialise cluster call-next within one room. */
+public interface QueueRoomGuardRepository extends JpaRepository<QueueRoomGuard, Long> {
+
+  // Row lock on one room of a clinic; callers into other rooms lock other rows
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT g FROM QueueRoomGuard g WHERE g.clinicId = :clinicId AND g.room = :room")
+  Optional<QueueRoomGuard> lock(@Param("clinicId") Long clinicId, @Param("room") String room);
+
+  // Create the room's row the first time it is called into; a concurrent insert wins silently
+  @Modifying
+  @Query(
+      value =
+          "INSERT INTO queue_room_guard (clinic_id, room) VALUES (:clinicId, :room)"
+              + " ON CONFLICT DO NOTHING",
+      nativeQuery = true)
+  int insertIfAbsent(@Param("clinicId") Long clinicId, @Param("room") String room);
+}
@@ -1,13 +1,22 @@
 package aqms.service;
 
 import aqms.config.AppProperties;
+import aqms.domain.event.AppointmentBookedEvent;
+import aqms.domain.event.AppointmentCancelledEvent;
+import aqms.domain.event.AppointmentRescheduledEvent;
 import aqms.domain.enums.AppointmentStatus;
 import aqms.domain.enums.QueueStatus;
 import aqms.domain.enums.UserRole;
 import aqms.domain.model.*;
 import aqms.repository.*;
+import aqms.service.event.ClinicEventBus;
+import aqms.service.slots.AvailabilityIndex;
+import aqms.service.slots.SlotConflictException;
+import aqms.service.slots.SlotHolds;
+import aqms.service.slots.SlotTemplates;
 import java.time.*;
 import java.util.List;
+import java.util.Optional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -20,21 +29,33 @@ public class AppointmentService {
    * AppointmentService
    *
    * Core appointment operations: booking, rescheduling, cancelling, check-in, and querying
-   * appointment slots for patients and staff. Persists an appointment history for audit.
+   * appointment slots for patients and staff. Persists an appointment history for audit and
+   * publishes booking, cancellation and reschedule events on the {@link ClinicEventBus}. With
+   * aqms.slots.templates, availability comes from {@link SlotTemplates} and template slots are
+   * booked by time ({@link #bookAt}). Otherwise stored availability is read from the {@link
+   * AvailabilityIndex}, which every change of a slot's status, time or doctor here keeps current.
+   * Slots held by a patient ({@link SlotHolds}) are left out of availability and only that patient
+   * can book them.
    */
   private final AppointmentSlotRepository slotRepo;
 
   private final AppointmentHistoryRepository histRepo;
   private final UserAccountRepository userRepo;
   private final AppProperties props;
-  private final QueueEntryRepository queueEntryRepo;
+  private final QueueService queueService;
   private final PasswordResetService passwordResetService;
+  private final ClinicEventBus clinicEvents;
+  private final SlotTemplates slotTemplates;
+  private final AvailabilityIndex availabilityIndex;
+  private final SlotHolds slotHolds;
 
   @Transactional
   public AppointmentSlot book(Long slotId, Long patientId) {
     var slot = slotRepo.findById(slotId).orElseThrow();
     if (slot.getStatus() != AppointmentStatus.AVAILABLE)
-      throw new IllegalStateException("Slot not available");
+      throw new SlotConflictException("Slot not available", slotId);
+    if (slotHolds.heldByOther(slotId, patientId))
+      throw new SlotConflictException("Slot is held by another patient", slotId);
     // Fetch the UserAccount and verify it's a PATIENT
     var user =
         userRepo
@@ -48,27 +69,64 @@ public class AppointmentService {
     slot.setPatient(user);
     slot.setStatus(AppointmentStatus.BOOKED);
     slotRepo.save(slot);
+    availabilityIndex.taken(slot);
     addHistory(slot, "BOOKED", "PATIENT", "Booked by patient " + patientId);
+    clinicEvents.publish(
+        slot.getClinic().getId(), new AppointmentBookedEvent(slot.getId(), patientId));
 
     passwordResetService.sendNewAccountReset(user.getEmail());
     return slot;
   }
 
+  /** Book the template slot starting at {@code start}, creating its appointment_slot row. */
+  @Transactional
+  public AppointmentSlot bookAt(
+      Long clinicId, Long doctorId, LocalDateTime start, Long patientId) {
+    if (!props.getSlots().isTemplates()) {
+      throw new IllegalStateException("Booking by time needs template slots to be enabled");
+    }
+    var slot = slotTemplates.materialize(clinicId, doctorId, start);
+    return book(slot.getId(), patientId);
+  }
+
   @Transactional(readOnly = true)
   public List<AppointmentSlot> findAvailable(Long clinicId, Long doctorId, LocalDate on) {
-    LocalDateTime startOfDay = on.atStartOfDay();
-    LocalDateTime endOfDay = on.plusDays(1).atStartOfDay();
-    return slotRepo.findAvailable(clinicId, doctorId, startOfDay, endOfDay);
+    List<AppointmentSlot> slots;
+    if (props.getSlots().isTemplates()) {
+      slots = slotTemplates.available(clinicId, doctorId, on);
+    } else if (availabilityIndex.enabled()) {
+      slots = availabilityIndex.available(clinicId, doctorId, on);
+    } else {
+      LocalDateTime startOfDay = on.atStartOfDay();
+      LocalDateTime endOfDay = on.plusDays(1).atStartOfDay();
+      slots = slotRepo.findAvailable(clinicId, doctorId, startOfDay, endOfDay);
+    }
+    if (slotHolds.size() == 0) return slots;
+    return slots.stream().filter(s -> s.getId() == null || !slotHolds.isHeld(s.getId())).toList();
+  }
+
+  /** The first stored slot still available (and not held) at or after {@code after}. */
+  @Transactional(readOnly = true)
+  public Optional<AppointmentSlot> findFirstAvailable(
+      Long clinicId, Long doctorId, LocalDateTime after) {
+    if (props.getSlots().isTemplates()) {
+      throw new IllegalStateException("First available slot is not supported with template slots");
+    }
+    return availabilityIndex.firstAvailable(
+        clinicId, doctorId, after, s -> !slotHolds.isHeld(s.getId()));
   }
 
   @Transactional
   public AppointmentSlot reschedule(Long slotId, LocalDateTime newStart, LocalDateTime newEnd) {
     var slot = slotRepo.findById(slotId).orElseThrow();
     ensureChangeAllowed(slot.getStartTime());
+    availabilityIndex.invalidate(slot.getClinic().getId(), slot.getStartTime().toLocalDate());
+    availabilityIndex.invalidate(slot.getClinic().getId(), newStart.toLocalDate());
     slot.setStartTime(newStart);
     slot.setEndTime(newEnd);
     slotRepo.save(slot);
     addHistory(slot, "RESCHEDULED", "PATIENT", "Rescheduled");
+    clinicEvents.publish(slot.getClinic().getId(), new AppointmentRescheduledEvent(slot.getId()));
     return slot;
   }
 
@@ -84,6 +142,7 @@ public class AppointmentService {
     slot.setStatus(AppointmentStatus.AVAILABLE);
     slot.setPatient(null);
     slotRepo.save(slot);
+    availabilityIndex.freed(slot);
 
     String actor = isByStaff ? "STAFF" : "PATIENT";
     String details =
@@ -91,6 +150,7 @@ public class AppointmentService {
             ? "Cancelled by staff - slot now available"
             : "Cancelled by patient - slot now available";
     addHistory(slot, "CANCELLED", actor, details);
+    clinicEvents.publish(slot.getClinic().getId(), new AppointmentCancelledEvent(slot.getId()));
   }
 
   @Transactional
@@ -163,10 +223,13 @@ public class AppointmentService {
 
     ensureChangeAllowed(slot.getStartTime());
 
+    availabilityIndex.invalidate(slot.getClinic().getId(), slot.getStartTime().toLocalDate());
+    availabilityIndex.invalidate(slot.getClinic().getId(), newStart.toLocalDate());
     slot.setStartTime(newStart);
     slot.setEndTime(newEnd);
     slotRepo.save(slot);
     addHistory(slot, "RESCHEDULED", "PATIENT", "Rescheduled to " + newStart);
+    clinicEvents.publish(slot.getClinic().getId(), new AppointmentRescheduledEvent(slot.getId()));
     return slot;
   }
 
@@ -203,8 +266,8 @@ public class AppointmentService {
   public AppointmentSlot addTreatmentSummary(Long slotId, String treatmentSummary) {
     var slot = slotRepo.findById(slotId).orElseThrow();
     // Require that the patient has been called in the queue before adding treatment summary
-    var qOpt = queueEntryRepo.findBySlotId(slot.getId());
-    if (qOpt.isEmpty() || qOpt.get().getStatus() != QueueStatus.CALLED) {
+    var qStatus = queueService.findStatusBySlotId(slot.getId());
+    if (qStatus.isEmpty() || qStatus.get() != QueueStatus.CALLED) {
       throw new IllegalStateException(
           "Patient must be called from the queue before adding a treatment summary");
     }
@@ -225,9 +288,9 @@ public class AppointmentService {
     var slot = slotRepo.findById(slotId).orElseThrow();
 
     // Only allow completion if patient was called and treatment summary present
-    var qOpt = queueEntryRepo.findBySlotId(slot.getId());
+    var qStatus = queueService.findStatusBySlotId(slot.getId());
     if (!force) {
-      if (qOpt.isEmpty() || qOpt.get().getStatus() != QueueStatus.CALLED) {
+      if (qStatus.isEmpty() || qStatus.get() != QueueStatus.CALLED) {
         throw new IllegalStateException(
             "Patient must be called from the queue before marking appointment as completed");
       }
@@ -251,11 +314,7 @@ public class AppointmentService {
         force ? "Appointment completed (forced)" : "Appointment completed");
     // If there's a queue entry for this slot, mark it completed as well
     try {
-      qOpt.ifPresent(
-          entry -> {
-            entry.setStatus(QueueStatus.COMPLETED);
-            queueEntryRepo.save(entry);
-          });
+      queueService.complete(slot.getId());
     } catch (Exception e) {
       // don't prevent completion if queue entry update fails
       System.err.println("Failed to update queue entry status on completion: " + e.getMessage());
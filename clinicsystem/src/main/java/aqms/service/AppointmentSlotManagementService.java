@@ -1,5 +1,6 @@
 package aqms.service;
 
+import aqms.config.AppProperties;
 import aqms.domain.enums.AppointmentStatus;
 import aqms.domain.model.AppointmentSlot;
 import aqms.domain.model.Doctor;
@@ -7,9 +8,13 @@ import aqms.repository.AppointmentHistoryRepository;
 import aqms.repository.AppointmentSlotRepository;
 import aqms.repository.ClinicRepository;
 import aqms.repository.DoctorRepository;
+import aqms.service.slots.AvailabilityIndex;
+import aqms.service.slots.SlotTemplates;
+import jakarta.persistence.EntityManager;
 import java.time.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -26,12 +31,20 @@ import org.springframework.web.server.ResponseStatusException;
  *
  * Responsibilities: - Generate non-overlapping appointment slots for clinics. - Create, update
  * and delete custom slots. - Enforce constraints such as doctor availability and locked slots.
+ *
+ * <p>Generated slots are built first and then written in chunks of {@code
+ * aqms.slots.generateChunkSize}, which Hibernate sends as JDBC batches when DB_BATCH_SIZE enables
+ * them.
  */
 public class AppointmentSlotManagementService {
   private final AppointmentSlotRepository slotRepo;
   private final AppointmentHistoryRepository historyRepo;
   private final ClinicRepository clinicRepo;
   private final DoctorRepository doctorRepo;
+  private final EntityManager entityManager;
+  private final AppProperties props;
+  private final SlotTemplates slotTemplates;
+  private final AvailabilityIndex availabilityIndex;
 
   @Transactional
   public List<AppointmentSlot> generateSlotsForDate(
@@ -109,9 +122,10 @@ public class AppointmentSlotManagementService {
 
       var existingSlots =
           slotRepo.findByClinicIdAndStartTimeBetween(clinicId, windowStart, windowEnd);
+      var withHistory = slotIdsWithHistory(existingSlots);
       var lockedSlots =
           existingSlots.stream()
-              .filter(slot -> slot.getPatient() != null || historyRepo.existsBySlotId(slot.getId()))
+              .filter(slot -> slot.getPatient() != null || withHistory.contains(slot.getId()))
               .toList();
 
       if (!lockedSlots.isEmpty()) {
@@ -142,7 +156,7 @@ public class AppointmentSlotManagementService {
           windowEnd,
           slotDurationMinutes);
 
-      var result = new ArrayList<AppointmentSlot>();
+      var slots = new ArrayList<AppointmentSlot>();
       LocalDateTime currentStart = windowStart;
       int count = 0;
 
@@ -199,12 +213,14 @@ public class AppointmentSlotManagementService {
         slot.setEndTime(currentStart.plusMinutes(slotDurationMinutes));
         slot.setStatus(AppointmentStatus.AVAILABLE);
 
-        result.add(slotRepo.save(slot));
+        slots.add(slot);
 
         // Next slot starts after appointment duration + buffer time
         currentStart = currentStart.plusMinutes(slotDurationMinutes + intervalMinutes);
       }
 
+      var result = saveInChunks(slots);
+      availabilityIndex.invalidate(clinicId, date);
       log.info("Successfully generated {} slots", result.size());
       return result;
     } catch (ResponseStatusException e) {
@@ -241,6 +257,7 @@ public class AppointmentSlotManagementService {
     slot.setEndTime(endTime);
     slot.setStatus(AppointmentStatus.AVAILABLE);
 
+    availabilityIndex.invalidate(clinicId, startTime.toLocalDate());
     return slotRepo.save(slot);
   }
 
@@ -251,6 +268,7 @@ public class AppointmentSlotManagementService {
 
     clinic.setApptInterval(intervalMinutes);
     clinicRepo.save(clinic);
+    slotTemplates.invalidate(clinicId);
   }
 
   @Transactional(readOnly = true)
@@ -294,6 +312,7 @@ public class AppointmentSlotManagementService {
                 () ->
                     new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "Appointment slot not found: " + slotId));
+    availabilityIndex.invalidate(slot.getClinic().getId(), slot.getStartTime().toLocalDate());
 
     if (doctorId == null) {
       slot.setDoctor(null);
@@ -354,6 +373,7 @@ public class AppointmentSlotManagementService {
       Long clinicId, LocalDateTime startTime, LocalDateTime endTime) {
     log.info("Deleting slots for clinic {} between {} and {}", clinicId, startTime, endTime);
     slotRepo.deleteByClinicIdAndStartTimeBetween(clinicId, startTime, endTime);
+    availabilityIndex.invalidate(clinicId, startTime, endTime);
     log.info("Deleted slots successfully");
   }
 
@@ -376,11 +396,7 @@ public class AppointmentSlotManagementService {
           continue;
         }
 
-        var lockedSlotIds =
-            slots.stream()
-                .filter(slot -> historyRepo.existsBySlotId(slot.getId()))
-                .map(AppointmentSlot::getId)
-                .collect(Collectors.toSet());
+        var lockedSlotIds = slotIdsWithHistory(slots);
 
         List<AppointmentSlot> deletableSlots =
             slots.stream()
@@ -389,6 +405,7 @@ public class AppointmentSlotManagementService {
 
         if (!deletableSlots.isEmpty()) {
           slotRepo.deleteAll(deletableSlots);
+          availabilityIndex.invalidate(clinicId, date);
           totalDeleted += deletableSlots.size();
         }
 
@@ -410,5 +427,29 @@ public class AppointmentSlotManagementService {
     }
   }
 
+  // one query for the whole window instead of an exists check per slot
+  private Set<Long> slotIdsWithHistory(List<AppointmentSlot> slots) {
+    if (slots.isEmpty()) {
+      return Set.of();
+    }
+    return historyRepo.findSlotIdsWithHistory(
+        slots.stream().map(AppointmentSlot::getId).toList());
+  }
+
+  // Each chunk is flushed (as JDBC batches when enabled: slot ids come from a pooled sequence, so
+  // no insert has to run on its own to read its key back) and then cleared from the persistence
+  // context, which would otherwise grow with every slot written and slow each later flush.
+  private List<AppointmentSlot> saveInChunks(List<AppointmentSlot> slots) {
+    int chunkSize = Math.max(1, props.getSlots().getGenerateChunkSize());
+    var saved = new ArrayList<AppointmentSlot>(slots.size());
+    for (int from = 0; from < slots.size(); from += chunkSize) {
+      var chunk = slots.subList(from, Math.min(from + chunkSize, slots.size()));
+      saved.addAll(slotRepo.saveAll(chunk));
+      entityManager.flush();
+      entityManager.clear();
+    }
+    return saved;
+  }
+
   public record DeleteSlotsOutcome(int deleted, int skipped) {}
 }
@@ -0,0 +1,106 @@
+package aqms.service;
+
+import aqms.domain.enums.AppointmentStatus;
+import aqms.domain.model.AppointmentHistory;
+import aqms.domain.model.AppointmentSlot;
+import aqms.repository.AppointmentHistoryRepository;
+import aqms.repository.AppointmentSlotRepository;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+@RequiredArgsConstructor
+/**
+ * CheckInService
+ *
+ * Checks patients in and puts them in the clinic queue in one transaction. The slots are loaded
+ * with clinic, doctor and patient in a single query, so a check-in costs that read plus the status
+ * update, the history row, a queue number and the queue insert; the queue engine and the patient's
+ * email are only touched once everything has committed. {@link #checkInAll} does the same for a
+ * batch of kiosk or QR scans, sharing the reads across the batch.
+ */
+public class CheckInService {
+  private final AppointmentSlotRepository slotRepo;
+  private final AppointmentHistoryRepository histRepo;
+  private final QueueService queueService;
+
+  /** Outcome of one appointment in a bulk check-in; {@code error} is set when it was skipped. */
+  public record Result(Long appointmentId, boolean checkedIn, Integer queueNumber, String error) {}
+
+  @Transactional
+  public AppointmentSlot checkIn(Long slotId) {
+    var slots = slotRepo.findForCheckIn(List.of(slotId));
+    if (slots.isEmpty()) throw new NoSuchElementException("Appointment not found: " + slotId);
+    var slot = slots.get(0);
+    String error = rejectReason(slot);
+    if (error != null) throw new IllegalStateException(error);
+    markCheckedIn(List.of(slot));
+    queueService.enqueueAll(List.of(slot));
+    return slot;
+  }
+
+  /**
+   * Check in every appointment in {@code slotIds}. Appointments that cannot be checked in are
+   * reported in their result instead of failing the batch; repeated scans of an appointment that
+   * is already checked in return its existing queue number.
+   */
+  @Transactional
+  public List<Result> checkInAll(List<Long> slotIds) {
+    var ids = new LinkedHashSet<>(slotIds);
+    var byId = new HashMap<Long, AppointmentSlot>();
+    for (var s : slotRepo.findForCheckIn(ids)) byId.put(s.getId(), s);
+
+    var accepted = new ArrayList<AppointmentSlot>();
+    var errors = new HashMap<Long, String>();
+    for (Long id : ids) {
+      var slot = byId.get(id);
+      String error = slot == null ? "Appointment not found" : rejectReason(slot);
+      if (error != null) errors.put(id, error);
+      else accepted.add(slot);
+    }
+    markCheckedIn(accepted);
+
+    var numbers = new HashMap<Long, Integer>();
+    for (var entry : queueService.enqueueAll(accepted)) {
+      numbers.put(entry.getSlot().getId(), entry.getQueueNumber());
+    }
+    var results = new ArrayList<Result>(ids.size());
+    for (Long id : ids) {
+      String error = errors.get(id);
+      results.add(new Result(id, error == null, numbers.get(id), error));
+    }
+    return results;
+  }
+
+  // checked in already is fine: a second scan just reports the patient's place in the queue
+  private static String rejectReason(AppointmentSlot slot) {
+    if (slot.getPatient() == null) return "Appointment has no patient";
+    var status = slot.getStatus();
+    if (status != AppointmentStatus.BOOKED && status != AppointmentStatus.CHECKED_IN) {
+      return "Appointment is " + status;
+    }
+    return null;
+  }
+
+  private void markCheckedIn(List<AppointmentSlot> slots) {
+    var history = new ArrayList<AppointmentHistory>();
+    for (var slot : slots) {
+      if (slot.getStatus() == AppointmentStatus.CHECKED_IN) continue;
+      slot.setStatus(AppointmentStatus.CHECKED_IN);
+      var h = new AppointmentHistory();
+      h.setSlot(slot);
+      h.setAction("CHECKED_IN");
+      h.setActor("STAFF");
+      h.setDetails("Checked in");
+      history.add(h);
+    }
+    slotRepo.saveAll(slots);
+    histRepo.saveAll(history);
+  }
+}
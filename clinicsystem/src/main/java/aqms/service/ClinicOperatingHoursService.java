@@ -1,6 +1,7 @@
 package aqms.service;
 
 import aqms.repository.ClinicRepository;
+import aqms.service.slots.SlotTemplates;
 import java.time.DayOfWeek;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
@@ -21,6 +22,8 @@ public class ClinicOperatingHoursService {
    */
   private final ClinicRepository clinicRepo;
 
+  private final SlotTemplates slotTemplates;
+
   private final DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm");
 
   @Transactional(readOnly = true)
@@ -43,6 +46,7 @@ public class ClinicOperatingHoursService {
         clinicRepo.findById(clinicId).orElseThrow(() -> new RuntimeException("Clinic not found"));
     clinic.setOperatingHours(hours);
     clinicRepo.save(clinic);
+    slotTemplates.invalidate(clinicId);
   }
 
   @Transactional
@@ -54,6 +58,7 @@ public class ClinicOperatingHoursService {
     currentHours.put(dayOfWeek.name(), formatTimeRange(openTime, closeTime));
     clinic.setOperatingHours(formatOperatingHours(currentHours));
     clinicRepo.save(clinic);
+    slotTemplates.invalidate(clinicId);
   }
 
   @Transactional
@@ -64,6 +69,7 @@ public class ClinicOperatingHoursService {
     currentHours.put(dayOfWeek.name(), "CLOSED");
     clinic.setOperatingHours(formatOperatingHours(currentHours));
     clinicRepo.save(clinic);
+    slotTemplates.invalidate(clinicId);
   }
 
   @Transactional(readOnly = true)
@@ -4,6 +4,7 @@ import aqms.domain.model.Clinic;
 import aqms.domain.model.Doctor;
 import aqms.repository.ClinicRepository;
 import aqms.repository.DoctorRepository;
+import aqms.service.slots.SlotTemplates;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -17,10 +18,13 @@ public class ClinicService {
 
   private final ClinicRepository clinics;
   private final DoctorRepository doct;
+  private final SlotTemplates slotTemplates;
 
-  public ClinicService(ClinicRepository clinics, DoctorRepository doct) {
+  public ClinicService(
+      ClinicRepository clinics, DoctorRepository doct, SlotTemplates slotTemplates) {
     this.clinics = clinics;
     this.doct = doct;
+    this.slotTemplates = slotTemplates;
   }
 
   public Clinic getClinicDetails(Long id) {
@@ -53,6 +57,7 @@ public class ClinicService {
     Clinic clinic = getClinicDetails(clinic_id);
     clinic.setOperatingHours(hours);
     clinics.save(clinic);
+    slotTemplates.invalidate(clinic_id);
   }
 
   public void removeAvailableDoctor(Long Clinic_id, Long Doctor_id) {
@@ -66,5 +71,6 @@ public class ClinicService {
   public void setApptIntervalSlots(Long Clinic_id, int Interval) {
     Clinic clinic = getClinicDetails(Clinic_id);
     clinic.setApptInterval(Interval);
+    slotTemplates.invalidate(Clinic_id);
   }
 }
@@ -3,11 +3,11 @@ package aqms.service;
 import aqms.domain.model.UserAccount;
 import aqms.repository.ClinicRepository;
 import aqms.repository.UserAccountRepository;
+import aqms.service.outbox.MailOutbox;
 import jakarta.transaction.Transactional;
 import java.util.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -18,7 +18,7 @@ public class NotificationService {
    *
    * Sends email notifications for queue updates and other user-facing events.
    */
-  private final JavaMailSender mailSender;
+  private final MailOutbox mailOutbox;
 
   private final UserAccountRepository userRepo;
   private final ClinicRepository clinicRepo;
@@ -36,14 +36,20 @@ public class NotificationService {
     var clinic =
         clinicRepo.findById(clinicId).orElseThrow(() -> new RuntimeException("Clinic not found"));
 
+    notifyPatientQueue(email, user.getFullname(), clinic.getName(), queueNum, numberAhead);
+  }
+
+  /** Queue position email for callers that already know the patient's and clinic's names. */
+  public void notifyPatientQueue(
+      String email, String fullname, String clinicName, int queueNum, int numberAhead) {
     SimpleMailMessage message = new SimpleMailMessage();
     message.setTo(email);
     message.setSubject("QmeNow: Queue Position");
     message.setText(
         "Hi "
-            + user.getFullname()
+            + fullname
             + ",\nThank you for checking in at "
-            + clinic.getName()
+            + clinicName
             + ".\n\n"
             + "Your current queue number is "
             + queueNum
@@ -51,8 +57,8 @@ public class NotificationService {
             + numberAhead
             + " people ahead of you.\n\nPlease wait patiently, we will attend to you shortly.\nBest regards,\nQmeNow Team.");
 
-    mailSender.send(message);
-    System.out.println("Queue email sent to " + email + " (Queue #" + queueNum + ")");
+    mailOutbox.enqueue(message);
+    System.out.println("Queue email queued for " + email + " (Queue #" + queueNum + ")");
   }
 
   @Transactional
@@ -82,7 +88,7 @@ public class NotificationService {
             + "Please stay nearby, you'll be called shortly.\n\n"
             + "Best regards,\nQmeNow Team");
 
-    mailSender.send(message);
+    mailOutbox.enqueue(message);
     // System.out.println("Fast-track email sent to " + email);
   }
 
@@ -93,15 +99,19 @@ public class NotificationService {
 
     var clinic =
         clinicRepo.findById(clinicId).orElseThrow(() -> new RuntimeException("Clinic not found"));
+    notifyNextInLine(email, user.getFullname(), clinic.getName(), qNum);
+  }
+
+  public void notifyNextInLine(String email, String fullname, String clinicName, int qNum) {
     SimpleMailMessage message = new SimpleMailMessage();
     message.setTo(email);
-    message.setSubject("QmeNow: You're Next in Queue at " + clinic.getName() + "!");
+    message.setSubject("QmeNow: You're Next in Queue at " + clinicName + "!");
     message.setText(
         "Hi "
-            + user.getFullname()
+            + fullname
             + ",\n\n"
             + "You are now next in line for your appointment at "
-            + clinic.getName()
+            + clinicName
             + ".\n"
             + "Queue Number: #"
             + qNum
@@ -109,7 +119,7 @@ public class NotificationService {
             + "Please proceed to the waiting area.\n\n"
             + "Thank you for your patience, \nQmeNow Team");
 
-    mailSender.send(message);
+    mailOutbox.enqueue(message);
     // System.out.println("Next-in-line notification sent to " + email);
   }
 }
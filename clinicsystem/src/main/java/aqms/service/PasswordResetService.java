@@ -1,12 +1,12 @@
 package aqms.service;
 
 import aqms.repository.UserAccountRepository;
+import aqms.service.outbox.MailOutbox;
 import jakarta.transaction.Transactional;
 import java.time.LocalDateTime;
 import java.util.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -21,7 +21,7 @@ public class PasswordResetService {
    */
   private final UserAccountRepository userRepo;
 
-  private final JavaMailSender mailSender;
+  private final MailOutbox mailOutbox;
   private final PasswordEncoder encoder;
   private final Map<String, ResetToken> tokenStore = new HashMap<>();
 
@@ -43,7 +43,7 @@ public class PasswordResetService {
             + ",\nYou are requested to reset your password with the link below:\n"
             + resetLink
             + "\n\nThis link will expire in 30 minutes.\n\nBest Regards,\nQmeNow Team");
-    mailSender.send(message);
+    mailOutbox.enqueue(message);
   }
 
   @Transactional
@@ -64,7 +64,7 @@ public class PasswordResetService {
             + ",\nYou have requested to reset your password. Please reset your password with the link below and do not forget to login and book and appointment to Q yourself.\nReset password here:"
             + resetLink
             + "\n\nThis link will expire in 30 minutes.\n\nBest Regards,\nQmeNow Team");
-    mailSender.send(message);
+    mailOutbox.enqueue(message);
   }
 
   @Transactional
@@ -85,7 +85,7 @@ public class PasswordResetService {
             + ", \nThank you for signing up with QmeNow. We are excited to Q you.\n\nTo access your account, do reset your new account's password by clicking the link below:\n"
             + resetLink
             + "\nThis link will expire in 1 week.\n\nBest Regards,\nQmeNow Team");
-    mailSender.send(message);
+    mailOutbox.enqueue(message);
   }
 
   @Transactional
@@ -0,0 +1,21 @@
+package aqms.service;
+
+/**
+ * Patient-facing snapshot of a queue entry and the clinic's queue around it.
+ *
+ * Returned by the patient queue endpoints and pushed over the patient queue stream whenever the
+ * clinic's queue changes. {@code estimatedWaitMinutes} is only set while the entry is waiting.
+ */
+public record PatientQueueResponse(
+    QueueEntryView entry,
+    boolean queueStarted,
+    Integer currentCalledNumber,
+    int peopleAhead,
+    int totalInQueue,
+    boolean queuePaused,
+    Integer estimatedWaitMinutes) {
+
+  public static PatientQueueResponse empty() {
+    return new PatientQueueResponse(null, false, null, 0, 0, false, null);
+  }
+}
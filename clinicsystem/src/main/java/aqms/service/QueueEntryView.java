@@ -1,5 +1,6 @@
 package aqms.service;
 
+import aqms.domain.enums.QueuePriority;
 import aqms.domain.enums.QueueStatus;
 import java.time.LocalDateTime;
 
@@ -23,4 +24,5 @@ public record QueueEntryView(
     LocalDateTime createdAt,
     Boolean fastTracked,
     LocalDateTime fastTrackedAt,
-    String fastTrackReason) {}
+    String fastTrackReason,
+    QueuePriority priority) {}
@@ -0,0 +1,34 @@
+package aqms.service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * One page of a clinic's queue history, newest first. {@code nextCursor} is null on the last page;
+ * otherwise pass it back to fetch the entries that follow.
+ */
+public record QueueHistoryPage(List<QueueEntryView> entries, String nextCursor) {
+
+  /** Keyset position (createdAt, id) of the last entry on a page, encoded as "createdAt_id". */
+  public record Cursor(LocalDateTime createdAt, Long id) {
+    public static Cursor of(QueueEntryView view) {
+      return new Cursor(view.createdAt(), view.id());
+    }
+
+    /** Parse an encoded cursor; throws IllegalArgumentException if it is malformed. */
+    public static Cursor parse(String value) {
+      int sep = value.lastIndexOf('_');
+      try {
+        return new Cursor(
+            LocalDateTime.parse(value.substring(0, sep)), Long.valueOf(value.substring(sep + 1)));
+      } catch (IndexOutOfBoundsException | DateTimeParseException | NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid cursor: " + value);
+      }
+    }
+
+    public String encode() {
+      return createdAt + "_" + id;
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package aqms.service;
+
+import aqms.config.AppProperties;
+import aqms.domain.model.Clinic;
+import aqms.repository.ClinicRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+@Service
+@Slf4j
+/**
+ * QueuePositionNotifier
+ *
+ * Sends queue emails triggered by call-next off the request thread. Position updates are collected
+ * per clinic for a short window and sent as one batch; if a patient's position changes again within
+ * the window only the latest position is mailed. Batches run on a bounded pool and end up in the
+ * mail outbox, which handles the actual SMTP delivery. Exposes pending/queued gauges and an
+ * enqueue timer via Micrometer; SMTP latency is timed by the outbox as aqms.outbox.send.
+ */
+public class QueuePositionNotifier {
+  private final NotificationService notificationService;
+  private final ClinicRepository clinicRepo;
+  private final AppProperties.Notify props;
+
+  private final Map<Long, Map<Long, Update>> pendingByClinic = new ConcurrentHashMap<>();
+  private final AtomicInteger pendingCount = new AtomicInteger();
+  private final ScheduledExecutorService windows;
+  private final ThreadPoolExecutor senders;
+
+  private final Timer enqueueTimer;
+  private final Counter coalesced;
+  private final Counter dropped;
+  private final Counter failed;
+
+  public QueuePositionNotifier(
+      NotificationService notificationService,
+      ClinicRepository clinicRepo,
+      AppProperties props,
+      MeterRegistry meters) {
+    this.notificationService = notificationService;
+    this.clinicRepo = clinicRepo;
+    this.props = props.getNotify();
+    this.windows =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              var t = new Thread(r, "queue-notify-window");
+              t.setDaemon(true);
+              return t;
+            });
+    var threads = new AtomicInteger();
+    this.senders =
+        new ThreadPoolExecutor(
+            this.props.getWorkers(),
+            this.props.getWorkers(),
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(this.props.getQueueCapacity()),
+            r -> {
+              var t = new Thread(r, "queue-notify-" + threads.incrementAndGet());
+              t.setDaemon(true);
+              return t;
+            });
+
+    Gauge.builder("aqms.notify.pending", pendingCount, AtomicInteger::get)
+        .description("Position updates waiting for their coalescing window")
+        .register(meters);
+    Gauge.builder("aqms.notify.queue.depth", senders, e -> e.getQueue().size())
+        .description("Notification batches queued for a sender thread")
+        .register(meters);
+    this.enqueueTimer =
+        Timer.builder("aqms.notify.enqueue")
+            .description("Time to hand one email to the outbox")
+            .register(meters);
+    this.coalesced = meters.counter("aqms.notify.coalesced");
+    this.dropped = meters.counter("aqms.notify.dropped");
+    this.failed = meters.counter("aqms.notify.failed");
+  }
+
+  /** A patient's position after a queue change. */
+  public record Update(Long slotId, String email, String fullname, int queueNumber, int ahead) {}
+
+  /** Queue position updates for {@code clinicId}; sent after the coalescing window closes. */
+  public void positionsChanged(Long clinicId, List<Update> updates) {
+    if (updates.isEmpty()) return;
+    pendingByClinic.compute(
+        clinicId,
+        (id, batch) -> {
+          if (batch == null) {
+            batch = new LinkedHashMap<>();
+            windows.schedule(() -> flush(id), props.getCoalesceMillis(), TimeUnit.MILLISECONDS);
+          }
+          for (var u : updates) {
+            if (u.email() == null) continue;
+            if (batch.put(u.slotId(), u) != null) coalesced.increment();
+            else pendingCount.incrementAndGet();
+          }
+          return batch;
+        });
+  }
+
+  /** "You're next" email for the patient who was just called; sent without waiting. */
+  public void nextInLine(Long clinicId, String email, String fullname, int queueNumber) {
+    if (email == null) return;
+    submit(
+        () -> {
+          String clinicName = clinicName(clinicId);
+          send(() -> notificationService.notifyNextInLine(email, fullname, clinicName, queueNumber));
+        });
+  }
+
+  private void flush(Long clinicId) {
+    var batch = pendingByClinic.remove(clinicId);
+    if (batch == null) return;
+    pendingCount.addAndGet(-batch.size());
+    submit(
+        () -> {
+          String clinicName = clinicName(clinicId);
+          for (var u : batch.values()) {
+            send(
+                () ->
+                    notificationService.notifyPatientQueue(
+                        u.email(), u.fullname(), clinicName, u.queueNumber(), u.ahead()));
+          }
+        });
+  }
+
+  private void submit(Runnable task) {
+    try {
+      senders.execute(task);
+    } catch (RejectedExecutionException e) {
+      dropped.increment();
+      log.warn("Queue notification backlog full, dropping a batch");
+    }
+  }
+
+  private void send(Runnable mail) {
+    try {
+      enqueueTimer.record(mail);
+    } catch (Exception e) {
+      failed.increment();
+      log.warn("Failed to send queue notification: {}", e.getMessage());
+    }
+  }
+
+  private String clinicName(Long clinicId) {
+    return clinicRepo.findById(clinicId).map(Clinic::getName).orElse("the clinic");
+  }
+
+  @PreDestroy
+  void shutdown() {
+    windows.shutdownNow();
+    senders.shutdown();
+  }
+}
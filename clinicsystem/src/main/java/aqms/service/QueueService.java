@@ -1,12 +1,30 @@
 package aqms.service;
 
+import aqms.config.AppProperties;
 import aqms.domain.enums.AppointmentStatus;
+import aqms.domain.enums.QueuePriority;
 import aqms.domain.enums.QueueStatus;
+import aqms.domain.event.QueueAdvancedEvent;
+import aqms.domain.event.QueueAdvancedEvent.Change;
+import aqms.domain.model.AppointmentSlot;
 import aqms.domain.model.ClinicQueueState;
 import aqms.domain.model.QueueEntry;
 import aqms.repository.AppointmentSlotRepository;
 import aqms.repository.ClinicQueueStateRepository;
+import aqms.repository.QueueEntryArchiveRepository;
 import aqms.repository.QueueEntryRepository;
+import aqms.service.event.ClinicEventBus;
+import aqms.service.queue.ClinicQueueStateRegistry;
+import aqms.service.queue.QueueArchiver;
+import aqms.service.queue.QueueEngine;
+import aqms.service.queue.QueueNode;
+import aqms.service.queue.QueueNumberAllocator;
+import aqms.service.queue.QueueSummary;
+import aqms.service.queue.QueueVersions;
+import aqms.service.queue.SingleFlight;
+import aqms.service.queue.WaitTimeEstimator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -14,7 +32,9 @@ import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.util.*;
+import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -27,73 +47,123 @@ import org.springframework.transaction.annotation.Transactional;
  * Core queue management logic: enqueueing patients, calling the next patient, fast-tracking, and
  * producing queue views for the UI.
  *
- * Persists minimal state and keeps transient running/paused flags in-memory.
+ * Today's queue lives in {@link QueueEngine}; this service validates requests, inserts new entries
+ * and sends notifications. Every committed change publishes a {@link QueueAdvancedEvent} for the
+ * clinic on the {@link ClinicEventBus} and bumps its {@link QueueVersions} counter. Running/paused
+ * flags are read from {@link ClinicQueueStateRegistry}. Clinic-wide reads go through {@link
+ * SingleFlight}, so a burst of identical requests is answered by one computation.
  */
-public class QueueService {
+public class QueueService implements MeterBinder {
   private final QueueEntryRepository queueRepo;
+  private final QueueEntryArchiveRepository archiveRepo;
   private final AppointmentSlotRepository slotRepo;
   private final ClinicQueueStateRepository stateRepo;
+  private final ClinicQueueStateRegistry queueStates;
   private final NotificationService notificationService;
-
-  // In-memory control flags per clinic (non-persistent)
-  private final Map<Long, Boolean> running = new HashMap<>();
-  private final Map<Long, Boolean> paused = new HashMap<>();
+  private final QueuePositionNotifier positionNotifier;
+  private final QueueEngine engine;
+  private final QueueVersions queueVersions;
+  private final QueueNumberAllocator numberAllocator;
+  private final QueueArchiver archiver;
+  private final WaitTimeEstimator waitTimes;
+  private final ClinicEventBus clinicEvents;
+  private final AppProperties props;
+
+  // concurrent identical reads share one computation; today's results are reused until the
+  // clinic's QueueVersions tag moves
+  private final SingleFlight<Long, List<QueueEntryView>> todayViews =
+      new SingleFlight<>("queue-status");
+  private final SingleFlight<DatedView, List<QueueEntryView>> datedViews =
+      new SingleFlight<>("queue-status-dated");
+  private final SingleFlight<Long, QueueWaitEstimate> waitEstimates =
+      new SingleFlight<>("wait-estimate");
+
+  private record DatedView(Long clinicId, LocalDate date) {}
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    todayViews.bindTo(registry);
+    datedViews.bindTo(registry);
+    waitEstimates.bindTo(registry);
+  }
 
   // helper: compute the lower bound for today's queue entries for a clinic
   private LocalDateTime computeFromBoundary(Long clinicId) {
-    LocalDate today = LocalDate.now();
-    LocalDateTime todayStart = today.atStartOfDay();
-    try {
-      var sOpt = stateRepo.findByClinicId(clinicId);
-      if (sOpt.isPresent()) {
-        var lastReset = sOpt.get().getLastResetAt();
-        if (lastReset != null) return lastReset;
-      }
-    } catch (Exception ignored) {
-    }
-    return todayStart;
+    return engine.boundary(clinicId);
   }
 
   @Transactional
   public QueueEntry enqueue(Long slotId) {
-    var slot = slotRepo.findById(slotId).orElseThrow();
-    // if already enqueued, return existing
-    var existing = queueRepo.findBySlotId(slotId);
-    if (existing.isPresent()) return existing.get();
-
-    Long clinicId = slot.getClinic().getId();
-    // determine today's range (respect lastResetAt if present)
-    LocalDateTime from = computeFromBoundary(clinicId);
-    LocalDateTime to = LocalDate.now().atTime(LocalTime.MAX);
+    var slot = slotRepo.findForCheckIn(List.of(slotId));
+    if (slot.isEmpty()) throw new NoSuchElementException("Slot not found: " + slotId);
+    return enqueueAll(slot).get(0);
+  }
 
-    var todays = queueRepo.findByClinicAndCreatedAtBetweenOrderByQueueNumber(clinicId, from, to);
-    int next = 1;
-    if (!todays.isEmpty()) {
-      Integer max = todays.get(todays.size() - 1).getQueueNumber();
-      next = (max == null ? todays.size() + 1 : max + 1);
+  /**
+   * Enqueue slots the caller has already loaded with clinic, doctor and patient (see {@link
+   * AppointmentSlotRepository#findForCheckIn}). Slots that already have an entry keep it; existing
+   * entries for the whole batch are found with one query, so each new patient costs a number
+   * allocation and an insert. The engine and the patients' emails are only updated after commit.
+   */
+  @Transactional
+  public List<QueueEntry> enqueueAll(List<AppointmentSlot> slots) {
+    if (slots.isEmpty()) return List.of();
+    var existing = new HashMap<Long, QueueEntry>();
+    for (var e : queueRepo.findBySlotIdIn(slots.stream().map(AppointmentSlot::getId).toList())) {
+      existing.put(e.getSlot().getId(), e);
     }
 
-    var entry = new QueueEntry();
-    entry.setClinicId(clinicId);
-    entry.setSlot(slot);
-    entry.setQueueNumber(next);
-    entry.setStatus(QueueStatus.QUEUED);
-    entry.setCreatedAt(LocalDateTime.now());
-    entry.setDoctorName(slot.getDoctor() != null ? slot.getDoctor().getName() : null);
-    queueRepo.save(entry);
+    var result = new ArrayList<QueueEntry>(slots.size());
+    var added = new ArrayList<QueueEntry>();
+    for (var slot : slots) {
+      var entry = existing.get(slot.getId());
+      if (entry == null) {
+        Long clinicId = slot.getClinic().getId();
+        entry = new QueueEntry();
+        entry.setClinicId(clinicId);
+        entry.setSlot(slot);
+        entry.setQueueNumber(numberAllocator.next(clinicId));
+        entry.setStatus(QueueStatus.QUEUED);
+        entry.setCreatedAt(LocalDateTime.now());
+        entry.setDoctorName(slot.getDoctor() != null ? slot.getDoctor().getName() : null);
+        queueRepo.save(entry);
+        existing.put(slot.getId(), entry);
+        added.add(entry);
+      }
+      result.add(entry);
+    }
 
-    var todaysQueuedbutNotCalled =
-        queueRepo.findByClinicAndStatusAndCreatedAtBetweenOrderByQueueNumber(
-            clinicId, QueueStatus.QUEUED, from, to);
+    // only expose the entries in memory once the inserts are committed
+    var nodes = added.stream().map(QueueNode::from).toList();
+    QueueEngine.afterCommit(() -> queued(nodes));
+    return result;
+  }
 
-    try {
-      System.out.println("🔥 SENDING EMAIL NOW...");
-      notificationService.notifyPatientQueue(
-          slot.getPatient().getEmail(), clinicId, next, todaysQueuedbutNotCalled.size());
-    } catch (Exception e) {
-      System.err.println("Failed to send queue notification: " + e.getMessage());
+  private void queued(List<QueueNode> nodes) {
+    var byClinic = new LinkedHashMap<Long, List<QueuePositionNotifier.Update>>();
+    for (var node : nodes) {
+      engine.add(node);
+      // its place in the policy's call order, as later position updates report it
+      int ahead =
+          engine.locked(
+              node.getClinicId(),
+              q -> q.findBySlot(node.getSlotId()).map(n -> q.countAhead(n, false)).orElse(0));
+      publishChanged(
+          node.getClinicId(),
+          Change.ENQUEUED,
+          engine.find(node.getClinicId(), node.getSlotId()).orElse(null));
+      byClinic
+          .computeIfAbsent(node.getClinicId(), id -> new ArrayList<>())
+          .add(
+              new QueuePositionNotifier.Update(
+                  node.getSlotId(),
+                  node.getPatientEmail(),
+                  node.getPatientName(),
+                  node.getQueueNumber(),
+                  ahead));
     }
-    return entry;
+    byClinic.forEach(
+        (clinicId, updates) -> positionNotifier.positionsChanged(clinicId, updates));
   }
 
   // (manual reset removed - queue numbers reset automatically at midnight)
@@ -121,242 +191,204 @@ public class QueueService {
     return queueRepo.findByClinicAndCreatedAtBetweenOrderByQueueNumber(clinicId, from, to);
   }
 
-  @Transactional(readOnly = true)
   public List<QueueEntryView> getQueueStatusView(Long clinicId) {
-    LocalDateTime from = computeFromBoundary(clinicId);
-    LocalDateTime to = LocalDate.now().atTime(LocalTime.MAX);
-    var list = queueRepo.findByClinicAndCreatedAtBetweenOrderByQueueNumber(clinicId, from, to);
-    List<QueueEntryView> views = new ArrayList<>();
-    for (var e : list) {
-      var slot = e.getSlot();
-      Long appointmentId = slot != null ? slot.getId() : null;
-      java.time.LocalDateTime time = slot != null ? slot.getStartTime() : null;
-      Long patientId = null;
-      String patientName = null;
-      if (slot != null && slot.getPatient() != null) {
-        patientId = slot.getPatient().getId();
-        patientName = slot.getPatient().getFullname();
-      }
-      views.add(
-          new QueueEntryView(
-              e.getId(),
-              e.getQueueNumber(),
-              e.getStatus(),
-              appointmentId,
-              time,
-              patientId,
-              patientName,
-              e.getDoctorName(),
-              e.getRoom(),
-              e.getCalledAt(),
-              e.getCreatedAt(),
-              e.getFastTracked(),
-              e.getFastTrackedAt(),
-              e.getFastTrackReason()));
-    }
-    return views;
+    return todayViews.get(
+        clinicId, queueVersions.etag(clinicId), () -> List.copyOf(engine.views(clinicId)));
   }
 
   @Transactional(readOnly = true)
   public List<QueueEntryView> getQueueStatusView(Long clinicId, LocalDate dateUtc) {
+    var key = new DatedView(clinicId, dateUtc);
+    return datedViews.get(key, () -> List.copyOf(loadQueueStatusView(clinicId, dateUtc)));
+  }
+
+  private List<QueueEntryView> loadQueueStatusView(Long clinicId, LocalDate dateUtc) {
     Instant startUtc = dateUtc.atStartOfDay(ZoneOffset.UTC).toInstant();
     Instant endUtc = dateUtc.atTime(LocalTime.MAX).atZone(ZoneOffset.UTC).toInstant();
     ZoneId sys = ZoneId.systemDefault();
     LocalDateTime from = LocalDateTime.ofInstant(startUtc, sys);
     LocalDateTime to = LocalDateTime.ofInstant(endUtc, sys);
-    var list = queueRepo.findByClinicAndCreatedAtBetweenOrderByQueueNumber(clinicId, from, to);
-    List<QueueEntryView> views = new ArrayList<>();
-    for (var e : list) {
-      var slot = e.getSlot();
-      Long appointmentId = slot != null ? slot.getId() : null;
-      java.time.LocalDateTime time = slot != null ? slot.getStartTime() : null;
-      Long patientId = null;
-      String patientName = null;
-      if (slot != null && slot.getPatient() != null) {
-        patientId = slot.getPatient().getId();
-        patientName = slot.getPatient().getFullname();
-      }
-      views.add(
-          new QueueEntryView(
-              e.getId(),
-              e.getQueueNumber(),
-              e.getStatus(),
-              appointmentId,
-              time,
-              patientId,
-              patientName,
-              e.getDoctorName(),
-              e.getRoom(),
-              e.getCalledAt(),
-              e.getCreatedAt(),
-              e.getFastTracked(),
-              e.getFastTrackedAt(),
-              e.getFastTrackReason()));
+    // past days have been rolled over into the archive; a day can straddle both tables
+    var views = new ArrayList<>(queueRepo.findViewsByClinicAndCreatedAtBetween(clinicId, from, to));
+    var archived = archiveRepo.findViewsByClinicAndCreatedAtBetween(clinicId, from, to);
+    if (!archived.isEmpty()) {
+      views.addAll(archived);
+      views.sort(
+          Comparator.comparing(
+              QueueEntryView::queueNumber, Comparator.nullsLast(Comparator.naturalOrder())));
     }
     return views;
   }
 
+  /**
+   * One page of a clinic's full queue history (no date filter), newest first. {@code cursor} is the
+   * {@link QueueHistoryPage#nextCursor()} of the previous page, or null for the first page.
+   */
   @Transactional(readOnly = true)
-  public List<QueueEntryView> getAllQueueStatusView(Long clinicId) {
-    var list = queueRepo.findByClinicIdOrderByCreatedAtDesc(clinicId);
-    List<QueueEntryView> views = new ArrayList<>();
-    for (var e : list) {
-      var slot = e.getSlot();
-      Long appointmentId = slot != null ? slot.getId() : null;
-      java.time.LocalDateTime time = slot != null ? slot.getStartTime() : null;
-      Long patientId = null;
-      String patientName = null;
-      if (slot != null && slot.getPatient() != null) {
-        patientId = slot.getPatient().getId();
-        patientName = slot.getPatient().getFullname();
-      }
-      views.add(
-          new QueueEntryView(
-              e.getId(),
-              e.getQueueNumber(),
-              e.getStatus(),
-              appointmentId,
-              time,
-              patientId,
-              patientName,
-              e.getDoctorName(),
-              e.getRoom(),
-              e.getCalledAt(),
-              e.getCreatedAt(),
-              e.getFastTracked(),
-              e.getFastTrackedAt(),
-              e.getFastTrackReason()));
+  public QueueHistoryPage getQueueHistoryPage(Long clinicId, String cursor, int limit) {
+    var after = cursor == null || cursor.isBlank() ? null : QueueHistoryPage.Cursor.parse(cursor);
+    var views =
+        new ArrayList<>(
+            after == null
+                ? queueRepo.findViewsByClinicOrderByCreatedAtDesc(clinicId, Limit.of(limit + 1))
+                : queueRepo.findViewsByClinicBefore(
+                    clinicId, after.createdAt(), after.id(), Limit.of(limit + 1)));
+    // archived entries are all older than live ones, so the same cursor carries on into them
+    if (views.size() <= limit) {
+      if (!views.isEmpty()) after = QueueHistoryPage.Cursor.of(views.get(views.size() - 1));
+      var more = Limit.of(limit + 1 - views.size());
+      views.addAll(
+          after == null
+              ? archiveRepo.findViewsByClinicOrderByCreatedAtDesc(clinicId, more)
+              : archiveRepo.findViewsByClinicBefore(
+                  clinicId, after.createdAt(), after.id(), more));
     }
-    return views;
+    if (views.size() <= limit) return new QueueHistoryPage(views, null);
+    var page = views.subList(0, limit);
+    return new QueueHistoryPage(page, QueueHistoryPage.Cursor.of(page.get(limit - 1)).encode());
   }
 
+  /** Feed a clinic's full queue history to {@code sink} row by row, newest first. */
   @Transactional(readOnly = true)
-  public Optional<QueueEntry> findBySlotId(Long slotId) {
-    return queueRepo.findBySlotId(slotId);
+  public void forEachQueueHistoryEntry(Long clinicId, Consumer<QueueEntryView> sink) {
+    try (var views = queueRepo.streamViewsByClinic(clinicId)) {
+      views.forEach(sink);
+    }
+    try (var views = archiveRepo.streamViewsByClinic(clinicId)) {
+      views.forEach(sink);
+    }
   }
 
-  @Transactional
-  public QueueEntry callNext(Long clinicId) {
-
-    // ✅ Validate no CALLED/SERVING is still active
-    try {
-      var list = getQueueStatusView(clinicId);
-      var active =
-          list.stream()
-              .filter(e -> e.status() == QueueStatus.CALLED || e.status() == QueueStatus.SERVING)
-              .toList();
-
-      for (var e : active) {
-        Long slotId = e.appointmentId();
-        if (slotId == null)
-          throw new IllegalStateException("Cannot call next: unfinished patient.");
-
-        var slot =
-            slotRepo
-                .findById(slotId)
-                .orElseThrow(() -> new IllegalStateException("Slot not found"));
-
-        boolean completed = slot.getStatus() == AppointmentStatus.COMPLETED;
-        boolean hasSummary =
-            slot.getTreatmentSummary() != null && !slot.getTreatmentSummary().isBlank();
-
-        if (!completed || !hasSummary)
-          throw new IllegalStateException("Cannot call next: current patient not completed.");
-      }
+  /**
+   * Queue entry for a slot. Today's entries come from memory, so transitions still waiting for
+   * write-behind are visible.
+   */
+  @Transactional(readOnly = true)
+  public Optional<QueueEntryView> findBySlotId(Long slotId) {
+    return queueRepo
+        .findBySlotId(slotId)
+        .map(e -> engine.find(e.getClinicId(), slotId).orElseGet(() -> QueueNode.from(e).toView()));
+  }
 
-    } catch (IllegalStateException ex) {
-      throw ex;
-    } catch (Exception ignored) {
+  /**
+   * Current status of the queue entry for a slot. Served from memory for today's queue so that
+   * transitions still waiting for write-behind are visible.
+   */
+  public Optional<QueueStatus> findStatusBySlotId(Long slotId) {
+    var clinicId = engine.clinicOfSlot(slotId);
+    if (clinicId.isPresent()) {
+      var live = engine.find(clinicId.get(), slotId);
+      if (live.isPresent()) return Optional.of(live.get().status());
     }
+    return queueRepo.findBySlotId(slotId).map(QueueEntry::getStatus);
+  }
 
-    // ✅ Prefer fast-track
-    var ftOpt =
-        queueRepo.findTopByClinicIdAndStatusAndFastTrackedTrueOrderByFastTrackedAtAsc(
-            clinicId, QueueStatus.QUEUED);
-    QueueEntry next;
-
-    if (ftOpt.isPresent()) {
-      next = ftOpt.get();
-      next.setStatus(QueueStatus.CALLED);
-      next.setCalledAt(LocalDateTime.now());
-      next.setFastTracked(false);
-      next.setFastTrackedAt(null);
-      queueRepo.save(next);
-    } else {
-      next =
-          queueRepo
-              .findTopByClinicIdAndStatusOrderByQueueNumberAsc(clinicId, QueueStatus.QUEUED)
-              .orElseThrow(() -> new NoSuchElementException("No queued patients"));
-      next.setStatus(QueueStatus.CALLED);
-      next.setCalledAt(LocalDateTime.now());
-      queueRepo.save(next);
-    }
+  /**
+   * Call the next patient. The pick happens in memory under the clinic lock (fast-track lane
+   * first); the status change is persisted write-behind.
+   */
+  public QueueEntryView callNext(Long clinicId) {
+    return callNext(clinicId, null, null);
+  }
 
-    // ✅ Notify the next patient
+  /**
+   * Call the next patient into {@code room}. Each room only waits for its own current patient, so
+   * a clinic's rooms call in parallel; with {@code doctorName} set the room takes that doctor's
+   * patients and those not booked with a doctor. A null room keeps the single-room behaviour of
+   * one active patient per clinic.
+   */
+  public QueueEntryView callNext(Long clinicId, String room, String doctorName) {
+    String r = room == null || room.isBlank() ? null : room.trim();
+    String d = doctorName == null || doctorName.isBlank() ? null : doctorName.trim();
+    // looked up before the clinic lock is taken; anyone called in the meantime is not exempt
+    var finished = finishedSlots(engine.locked(clinicId, q -> q.activeIn(r)));
+    var next =
+        engine.callNext(clinicId, r, d, active -> ensureNoActivePatient(r, active, finished));
+    publishChanged(clinicId, Change.CALLED, next);
+
+    // ✅ Notify the next patient and everyone still waiting, off the request thread
     try {
-
-      var patient = next.getSlot().getPatient();
-      if (patient != null && patient.getEmail() != null) {
-        notificationService.notifyNextInLine(patient.getEmail(), clinicId, next.getQueueNumber());
-      }
+      var called = engine.locked(clinicId, q -> q.findBySlot(next.appointmentId()));
+      List<QueuePositionNotifier.Update> updates =
+          engine.locked(
+              clinicId,
+              q -> {
+                var list = new ArrayList<QueuePositionNotifier.Update>();
+                int index = 0;
+                for (var node : q.waiting()) {
+                  list.add(
+                      new QueuePositionNotifier.Update(
+                          node.getSlotId(),
+                          node.getPatientEmail(),
+                          node.getPatientName(),
+                          node.getQueueNumber(),
+                          index++));
+                }
+                return list;
+              });
+      QueueEngine.afterCommit(
+          () -> {
+            called.ifPresent(
+                n ->
+                    positionNotifier.nextInLine(
+                        clinicId, n.getPatientEmail(), n.getPatientName(), next.queueNumber()));
+            positionNotifier.positionsChanged(clinicId, updates);
+          });
     } catch (Exception e) {
-      System.err.println("Failed to send next-in-line notification: " + e.getMessage());
+      System.err.println("Failed to schedule queue updates: " + e.getMessage());
     }
 
-    // ✅ Notify remaining patients about their updated position
-    try {
-      List<QueueEntry> todays =
-          queueRepo.findByClinicIdAndStatusOrderByQueueNumberAsc(clinicId, QueueStatus.QUEUED);
-
-      int index = 0;
-      for (var entry : todays) {
-        if (entry.getId().equals(next.getId())) {
-          index++;
-          continue;
-        }
-
-        var slot = entry.getSlot();
-        if (slot == null || slot.getPatient() == null) {
-          index++;
-          continue;
-        }
-
-        String email = slot.getPatient().getEmail();
-        if (email == null) {
-          index++;
-          continue;
-        }
+    return next;
+  }
 
-        notificationService.notifyPatientQueue(email, clinicId, entry.getQueueNumber(), index);
-        index++;
-      }
-    } catch (Exception e) {
-      System.err.println("Failed to send queue updates: " + e.getMessage());
+  // ✅ Validate no CALLED/SERVING is still active in the room, apart from patients whose
+  // appointment is already COMPLETED with a treatment summary (their queue entry normally leaves
+  // the active set at the same time, see complete)
+  private void ensureNoActivePatient(
+      String room, Collection<QueueNode> active, Set<Long> finishedSlots) {
+    for (var e : active) {
+      if (e.getSlotId() != null && finishedSlots.contains(e.getSlotId())) continue;
+      throw new IllegalStateException(
+          room == null
+              ? "Cannot call next: current patient not completed."
+              : "Cannot call next: current patient in room " + room + " not completed.");
     }
+  }
 
-    return next;
+  private Set<Long> finishedSlots(Collection<QueueNode> active) {
+    if (active.isEmpty()) return Set.of();
+    var ids = new ArrayList<Long>(active.size());
+    for (var e : active) if (e.getSlotId() != null) ids.add(e.getSlotId());
+    var finished = new HashSet<Long>();
+    for (var slot : slotRepo.findAllById(ids)) {
+      boolean completed = slot.getStatus() == AppointmentStatus.COMPLETED;
+      boolean hasSummary =
+          slot.getTreatmentSummary() != null && !slot.getTreatmentSummary().isBlank();
+      if (completed && hasSummary) finished.add(slot.getId());
+    }
+    return finished;
   }
 
-  @Transactional
-  public QueueEntry fastTrack(Long appointmentId, String reason) {
-    var entryOpt = queueRepo.findBySlotId(appointmentId);
-    if (entryOpt.isEmpty()) throw new IllegalArgumentException("Queue entry not found");
-    var entry = entryOpt.get();
+  public QueueEntryView fastTrack(Long appointmentId, String reason) {
+    Long clinicId =
+        engine
+            .clinicOfSlot(appointmentId)
+            .or(() -> queueRepo.findBySlotId(appointmentId).map(QueueEntry::getClinicId))
+            .orElseThrow(() -> new IllegalArgumentException("Queue entry not found"));
     // mark as fast-tracked so callNext will prefer it; keep queueNumber unchanged
-    entry.setFastTracked(true);
-    entry.setFastTrackedAt(LocalDateTime.now());
-    entry.setFastTrackReason(reason);
-    // ensure status is QUEUED so it remains in the queued pool
-    entry.setStatus(QueueStatus.QUEUED);
-    queueRepo.save(entry);
+    var entry =
+        engine
+            .fastTrack(clinicId, appointmentId, reason)
+            .orElseThrow(() -> new IllegalArgumentException("Queue entry not found"));
+    publishChanged(clinicId, Change.FAST_TRACKED, entry);
 
     try {
-      var slot = entry.getSlot();
-      var patient = slot.getPatient();
-      var email = patient.getEmail();
-      var clinicId = entry.getClinicId();
-
-      notificationService.notifyFastTrackedPatient(email, clinicId, entry.getQueueNumber(), reason);
+      String email =
+          engine
+              .locked(clinicId, q -> q.findBySlot(appointmentId))
+              .map(QueueNode::getPatientEmail)
+              .orElse(null);
+      notificationService.notifyFastTrackedPatient(email, clinicId, entry.queueNumber(), reason);
     } catch (Exception e) {
       System.err.println("Failed to send fast-track notification: " + e.getMessage());
     }
@@ -364,84 +396,197 @@ public class QueueService {
     return entry;
   }
 
-  public void startQueue(Long clinicId) {
-    running.put(clinicId, true);
-    paused.put(clinicId, false);
-    // persist state
-    try {
-      var sOpt = stateRepo.findByClinicId(clinicId);
-      ClinicQueueState s = sOpt.orElseGet(() -> new ClinicQueueState(clinicId));
-      s.setRunning(true);
-      s.setPaused(false);
-      s.setLastUpdated(java.time.LocalDateTime.now());
-      stateRepo.save(s);
-    } catch (Exception ignored) {
-    }
+  /** Move a waiting entry into another priority lane; its queue number is unchanged. */
+  public QueueEntryView setPriority(Long appointmentId, QueuePriority priority) {
+    if (priority == null) throw new IllegalArgumentException("Priority is required");
+    Long clinicId =
+        engine
+            .clinicOfSlot(appointmentId)
+            .or(() -> queueRepo.findBySlotId(appointmentId).map(QueueEntry::getClinicId))
+            .orElseThrow(() -> new IllegalArgumentException("Queue entry not found"));
+    var entry =
+        engine
+            .setPriority(clinicId, appointmentId, priority)
+            .orElseThrow(() -> new IllegalArgumentException("Queue entry not found"));
+    publishChanged(clinicId, Change.PRIORITY_CHANGED, entry);
+    return entry;
   }
 
-  public void pauseQueue(Long clinicId) {
-    paused.put(clinicId, true);
-    try {
-      var sOpt = stateRepo.findByClinicId(clinicId);
-      ClinicQueueState s = sOpt.orElseGet(() -> new ClinicQueueState(clinicId));
-      s.setPaused(true);
-      s.setLastUpdated(java.time.LocalDateTime.now());
-      stateRepo.save(s);
-    } catch (Exception ignored) {
+  /**
+   * Mark the queue entry for a slot as completed once the caller's transaction commits. Entries
+   * outside today's in-memory queue (e.g. retroactive completion) are updated directly.
+   */
+  public void complete(Long slotId) {
+    var clinicId = engine.clinicOfSlot(slotId);
+    if (clinicId.isPresent()) {
+      QueueEngine.afterCommit(
+          () -> {
+            var view = engine.complete(clinicId.get(), slotId);
+            publishChanged(clinicId.get(), Change.COMPLETED, view.orElse(null));
+          });
+      return;
     }
+    queueRepo
+        .findBySlotId(slotId)
+        .ifPresent(
+            entry -> {
+              entry.setStatus(QueueStatus.COMPLETED);
+              queueRepo.save(entry);
+              var view = QueueNode.from(entry).toView();
+              QueueEngine.afterCommit(
+                  () -> publishChanged(entry.getClinicId(), Change.COMPLETED, view));
+            });
   }
 
-  public void resumeQueue(Long clinicId) {
-    paused.put(clinicId, false);
-    try {
-      var sOpt = stateRepo.findByClinicId(clinicId);
-      ClinicQueueState s = sOpt.orElseGet(() -> new ClinicQueueState(clinicId));
-      s.setPaused(false);
-      s.setLastUpdated(java.time.LocalDateTime.now());
-      stateRepo.save(s);
-    } catch (Exception ignored) {
+  private void publishChanged(Long clinicId, Change change, QueueEntryView entry) {
+    queueVersions.bump(clinicId);
+    clinicEvents.publish(clinicId, new QueueAdvancedEvent(clinicId, change, eventEntry(entry)));
+  }
+
+  private static QueueAdvancedEvent.Entry eventEntry(QueueEntryView v) {
+    if (v == null) return null;
+    return new QueueAdvancedEvent.Entry(
+        v.id(),
+        v.queueNumber(),
+        v.status(),
+        v.appointmentId(),
+        v.patientId(),
+        v.doctorName(),
+        v.room(),
+        v.calledAt(),
+        v.fastTracked(),
+        v.fastTrackReason(),
+        v.priority());
+  }
+
+  /**
+   * Patient view of the queue entry for a slot: the entry itself plus "now serving", people ahead
+   * (in the clinic policy's call order, matching the position updates patients are sent) and
+   * queue size for its clinic. {@code countCalledAhead} also counts called-but-unfinished entries
+   * with a lower number as being ahead. Empty when the slot was never enqueued.
+   */
+  public Optional<PatientQueueResponse> findPatientQueue(Long slotId, boolean countCalledAhead) {
+    var liveClinic = engine.clinicOfSlot(slotId);
+    if (liveClinic.isPresent()) {
+      Long clinicId = liveClinic.get();
+      var live =
+          engine.locked(
+              clinicId,
+              q ->
+                  q.findBySlot(slotId)
+                      .map(
+                          node ->
+                              new Position(
+                                  node.toView(),
+                                  q.summary(),
+                                  q.countAhead(node, countCalledAhead))));
+      if (live.isPresent()) return Optional.of(respond(clinicId, live.get()));
     }
+    var stored = queueRepo.findBySlotId(slotId);
+    if (stored.isEmpty()) return Optional.empty();
+    Long clinicId = stored.get().getClinicId();
+    var entry = QueueNode.from(stored.get()).toView();
+    var position =
+        engine.locked(
+            clinicId,
+            q ->
+                new Position(
+                    entry, q.summary(), q.countAhead(entry.queueNumber(), countCalledAhead)));
+    return Optional.of(respond(clinicId, position));
   }
 
-  public boolean isRunning(Long clinicId) {
-    boolean inMem = running.getOrDefault(clinicId, false);
-    if (inMem) return true;
-    // check persisted state first
-    try {
-      var sOpt = stateRepo.findByClinicId(clinicId);
-      if (sOpt.isPresent()) return sOpt.get().isRunning();
-    } catch (Exception ignored) {
+  // built from the clinic's summary counters; no view list is materialized
+  private PatientQueueResponse respond(Long clinicId, Position p) {
+    var entry = p.entry();
+    Integer currentCalled = p.summary().nowServing();
+    // If this patient's own entry is CALLED or SERVING, prefer their number explicitly
+    if ((entry.status() == QueueStatus.CALLED || entry.status() == QueueStatus.SERVING)
+        && entry.queueNumber() != null) {
+      currentCalled = entry.queueNumber();
     }
-    // fallback: if there are any QUEUED or CALLED or SERVING entries in DB, consider it running
-    var statuses =
-        java.util.List.of(
-            aqms.domain.enums.QueueStatus.QUEUED,
-            aqms.domain.enums.QueueStatus.CALLED,
-            aqms.domain.enums.QueueStatus.SERVING);
+    Integer estimatedWait =
+        entry.status() == QueueStatus.QUEUED
+            ? waitTimes.estimateWaitMinutes(clinicId, entry.doctorName(), p.ahead())
+            : null;
+    return new PatientQueueResponse(
+        entry,
+        isRunning(clinicId),
+        currentCalled,
+        p.ahead(),
+        p.summary().totalInQueue(),
+        isPaused(clinicId),
+        estimatedWait);
+  }
+
+  /** Learned consultation time for a clinic and the time to see everyone currently waiting. */
+  public QueueWaitEstimate getWaitEstimate(Long clinicId) {
+    return waitEstimates.get(
+        clinicId, queueVersions.etag(clinicId), () -> computeWaitEstimate(clinicId));
+  }
+
+  private QueueWaitEstimate computeWaitEstimate(Long clinicId) {
+    var estimate = waitTimes.forClinic(clinicId);
+    int waiting = engine.summary(clinicId).waiting();
+    return new QueueWaitEstimate(
+        estimate.meanSeconds() / 60.0,
+        estimate.p90Seconds() / 60.0,
+        estimate.samples(),
+        (int) Math.ceil(waiting * estimate.meanSeconds() / 60.0));
+  }
+
+  private record Position(QueueEntryView entry, QueueSummary summary, int ahead) {}
+
+  public void startQueue(Long clinicId) {
+    updateState(
+        clinicId,
+        s -> {
+          s.setRunning(true);
+          s.setPaused(false);
+        });
+    publishChanged(clinicId, Change.STARTED, null);
+  }
+
+  public void pauseQueue(Long clinicId) {
+    updateState(clinicId, s -> s.setPaused(true));
+    publishChanged(clinicId, Change.PAUSED, null);
+  }
+
+  public void resumeQueue(Long clinicId) {
+    updateState(clinicId, s -> s.setPaused(false));
+    publishChanged(clinicId, Change.RESUMED, null);
+  }
+
+  private void updateState(Long clinicId, Consumer<ClinicQueueState> change) {
     try {
-      return queueRepo.existsByClinicIdAndStatusIn(clinicId, statuses);
+      queueStates.update(clinicId, change);
     } catch (Exception e) {
-      // If DB check fails for any reason, fall back to in-memory flag
-      return inMem;
+      System.err.println(
+          "[QueueService] Failed to update queue state for clinic "
+              + clinicId
+              + ": "
+              + e.getMessage());
     }
   }
 
+  public boolean isRunning(Long clinicId) {
+    var state = queueStates.get(clinicId);
+    if (state.exists()) return state.running();
+    // no state row yet: consider it running if today's queue has anyone waiting or being seen
+    var summary = engine.summary(clinicId);
+    return summary.totalInQueue() > 0 || summary.nowServing() != null;
+  }
+
   public boolean isPaused(Long clinicId) {
-    boolean inMem = paused.getOrDefault(clinicId, false);
-    if (inMem) return true;
-    try {
-      var sOpt = stateRepo.findByClinicId(clinicId);
-      if (sOpt.isPresent()) return sOpt.get().isPaused();
-    } catch (Exception ignored) {
-    }
-    return inMem;
+    return queueStates.get(clinicId).paused();
   }
 
   /**
-   * Scheduled reset that runs at local midnight each day. Does NOT delete database rows. Instead it
-   * marks the clinic's lastResetAt to the start of the current day so subsequent queries and
-   * enqueue operations will only consider entries created after that timestamp. Also clears
-   * in-memory running/paused flags and persists cleared clinic states.
+   * Scheduled reset that runs at local midnight each day. Marks the clinic's lastResetAt to the
+   * start of the current day so subsequent queries and enqueue operations will only consider
+   * entries created after that timestamp. Also clears the running/paused flags, restarts the
+   * queue-number sequences and persists cleared clinic states; the cached snapshots are refreshed
+   * once the reset commits. Finished days are then rolled over into the archive by {@link
+   * QueueArchiver}.
    */
   @Scheduled(cron = "0 0 0 * * *")
   @Transactional
@@ -449,22 +594,38 @@ public class QueueService {
     LocalDate today = LocalDate.now();
     LocalDateTime from = today.atStartOfDay();
     try {
-      // clear in-memory control flags
-      running.clear();
-      paused.clear();
-
-      // persist cleared clinic states (set running=false, paused=false, lastResetAt=from)
+      // persist cleared clinic states (set running=false, paused=false, lastResetAt=from) and
+      // restart each clinic's queue-number sequence for the new day
+      List<Long> clinicIds = new ArrayList<>();
+      List<ClinicQueueState> states = List.of();
       try {
-        var states = stateRepo.findAll();
+        states = stateRepo.findAll();
         for (ClinicQueueState s : states) {
+          clinicIds.add(s.getClinicId());
           s.setRunning(false);
           s.setPaused(false);
           s.setLastResetAt(from);
           s.setLastUpdated(LocalDateTime.now());
         }
-        stateRepo.saveAll(states);
+        states = stateRepo.saveAll(states);
+        stateRepo.resetQueueNumbers(today);
       } catch (Exception ignored) {
       }
+      var saved = states;
+      QueueEngine.afterCommit(
+          () -> {
+            // new lastResetAt must be visible before the engine reloads against it
+            queueStates.refresh(saved);
+            engine.reset();
+            numberAllocator.reset();
+            clinicIds.forEach(id -> publishChanged(id, Change.RESET, null));
+            try {
+              archiver.rollOver();
+            } catch (Exception e) {
+              System.err.println(
+                  "[QueueService] Queue archive roll-over failed: " + e.getMessage());
+            }
+          });
 
       System.out.println("[QueueService] Midnight reset executed, lastResetAt set to: " + from);
     } catch (Exception e) {
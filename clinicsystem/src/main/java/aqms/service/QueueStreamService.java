@@ -0,0 +1,232 @@
+package aqms.service;
+
+import aqms.config.AppProperties;
+import aqms.domain.event.ClinicEvent;
+import aqms.domain.event.QueueAdvancedEvent;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@Service
+@Slf4j
+/**
+ * QueueStreamService
+ *
+ * Registry of Server-Sent Event subscribers for the patient queue, grouped per clinic. On a
+ * {@link QueueAdvancedEvent} the clinic's subscribers get a fresh {@link PatientQueueResponse},
+ * but only when it differs from the last one they received. Responses are built on a single
+ * dispatcher thread, and bursts of events for the same clinic are collapsed into one fan-out. The
+ * dispatcher never writes to a client: it leaves the response in the subscriber's one-message
+ * mailbox, and a bounded pool of sender threads drains mailboxes with at most one send in flight
+ * per subscriber. A slow client therefore only delays itself, and skips to the latest state once
+ * it catches up. The number of open streams is bounded globally and per clinic.
+ */
+public class QueueStreamService {
+  private static final Object HEARTBEAT = new Object();
+
+  private final QueueService queueService;
+  private final AppProperties.Stream props;
+
+  private final Map<Long, List<Subscriber>> byClinic = new ConcurrentHashMap<>();
+  private final AtomicInteger subscriberCount = new AtomicInteger();
+  // open streams per clinic; reserved before a subscriber is added, like subscriberCount
+  private final Map<Long, AtomicInteger> clinicCounts = new ConcurrentHashMap<>();
+  private final Set<Long> pendingClinics = ConcurrentHashMap.newKeySet();
+  private final ExecutorService dispatcher =
+      Executors.newSingleThreadExecutor(
+          r -> {
+            var t = new Thread(r, "queue-stream-dispatcher");
+            t.setDaemon(true);
+            return t;
+          });
+  // holds at most one task per subscriber, so its queue is bounded by maxSubscribers
+  private final ExecutorService senders;
+
+  public QueueStreamService(QueueService queueService, AppProperties props) {
+    this.queueService = queueService;
+    this.props = props.getStream();
+    var threads = new AtomicInteger();
+    this.senders =
+        Executors.newFixedThreadPool(
+            Math.max(1, this.props.getSenderThreads()),
+            r -> {
+              var t = new Thread(r, "queue-stream-sender-" + threads.incrementAndGet());
+              t.setDaemon(true);
+              return t;
+            });
+  }
+
+  /**
+   * Open a stream for the queue entry of {@code appointmentId} in {@code clinicId}. The current
+   * state is sent immediately.
+   *
+   * @throws ResponseStatusException 503 when the subscriber limit is reached
+   */
+  public SseEmitter subscribe(Long clinicId, Long appointmentId) {
+    var clinicSubs = byClinic.computeIfAbsent(clinicId, id -> new CopyOnWriteArrayList<>());
+    var clinicCount = clinicCounts.computeIfAbsent(clinicId, id -> new AtomicInteger());
+    if (subscriberCount.incrementAndGet() > props.getMaxSubscribers()) {
+      subscriberCount.decrementAndGet();
+      throw tooMany();
+    }
+    if (clinicCount.incrementAndGet() > props.getMaxSubscribersPerClinic()) {
+      clinicCount.decrementAndGet();
+      subscriberCount.decrementAndGet();
+      throw tooMany();
+    }
+
+    var emitter = newEmitter();
+    var sub = new Subscriber(clinicId, appointmentId, emitter);
+    clinicSubs.add(sub);
+    emitter.onCompletion(() -> remove(sub));
+    emitter.onTimeout(() -> remove(sub));
+    emitter.onError(e -> remove(sub));
+
+    dispatcher.execute(() -> push(sub));
+    return emitter;
+  }
+
+  @EventListener
+  public void onClinicEvent(ClinicEvent event) {
+    if (!(event.event() instanceof QueueAdvancedEvent)) return;
+    Long clinicId = event.clinicId();
+    if (!byClinic.containsKey(clinicId)) return;
+    // one fan-out per clinic no matter how many events arrive before it runs
+    if (pendingClinics.add(clinicId)) {
+      dispatcher.execute(
+          () -> {
+            pendingClinics.remove(clinicId);
+            for (var sub : byClinic.getOrDefault(clinicId, List.of())) push(sub);
+          });
+    }
+  }
+
+  @Scheduled(fixedRateString = "${aqms.stream.heartbeat-millis:15000}")
+  public void heartbeat() {
+    for (var subs : byClinic.values()) {
+      for (var sub : subs) offer(sub, HEARTBEAT);
+    }
+  }
+
+  public int subscriberCount() {
+    return subscriberCount.get();
+  }
+
+  private void push(Subscriber sub) {
+    try {
+      var response =
+          queueService
+              .findPatientQueue(sub.appointmentId(), true)
+              .orElseGet(PatientQueueResponse::empty);
+      if (Objects.equals(response, sub.lastSent)) return;
+      sub.lastSent = response;
+      offer(sub, response);
+    } catch (Exception e) {
+      log.warn("Failed to push queue update for appointment {}", sub.appointmentId(), e);
+    }
+  }
+
+  // a newer response replaces one the client has not been sent yet; a heartbeat never does
+  private void offer(Subscriber sub, Object message) {
+    if (message == HEARTBEAT) sub.mailbox.compareAndSet(null, HEARTBEAT);
+    else sub.mailbox.set(message);
+    if (sub.sending.compareAndSet(false, true)) {
+      try {
+        senders.execute(() -> drain(sub));
+      } catch (RejectedExecutionException e) {
+        sub.sending.set(false);
+      }
+    }
+  }
+
+  private void drain(Subscriber sub) {
+    while (true) {
+      var message = sub.mailbox.getAndSet(null);
+      if (message == null) {
+        sub.sending.set(false);
+        // an offer that came in after the mailbox was read saw sending still set
+        if (sub.mailbox.get() == null || !sub.sending.compareAndSet(false, true)) return;
+        continue;
+      }
+      try {
+        if (message == HEARTBEAT) sub.emitter().send(SseEmitter.event().comment("heartbeat"));
+        else sub.emitter().send(SseEmitter.event().name("queue").data(message));
+      } catch (IOException | IllegalStateException e) {
+        remove(sub);
+        return;
+      }
+    }
+  }
+
+  // overridden in tests
+  SseEmitter newEmitter() {
+    return new SseEmitter(props.getTimeoutMillis());
+  }
+
+  private void remove(Subscriber sub) {
+    var subs = byClinic.get(sub.clinicId());
+    if (subs != null && subs.remove(sub)) {
+      subscriberCount.decrementAndGet();
+      clinicCounts.get(sub.clinicId()).decrementAndGet();
+      sub.emitter().complete();
+    }
+  }
+
+  private static ResponseStatusException tooMany() {
+    return new ResponseStatusException(
+        HttpStatus.SERVICE_UNAVAILABLE, "Too many queue subscribers, please poll instead");
+  }
+
+  @PreDestroy
+  void shutdown() {
+    dispatcher.shutdownNow();
+    senders.shutdownNow();
+    byClinic.values().forEach(subs -> subs.forEach(s -> s.emitter().complete()));
+  }
+
+  private static final class Subscriber {
+    private final Long clinicId;
+    private final Long appointmentId;
+    private final SseEmitter emitter;
+    private volatile PatientQueueResponse lastSent;
+    // the next response or heartbeat to send, and whether a sender is draining it
+    private final AtomicReference<Object> mailbox = new AtomicReference<>();
+    private final AtomicBoolean sending = new AtomicBoolean();
+
+    Subscriber(Long clinicId, Long appointmentId, SseEmitter emitter) {
+      this.clinicId = clinicId;
+      this.appointmentId = appointmentId;
+      this.emitter = emitter;
+    }
+
+    Long clinicId() {
+      return clinicId;
+    }
+
+    Long appointmentId() {
+      return appointmentId;
+    }
+
+    SseEmitter emitter() {
+      return emitter;
+    }
+  }
+}
@@ -0,0 +1,8 @@
+package aqms.service;
+
+/**
+ * Staff-facing wait estimate for a clinic: learned consultation length and how long the current
+ * waiting list should take to clear at that pace.
+ */
+public record QueueWaitEstimate(
+    double avgServiceMinutes, double p90ServiceMinutes, long samples, int estimatedClearMinutes) {}
@@ -0,0 +1,102 @@
+package aqms.service.event;
+
+import aqms.config.AppProperties;
+import aqms.domain.event.ClinicEvent;
+import aqms.repository.QueueEventLogRepository;
+import aqms.service.queue.QueueEngine;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+/**
+ * ClinicEventBus
+ *
+ * In-process bus for the domain events in aqms.domain.event. Events published inside a
+ * transaction are dispatched once it commits and dropped if it rolls back. Each clinic's events
+ * get consecutive sequence numbers (continuing from {@link QueueEventStore} after a restart) and
+ * are delivered as {@link ClinicEvent}s through Spring's event publisher on a dispatcher thread
+ * chosen by clinic, so every @EventListener sees a clinic's events one at a time and in order
+ * while different clinics are delivered in parallel. Listeners run off the publishing thread and
+ * should hand slow work elsewhere.
+ */
+public class ClinicEventBus {
+  private final QueueEventLogRepository logRepo;
+  private final ApplicationEventPublisher events;
+  private final ExecutorService[] dispatchers;
+
+  private final Map<Long, AtomicLong> sequences = new ConcurrentHashMap<>();
+
+  public ClinicEventBus(
+      QueueEventLogRepository logRepo, ApplicationEventPublisher events, AppProperties props) {
+    this.logRepo = logRepo;
+    this.events = events;
+    this.dispatchers = new ExecutorService[Math.max(1, props.getEvents().getDispatchThreads())];
+    for (int i = 0; i < dispatchers.length; i++) {
+      String name = "clinic-events-" + i;
+      dispatchers[i] =
+          Executors.newSingleThreadExecutor(
+              r -> {
+                var t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+              });
+    }
+  }
+
+  /** Deliver {@code event} to listeners after the current transaction (if any) commits. */
+  public void publish(Long clinicId, Object event) {
+    QueueEngine.afterCommit(() -> dispatch(clinicId, event));
+  }
+
+  private void dispatch(Long clinicId, Object event) {
+    var sequence = sequences.get(clinicId);
+    if (sequence == null) {
+      long last = lastStoredSeq(clinicId);
+      sequence = sequences.computeIfAbsent(clinicId, id -> new AtomicLong(last));
+    }
+    // numbering and hand-off together, so a clinic's dispatcher receives its events in seq order
+    synchronized (sequence) {
+      var delivery =
+          new ClinicEvent(clinicId, sequence.incrementAndGet(), LocalDateTime.now(), event);
+      dispatcher(clinicId).execute(() -> deliver(delivery));
+    }
+  }
+
+  private ExecutorService dispatcher(Long clinicId) {
+    return dispatchers[Math.floorMod(clinicId.hashCode(), dispatchers.length)];
+  }
+
+  private void deliver(ClinicEvent event) {
+    try {
+      events.publishEvent(event);
+    } catch (Exception e) {
+      log.warn(
+          "Listener failed for {} #{} of clinic {}", event.type(), event.seq(), event.clinicId(), e);
+    }
+  }
+
+  private long lastStoredSeq(Long clinicId) {
+    try {
+      return logRepo.findLastSeq(clinicId);
+    } catch (Exception e) {
+      log.warn("Could not read last event seq for clinic {}: {}", clinicId, e.getMessage());
+      return 0;
+    }
+  }
+
+  @PreDestroy
+  void shutdown() throws InterruptedException {
+    for (var d : dispatchers) d.shutdown();
+    for (var d : dispatchers) d.awaitTermination(2, TimeUnit.SECONDS);
+  }
+}
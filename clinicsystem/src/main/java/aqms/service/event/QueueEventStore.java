@@ -0,0 +1,134 @@
+package aqms.service.event;
+
+import aqms.domain.event.AppointmentBookedEvent;
+import aqms.domain.event.AppointmentCancelledEvent;
+import aqms.domain.event.AppointmentRescheduledEvent;
+import aqms.domain.event.ClinicEvent;
+import aqms.domain.event.QueueAdvancedEvent;
+import aqms.domain.model.QueueEventLog;
+import aqms.repository.QueueEventLogRepository;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+/**
+ * QueueEventStore
+ *
+ * Append-only store of every {@link ClinicEvent} delivered by {@link ClinicEventBus}. Events are
+ * buffered as they arrive and written to queue_event_log in batches every flushMillis, the same
+ * trade-off as {@link aqms.service.queue.QueueWriteBehind}: a crash loses at most the last batch
+ * of history, never the change itself. Readers catch up with {@link #since}, which includes events
+ * that are still buffered.
+ */
+public class QueueEventStore {
+  private static final int MAX_BATCH = 500;
+  private static final ObjectMapper JSON =
+      new ObjectMapper()
+          .findAndRegisterModules()
+          .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+  private final QueueEventLogRepository logRepo;
+  private final Queue<QueueEventLog> pending = new ConcurrentLinkedQueue<>();
+  // the oldest batch whose write failed; written again before anything in pending
+  private volatile List<QueueEventLog> retry;
+
+  /** A stored event as returned to clients; {@code payload} is the event's JSON. */
+  public record StoredEvent(
+      long seq,
+      String type,
+      Long slotId,
+      LocalDateTime occurredAt,
+      @JsonRawValue String payload) {}
+
+  @EventListener
+  public void onClinicEvent(ClinicEvent event) {
+    pending.add(
+        new QueueEventLog(
+            event.clinicId(),
+            event.seq(),
+            event.type(),
+            slotOf(event.event()),
+            toJson(event.event()),
+            event.occurredAt()));
+  }
+
+  /** A clinic's events after {@code afterSeq}, oldest first. */
+  public List<StoredEvent> since(Long clinicId, long afterSeq, int limit) {
+    flush();
+    return logRepo
+        .findByClinicIdAndSeqGreaterThanOrderBySeqAsc(clinicId, afterSeq, Limit.of(limit))
+        .stream()
+        .map(
+            e ->
+                new StoredEvent(
+                    e.getSeq(), e.getEventType(), e.getSlotId(), e.getOccurredAt(), e.getPayload()))
+        .toList();
+  }
+
+  public int pendingCount() {
+    var failed = retry;
+    return pending.size() + (failed != null ? failed.size() : 0);
+  }
+
+  @Scheduled(fixedDelayString = "${aqms.events.flush-millis:500}")
+  public synchronized void flush() {
+    while (retry != null || !pending.isEmpty()) {
+      var batch = retry;
+      if (batch == null) {
+        batch = new ArrayList<>(Math.min(pending.size(), MAX_BATCH));
+        QueueEventLog next;
+        while (batch.size() < MAX_BATCH && (next = pending.poll()) != null) batch.add(next);
+      }
+      try {
+        logRepo.saveAll(batch);
+        retry = null;
+      } catch (Exception e) {
+        // nothing newer is written until this batch is, so the log never has gaps in seq that
+        // later fill in behind a reader's cursor
+        log.warn("Writing {} queue events failed, will retry", batch.size(), e);
+        retry = batch;
+        return;
+      }
+    }
+  }
+
+  @PreDestroy
+  void drain() {
+    flush();
+  }
+
+  private static Long slotOf(Object event) {
+    return switch (event) {
+      case QueueAdvancedEvent q -> q.entry() != null ? q.entry().appointmentId() : null;
+      case AppointmentBookedEvent b -> b.slotId();
+      case AppointmentCancelledEvent c -> c.slotId();
+      case AppointmentRescheduledEvent r -> r.slotId();
+      default -> null;
+    };
+  }
+
+  private static String toJson(Object event) {
+    try {
+      return JSON.writeValueAsString(event);
+    } catch (JsonProcessingException e) {
+      log.warn("Could not serialize {}: {}", event.getClass().getSimpleName(), e.getMessage());
+      return null;
+    }
+  }
+}
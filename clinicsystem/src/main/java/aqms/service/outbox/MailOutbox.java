@@ -0,0 +1,29 @@
+package aqms.service.outbox;
+
+import aqms.domain.model.NotificationOutbox;
+import aqms.repository.NotificationOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+@RequiredArgsConstructor
+/**
+ * MailOutbox
+ *
+ * Drop-in replacement for sending a {@link SimpleMailMessage} directly: the message is stored in
+ * notification_outbox within the caller's transaction, so it is only delivered if that
+ * transaction commits. {@link OutboxDispatcher} does the actual SMTP send.
+ */
+public class MailOutbox {
+  private final NotificationOutboxRepository outboxRepo;
+
+  @Transactional
+  public void enqueue(SimpleMailMessage message) {
+    String[] to = message.getTo();
+    if (to == null || to.length == 0) return;
+    outboxRepo.save(
+        new NotificationOutbox(String.join(",", to), message.getSubject(), message.getText()));
+  }
+}
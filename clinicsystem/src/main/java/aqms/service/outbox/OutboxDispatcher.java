@@ -0,0 +1,176 @@
+package aqms.service.outbox;
+
+import aqms.config.AppProperties;
+import aqms.domain.enums.OutboxStatus;
+import aqms.domain.model.NotificationOutbox;
+import aqms.repository.NotificationOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Component
+@Slf4j
+/**
+ * OutboxDispatcher
+ *
+ * Drains notification_outbox. Each round claims up to {@code batchSize} due rows (SKIP LOCKED plus
+ * a lease, so concurrent dispatchers never share a row), sends them over {@code workers} threads
+ * outside any transaction, and records the outcome in one more short transaction. Failures are
+ * retried with exponential backoff and moved to DEAD after {@code maxAttempts}.
+ */
+public class OutboxDispatcher {
+  private final NotificationOutboxRepository outboxRepo;
+  private final JavaMailSender mailSender;
+  private final AppProperties.Outbox props;
+  private final TransactionTemplate tx;
+  private final ExecutorService workers;
+  private final AtomicBoolean draining = new AtomicBoolean();
+
+  private final Timer sendTimer;
+  private final Counter sent;
+  private final Counter failed;
+  private final Counter dead;
+
+  public OutboxDispatcher(
+      NotificationOutboxRepository outboxRepo,
+      JavaMailSender mailSender,
+      AppProperties props,
+      PlatformTransactionManager txManager,
+      MeterRegistry meters) {
+    this.outboxRepo = outboxRepo;
+    this.mailSender = mailSender;
+    this.props = props.getOutbox();
+    this.tx = new TransactionTemplate(txManager);
+    var threads = new AtomicInteger();
+    this.workers =
+        Executors.newFixedThreadPool(
+            this.props.getWorkers(),
+            r -> {
+              var t = new Thread(r, "outbox-sender-" + threads.incrementAndGet());
+              t.setDaemon(true);
+              return t;
+            });
+    this.sendTimer =
+        Timer.builder("aqms.outbox.send").description("SMTP send latency").register(meters);
+    this.sent = meters.counter("aqms.outbox.sent");
+    this.failed = meters.counter("aqms.outbox.failed");
+    this.dead = meters.counter("aqms.outbox.dead");
+  }
+
+  @Scheduled(fixedDelayString = "${aqms.outbox.poll-millis:500}")
+  public void dispatch() {
+    if (!draining.compareAndSet(false, true)) return;
+    try {
+      // keep going while batches come back full so a backlog drains without waiting for the poll
+      while (drainOnce() == props.getBatchSize()) {}
+    } catch (Exception e) {
+      log.warn("Outbox dispatch round failed", e);
+    } finally {
+      draining.set(false);
+    }
+  }
+
+  /** Claim, send and settle one batch. Returns the number of rows claimed. */
+  public int drainOnce() {
+    var now = LocalDateTime.now();
+    List<NotificationOutbox> batch =
+        tx.execute(
+            status -> {
+              var rows = outboxRepo.lockDue(now, props.getBatchSize());
+              if (!rows.isEmpty()) {
+                outboxRepo.lease(
+                    rows.stream().map(NotificationOutbox::getId).toList(),
+                    now.plusNanos(props.getLeaseMillis() * 1_000_000));
+              }
+              return rows;
+            });
+    if (batch == null || batch.isEmpty()) return 0;
+
+    var delivered = new ConcurrentLinkedQueue<Long>();
+    var undelivered = new ConcurrentLinkedQueue<NotificationOutbox>();
+    var tasks = new ArrayList<Callable<Void>>(batch.size());
+    for (var row : batch) {
+      tasks.add(
+          () -> {
+            try {
+              sendTimer.record(() -> mailSender.send(toMessage(row)));
+              delivered.add(row.getId());
+            } catch (Exception e) {
+              row.setLastError(e.getMessage());
+              undelivered.add(row);
+            }
+            return null;
+          });
+    }
+    try {
+      workers.invokeAll(tasks);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      // leased rows not settled below are retried once the lease expires
+    }
+
+    var settledAt = LocalDateTime.now();
+    var retries = new ArrayList<NotificationOutbox>(undelivered);
+    for (var row : retries) reschedule(row, settledAt);
+    tx.executeWithoutResult(
+        status -> {
+          if (!delivered.isEmpty()) outboxRepo.markSent(new ArrayList<>(delivered), settledAt);
+          if (!retries.isEmpty()) outboxRepo.saveAll(retries);
+        });
+    sent.increment(delivered.size());
+    return batch.size();
+  }
+
+  private void reschedule(NotificationOutbox row, LocalDateTime now) {
+    int attempts = row.getAttempts() + 1;
+    row.setAttempts(attempts);
+    if (attempts >= props.getMaxAttempts()) {
+      row.setStatus(OutboxStatus.DEAD);
+      dead.increment();
+      log.warn(
+          "Giving up on email {} to {} after {} attempts: {}",
+          row.getId(),
+          row.getRecipient(),
+          attempts,
+          row.getLastError());
+      return;
+    }
+    long delay =
+        Math.min(
+            props.getMaxBackoffMillis(),
+            props.getInitialBackoffMillis() << Math.min(attempts - 1, 30));
+    row.setStatus(OutboxStatus.PENDING);
+    row.setNextAttemptAt(now.plusNanos(delay * 1_000_000));
+    failed.increment();
+  }
+
+  private static SimpleMailMessage toMessage(NotificationOutbox row) {
+    var message = new SimpleMailMessage();
+    message.setTo(row.getRecipient().split(","));
+    message.setSubject(row.getSubject());
+    message.setText(row.getBody());
+    return message;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    workers.shutdownNow();
+  }
+}
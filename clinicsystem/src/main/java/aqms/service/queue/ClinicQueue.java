@@ -0,0 +1,338 @@
+package aqms.service.queue;
+
+import aqms.domain.enums.QueuePriority;
+import aqms.domain.enums.QueueStatus;
+import aqms.service.QueueEntryView;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * ClinicQueue
+ *
+ * Authoritative in-memory queue for one clinic's current day. Waiting entries live in one ordered
+ * lane per {@link QueuePriority} (fast-tracked entries first by fast-track time, then by queue
+ * number); the clinic's {@link QueueSchedulingPolicy.Scheduler} picks among the lane heads, so the
+ * next patient is found in O(log n). The lanes are also split per doctor, so a room calling for
+ * one doctor only sees that doctor's patients plus those not booked with anyone. Called/serving
+ * entries are kept separately and carry the room they were called to. People ahead of a waiting
+ * entry follow the policy's call order, which is replayed once per change (and at most once a
+ * second while nothing changes) into ranks that every lookup in between shares. Fenwick trees
+ * over queue numbers count the called entries below a number in O(log n), and a {@link
+ * QueueSummary} snapshot is republished after every change. All other access must happen while
+ * holding {@link #lock()}, which {@link QueueEngine#locked} takes care of.
+ */
+public class ClinicQueue {
+  // the policy's starvation guard depends on the clock, so idle ranks are replayed this often
+  private static final long RANKS_MAX_AGE_NANOS = 1_000_000_000L;
+
+  private static final Comparator<QueueNode> BY_NUMBER =
+      Comparator.comparing(
+              QueueNode::getQueueNumber, Comparator.nullsLast(Comparator.<Integer>naturalOrder()))
+          .thenComparing(QueueNode::getId);
+
+  private static final Comparator<QueueNode> BY_LANE =
+      Comparator.comparing(
+              QueueNode::getFastTrackedAt,
+              Comparator.nullsLast(Comparator.<LocalDateTime>naturalOrder()))
+          .thenComparing(BY_NUMBER);
+
+  private final Long clinicId;
+  private final QueueSchedulingPolicy.Scheduler scheduler;
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final TreeSet<QueueNode> entries = new TreeSet<>(BY_NUMBER);
+  private final Map<QueuePriority, TreeSet<QueueNode>> lanes = new EnumMap<>(QueuePriority.class);
+  // the same waiting entries split by doctor; "" holds entries not booked with a doctor
+  private final Map<String, Map<QueuePriority, TreeSet<QueueNode>>> doctorLanes = new HashMap<>();
+  private final Map<Long, QueueNode> active = new LinkedHashMap<>();
+  private final Map<Long, QueueNode> bySlot = new HashMap<>();
+
+  // order statistics over queue numbers for the patient-facing summary
+  private FenwickTree waitingByNumber = new FenwickTree();
+  private FenwickTree calledByNumber = new FenwickTree();
+  private final TreeMap<Integer, Integer> activeNumbers = new TreeMap<>();
+  private int waitingCount;
+  private int calledCount;
+  private volatile QueueSummary summary = QueueSummary.EMPTY;
+  // index of every waiting entry in the predicted call order; null once the queue changes
+  private Map<QueueNode, Integer> callRanks;
+  private long callRanksAt;
+
+  private int lastNumber;
+
+  ClinicQueue(Long clinicId, QueueSchedulingPolicy.Scheduler scheduler) {
+    this.clinicId = clinicId;
+    this.scheduler = scheduler;
+    lanes.putAll(newLanes());
+  }
+
+  private static Map<QueuePriority, TreeSet<QueueNode>> newLanes() {
+    var map = new EnumMap<QueuePriority, TreeSet<QueueNode>>(QueuePriority.class);
+    for (var p : QueuePriority.values()) map.put(p, new TreeSet<>(BY_LANE));
+    return map;
+  }
+
+  private static String doctorKey(QueueNode node) {
+    return node.getDoctorName() == null ? "" : node.getDoctorName();
+  }
+
+  public Long getClinicId() {
+    return clinicId;
+  }
+
+  ReentrantLock lock() {
+    return lock;
+  }
+
+  QueueSchedulingPolicy.Scheduler scheduler() {
+    return scheduler;
+  }
+
+  /** Highest queue number held for the current day (0 when empty). */
+  public int maxNumber() {
+    return lastNumber;
+  }
+
+  void add(QueueNode node) {
+    if (bySlot.containsKey(node.getSlotId())) return;
+    entries.add(node);
+    bySlot.put(node.getSlotId(), node);
+    index(node);
+    if (node.getQueueNumber() != null) lastNumber = Math.max(lastNumber, node.getQueueNumber());
+  }
+
+  // replace every entry with {@code nodes}, keeping the scheduler's state (cluster refresh)
+  void reload(Collection<QueueNode> nodes) {
+    entries.clear();
+    bySlot.clear();
+    for (var lane : lanes.values()) lane.clear();
+    doctorLanes.clear();
+    active.clear();
+    activeNumbers.clear();
+    waitingByNumber = new FenwickTree();
+    calledByNumber = new FenwickTree();
+    waitingCount = 0;
+    calledCount = 0;
+    lastNumber = 0;
+    summary = QueueSummary.EMPTY;
+    callRanks = null;
+    for (var node : nodes) add(node);
+  }
+
+  public Optional<QueueNode> findBySlot(Long slotId) {
+    return Optional.ofNullable(bySlot.get(slotId));
+  }
+
+  public Collection<QueueNode> active() {
+    return Collections.unmodifiableCollection(active.values());
+  }
+
+  /** Called/serving entries in {@code room}; every active entry when {@code room} is null. */
+  public List<QueueNode> activeIn(String room) {
+    if (room == null) return List.copyOf(active.values());
+    var list = new ArrayList<QueueNode>(1);
+    for (var node : active.values()) {
+      if (room.equals(node.getRoom())) list.add(node);
+    }
+    return list;
+  }
+
+  /** Next waiting entry according to the clinic's scheduling policy, without removing it. */
+  public Optional<QueueNode> peekNext() {
+    return peekNext(null);
+  }
+
+  /**
+   * Next waiting entry for {@code doctorName} (their patients and those without a doctor), or for
+   * anyone when it is null.
+   */
+  public Optional<QueueNode> peekNext(String doctorName) {
+    var heads = doctorName == null ? heads() : heads(doctorName);
+    if (heads.isEmpty()) return Optional.empty();
+    return Optional.of(heads.get(scheduler.pick(heads, LocalDateTime.now())));
+  }
+
+  /** Waiting entries in the order they are expected to be called. */
+  public List<QueueNode> waiting() {
+    var list = new ArrayList<QueueNode>(waitingCount);
+    inCallOrder(list::add);
+    return list;
+  }
+
+  // offer waiting entries to `visit` in predicted call order until it returns false; returns how
+  // many it accepted
+  private int inCallOrder(Predicate<QueueNode> visit) {
+    var predicted = scheduler.copy();
+    var now = LocalDateTime.now();
+    var cursors = new EnumMap<QueuePriority, Iterator<QueueNode>>(QueuePriority.class);
+    var heads = new EnumMap<QueuePriority, QueueNode>(QueuePriority.class);
+    for (var lane : lanes.entrySet()) {
+      var it = lane.getValue().iterator();
+      if (it.hasNext()) {
+        cursors.put(lane.getKey(), it);
+        heads.put(lane.getKey(), it.next());
+      }
+    }
+    int accepted = 0;
+    while (!heads.isEmpty()) {
+      var lane = predicted.pick(heads, now);
+      if (!visit.test(heads.get(lane))) break;
+      accepted++;
+      predicted.served(lane);
+      var it = cursors.get(lane);
+      if (it.hasNext()) heads.put(lane, it.next());
+      else heads.remove(lane);
+    }
+    return accepted;
+  }
+
+  private Map<QueuePriority, QueueNode> heads() {
+    var heads = new EnumMap<QueuePriority, QueueNode>(QueuePriority.class);
+    for (var lane : lanes.entrySet()) {
+      if (!lane.getValue().isEmpty()) heads.put(lane.getKey(), lane.getValue().first());
+    }
+    return heads;
+  }
+
+  private Map<QueuePriority, QueueNode> heads(String doctorName) {
+    var own = doctorLanes.get(doctorName);
+    var unassigned = doctorLanes.get("");
+    var heads = new EnumMap<QueuePriority, QueueNode>(QueuePriority.class);
+    for (var p : QueuePriority.values()) {
+      var a = own == null || own.get(p).isEmpty() ? null : own.get(p).first();
+      var b = unassigned == null || unassigned.get(p).isEmpty() ? null : unassigned.get(p).first();
+      var head = a == null ? b : b == null || BY_LANE.compare(a, b) <= 0 ? a : b;
+      if (head != null) heads.put(p, head);
+    }
+    return heads;
+  }
+
+  void call(QueueNode node, LocalDateTime at) {
+    call(node, null, at);
+  }
+
+  void call(QueueNode node, String room, LocalDateTime at) {
+    if (node.isWaiting()) scheduler.served(node.lane());
+    unindex(node);
+    if (room != null) node.setRoom(room);
+    node.setStatus(QueueStatus.CALLED);
+    node.setCalledAt(at);
+    node.setFastTracked(false);
+    node.setFastTrackedAt(null);
+    index(node);
+  }
+
+  void fastTrack(QueueNode node, String reason, LocalDateTime at) {
+    unindex(node);
+    node.setFastTracked(true);
+    node.setFastTrackedAt(at);
+    node.setFastTrackReason(reason);
+    node.setStatus(QueueStatus.QUEUED);
+    index(node);
+  }
+
+  void setPriority(QueueNode node, QueuePriority priority) {
+    unindex(node);
+    node.setPriority(priority);
+    index(node);
+  }
+
+  void complete(QueueNode node) {
+    unindex(node);
+    node.setStatus(QueueStatus.COMPLETED);
+    index(node);
+  }
+
+  /** Latest summary; safe to read without holding the lock. */
+  public QueueSummary summary() {
+    return summary;
+  }
+
+  /**
+   * People ahead of {@code node}. For a waiting entry these are the waiting entries the clinic's
+   * policy calls before it, i.e. its index in {@link #waiting()}; for any other entry, see {@link
+   * #countAhead(Integer, boolean)}. {@code includeCalled} adds called-but-unfinished entries with a
+   * lower queue number. O(1) apart from the one O(n) replay after each change.
+   */
+  public int countAhead(QueueNode node, boolean includeCalled) {
+    Integer rank = node.isWaiting() ? callRanks().get(node) : null;
+    if (rank == null || node.getQueueNumber() == null) {
+      return countAhead(node.getQueueNumber(), includeCalled);
+    }
+    int ahead = rank;
+    if (includeCalled) ahead += calledByNumber.prefix(node.getQueueNumber() - 1);
+    return ahead;
+  }
+
+  private Map<QueueNode, Integer> callRanks() {
+    long now = System.nanoTime();
+    if (callRanks == null || now - callRanksAt > RANKS_MAX_AGE_NANOS) {
+      var ranks = new IdentityHashMap<QueueNode, Integer>(waitingCount);
+      inCallOrder(n -> ranks.put(n, ranks.size()) == null);
+      callRanks = ranks;
+      callRanksAt = now;
+    }
+    return callRanks;
+  }
+
+  /**
+   * Number-order figure for an entry that is not waiting here (already called, or not in this
+   * queue): waiting entries with a queue number below {@code queueNumber}, optionally also
+   * counting called-but-unfinished ones. Ignores priorities, so it is not the call order.
+   */
+  public int countAhead(Integer queueNumber, boolean includeCalled) {
+    if (queueNumber == null) return 0;
+    int ahead = waitingByNumber.prefix(queueNumber - 1);
+    if (includeCalled) ahead += calledByNumber.prefix(queueNumber - 1);
+    return ahead;
+  }
+
+  public List<QueueEntryView> views() {
+    var views = new ArrayList<QueueEntryView>(entries.size());
+    for (var node : entries) views.add(node.toView());
+    return views;
+  }
+
+  private void index(QueueNode node) {
+    if (node.isWaiting()) {
+      lanes.get(node.lane()).add(node);
+      doctorLanes
+          .computeIfAbsent(doctorKey(node), k -> newLanes())
+          .get(node.lane())
+          .add(node);
+    } else if (node.isActive()) {
+      active.put(node.getId(), node);
+    }
+    count(node, 1);
+    callRanks = null;
+  }
+
+  private void unindex(QueueNode node) {
+    for (var lane : lanes.values()) lane.remove(node);
+    var own = doctorLanes.get(doctorKey(node));
+    if (own != null) for (var lane : own.values()) lane.remove(node);
+    active.remove(node.getId());
+    count(node, -1);
+    callRanks = null;
+  }
+
+  private void count(QueueNode node, int delta) {
+    Integer number = node.getQueueNumber();
+    var status = node.getStatus();
+    if (status == QueueStatus.QUEUED) {
+      waitingCount += delta;
+      if (number != null) waitingByNumber.add(number, delta);
+    } else if (status == QueueStatus.CALLED) {
+      calledCount += delta;
+      if (number != null) calledByNumber.add(number, delta);
+    }
+    if (node.isActive() && number != null) {
+      activeNumbers.merge(number, delta, (a, b) -> a + b == 0 ? null : a + b);
+    }
+    summary =
+        new QueueSummary(
+            activeNumbers.isEmpty() ? null : activeNumbers.lastKey(), waitingCount, calledCount);
+  }
+}
@@ -0,0 +1,145 @@
+package aqms.service.queue;
+
+import aqms.config.AppProperties;
+import aqms.domain.model.ClinicQueueState;
+import aqms.repository.ClinicQueueStateRepository;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Component
+@Slf4j
+/**
+ * ClinicQueueStateRegistry
+ *
+ * Cache of each clinic's {@link ClinicQueueState} control flags. Reads are served from an immutable
+ * {@link Snapshot} per clinic and only go to the database the first time a clinic is seen (or,
+ * with aqms.queue.cluster enabled, once the snapshot is older than clusterRefreshMillis, since
+ * another instance may have changed it). Changes are written through: the row is updated in its
+ * own transaction under a per-clinic lock and the cache is replaced with the saved version, so a
+ * snapshot never runs ahead of the database. Concurrent writers on other instances are caught by
+ * the row's optimistic version and retried.
+ */
+public class ClinicQueueStateRegistry {
+  private static final int MAX_ATTEMPTS = 3;
+
+  private final ClinicQueueStateRepository stateRepo;
+  private final TransactionTemplate tx;
+  private final AppProperties.Queue props;
+
+  private final Map<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+  private final Map<Long, Object> writeLocks = new ConcurrentHashMap<>();
+
+  public ClinicQueueStateRegistry(
+      ClinicQueueStateRepository stateRepo,
+      PlatformTransactionManager txManager,
+      AppProperties props) {
+    this.stateRepo = stateRepo;
+    this.tx = new TransactionTemplate(txManager);
+    this.props = props.getQueue();
+  }
+
+  /**
+   * A clinic's control flags as last read from or written to the database. {@code version} is the
+   * row's optimistic-lock version, or -1 when the clinic has no state row yet.
+   */
+  public record Snapshot(
+      Long clinicId,
+      boolean running,
+      boolean paused,
+      LocalDateTime lastResetAt,
+      long version,
+      long loadedAt) {
+    static Snapshot of(ClinicQueueState s) {
+      return new Snapshot(
+          s.getClinicId(),
+          s.isRunning(),
+          s.isPaused(),
+          s.getLastResetAt(),
+          s.getVersion(),
+          System.nanoTime());
+    }
+
+    static Snapshot absent(Long clinicId) {
+      return new Snapshot(clinicId, false, false, null, -1, System.nanoTime());
+    }
+
+    public boolean exists() {
+      return version >= 0;
+    }
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    refresh(stateRepo.findAll());
+  }
+
+  /** Current snapshot for a clinic; loads it on first access. */
+  public Snapshot get(Long clinicId) {
+    var snapshot = snapshots.get(clinicId);
+    if (snapshot != null && !stale(snapshot)) return snapshot;
+    try {
+      var loaded =
+          stateRepo.findByClinicId(clinicId).map(Snapshot::of).orElse(Snapshot.absent(clinicId));
+      // a write may have landed while we were reading; keep whichever version is newer
+      return snapshots.merge(clinicId, loaded, (cur, l) -> cur.version() > l.version() ? cur : l);
+    } catch (Exception e) {
+      log.warn("Could not load queue state for clinic {}: {}", clinicId, e.getMessage());
+      return snapshot != null ? snapshot : Snapshot.absent(clinicId);
+    }
+  }
+
+  private boolean stale(Snapshot snapshot) {
+    return props.isCluster()
+        && System.nanoTime() - snapshot.loadedAt() > props.getClusterRefreshMillis() * 1_000_000;
+  }
+
+  /**
+   * Apply {@code change} to the clinic's state row (created if missing), save it and publish the
+   * new snapshot. Runs in its own transaction; persistence errors propagate and leave the cache
+   * untouched.
+   */
+  public Snapshot update(Long clinicId, Consumer<ClinicQueueState> change) {
+    synchronized (writeLocks.computeIfAbsent(clinicId, id -> new Object())) {
+      for (int attempt = 1; ; attempt++) {
+        try {
+          var saved =
+              tx.execute(
+                  status -> {
+                    var s =
+                        stateRepo
+                            .findByClinicId(clinicId)
+                            .orElseGet(() -> new ClinicQueueState(clinicId));
+                    change.accept(s);
+                    s.setLastUpdated(LocalDateTime.now());
+                    return stateRepo.save(s);
+                  });
+          var snapshot = Snapshot.of(saved);
+          snapshots.put(clinicId, snapshot);
+          return snapshot;
+        } catch (ObjectOptimisticLockingFailureException e) {
+          // another instance updated the row between our read and write; re-read and reapply
+          if (attempt >= MAX_ATTEMPTS) throw e;
+        }
+      }
+    }
+  }
+
+  /** Replace the cached snapshots with freshly saved rows, e.g. after the midnight reset commits. */
+  public void refresh(Iterable<ClinicQueueState> states) {
+    for (var s : states) snapshots.put(s.getClinicId(), Snapshot.of(s));
+  }
+
+  /** Drop every snapshot so the next read goes to the database. */
+  public void clear() {
+    snapshots.clear();
+  }
+}
@@ -0,0 +1,90 @@
+package aqms.service.queue;
+
+import aqms.domain.enums.QueuePriority;
+import aqms.domain.enums.QueueStatus;
+import aqms.domain.model.QueueEntry;
+import aqms.repository.QueueEntryRepository;
+import aqms.repository.QueueRoomGuardRepository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+@Component
+@RequiredArgsConstructor
+/**
+ * ClusterQueueCaller
+ *
+ * Database-side call-next used when several app instances share one database
+ * (aqms.queue.cluster). The head of each priority lane is selected with FOR UPDATE SKIP LOCKED,
+ * the clinic's scheduler picks among them as it would in memory, and the chosen entry is marked
+ * CALLED in the same short transaction, so concurrent callers on any node each get a different
+ * patient without queueing behind one another.
+ *
+ * <p>The room check runs in that transaction against the database rows, after locking the room's
+ * queue_room_guard row: callers into the same room take turns for the check, so two nodes can never
+ * both find a room free and call into it, while other rooms of the clinic lock other rows and do
+ * not wait. Callers without a room check the whole clinic and take turns on the clinic's '' row;
+ * they never conflict with room callers, whose check ignores entries called without a room.
+ */
+public class ClusterQueueCaller {
+  private static final List<QueueStatus> ACTIVE = List.of(QueueStatus.CALLED, QueueStatus.SERVING);
+  private static final String NO_ROOM = "";
+
+  private final QueueEntryRepository queueRepo;
+  private final QueueRoomGuardRepository guardRepo;
+
+  /**
+   * Call the next waiting entry created in {@code [from, to]} into {@code room}, limited to {@code
+   * doctorName}'s patients and those without a doctor when it is set; returns its slot id. {@code
+   * scheduler} picks the lane (and is not advanced here); {@code guard} sees the entries still
+   * called/serving in the room, as in {@link QueueEngine#callNext}, and may throw to refuse.
+   */
+  @Transactional
+  public Optional<Long> callNext(
+      Long clinicId,
+      String doctorName,
+      String room,
+      LocalDateTime from,
+      LocalDateTime to,
+      LocalDateTime at,
+      QueueSchedulingPolicy.Scheduler scheduler,
+      Consumer<Collection<QueueNode>> guard) {
+    var guardRoom = room != null ? room : NO_ROOM;
+    if (guardRepo.lock(clinicId, guardRoom).isEmpty()) {
+      guardRepo.insertIfAbsent(clinicId, guardRoom);
+      guardRepo.lock(clinicId, guardRoom);
+    }
+    guard.accept(
+        queueRepo.findInRoomWithStatus(clinicId, room, ACTIVE, from, to).stream()
+            .map(QueueNode::from)
+            .toList());
+
+    var rows = new EnumMap<QueuePriority, QueueEntry>(QueuePriority.class);
+    var heads = new EnumMap<QueuePriority, QueueNode>(QueuePriority.class);
+    for (var lane : QueuePriority.values()) {
+      queueRepo
+          .lockNextQueuedInLane(clinicId, doctorName, lane.name(), from, to)
+          .ifPresent(
+              e -> {
+                rows.put(lane, e);
+                heads.put(lane, QueueNode.from(e));
+              });
+    }
+    if (heads.isEmpty()) return Optional.empty();
+
+    var e = rows.get(scheduler.pick(heads, at));
+    if (room != null) e.setRoom(room);
+    e.setStatus(QueueStatus.CALLED);
+    e.setCalledAt(at);
+    e.setFastTracked(false);
+    e.setFastTrackedAt(null);
+    queueRepo.save(e);
+    return Optional.of(e.getSlot().getId());
+  }
+}
@@ -0,0 +1,44 @@
+package aqms.service.queue;
+
+import aqms.domain.enums.QueuePriority;
+import java.time.LocalDateTime;
+import java.util.Map;
+import org.springframework.stereotype.Component;
+
+@Component
+/**
+ * FastTrackFirstPolicy
+ *
+ * Strict priority: emergencies (including fast-tracked entries) first, then express, then
+ * normal. Within a lane fast-tracked entries go by fast-track time and the rest by queue number.
+ * This is the default and matches the original fast-track behaviour.
+ */
+public class FastTrackFirstPolicy implements QueueSchedulingPolicy {
+  public static final String NAME = "fast-track-first";
+
+  private static final Scheduler STRICT = new Strict();
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public Scheduler newScheduler() {
+    return STRICT;
+  }
+
+  private static final class Strict implements Scheduler {
+    @Override
+    public QueuePriority pick(Map<QueuePriority, QueueNode> heads, LocalDateTime now) {
+      if (heads.containsKey(QueuePriority.EMERGENCY)) return QueuePriority.EMERGENCY;
+      if (heads.containsKey(QueuePriority.EXPRESS)) return QueuePriority.EXPRESS;
+      return QueuePriority.NORMAL;
+    }
+
+    @Override
+    public Scheduler copy() {
+      return this;
+    }
+  }
+}
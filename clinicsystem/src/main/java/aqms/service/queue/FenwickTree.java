@@ -0,0 +1,37 @@
+package aqms.service.queue;
+
+import java.util.Arrays;
+
+/**
+ * Binary indexed (Fenwick) tree of counts keyed by queue number. Supports point updates and
+ * "how many below n" prefix queries in O(log n); grows on demand as queue numbers increase.
+ */
+final class FenwickTree {
+  private int[] counts = new int[64];
+  private int[] tree = new int[65];
+
+  void add(int number, int delta) {
+    if (number <= 0) return;
+    if (number >= counts.length) grow(number);
+    counts[number] += delta;
+    for (int i = number; i < tree.length; i += i & -i) tree[i] += delta;
+  }
+
+  /** Sum of counts for numbers in {@code [1, number]}. */
+  int prefix(int number) {
+    int sum = 0;
+    for (int i = Math.min(number, tree.length - 1); i > 0; i -= i & -i) sum += tree[i];
+    return sum;
+  }
+
+  private void grow(int number) {
+    int size = counts.length;
+    while (size <= number) size <<= 1;
+    counts = Arrays.copyOf(counts, size);
+    tree = new int[size + 1];
+    for (int n = 1; n < size; n++) {
+      if (counts[n] == 0) continue;
+      for (int i = n; i < tree.length; i += i & -i) tree[i] += counts[n];
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package aqms.service.queue;
+
+import java.util.Arrays;
+
+/**
+ * Streaming quantile estimate using the P² algorithm (Jain &amp; Chlamtac): five markers are
+ * adjusted on every observation, so memory and update cost are constant. Not thread-safe.
+ */
+final class P2Quantile {
+  private final double p;
+  private final double[] q = new double[5]; // marker heights
+  private final int[] n = new int[5]; // marker positions
+  private final double[] np = new double[5]; // desired positions
+  private final double[] dn;
+  private int count;
+
+  P2Quantile(double p) {
+    this.p = p;
+    this.dn = new double[] {0, p / 2, p, (1 + p) / 2, 1};
+  }
+
+  void add(double x) {
+    if (count < 5) {
+      q[count++] = x;
+      if (count == 5) {
+        Arrays.sort(q);
+        for (int i = 0; i < 5; i++) n[i] = i;
+        np[0] = 0;
+        np[1] = 2 * p;
+        np[2] = 4 * p;
+        np[3] = 2 + 2 * p;
+        np[4] = 4;
+      }
+      return;
+    }
+    count++;
+
+    int k;
+    if (x < q[0]) {
+      q[0] = x;
+      k = 0;
+    } else if (x >= q[4]) {
+      q[4] = x;
+      k = 3;
+    } else {
+      k = 0;
+      while (k < 3 && x >= q[k + 1]) k++;
+    }
+    for (int i = k + 1; i < 5; i++) n[i]++;
+    for (int i = 0; i < 5; i++) np[i] += dn[i];
+
+    for (int i = 1; i <= 3; i++) {
+      double d = np[i] - n[i];
+      if ((d >= 1 && n[i + 1] - n[i] > 1) || (d <= -1 && n[i - 1] - n[i] < -1)) {
+        int s = d >= 0 ? 1 : -1;
+        double candidate = parabolic(i, s);
+        q[i] = q[i - 1] < candidate && candidate < q[i + 1] ? candidate : linear(i, s);
+        n[i] += s;
+      }
+    }
+  }
+
+  /** Current estimate, or NaN before the first observation. */
+  double value() {
+    if (count == 0) return Double.NaN;
+    if (count < 5) {
+      var sorted = Arrays.copyOf(q, count);
+      Arrays.sort(sorted);
+      return sorted[(int) Math.min(count - 1, Math.round(p * (count - 1)))];
+    }
+    return q[2];
+  }
+
+  private double parabolic(int i, int s) {
+    return q[i]
+        + s
+            / (double) (n[i + 1] - n[i - 1])
+            * ((n[i] - n[i - 1] + s) * (q[i + 1] - q[i]) / (n[i + 1] - n[i])
+                + (n[i + 1] - n[i] - s) * (q[i] - q[i - 1]) / (n[i] - n[i - 1]));
+  }
+
+  private double linear(int i, int s) {
+    return q[i] + s * (q[i + s] - q[i]) / (n[i + s] - n[i]);
+  }
+}
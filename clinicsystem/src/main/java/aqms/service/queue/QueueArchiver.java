@@ -0,0 +1,115 @@
+package aqms.service.queue;
+
+import aqms.config.AppProperties;
+import aqms.repository.QueueEntryArchiveRepository;
+import aqms.repository.QueueEntryRepository;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Component
+@Slf4j
+/**
+ * QueueArchiver
+ *
+ * Daily roll-over run after the midnight reset: entries created before the current queue day
+ * (minus aqms.archive.retainDays) are moved from queue_entries into queue_entries_archive in
+ * batches of batchSize, each batch copied and deleted in its own transaction. This keeps the live
+ * table at roughly one day of entries, so today's queue queries do not slow down as history grows.
+ *
+ * <p>On PostgreSQL the archive is partitioned by month; the partitions the moved rows fall into
+ * are created first. Other databases (H2 in tests) get a plain table.
+ */
+public class QueueArchiver {
+  private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+  private final QueueEntryRepository queueRepo;
+  private final QueueEntryArchiveRepository archiveRepo;
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx;
+  private final AppProperties.Archive props;
+  private volatile Boolean partitioned;
+
+  public QueueArchiver(
+      QueueEntryRepository queueRepo,
+      QueueEntryArchiveRepository archiveRepo,
+      JdbcTemplate jdbc,
+      PlatformTransactionManager txManager,
+      AppProperties props) {
+    this.queueRepo = queueRepo;
+    this.archiveRepo = archiveRepo;
+    this.jdbc = jdbc;
+    // always a fresh transaction: this also runs from the midnight reset's afterCommit callback
+    this.tx = new TransactionTemplate(txManager);
+    this.tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.props = props.getArchive();
+  }
+
+  /** Archive everything before the start of today, less the configured retention. */
+  public int rollOver() {
+    return archiveBefore(LocalDate.now().minusDays(props.getRetainDays()).atStartOfDay());
+  }
+
+  /** Move every queue entry created before {@code cutoff} to the archive. Returns rows moved. */
+  public int archiveBefore(LocalDateTime cutoff) {
+    long started = System.nanoTime();
+    var earliest = tx.execute(status -> queueRepo.findEarliestCreatedAt().orElse(null));
+    if (earliest == null || !earliest.isBefore(cutoff)) return 0;
+    if (isPartitioned()) ensurePartitions(YearMonth.from(earliest), YearMonth.from(cutoff));
+
+    var archivedAt = LocalDateTime.now();
+    int moved = 0;
+    while (true) {
+      Integer batch =
+          tx.execute(
+              status -> {
+                var ids = queueRepo.lockIdsCreatedBefore(cutoff, props.getBatchSize());
+                if (ids.isEmpty()) return 0;
+                archiveRepo.copyFromQueue(ids, archivedAt);
+                queueRepo.deleteByIdIn(ids);
+                return ids.size();
+              });
+      if (batch == null || batch == 0) break;
+      moved += batch;
+    }
+    log.info(
+        "Archived {} queue entries created before {} in {} ms",
+        moved,
+        cutoff,
+        (System.nanoTime() - started) / 1_000_000);
+    return moved;
+  }
+
+  private boolean isPartitioned() {
+    if (partitioned == null) {
+      partitioned =
+          jdbc.execute(
+              (ConnectionCallback<Boolean>)
+                  c -> "PostgreSQL".equals(c.getMetaData().getDatabaseProductName()));
+    }
+    return partitioned;
+  }
+
+  // one partition per month from the oldest row to be moved up to next month, so rows never land
+  // in the default partition (which would block creating the month's partition later)
+  private void ensurePartitions(YearMonth from, YearMonth to) {
+    for (var month = from; !month.isAfter(to.plusMonths(1)); month = month.plusMonths(1)) {
+      jdbc.execute(
+          "CREATE TABLE IF NOT EXISTS queue_entries_archive_"
+              + month.format(PARTITION_SUFFIX)
+              + " PARTITION OF queue_entries_archive FOR VALUES FROM ('"
+              + month.atDay(1)
+              + "') TO ('"
+              + month.plusMonths(1).atDay(1)
+              + "')");
+    }
+  }
+}
@@ -0,0 +1,412 @@
+package aqms.service.queue;
+
+import aqms.config.AppProperties;
+import aqms.domain.enums.QueuePriority;
+import aqms.repository.ClinicQueueStateRepository;
+import aqms.repository.QueueEntryRepository;
+import aqms.service.QueueEntryView;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Component
+@Slf4j
+/**
+ * QueueEngine
+ *
+ * Holds one {@link ClinicQueue} per clinic for the current queue day. The engine is warmed from
+ * the database at startup (clinics not seen yet are loaded on first access) and is the source of
+ * truth for queue reads and transitions afterwards. Transitions run under the clinic's lock and
+ * are persisted by {@link QueueWriteBehind}; only new entries are inserted synchronously because
+ * they need a database id.
+ *
+ * <p>With aqms.queue.cluster enabled several instances share the database: each clinic's queue is
+ * then a cache reloaded every clusterRefreshMillis, transitions are written through, and call-next
+ * is decided in the database by {@link ClusterQueueCaller}.
+ */
+public class QueueEngine {
+  private final QueueEntryRepository queueRepo;
+  private final ClinicQueueStateRepository stateRepo;
+  private final ClinicQueueStateRegistry queueStates;
+  private final QueueWriteBehind writeBehind;
+  private final QueueJournal journal;
+  private final WaitTimeEstimator waitTimes;
+  private final ClusterQueueCaller clusterCaller;
+  private final TransactionTemplate readTx;
+  private final AppProperties.Queue props;
+  private final Map<String, QueueSchedulingPolicy> policies = new HashMap<>();
+
+  private final Map<Long, ClinicQueue> clinics = new ConcurrentHashMap<>();
+  private final Map<Long, Long> slotClinics = new ConcurrentHashMap<>();
+  // cluster mode: System.nanoTime() of each clinic's last load
+  private final Map<Long, Long> loadedAt = new ConcurrentHashMap<>();
+
+  public QueueEngine(
+      QueueEntryRepository queueRepo,
+      ClinicQueueStateRepository stateRepo,
+      ClinicQueueStateRegistry queueStates,
+      QueueWriteBehind writeBehind,
+      QueueJournal journal,
+      WaitTimeEstimator waitTimes,
+      ClusterQueueCaller clusterCaller,
+      PlatformTransactionManager txManager,
+      List<QueueSchedulingPolicy> policies,
+      AppProperties props) {
+    this.queueRepo = queueRepo;
+    this.stateRepo = stateRepo;
+    this.queueStates = queueStates;
+    this.writeBehind = writeBehind;
+    this.journal = journal;
+    this.waitTimes = waitTimes;
+    this.clusterCaller = clusterCaller;
+    this.readTx = new TransactionTemplate(txManager);
+    this.readTx.setReadOnly(true);
+    this.props = props.getQueue();
+    for (var p : policies) this.policies.put(p.name(), p);
+  }
+
+  /** Scheduling policy configured for a clinic, falling back to fast-track-first. */
+  public QueueSchedulingPolicy policyFor(Long clinicId) {
+    String name = props.getClinicPolicies().getOrDefault(clinicId, props.getPolicy());
+    var policy = policies.get(name);
+    if (policy == null) {
+      log.warn(
+          "Unknown queue policy '{}' for clinic {}, using {}",
+          name,
+          clinicId,
+          FastTrackFirstPolicy.NAME);
+      policy = policies.get(FastTrackFirstPolicy.NAME);
+    }
+    return policy;
+  }
+
+  private ClinicQueue newQueue(Long clinicId) {
+    return new ClinicQueue(clinicId, policyFor(clinicId).newScheduler());
+  }
+
+  /** Lower bound of the current queue day for a clinic (lastResetAt if present, else midnight). */
+  public LocalDateTime boundary(Long clinicId) {
+    var lastResetAt = queueStates.get(clinicId).lastResetAt();
+    return lastResetAt != null ? lastResetAt : LocalDate.now().atStartOfDay();
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    long started = System.nanoTime();
+    var todayStart = LocalDate.now().atStartOfDay();
+    var boundaries = new HashMap<Long, LocalDateTime>();
+    var earliest = todayStart;
+    for (var s : stateRepo.findAll()) {
+      if (s.getLastResetAt() == null) continue;
+      boundaries.put(s.getClinicId(), s.getLastResetAt());
+      if (s.getLastResetAt().isBefore(earliest)) earliest = s.getLastResetAt();
+    }
+    var recovered = journal.takeRecovered();
+    String source = recovered.isPresent() ? "journal" : "database";
+    var from = earliest;
+    var to = LocalDate.now().atTime(LocalTime.MAX);
+    List<QueueNode> stored =
+        readTx.execute(
+            status ->
+                queueRepo.findLiveWithPatient(from, to).stream().map(QueueNode::from).toList());
+    List<QueueNode> entries;
+    if (recovered.isPresent()) {
+      // the journal wins for entries it knows (it has transitions write-behind had not flushed);
+      // rows it lacks were committed but the process died before they were journalled
+      entries = new ArrayList<>(recovered.get());
+      var journalled = new HashSet<Long>();
+      for (var node : entries) journalled.add(node.getId());
+      int missing = 0;
+      for (var node : stored) {
+        if (journalled.add(node.getId())) {
+          entries.add(node);
+          missing++;
+        }
+      }
+      if (missing > 0) {
+        log.warn("Added {} committed queue entries missing from the journal", missing);
+      }
+    } else {
+      entries = stored;
+    }
+
+    var loaded = new HashMap<Long, ClinicQueue>();
+    var kept = new ArrayList<QueueNode>(entries.size());
+    for (var node : entries) {
+      var clinicFrom = boundaries.getOrDefault(node.getClinicId(), todayStart);
+      if (node.getCreatedAt() != null && node.getCreatedAt().isBefore(clinicFrom)) continue;
+      loaded.computeIfAbsent(node.getClinicId(), this::newQueue).add(node);
+      slotClinics.put(node.getSlotId(), node.getClinicId());
+      kept.add(node);
+      // transitions still pending in write-behind when the process died are replayed
+      if (recovered.isPresent()) writeBehind.submit(node.snapshot());
+    }
+    clinics.putAll(loaded);
+    loaded.keySet().forEach(id -> loadedAt.put(id, System.nanoTime()));
+    journal.checkpoint(kept);
+    long elapsed = System.nanoTime() - started;
+    journal.recordRecovery(source, elapsed);
+    log.info(
+        "Queue engine warmed from {} with {} entries for {} clinics in {} ms",
+        source,
+        kept.size(),
+        loaded.size(),
+        elapsed / 1_000_000);
+  }
+
+  private ClinicQueue load(Long clinicId) {
+    loadedAt.put(clinicId, System.nanoTime());
+    var queue = newQueue(clinicId);
+    for (var node : readLive(clinicId)) {
+      queue.add(node);
+      slotClinics.put(node.getSlotId(), clinicId);
+      journal.record(node);
+    }
+    return queue;
+  }
+
+  private List<QueueNode> readLive(Long clinicId) {
+    var from = boundary(clinicId);
+    var to = LocalDate.now().atTime(LocalTime.MAX);
+    return readTx.execute(
+        status ->
+            queueRepo.findLiveWithPatientByClinic(clinicId, from, to).stream()
+                .map(QueueNode::from)
+                .toList());
+  }
+
+  ClinicQueue clinic(Long clinicId) {
+    var queue = clinics.get(clinicId);
+    if (queue == null) {
+      // loaded outside the map's compute so the query never blocks other clinics' bins; if two
+      // threads race, both see the committed rows and the first queue stored wins
+      var loaded = load(clinicId);
+      queue = clinics.putIfAbsent(clinicId, loaded);
+      if (queue == null) queue = loaded;
+    }
+    if (props.isCluster()) {
+      var loaded = loadedAt.get(clinicId);
+      // one caller per interval reloads; the others keep using the cached queue meanwhile
+      if (loaded != null
+          && System.nanoTime() - loaded > props.getClusterRefreshMillis() * 1_000_000
+          && loadedAt.replace(clinicId, loaded, System.nanoTime())) {
+        refresh(queue);
+      }
+    }
+    return queue;
+  }
+
+  // cluster mode: reload a clinic's cache from the database. Transitions are written through, so
+  // this node has nothing pending to flush first. The rows are read without the clinic's lock and
+  // then replace the queue's contents in place, so threads already holding the queue (or waiting
+  // on its lock) keep working on the live instance.
+  private void refresh(ClinicQueue queue) {
+    var clinicId = queue.getClinicId();
+    loadedAt.put(clinicId, System.nanoTime());
+    var nodes = readLive(clinicId);
+    queue.lock().lock();
+    try {
+      queue.reload(nodes);
+    } finally {
+      queue.lock().unlock();
+    }
+    for (var node : nodes) slotClinics.put(node.getSlotId(), clinicId);
+  }
+
+  private void persist(QueueNode node) {
+    journal.record(node);
+    // cluster: other instances read the row, so it is written before the clinic's lock is released
+    if (props.isCluster()) writeBehind.write(node.snapshot());
+    else writeBehind.submit(node.snapshot());
+  }
+
+  /** Run {@code fn} against the clinic's queue while holding its lock. */
+  public <T> T locked(Long clinicId, Function<ClinicQueue, T> fn) {
+    var queue = clinic(clinicId);
+    queue.lock().lock();
+    try {
+      return fn.apply(queue);
+    } finally {
+      queue.lock().unlock();
+    }
+  }
+
+  /** Clinic owning a live slot, if the slot is in today's queue of a loaded clinic. */
+  public Optional<Long> clinicOfSlot(Long slotId) {
+    return Optional.ofNullable(slotClinics.get(slotId));
+  }
+
+  public int maxQueueNumber(Long clinicId) {
+    return locked(clinicId, ClinicQueue::maxNumber);
+  }
+
+  public void add(QueueNode node) {
+    locked(
+        node.getClinicId(),
+        q -> {
+          q.add(node);
+          journal.record(node);
+          return null;
+        });
+    slotClinics.put(node.getSlotId(), node.getClinicId());
+  }
+
+  /**
+   * Call the next waiting entry into {@code room}, taking only {@code doctorName}'s patients (and
+   * those without a doctor) when it is set. {@code guard} sees the entries still called/serving in
+   * that room (in the whole clinic when {@code room} is null) and may throw to refuse the call, so
+   * rooms call independently of each other.
+   *
+   * @throws NoSuchElementException when nobody is waiting
+   */
+  public QueueEntryView callNext(
+      Long clinicId, String room, String doctorName, Consumer<Collection<QueueNode>> guard) {
+    if (props.isCluster()) return callNextClustered(clinicId, room, doctorName, guard);
+    return locked(
+        clinicId,
+        q -> {
+          guard.accept(q.activeIn(room));
+          var next =
+              q.peekNext(doctorName)
+                  .orElseThrow(() -> new NoSuchElementException("No queued patients"));
+          q.call(next, room, LocalDateTime.now());
+          persist(next);
+          return next.toView();
+        });
+  }
+
+  // the database decides who is next, with this clinic's scheduler picking the lane as it would in
+  // memory; the local cache (and the scheduler) is updated to match
+  private QueueEntryView callNextClustered(
+      Long clinicId, String room, String doctorName, Consumer<Collection<QueueNode>> guard) {
+    var scheduler = locked(clinicId, q -> q.scheduler().copy());
+    var at = LocalDateTime.now();
+    Long slotId =
+        clusterCaller
+            .callNext(
+                clinicId,
+                doctorName,
+                room,
+                boundary(clinicId),
+                LocalDate.now().atTime(LocalTime.MAX),
+                at,
+                scheduler,
+                guard)
+            .orElseThrow(() -> new NoSuchElementException("No queued patients"));
+    var queue = clinic(clinicId);
+    return locked(
+            clinicId,
+            q ->
+                q.findBySlot(slotId)
+                    .map(
+                        node -> {
+                          q.call(node, room, at);
+                          return node.toView();
+                        }))
+        .orElseGet(
+            () -> {
+              // checked in on another node since our last refresh
+              refresh(queue);
+              return find(clinicId, slotId).orElseThrow();
+            });
+  }
+
+  public Optional<QueueEntryView> fastTrack(Long clinicId, Long slotId, String reason) {
+    return locked(
+        clinicId,
+        q ->
+            q.findBySlot(slotId)
+                .map(
+                    node -> {
+                      q.fastTrack(node, reason, LocalDateTime.now());
+                      persist(node);
+                      return node.toView();
+                    }));
+  }
+
+  public Optional<QueueEntryView> setPriority(Long clinicId, Long slotId, QueuePriority priority) {
+    return locked(
+        clinicId,
+        q ->
+            q.findBySlot(slotId)
+                .map(
+                    node -> {
+                      q.setPriority(node, priority);
+                      persist(node);
+                      return node.toView();
+                    }));
+  }
+
+  public Optional<QueueEntryView> complete(Long clinicId, Long slotId) {
+    return locked(
+        clinicId,
+        q ->
+            q.findBySlot(slotId)
+                .map(
+                    node -> {
+                      var calledAt = node.isActive() ? node.getCalledAt() : null;
+                      q.complete(node);
+                      persist(node);
+                      if (calledAt != null) {
+                        waitTimes.record(
+                            clinicId,
+                            node.getDoctorName(),
+                            Duration.between(calledAt, LocalDateTime.now()));
+                      }
+                      return node.toView();
+                    }));
+  }
+
+  public Optional<QueueEntryView> find(Long clinicId, Long slotId) {
+    return locked(clinicId, q -> q.findBySlot(slotId).map(QueueNode::toView));
+  }
+
+  /** Latest counters for a clinic; does not take the clinic's lock. */
+  public QueueSummary summary(Long clinicId) {
+    return clinic(clinicId).summary();
+  }
+
+  public List<QueueEntryView> views(Long clinicId) {
+    return locked(clinicId, ClinicQueue::views);
+  }
+
+  /** Drop all in-memory queues; they are reloaded lazily against the new day boundary. */
+  public void reset() {
+    writeBehind.flush();
+    journal.checkpoint(List.of());
+    clinics.clear();
+    slotClinics.clear();
+    loadedAt.clear();
+  }
+
+  /**
+   * Run {@code action} once the surrounding transaction commits, or immediately when there is no
+   * transaction. Used so the engine never shows rows that were rolled back.
+   */
+  public static void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            action.run();
+          }
+        });
+  }
+}
@@ -0,0 +1,466 @@
+package aqms.service.queue;
+
+import aqms.config.AppProperties;
+import aqms.domain.enums.QueuePriority;
+import aqms.domain.enums.QueueStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+/**
+ * QueueJournal
+ *
+ * Crash-recovery log for {@link QueueEngine}. Every change to a queue node (enqueue, call,
+ * fast-track, priority, complete) is appended as the node's full state to a memory-mapped journal
+ * file, so a record survives the process being killed as soon as the append returns, including
+ * transitions {@link QueueWriteBehind} had not flushed yet. A periodic snapshot holds the latest
+ * state of every node and lets the journal start over; records carry a sequence number so a
+ * journal left behind by a crash during compaction is never replayed over a newer snapshot.
+ *
+ * <p>Appends never write a snapshot themselves: when the journal passes half full, compaction is
+ * handed to a background thread, which writes the snapshot outside the journal lock and then
+ * carries the records appended meanwhile over into the emptied journal.
+ *
+ * <p>At startup the snapshot and journal are read back into {@link #takeRecovered()}, and the
+ * engine merges them with today's rows in queue_entries (see {@link QueueEngine#warmUp}). Without
+ * a snapshot (first start, or aqms.journal disabled) the engine warms from the database alone.
+ * Not used with aqms.queue.cluster, where other instances change the queue behind this one's back.
+ */
+public class QueueJournal {
+  private static final int SNAPSHOT_MAGIC = 0x51534e31;
+  // record header: payload length, then CRC32 of the payload; a zero length ends the journal
+  private static final int HEADER_BYTES = 8;
+
+  private final AppProperties.Journal props;
+  private final boolean enabled;
+  private final ObjectProvider<MeterRegistry> meters;
+
+  // latest encoded state per node id, i.e. the next snapshot; guarded by this
+  private final Map<Long, byte[]> latest = new HashMap<>();
+  private FileChannel channel;
+  private MappedByteBuffer journal;
+  private long seq;
+  private boolean dirty;
+  // `latest` is known to mirror the engine: restored at startup, or set by checkpoint
+  private boolean baselined;
+  private List<QueueNode> recovered;
+  // background compaction: bumped by every synchronous compaction so an older background snapshot
+  // never replaces a newer one; records appended while a background snapshot is being written
+  private final ExecutorService compactor =
+      Executors.newSingleThreadExecutor(
+          r -> {
+            var t = new Thread(r, "queue-journal-compactor");
+            t.setDaemon(true);
+            return t;
+          });
+  private long generation;
+  private boolean compacting;
+  private List<byte[]> appendedSinceCopy;
+
+  public QueueJournal(AppProperties props, ObjectProvider<MeterRegistry> meters) {
+    this.props = props.getJournal();
+    this.enabled = this.props.isEnabled() && !props.getQueue().isCluster();
+    this.meters = meters;
+    if (this.props.isEnabled() && props.getQueue().isCluster()) {
+      log.warn("Queue journal is not used with aqms.queue.cluster enabled");
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  private Path snapshotFile() {
+    return Path.of(props.getDir(), "queue.snapshot");
+  }
+
+  private Path journalFile() {
+    return Path.of(props.getDir(), "queue.journal");
+  }
+
+  @PostConstruct
+  synchronized void open() {
+    if (!enabled) return;
+    try {
+      Files.createDirectories(Path.of(props.getDir()));
+      var restored = readSnapshot();
+      channel =
+          FileChannel.open(
+              journalFile(),
+              StandardOpenOption.CREATE,
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE);
+      journal = channel.map(FileChannel.MapMode.READ_WRITE, 0, props.getSizeBytes());
+      int replayed = restored ? replayJournal() : 0;
+      baselined = restored;
+      if (restored) {
+        recovered = new ArrayList<>(latest.size());
+        for (var payload : latest.values()) recovered.add(decode(payload));
+        log.info(
+            "Queue journal recovered {} entries ({} journal records)", latest.size(), replayed);
+      }
+      // start the new run from a compact snapshot and an empty journal
+      compact();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open queue journal in " + props.getDir(), e);
+    }
+  }
+
+  /**
+   * Nodes rebuilt from the snapshot and journal at startup, or empty when there was nothing to
+   * recover from (the caller must then load the queue from the database). Returns them once.
+   */
+  public synchronized Optional<List<QueueNode>> takeRecovered() {
+    var nodes = recovered;
+    recovered = null;
+    return Optional.ofNullable(nodes);
+  }
+
+  /** Append the node's current state. Called under the owning clinic's lock. */
+  public void record(QueueNode node) {
+    if (!enabled) return;
+    synchronized (this) {
+      byte[] payload = encode(++seq, node);
+      latest.put(node.getId(), payload);
+      dirty = true;
+      if (appendedSinceCopy != null) appendedSinceCopy.add(payload);
+      // room for the record plus the zero length that terminates the journal. Only when the
+      // background snapshot falls a whole half journal behind is one written here instead.
+      if (!fits(payload)) compact();
+      append(payload);
+      compactInBackgroundIfHalfFull();
+    }
+  }
+
+  private boolean fits(byte[] payload) {
+    return journal.remaining() >= HEADER_BYTES + payload.length + 4;
+  }
+
+  private void compactInBackgroundIfHalfFull() {
+    if (journal.position() > journal.capacity() / 2 && !compacting) {
+      compacting = true;
+      compactor.execute(this::compactConcurrently);
+    }
+  }
+
+  /**
+   * Replace everything recorded so far with {@code nodes}, e.g. after the engine was loaded from
+   * the database or reset for a new day.
+   */
+  public synchronized void checkpoint(Collection<QueueNode> nodes) {
+    if (!enabled) return;
+    latest.clear();
+    for (var node : nodes) latest.put(node.getId(), encode(++seq, node));
+    baselined = true;
+    compact();
+  }
+
+  @Scheduled(fixedDelayString = "${aqms.journal.snapshot-millis:60000}")
+  public void snapshot() {
+    synchronized (this) {
+      if (!enabled || !dirty || compacting) return;
+      compacting = true;
+    }
+    compactConcurrently();
+  }
+
+  /** Time taken to rebuild the queue engine at startup, tagged with where it came from. */
+  public void recordRecovery(String source, long nanos) {
+    var registry = meters.getIfAvailable();
+    if (registry == null) return;
+    Timer.builder("aqms.queue.recovery")
+        .description("Time to rebuild the in-memory queues at startup")
+        .tag("source", source)
+        .register(registry)
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  @PreDestroy
+  synchronized void close() throws IOException {
+    compactor.shutdownNow();
+    if (channel == null) return;
+    compact();
+    journal.force();
+    channel.close();
+    channel = null;
+  }
+
+  // write the write-ahead payload first and its length last, so a record is either complete or
+  // ends the journal; the zero after it keeps older bytes from being read as records
+  private void append(byte[] payload) {
+    int start = journal.position();
+    var crc = new CRC32();
+    crc.update(payload);
+    journal.position(start + 4);
+    journal.putInt((int) crc.getValue());
+    journal.put(payload);
+    journal.putInt(0);
+    journal.putInt(start, payload.length);
+    journal.position(journal.position() - 4);
+  }
+
+  // snapshot of `latest`, written to a temporary file and moved into place, then an empty journal.
+  // Before a baseline exists no snapshot is written, so a restart falls back to the database.
+  // Holds the lock throughout; used at startup, for checkpoints, at shutdown and when the journal
+  // fills up before a background snapshot lands.
+  private void compact() {
+    generation++;
+    if (!baselined) {
+      truncate();
+      return;
+    }
+    var tmp = Path.of(props.getDir(), "queue.snapshot.tmp");
+    try {
+      writeSnapshot(tmp, seq, latest.values());
+      moveIntoPlace(tmp);
+    } catch (IOException e) {
+      // keep appending to the current journal; the next snapshot will try again
+      log.warn("Queue journal snapshot failed: {}", e.getMessage());
+      return;
+    }
+    truncate();
+  }
+
+  // the same, holding the lock only to copy `latest` and to swap in the result: records appended
+  // while the snapshot is written have higher sequence numbers and go into the emptied journal
+  private void compactConcurrently() {
+    List<byte[]> copy;
+    long copySeq;
+    long copyGeneration;
+    synchronized (this) {
+      if (channel == null || !baselined) {
+        if (channel != null) truncate();
+        compacting = false;
+        return;
+      }
+      copy = new ArrayList<>(latest.values());
+      copySeq = seq;
+      copyGeneration = generation;
+      appendedSinceCopy = new ArrayList<>();
+    }
+    var tmp = Path.of(props.getDir(), "queue.snapshot.bg.tmp");
+    boolean written;
+    try {
+      writeSnapshot(tmp, copySeq, copy);
+      written = true;
+    } catch (IOException e) {
+      log.warn("Queue journal snapshot failed: {}", e.getMessage());
+      written = false;
+    }
+    synchronized (this) {
+      try {
+        // a checkpoint in the meantime already wrote a newer snapshot
+        if (written && channel != null && generation == copyGeneration) {
+          moveIntoPlace(tmp);
+          truncate();
+          // they all fitted in the rest of the old journal, so they fit in the emptied one
+          for (var payload : appendedSinceCopy) append(payload);
+          dirty = !appendedSinceCopy.isEmpty();
+        }
+      } catch (IOException e) {
+        log.warn("Queue journal snapshot failed: {}", e.getMessage());
+      } finally {
+        appendedSinceCopy = null;
+        compacting = false;
+      }
+      if (channel != null) compactInBackgroundIfHalfFull();
+    }
+  }
+
+  private static void writeSnapshot(Path file, long snapshotSeq, Collection<byte[]> payloads)
+      throws IOException {
+    try (var out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+      out.writeInt(SNAPSHOT_MAGIC);
+      out.writeLong(snapshotSeq);
+      out.writeInt(payloads.size());
+      var crc = new CRC32();
+      for (var payload : payloads) {
+        out.writeInt(payload.length);
+        out.write(payload);
+        crc.update(payload);
+      }
+      out.writeLong(crc.getValue());
+    }
+  }
+
+  private void moveIntoPlace(Path tmp) throws IOException {
+    Files.move(
+        tmp, snapshotFile(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void truncate() {
+    journal.putInt(0, 0);
+    journal.position(0);
+    dirty = false;
+  }
+
+  private boolean readSnapshot() throws IOException {
+    if (!Files.exists(snapshotFile())) return false;
+    try (var in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile())))) {
+      if (in.readInt() != SNAPSHOT_MAGIC) throw new IOException("not a queue snapshot");
+      long snapshotSeq = in.readLong();
+      int count = in.readInt();
+      var crc = new CRC32();
+      var entries = new HashMap<Long, byte[]>();
+      for (int i = 0; i < count; i++) {
+        var payload = new byte[in.readInt()];
+        in.readFully(payload);
+        crc.update(payload);
+        entries.put(decode(payload).getId(), payload);
+      }
+      if (in.readLong() != crc.getValue()) throw new IOException("checksum mismatch");
+      latest.putAll(entries);
+      seq = snapshotSeq;
+      return true;
+    } catch (IOException e) {
+      // the database is still complete up to the last write-behind flush
+      log.warn("Ignoring unreadable queue snapshot: {}", e.getMessage());
+      latest.clear();
+      return false;
+    }
+  }
+
+  // apply journal records newer than the snapshot; stops at the end marker or a torn record
+  private int replayJournal() throws IOException {
+    int replayed = 0;
+    int pos = 0;
+    while (pos + HEADER_BYTES <= journal.limit()) {
+      int length = journal.getInt(pos);
+      if (length <= 0 || pos + HEADER_BYTES + length > journal.limit()) break;
+      var payload = new byte[length];
+      journal.get(pos + HEADER_BYTES, payload);
+      var crc = new CRC32();
+      crc.update(payload);
+      if ((int) crc.getValue() != journal.getInt(pos + 4)) break;
+      long recordSeq = new DataInputStream(new ByteArrayInputStream(payload)).readLong();
+      if (recordSeq > seq) {
+        latest.put(decode(payload).getId(), payload);
+        seq = recordSeq;
+        replayed++;
+      }
+      pos += HEADER_BYTES + length;
+    }
+    return replayed;
+  }
+
+  static byte[] encode(long seq, QueueNode n) {
+    var bytes = new ByteArrayOutputStream(192);
+    try (var out = new DataOutputStream(bytes)) {
+      out.writeLong(seq);
+      out.writeLong(n.getId());
+      out.writeLong(n.getClinicId());
+      writeLong(out, n.getSlotId());
+      out.writeInt(n.getQueueNumber() != null ? n.getQueueNumber() : 0);
+      writeTime(out, n.getCreatedAt());
+      writeTime(out, n.getAppointmentTime());
+      writeLong(out, n.getPatientId());
+      writeString(out, n.getPatientName());
+      writeString(out, n.getPatientEmail());
+      writeString(out, n.getDoctorName());
+      writeString(out, n.getStatus() != null ? n.getStatus().name() : null);
+      writeTime(out, n.getCalledAt());
+      writeString(out, n.getRoom());
+      out.writeBoolean(n.isFastTracked());
+      writeTime(out, n.getFastTrackedAt());
+      writeString(out, n.getFastTrackReason());
+      out.writeUTF(n.getPriority().name());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  static QueueNode decode(byte[] payload) throws IOException {
+    var in = new DataInputStream(new ByteArrayInputStream(payload));
+    in.readLong();
+    var node =
+        new QueueNode(
+            in.readLong(),
+            in.readLong(),
+            readLong(in),
+            in.readInt(),
+            readTime(in),
+            readTime(in),
+            readLong(in),
+            readString(in),
+            readString(in),
+            readString(in));
+    String status = readString(in);
+    node.setStatus(status != null ? QueueStatus.valueOf(status) : null);
+    node.setCalledAt(readTime(in));
+    node.setRoom(readString(in));
+    node.setFastTracked(in.readBoolean());
+    node.setFastTrackedAt(readTime(in));
+    node.setFastTrackReason(readString(in));
+    node.setPriority(QueuePriority.valueOf(in.readUTF()));
+    return node;
+  }
+
+  private static void writeLong(DataOutput out, Long value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) out.writeLong(value);
+  }
+
+  private static Long readLong(DataInput in) throws IOException {
+    return in.readBoolean() ? in.readLong() : null;
+  }
+
+  private static void writeString(DataOutput out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) out.writeUTF(value);
+  }
+
+  private static String readString(DataInput in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static void writeTime(DataOutput out, LocalDateTime value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+      out.writeInt(value.getNano());
+    }
+  }
+
+  private static LocalDateTime readTime(DataInput in) throws IOException {
+    if (!in.readBoolean()) return null;
+    return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+  }
+}
@@ -0,0 +1,241 @@
+package aqms.service.queue;
+
+import aqms.domain.enums.QueuePriority;
+import aqms.domain.enums.QueueStatus;
+import aqms.domain.model.QueueEntry;
+import aqms.service.QueueEntryView;
+import java.time.LocalDateTime;
+
+/**
+ * QueueNode
+ *
+ * In-memory counterpart of a {@link QueueEntry} held by {@link ClinicQueue}. Carries the
+ * denormalised slot/patient fields the queue views and notifications need so that reads never
+ * have to navigate back into JPA associations. Nodes are only mutated while the owning clinic's
+ * lock is held.
+ */
+public class QueueNode {
+  private final Long id;
+  private final Long clinicId;
+  private final Long slotId;
+  private final Integer queueNumber;
+  private final LocalDateTime createdAt;
+  private final LocalDateTime appointmentTime;
+  private final Long patientId;
+  private final String patientName;
+  private final String patientEmail;
+  private final String doctorName;
+
+  private QueueStatus status;
+  private LocalDateTime calledAt;
+  private String room;
+  private boolean fastTracked;
+  private LocalDateTime fastTrackedAt;
+  private String fastTrackReason;
+  private QueuePriority priority = QueuePriority.NORMAL;
+
+  QueueNode(
+      Long id,
+      Long clinicId,
+      Long slotId,
+      Integer queueNumber,
+      LocalDateTime createdAt,
+      LocalDateTime appointmentTime,
+      Long patientId,
+      String patientName,
+      String patientEmail,
+      String doctorName) {
+    this.id = id;
+    this.clinicId = clinicId;
+    this.slotId = slotId;
+    this.queueNumber = queueNumber;
+    this.createdAt = createdAt;
+    this.appointmentTime = appointmentTime;
+    this.patientId = patientId;
+    this.patientName = patientName;
+    this.patientEmail = patientEmail;
+    this.doctorName = doctorName;
+  }
+
+  /** Build a node from a persisted entry. The entry's slot (and patient) must be loadable. */
+  public static QueueNode from(QueueEntry e) {
+    var slot = e.getSlot();
+    var patient = slot != null ? slot.getPatient() : null;
+    var node =
+        new QueueNode(
+            e.getId(),
+            e.getClinicId(),
+            slot != null ? slot.getId() : null,
+            e.getQueueNumber(),
+            e.getCreatedAt(),
+            slot != null ? slot.getStartTime() : null,
+            patient != null ? patient.getId() : null,
+            patient != null ? patient.getFullname() : null,
+            patient != null ? patient.getEmail() : null,
+            e.getDoctorName());
+    node.status = e.getStatus();
+    node.calledAt = e.getCalledAt();
+    node.room = e.getRoom();
+    node.fastTracked = Boolean.TRUE.equals(e.getFastTracked());
+    node.fastTrackedAt = e.getFastTrackedAt();
+    node.fastTrackReason = e.getFastTrackReason();
+    if (e.getPriority() != null) node.priority = e.getPriority();
+    return node;
+  }
+
+  public QueueEntryView toView() {
+    return new QueueEntryView(
+        id,
+        queueNumber,
+        status,
+        slotId,
+        appointmentTime,
+        patientId,
+        patientName,
+        doctorName,
+        room,
+        calledAt,
+        createdAt,
+        fastTracked,
+        fastTrackedAt,
+        fastTrackReason,
+        priority);
+  }
+
+  /** Capture the mutable part of the node for write-behind persistence. */
+  State snapshot() {
+    return new State(
+        id, status, calledAt, room, fastTracked, fastTrackedAt, fastTrackReason, priority);
+  }
+
+  boolean isWaiting() {
+    return status == QueueStatus.QUEUED;
+  }
+
+  boolean isActive() {
+    return status == QueueStatus.CALLED || status == QueueStatus.SERVING;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public Long getClinicId() {
+    return clinicId;
+  }
+
+  public Long getSlotId() {
+    return slotId;
+  }
+
+  public Integer getQueueNumber() {
+    return queueNumber;
+  }
+
+  public LocalDateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  public LocalDateTime getAppointmentTime() {
+    return appointmentTime;
+  }
+
+  public Long getPatientId() {
+    return patientId;
+  }
+
+  public String getPatientName() {
+    return patientName;
+  }
+
+  public String getPatientEmail() {
+    return patientEmail;
+  }
+
+  public String getDoctorName() {
+    return doctorName;
+  }
+
+  public QueueStatus getStatus() {
+    return status;
+  }
+
+  void setStatus(QueueStatus status) {
+    this.status = status;
+  }
+
+  public LocalDateTime getCalledAt() {
+    return calledAt;
+  }
+
+  void setCalledAt(LocalDateTime calledAt) {
+    this.calledAt = calledAt;
+  }
+
+  public String getRoom() {
+    return room;
+  }
+
+  void setRoom(String room) {
+    this.room = room;
+  }
+
+  public boolean isFastTracked() {
+    return fastTracked;
+  }
+
+  void setFastTracked(boolean fastTracked) {
+    this.fastTracked = fastTracked;
+  }
+
+  public LocalDateTime getFastTrackedAt() {
+    return fastTrackedAt;
+  }
+
+  void setFastTrackedAt(LocalDateTime fastTrackedAt) {
+    this.fastTrackedAt = fastTrackedAt;
+  }
+
+  public String getFastTrackReason() {
+    return fastTrackReason;
+  }
+
+  void setFastTrackReason(String fastTrackReason) {
+    this.fastTrackReason = fastTrackReason;
+  }
+
+  public QueuePriority getPriority() {
+    return priority;
+  }
+
+  void setPriority(QueuePriority priority) {
+    this.priority = priority;
+  }
+
+  /** Lane the entry waits in: fast-tracked entries are served with emergencies. */
+  QueuePriority lane() {
+    return fastTracked ? QueuePriority.EMERGENCY : priority;
+  }
+
+  /** Immutable copy of the persisted, mutable columns of a queue entry. */
+  record State(
+      Long id,
+      QueueStatus status,
+      LocalDateTime calledAt,
+      String room,
+      boolean fastTracked,
+      LocalDateTime fastTrackedAt,
+      String fastTrackReason,
+      QueuePriority priority) {
+
+    void applyTo(QueueEntry e) {
+      e.setStatus(status);
+      e.setCalledAt(calledAt);
+      e.setRoom(room);
+      e.setFastTracked(fastTracked);
+      e.setFastTrackedAt(fastTrackedAt);
+      e.setFastTrackReason(fastTrackReason);
+      e.setPriority(priority);
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package aqms.service.queue;
+
+import aqms.config.AppProperties;
+import aqms.domain.model.ClinicQueueState;
+import aqms.repository.ClinicQueueStateRepository;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Component
+@RequiredArgsConstructor
+/**
+ * QueueNumberAllocator
+ *
+ * Hands out daily queue numbers per clinic. The authoritative counter for the running day is an
+ * in-process {@link AtomicInteger}, so concurrent check-ins never receive the same number and no
+ * query over queue_entries is needed. Numbers are reserved in blocks of numberBlockSize: only the
+ * check-in that takes the first number of a block writes the block's end to the clinic's
+ * clinic_queue_state row (queue_date, last_queue_number) in its transaction. The other check-ins
+ * never touch that row, and the sequence continues after a restart (past whatever was left of the
+ * last block). A block whose write rolls back is written again by the next check-in.
+ *
+ * <p>In cluster mode the in-process counter cannot be shared, so each allocation locks the
+ * clinic_queue_state row and increments it there instead.
+ */
+public class QueueNumberAllocator {
+  private final ClinicQueueStateRepository stateRepo;
+  private final QueueEngine engine;
+  private final AppProperties props;
+
+  private final Map<Long, DayCounter> counters = new ConcurrentHashMap<>();
+
+  /** Allocate the next queue number for today in the given clinic. */
+  public int next(Long clinicId) {
+    var today = LocalDate.now();
+    if (props.getQueue().isCluster()) return nextShared(clinicId, today);
+    var counter = counters.get(clinicId);
+    if (counter == null || !counter.day().equals(today)) {
+      // read outside the map's compute; if two threads race, the first counter stored wins
+      var seeded = seed(clinicId, today);
+      counter =
+          counters.compute(clinicId, (id, c) -> c != null && c.day().equals(today) ? c : seeded);
+    }
+    int number = counter.last().incrementAndGet();
+    for (int reserved = counter.reserved().get();
+        number > reserved;
+        reserved = counter.reserved().get()) {
+      int end = number + Math.max(1, props.getQueue().getNumberBlockSize()) - 1;
+      if (counter.reserved().compareAndSet(reserved, end)) {
+        reserve(clinicId, counter, reserved, end);
+        break;
+      }
+    }
+    return number;
+  }
+
+  // store the block's end with the caller's transaction; if that rolls back, give the block up so
+  // that a later number writes it again
+  private void reserve(Long clinicId, DayCounter counter, int previous, int end) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+              if (status != STATUS_COMMITTED) counter.reserved().compareAndSet(end, previous);
+            }
+          });
+    }
+    try {
+      if (stateRepo.advanceQueueNumber(clinicId, counter.day(), end) == 0) {
+        // no row for the clinic yet
+        stateRepo.insertQueueNumberIfAbsent(clinicId, counter.day(), end);
+      }
+    } catch (RuntimeException e) {
+      counter.reserved().compareAndSet(end, previous);
+      throw e;
+    }
+  }
+
+  // must run inside the caller's transaction so the row lock is held until the entry is inserted
+  private int nextShared(Long clinicId, LocalDate today) {
+    var state = stateRepo.lockByClinicId(clinicId);
+    if (state.isEmpty()) {
+      stateRepo.insertQueueNumberIfAbsent(clinicId, today, 0);
+      state = stateRepo.lockByClinicId(clinicId);
+    }
+    int last =
+        state
+            .filter(s -> today.equals(s.getQueueDate()))
+            .map(ClinicQueueState::getLastQueueNumber)
+            .orElse(0);
+    int number = last + 1;
+    stateRepo.advanceQueueNumber(clinicId, today, number);
+    return number;
+  }
+
+  /** Forget all cached counters (used by the midnight reset). */
+  public void reset() {
+    counters.clear();
+  }
+
+  // start after the persisted sequence, but never below a number already handed out today
+  private DayCounter seed(Long clinicId, LocalDate day) {
+    int persisted =
+        stateRepo
+            .findByClinicId(clinicId)
+            .filter(s -> day.equals(s.getQueueDate()))
+            .map(ClinicQueueState::getLastQueueNumber)
+            .orElse(0);
+    int inQueue = engine.maxQueueNumber(clinicId);
+    int last = Math.max(persisted, inQueue);
+    return new DayCounter(day, new AtomicInteger(last), new AtomicInteger(last));
+  }
+
+  // reserved: end of the block stored (or being stored) in clinic_queue_state
+  private record DayCounter(LocalDate day, AtomicInteger last, AtomicInteger reserved) {}
+}
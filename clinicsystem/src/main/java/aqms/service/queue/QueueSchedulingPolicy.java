@@ -0,0 +1,36 @@
+package aqms.service.queue;
+
+import aqms.domain.enums.QueuePriority;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * QueueSchedulingPolicy
+ *
+ * Decides which priority lane a clinic serves next. Every {@link ClinicQueue} owns a {@link
+ * Scheduler} created by the policy configured for its clinic (aqms.queue.policy, overridable per
+ * clinic through aqms.queue.clinicPolicies). The queue offers the scheduler the head of each
+ * non-empty lane, so a pick never looks past the first entry of a lane.
+ */
+public interface QueueSchedulingPolicy {
+  /** Name used to select the policy in configuration. */
+  String name();
+
+  Scheduler newScheduler();
+
+  /** Per-clinic scheduling state. Only used while the clinic's queue lock is held. */
+  interface Scheduler {
+    /**
+     * Lane to call from next.
+     *
+     * @param heads first waiting entry of every non-empty lane (never empty)
+     */
+    QueuePriority pick(Map<QueuePriority, QueueNode> heads, LocalDateTime now);
+
+    /** An entry from {@code lane} has been called. */
+    default void served(QueuePriority lane) {}
+
+    /** Independent copy of this scheduler, used to predict the call order. */
+    Scheduler copy();
+  }
+}
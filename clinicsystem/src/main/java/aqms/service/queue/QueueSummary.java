@@ -0,0 +1,17 @@
+package aqms.service.queue;
+
+/**
+ * Counters describing a clinic's queue at one point in time.
+ *
+ * @param nowServing highest queue number currently CALLED or SERVING, or null
+ * @param waiting entries still QUEUED
+ * @param called entries CALLED but not yet completed
+ */
+public record QueueSummary(Integer nowServing, int waiting, int called) {
+  static final QueueSummary EMPTY = new QueueSummary(null, 0, 0);
+
+  /** Size of the queue as shown to patients (waiting plus called). */
+  public int totalInQueue() {
+    return waiting + called;
+  }
+}
@@ -0,0 +1,75 @@
+package aqms.service.queue;
+
+import aqms.config.AppProperties;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.stereotype.Component;
+
+@Component
+/**
+ * QueueVersions
+ *
+ * Per-clinic change counter for today's queue, bumped by QueueService whenever it publishes a
+ * queue change. The counter is exposed as a strong ETag so staff boards can poll with
+ * If-None-Match and get 304 without the status view being built, and {@link #awaitChange} lets a
+ * long-poll wait for the next bump instead of polling at all. Tags include a per-process epoch so
+ * a tag from before a restart never matches. In cluster mode other instances' changes do not bump
+ * this counter, so no tag is issued and every poll gets a full response.
+ */
+public class QueueVersions {
+  private final boolean enabled;
+  private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+  private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+  private final Map<Long, Set<CompletableFuture<Boolean>>> waiters = new ConcurrentHashMap<>();
+
+  public QueueVersions(AppProperties props) {
+    this.enabled = !props.getQueue().isCluster();
+  }
+
+  /** Record a change to the clinic's queue and wake its long-polls. */
+  public void bump(Long clinicId) {
+    versions.computeIfAbsent(clinicId, id -> new AtomicLong()).incrementAndGet();
+    var waiting = waiters.get(clinicId);
+    if (waiting != null) waiting.forEach(w -> w.complete(true));
+  }
+
+  /** Strong ETag (with quotes) for the clinic's current queue, or null when not tracked. */
+  public String etag(Long clinicId) {
+    if (!enabled) return null;
+    var version = versions.get(clinicId);
+    return "\"" + epoch + "-" + (version != null ? version.get() : 0) + "\"";
+  }
+
+  /** Whether an If-None-Match header value names the clinic's current ETag. */
+  public boolean matches(Long clinicId, String ifNoneMatch) {
+    String etag = etag(clinicId);
+    if (etag == null || ifNoneMatch == null) return false;
+    for (var tag : ifNoneMatch.split(",")) {
+      tag = tag.trim();
+      if (tag.equals("*") || tag.equals(etag)) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Completes with true once the clinic's queue no longer matches {@code ifNoneMatch} (at once if
+   * it already differs), or with false when {@code timeout} passes first.
+   */
+  public CompletableFuture<Boolean> awaitChange(
+      Long clinicId, String ifNoneMatch, Duration timeout) {
+    if (!matches(clinicId, ifNoneMatch)) return CompletableFuture.completedFuture(true);
+    var waiter = new CompletableFuture<Boolean>();
+    var waiting = waiters.computeIfAbsent(clinicId, id -> ConcurrentHashMap.newKeySet());
+    waiting.add(waiter);
+    waiter.whenComplete((changed, e) -> waiting.remove(waiter));
+    // a bump between the check above and registering would otherwise be missed
+    if (!matches(clinicId, ifNoneMatch)) waiter.complete(true);
+    return waiter.completeOnTimeout(false, timeout.toMillis(), TimeUnit.MILLISECONDS);
+  }
+}
@@ -0,0 +1,92 @@
+package aqms.service.queue;
+
+import aqms.repository.QueueEntryRepository;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Component
+@Slf4j
+/**
+ * QueueWriteBehind
+ *
+ * Persists queue-entry state changes made by {@link QueueEngine} asynchronously. Pending changes
+ * are keyed by entry id so that several transitions of the same entry between two flushes collapse
+ * into a single UPDATE; a failed flush puts its changes back unless a newer state has arrived.
+ * Flushes run one at a time, so an entry's states are committed in the order they were submitted.
+ *
+ * <p>In cluster mode the engine bypasses the pending map and writes each transition with {@link
+ * #write} before releasing the clinic's lock, since other instances read the rows.
+ */
+public class QueueWriteBehind {
+  private final QueueEntryRepository queueRepo;
+  private final TransactionTemplate tx;
+
+  private final Map<Long, QueueNode.State> pending = new ConcurrentHashMap<>();
+
+  public QueueWriteBehind(QueueEntryRepository queueRepo, PlatformTransactionManager txManager) {
+    this.queueRepo = queueRepo;
+    // always a fresh transaction: flushes and writes also run from afterCommit callbacks
+    this.tx = new TransactionTemplate(txManager);
+    this.tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  void submit(QueueNode.State state) {
+    pending.put(state.id(), state);
+  }
+
+  /** Write one entry's state now, replacing any pending state of the entry. */
+  void write(QueueNode.State state) {
+    pending.remove(state.id());
+    tx.executeWithoutResult(
+        status ->
+            queueRepo
+                .findById(state.id())
+                .ifPresent(
+                    e -> {
+                      state.applyTo(e);
+                      queueRepo.save(e);
+                    }));
+  }
+
+  public int pendingCount() {
+    return pending.size();
+  }
+
+  @Scheduled(fixedDelayString = "${aqms.queue.write-behind-millis:250}")
+  public synchronized void flush() {
+    if (pending.isEmpty()) return;
+    var batch = new ArrayList<QueueNode.State>(pending.size());
+    for (var id : new ArrayList<>(pending.keySet())) {
+      var state = pending.remove(id);
+      if (state != null) batch.add(state);
+    }
+    if (batch.isEmpty()) return;
+    try {
+      tx.executeWithoutResult(
+          status -> {
+            var byId = new HashMap<Long, QueueNode.State>();
+            for (var s : batch) byId.put(s.id(), s);
+            var entities = queueRepo.findAllById(byId.keySet());
+            for (var e : entities) byId.get(e.getId()).applyTo(e);
+            queueRepo.saveAll(entities);
+          });
+    } catch (Exception e) {
+      log.warn("Queue write-behind flush of {} entries failed, will retry", batch.size(), e);
+      for (var s : batch) pending.putIfAbsent(s.id(), s);
+    }
+  }
+
+  @PreDestroy
+  void drain() {
+    flush();
+  }
+}
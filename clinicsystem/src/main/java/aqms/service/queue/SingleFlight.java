@@ -0,0 +1,116 @@
+package aqms.service.queue;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * SingleFlight
+ *
+ * Lets concurrent callers asking for the same key share one computation: the first caller computes
+ * and everyone arriving while it runs waits for and returns the same result (or exception).
+ * Callers that pass a version also get the last result computed for that key and version without
+ * computing at all, so a read keyed on a {@link QueueVersions} tag is only recomputed after the
+ * queue changed. Values are shared between callers and must not be modified.
+ *
+ * <p>Counts hits (served from the last result), misses (computed) and coalesced calls (joined a
+ * running computation) as aqms.singleflight.requests{name,outcome}.
+ */
+public class SingleFlight<K, V> implements MeterBinder {
+  private final String name;
+  private final Map<Flight<K>, CompletableFuture<V>> running = new ConcurrentHashMap<>();
+  private final Map<K, Result<V>> last = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+
+  // a computation started for an older version is not joined by callers that saw a newer one
+  private record Flight<K>(K key, Object version) {}
+
+  private record Result<V>(Object version, V value) {}
+
+  public SingleFlight(String name) {
+    this.name = name;
+  }
+
+  /** Compute {@code key}, sharing the work with concurrent callers of the same key. */
+  public V get(K key, Supplier<V> compute) {
+    return get(key, null, compute);
+  }
+
+  /**
+   * Like {@link #get(Object, Supplier)}, but a result already computed for {@code key} at {@code
+   * version} is returned as is. A null version never matches.
+   */
+  public V get(K key, Object version, Supplier<V> compute) {
+    if (version != null) {
+      var result = last.get(key);
+      if (result != null && version.equals(result.version())) {
+        hits.increment();
+        return result.value();
+      }
+    }
+    var flight = new Flight<>(key, version);
+    var mine = new CompletableFuture<V>();
+    var other = running.putIfAbsent(flight, mine);
+    if (other != null) {
+      coalesced.increment();
+      return join(other);
+    }
+    misses.increment();
+    try {
+      V value = compute.get();
+      if (version != null) last.put(key, new Result<>(version, value));
+      mine.complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      running.remove(flight, mine);
+    }
+  }
+
+  private V join(CompletableFuture<V> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException r) throw r;
+      if (e.getCause() instanceof Error err) throw err;
+      throw e;
+    }
+  }
+
+  public long hits() {
+    return hits.sum();
+  }
+
+  public long misses() {
+    return misses.sum();
+  }
+
+  public long coalesced() {
+    return coalesced.sum();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    counter(registry, "hit", hits);
+    counter(registry, "miss", misses);
+    counter(registry, "coalesced", coalesced);
+  }
+
+  private void counter(MeterRegistry registry, String outcome, LongAdder count) {
+    FunctionCounter.builder("aqms.singleflight.requests", count, LongAdder::sum)
+        .description("Reads served by single-flight, by outcome")
+        .tag("name", name)
+        .tag("outcome", outcome)
+        .register(registry);
+  }
+}
@@ -0,0 +1,93 @@
+package aqms.service.queue;
+
+import aqms.config.AppProperties;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Component;
+
+@Component
+/**
+ * WaitTimeEstimator
+ *
+ * Online estimate of how long a consultation takes, per clinic and per doctor. Each CALLED to
+ * COMPLETED transition adds one sample: the time from calledAt to completion. Every key keeps an
+ * EWMA and a streaming p90 (see {@link P2Quantile}), so reads and updates are O(1) and history is
+ * never rescanned. Until a key has seen a sample, the configured default service time is used.
+ */
+public class WaitTimeEstimator {
+  // longer "consultations" are almost always a forgotten completion, not a real service time
+  private static final Duration MAX_SAMPLE = Duration.ofHours(3);
+
+  private final double alpha;
+  private final Estimate fallback;
+
+  private final Map<Long, Stats> byClinic = new ConcurrentHashMap<>();
+  private final Map<DoctorKey, Stats> byDoctor = new ConcurrentHashMap<>();
+
+  public WaitTimeEstimator(AppProperties props) {
+    var q = props.getQueue();
+    this.alpha = q.getServiceTimeAlpha();
+    double seconds = q.getDefaultServiceMinutes() * 60.0;
+    this.fallback = new Estimate(seconds, seconds, 0);
+  }
+
+  /** Record a finished consultation. */
+  public void record(Long clinicId, String doctorName, Duration serviceTime) {
+    if (serviceTime.isNegative() || serviceTime.compareTo(MAX_SAMPLE) > 0) return;
+    double seconds = serviceTime.toMillis() / 1000.0;
+    byClinic.computeIfAbsent(clinicId, id -> new Stats()).add(seconds, alpha);
+    if (doctorName != null && !doctorName.isBlank()) {
+      byDoctor
+          .computeIfAbsent(new DoctorKey(clinicId, doctorName), k -> new Stats())
+          .add(seconds, alpha);
+    }
+  }
+
+  /** Service-time estimate for a clinic. */
+  public Estimate forClinic(Long clinicId) {
+    var stats = byClinic.get(clinicId);
+    return stats == null || stats.current == null ? fallback : stats.current;
+  }
+
+  /** Service-time estimate for a doctor, falling back to the clinic's when the doctor is new. */
+  public Estimate forDoctor(Long clinicId, String doctorName) {
+    if (doctorName != null) {
+      var stats = byDoctor.get(new DoctorKey(clinicId, doctorName));
+      if (stats != null && stats.current != null) return stats.current;
+    }
+    return forClinic(clinicId);
+  }
+
+  /** Expected wait in whole minutes for someone with {@code ahead} patients in front. */
+  public int estimateWaitMinutes(Long clinicId, String doctorName, int ahead) {
+    double seconds = ahead * forDoctor(clinicId, doctorName).meanSeconds();
+    return (int) Math.ceil(seconds / 60.0);
+  }
+
+  /**
+   * Point-in-time service-time statistics.
+   *
+   * @param meanSeconds exponentially weighted mean
+   * @param p90Seconds streaming 90th percentile
+   * @param samples number of consultations seen (0 means the configured default is used)
+   */
+  public record Estimate(double meanSeconds, double p90Seconds, long samples) {}
+
+  private record DoctorKey(Long clinicId, String doctorName) {}
+
+  private static final class Stats {
+    private final P2Quantile p90 = new P2Quantile(0.9);
+    private double ewma;
+    private long samples;
+    // republished after each update so readers never take the lock
+    private volatile Estimate current;
+
+    synchronized void add(double seconds, double alpha) {
+      ewma = samples == 0 ? seconds : alpha * seconds + (1 - alpha) * ewma;
+      samples++;
+      p90.add(seconds);
+      current = new Estimate(ewma, p90.value(), samples);
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package aqms.service.queue;
+
+import aqms.config.AppProperties;
+import aqms.domain.enums.QueuePriority;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import org.springframework.stereotype.Component;
+
+@Component
+/**
+ * WeightedFairPolicy
+ *
+ * Stride scheduling across the priority lanes. EMERGENCY gets aqms.queue.emergencyFraction of the
+ * calls, EXPRESS gets expressFraction and NORMAL the rest, as long as each lane has someone
+ * waiting. A lane that was empty rejoins at the current virtual time instead of cashing in credit
+ * saved while idle. If a lane's head has waited longer than aqms.queue.maxWaitMinutes, the oldest
+ * such head is called first regardless of the shares.
+ */
+public class WeightedFairPolicy implements QueueSchedulingPolicy {
+  public static final String NAME = "weighted-fair";
+
+  // tie-break order when two lanes have the same pass value
+  private static final QueuePriority[] ORDER = {
+    QueuePriority.EMERGENCY, QueuePriority.EXPRESS, QueuePriority.NORMAL
+  };
+  private static final double MIN_SHARE = 0.001;
+
+  private final double[] strides = new double[QueuePriority.values().length];
+  private final Duration maxWait;
+
+  public WeightedFairPolicy(AppProperties props) {
+    var q = props.getQueue();
+    double emergency = q.getEmergencyFraction();
+    double express = q.getExpressFraction();
+    strides[QueuePriority.EMERGENCY.ordinal()] = 1.0 / Math.max(MIN_SHARE, emergency);
+    strides[QueuePriority.EXPRESS.ordinal()] = 1.0 / Math.max(MIN_SHARE, express);
+    strides[QueuePriority.NORMAL.ordinal()] = 1.0 / Math.max(MIN_SHARE, 1.0 - emergency - express);
+    this.maxWait = Duration.ofMinutes(q.getMaxWaitMinutes());
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public Scheduler newScheduler() {
+    return new Stride(new double[strides.length], 0);
+  }
+
+  private final class Stride implements Scheduler {
+    private final double[] pass;
+    private double virtualTime;
+
+    Stride(double[] pass, double virtualTime) {
+      this.pass = pass;
+      this.virtualTime = virtualTime;
+    }
+
+    @Override
+    public QueuePriority pick(Map<QueuePriority, QueueNode> heads, LocalDateTime now) {
+      // starvation guard
+      var cutoff = now.minus(maxWait);
+      QueuePriority starving = null;
+      LocalDateTime oldest = null;
+      for (var lane : ORDER) {
+        var head = heads.get(lane);
+        if (head == null || head.getCreatedAt() == null) continue;
+        if (head.getCreatedAt().isBefore(cutoff)
+            && (oldest == null || head.getCreatedAt().isBefore(oldest))) {
+          starving = lane;
+          oldest = head.getCreatedAt();
+        }
+      }
+      if (starving != null) return starving;
+
+      QueuePriority best = null;
+      double bestPass = Double.MAX_VALUE;
+      for (var lane : ORDER) {
+        if (!heads.containsKey(lane)) continue;
+        double p = Math.max(pass[lane.ordinal()], virtualTime);
+        if (best == null || p < bestPass) {
+          best = lane;
+          bestPass = p;
+        }
+      }
+      return best;
+    }
+
+    @Override
+    public void served(QueuePriority lane) {
+      int i = lane.ordinal();
+      double p = Math.max(pass[i], virtualTime);
+      virtualTime = p;
+      pass[i] = p + strides[i];
+    }
+
+    @Override
+    public Scheduler copy() {
+      return new Stride(Arrays.copyOf(pass, pass.length), virtualTime);
+    }
+  }
+}
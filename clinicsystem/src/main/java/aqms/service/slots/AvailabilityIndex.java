@@ -0,0 +1,273 @@
+package aqms.service.slots;
+
+import aqms.config.AppProperties;
+import aqms.domain.enums.AppointmentStatus;
+import aqms.domain.model.AppointmentSlot;
+import aqms.repository.AppointmentSlotRepository;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Component
+@Slf4j
+/**
+ * AvailabilityIndex
+ *
+ * In-memory answer to "which slots are free" for stored appointment slots. Each clinic-day keeps
+ * its slots sorted by start time, a bitset of the free positions and one bitset per doctor of the
+ * positions that doctor holds, so a day's free slots (for one doctor: the AND of the two) and the
+ * first free slot after a time are bit scans instead of range queries over appointment_slot.
+ *
+ * <p>Booking and cancelling flip a bit; anything that adds, removes or moves slots (generation,
+ * custom slots, doctor reassignment, reschedules, deletes) drops the affected days, which are
+ * rebuilt from the database on their next read. Both happen after the change commits. The next
+ * {@code aqms.slots.indexWarmDays} days are loaded at startup. Off in cluster mode, where other
+ * instances book behind this one's back.
+ */
+public class AvailabilityIndex {
+  private record Key(Long clinicId, LocalDate date) {}
+
+  private static final class Day {
+    // sorted by start time, then doctor name; entries of free positions are AVAILABLE slots
+    final AppointmentSlot[] slots;
+    final Map<Long, Integer> positions;
+    final BitSet free;
+    final Map<Long, BitSet> byDoctor;
+
+    Day(List<AppointmentSlot> rows) {
+      slots =
+          rows.stream()
+              .sorted(
+                  Comparator.comparing(AppointmentSlot::getStartTime)
+                      .thenComparing(s -> s.getDoctor() != null ? s.getDoctor().getName() : ""))
+              .toArray(AppointmentSlot[]::new);
+      positions = new HashMap<>(slots.length * 2);
+      free = new BitSet(slots.length);
+      byDoctor = new HashMap<>();
+      for (int i = 0; i < slots.length; i++) {
+        var slot = slots[i];
+        positions.put(slot.getId(), i);
+        if (slot.getStatus() == AppointmentStatus.AVAILABLE) free.set(i);
+        if (slot.getDoctor() != null) {
+          byDoctor.computeIfAbsent(slot.getDoctor().getId(), d -> new BitSet()).set(i);
+        }
+      }
+    }
+
+    synchronized BitSet freeFor(Long doctorId) {
+      var bits = (BitSet) free.clone();
+      if (doctorId != null) bits.and(byDoctor.getOrDefault(doctorId, new BitSet()));
+      return bits;
+    }
+
+    // first position starting at or after `after`
+    int firstAtOrAfter(LocalDateTime after) {
+      int lo = 0;
+      int hi = slots.length;
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (slots[mid].getStartTime().isBefore(after)) lo = mid + 1;
+        else hi = mid;
+      }
+      return lo;
+    }
+  }
+
+  private final AppointmentSlotRepository slotRepo;
+  private final AppProperties.Slots props;
+  private final boolean enabled;
+  private final Map<Key, Day> days = new ConcurrentHashMap<>();
+  // bumped by every change, so a day read while one commits is not cached
+  private final AtomicLong changes = new AtomicLong();
+
+  public AvailabilityIndex(AppointmentSlotRepository slotRepo, AppProperties props) {
+    this.slotRepo = slotRepo;
+    this.props = props.getSlots();
+    this.enabled = this.props.isIndex() && !props.getQueue().isCluster();
+  }
+
+  public boolean enabled() {
+    return enabled;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    if (!enabled || props.getIndexWarmDays() <= 0) return;
+    long seen = changes.get();
+    var from = LocalDate.now();
+    var to = from.plusDays(props.getIndexWarmDays());
+    var rows = slotRepo.findByStartTimeBetween(from.atStartOfDay(), to.atStartOfDay());
+    var grouped =
+        rows.stream()
+            .filter(s -> s.getStartTime().isBefore(to.atStartOfDay()))
+            .collect(
+                Collectors.groupingBy(
+                    s -> new Key(s.getClinic().getId(), s.getStartTime().toLocalDate())));
+    if (changes.get() != seen) return;
+    var warmed = new HashMap<Key, Day>();
+    grouped.forEach(
+        (key, slots) -> {
+          var day = new Day(slots);
+          if (days.putIfAbsent(key, day) == null) warmed.put(key, day);
+        });
+    // as in day(): re-check once inserted, so no change can have slipped past
+    if (changes.get() != seen) warmed.forEach(days::remove);
+    log.info("Availability index warmed: {} slots over {} clinic-days", rows.size(), days.size());
+  }
+
+  /** The clinic's free slots on {@code date}, for one doctor if {@code doctorId} is set. */
+  public List<AppointmentSlot> available(Long clinicId, Long doctorId, LocalDate date) {
+    var day = day(clinicId, date);
+    var bits = day.freeFor(doctorId);
+    var result = new ArrayList<AppointmentSlot>(bits.cardinality());
+    synchronized (day) {
+      for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) result.add(day.slots[i]);
+    }
+    return result;
+  }
+
+  /** First free slot starting at or after {@code after}, looking {@code indexWarmDays} ahead. */
+  public Optional<AppointmentSlot> firstAvailable(
+      Long clinicId, Long doctorId, LocalDateTime after) {
+    return firstAvailable(clinicId, doctorId, after, s -> true);
+  }
+
+  /** As {@link #firstAvailable(Long, Long, LocalDateTime)}, skipping slots not {@code usable}. */
+  public Optional<AppointmentSlot> firstAvailable(
+      Long clinicId, Long doctorId, LocalDateTime after, Predicate<AppointmentSlot> usable) {
+    var last = after.toLocalDate().plusDays(Math.max(1, props.getIndexWarmDays()));
+    for (var date = after.toLocalDate(); date.isBefore(last); date = date.plusDays(1)) {
+      var day = day(clinicId, date);
+      var bits = day.freeFor(doctorId);
+      for (int i = bits.nextSetBit(day.firstAtOrAfter(after)); i >= 0; i = bits.nextSetBit(i + 1)) {
+        AppointmentSlot slot;
+        synchronized (day) {
+          slot = day.slots[i];
+        }
+        if (usable.test(slot)) return Optional.of(slot);
+      }
+    }
+    return Optional.empty();
+  }
+
+  /** {@code slot} was booked (or otherwise taken) in the current transaction. */
+  public void taken(AppointmentSlot slot) {
+    var key = key(slot);
+    afterCommit(() -> update(key, slot, false));
+  }
+
+  /** {@code slot} became AVAILABLE again in the current transaction. */
+  public void freed(AppointmentSlot slot) {
+    var key = key(slot);
+    afterCommit(() -> update(key, slot, true));
+  }
+
+  /** Slots of the clinic on {@code date} were added, removed or moved. */
+  public void invalidate(Long clinicId, LocalDate date) {
+    afterCommit(
+        () -> {
+          changes.incrementAndGet();
+          days.remove(new Key(clinicId, date));
+        });
+  }
+
+  /** Slots of the clinic starting between {@code from} and {@code to} changed. */
+  public void invalidate(Long clinicId, LocalDateTime from, LocalDateTime to) {
+    for (var date = from.toLocalDate(); !date.isAfter(to.toLocalDate()); date = date.plusDays(1)) {
+      invalidate(clinicId, date);
+    }
+  }
+
+  /** Forget every day of the clinic. */
+  public void invalidate(Long clinicId) {
+    afterCommit(
+        () -> {
+          changes.incrementAndGet();
+          days.keySet().removeIf(k -> k.clinicId().equals(clinicId));
+        });
+  }
+
+  // past days are never asked for again
+  @Scheduled(cron = "0 5 0 * * *")
+  public void dropPastDays() {
+    var today = LocalDate.now();
+    days.keySet().removeIf(k -> k.date().isBefore(today));
+  }
+
+  private Day day(Long clinicId, LocalDate date) {
+    var key = new Key(clinicId, date);
+    var day = days.get(key);
+    if (day != null) return day;
+    long seen = changes.get();
+    var from = date.atStartOfDay();
+    var to = date.plusDays(1).atStartOfDay();
+    var loaded =
+        new Day(
+            slotRepo.findByClinicIdAndStartTimeBetween(clinicId, from, to).stream()
+                .filter(s -> s.getStartTime().isBefore(to))
+                .toList());
+    if (!enabled || changes.get() != seen) return loaded;
+    var cached = days.putIfAbsent(key, loaded);
+    if (cached != null) return cached;
+    // a change that committed between the check and the insert may have missed the day it was
+    // looking for; changes after this re-check find it in the map
+    if (changes.get() != seen) days.remove(key, loaded);
+    return loaded;
+  }
+
+  private void update(Key key, AppointmentSlot slot, boolean free) {
+    changes.incrementAndGet();
+    var day = days.get(key);
+    if (day == null) return;
+    Integer i = day.positions.get(slot.getId());
+    if (i == null) {
+      // a slot the day has not seen: reload it
+      days.remove(key);
+      return;
+    }
+    synchronized (day) {
+      if (free) {
+        day.slots[i] = slot;
+        day.free.set(i);
+      } else {
+        day.free.clear(i);
+      }
+    }
+  }
+
+  private static Key key(AppointmentSlot slot) {
+    return new Key(slot.getClinic().getId(), slot.getStartTime().toLocalDate());
+  }
+
+  private void afterCommit(Runnable change) {
+    if (!enabled) return;
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      change.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            change.run();
+          }
+        });
+  }
+}
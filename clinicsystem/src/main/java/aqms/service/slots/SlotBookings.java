@@ -0,0 +1,113 @@
+package aqms.service.slots;
+
+import aqms.config.AppProperties;
+import aqms.domain.enums.AppointmentStatus;
+import aqms.domain.enums.UserRole;
+import aqms.domain.model.AppointmentSlot;
+import aqms.repository.AppointmentSlotRepository;
+import aqms.repository.UserAccountRepository;
+import aqms.service.AppointmentService;
+import java.util.Optional;
+import java.util.function.Predicate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+/**
+ * SlotBookings
+ *
+ * Booking entry point for contended slots. A patient may first hold a slot ({@link SlotHolds})
+ * while they confirm; booking then goes through {@link AppointmentService#book} in its own
+ * transaction. When two bookings of one slot race, the slot's version column lets exactly one
+ * commit: the other fails its update, is retried on a fresh read (up to {@value #MAX_ATTEMPTS}
+ * attempts, for versions bumped by unrelated edits) and then finds the slot taken.
+ *
+ * <p>Every refusal is a {@link SlotConflictException} carrying the nearest free slot after the
+ * one asked for, with the same doctor if there is one, otherwise any doctor of the clinic.
+ * Deliberately not transactional itself, so each attempt commits or rolls back on its own.
+ */
+public class SlotBookings {
+  private static final int MAX_ATTEMPTS = 3;
+
+  private final AppointmentService appointments;
+  private final AppointmentSlotRepository slotRepo;
+  private final UserAccountRepository userRepo;
+  private final SlotHolds holds;
+  private final AvailabilityIndex availabilityIndex;
+  private final AppProperties props;
+
+  public SlotHolds.Hold hold(Long slotId, Long patientId) {
+    // the same checks as booking, so holds cannot be taken for unknown or non-patient accounts
+    var user =
+        userRepo
+            .findById(patientId)
+            .orElseThrow(() -> new IllegalArgumentException("User not found"));
+    if (user.getRole() != UserRole.PATIENT) {
+      throw new IllegalArgumentException("User must be a PATIENT");
+    }
+    var slot =
+        slotRepo
+            .findById(slotId)
+            .orElseThrow(() -> new IllegalArgumentException("Slot not found: " + slotId));
+    if (slot.getStatus() != AppointmentStatus.AVAILABLE) {
+      throw conflict(slot, "Slot not available");
+    }
+    return holds
+        .hold(slotId, patientId)
+        .orElseThrow(() -> conflict(slot, "Slot is held by another patient"));
+  }
+
+  public void release(Long slotId, Long patientId) {
+    holds.release(slotId, patientId);
+  }
+
+  public AppointmentSlot book(Long slotId, Long patientId) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        var booked = appointments.book(slotId, patientId);
+        holds.release(slotId, patientId);
+        return booked;
+      } catch (SlotConflictException e) {
+        throw conflict(slotId, e.getMessage());
+      } catch (ObjectOptimisticLockingFailureException e) {
+        // the slot changed between our read and our write; the next read shows whether it was
+        // booked by someone else or just edited
+        if (attempt >= MAX_ATTEMPTS) {
+          log.warn("Booking slot {} lost {} optimistic lock races", slotId, attempt);
+          throw conflict(slotId, "Slot is being changed by another request");
+        }
+      }
+    }
+  }
+
+  private SlotConflictException conflict(Long slotId, String message) {
+    return slotRepo
+        .findById(slotId)
+        .map(slot -> conflict(slot, message))
+        .orElseGet(() -> new SlotConflictException(message, slotId));
+  }
+
+  private SlotConflictException conflict(AppointmentSlot slot, String message) {
+    return new SlotConflictException(message, slot.getId(), nextAvailable(slot).orElse(null));
+  }
+
+  private Optional<AppointmentSlot> nextAvailable(AppointmentSlot slot) {
+    // template availability has no stored free slots to suggest
+    if (props.getSlots().isTemplates()) return Optional.empty();
+    var clinicId = slot.getClinic().getId();
+    // the index may not have seen the winning booking yet, so skip the contested slot by id
+    Predicate<AppointmentSlot> usable =
+        s -> !s.getId().equals(slot.getId()) && !holds.isHeld(s.getId());
+    if (slot.getDoctor() != null) {
+      var sameDoctor =
+          availabilityIndex.firstAvailable(
+              clinicId, slot.getDoctor().getId(), slot.getStartTime(), usable);
+      if (sameDoctor.isPresent()) return sameDoctor;
+    }
+    return availabilityIndex.firstAvailable(clinicId, null, slot.getStartTime(), usable);
+  }
+}
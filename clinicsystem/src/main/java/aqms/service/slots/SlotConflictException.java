@@ -0,0 +1,33 @@
+package aqms.service.slots;
+
+import aqms.domain.model.AppointmentSlot;
+
+/**
+ * SlotConflictException
+ *
+ * A slot could not be booked or held because another patient got it first (booked it, or holds
+ * it). Carries the nearest free slot after it, if one was found, so the client can offer that
+ * instead. Answered with 409 Conflict.
+ */
+public class SlotConflictException extends IllegalStateException {
+  private final Long slotId;
+  private final transient AppointmentSlot nextAvailable;
+
+  public SlotConflictException(String message, Long slotId) {
+    this(message, slotId, null);
+  }
+
+  public SlotConflictException(String message, Long slotId, AppointmentSlot nextAvailable) {
+    super(message);
+    this.slotId = slotId;
+    this.nextAvailable = nextAvailable;
+  }
+
+  public Long getSlotId() {
+    return slotId;
+  }
+
+  public AppointmentSlot getNextAvailable() {
+    return nextAvailable;
+  }
+}
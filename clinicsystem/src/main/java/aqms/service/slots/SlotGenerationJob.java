@@ -0,0 +1,141 @@
+package aqms.service.slots;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SlotGenerationJob
+ *
+ * Progress of one bulk run of {@link SlotGenerationJobs}: what was asked for, how many clinic-days
+ * are done or failed, how many slots were written, and the first failures with their reasons.
+ * Updated concurrently by the clinic workers; {@link #status()} takes a consistent-enough copy
+ * for the status endpoint.
+ */
+public final class SlotGenerationJob {
+  static final int MAX_FAILURES = 100;
+
+  public enum State {
+    RUNNING,
+    COMPLETED,
+    COMPLETED_WITH_FAILURES
+  }
+
+  public record Session(LocalTime openTime, LocalTime closeTime) {}
+
+  /** Which clinics and days to generate, and how; an empty {@code clinicIds} means all clinics. */
+  public record Spec(
+      List<Long> clinicIds,
+      LocalDate startDate,
+      LocalDate endDate,
+      int intervalMinutes,
+      int slotDurationMinutes,
+      List<Session> sessions) {}
+
+  public record Failure(Long clinicId, LocalDate date, String reason) {}
+
+  public record Status(
+      String jobId,
+      State state,
+      int clinics,
+      int clinicDaysTotal,
+      int clinicDaysDone,
+      int clinicDaysFailed,
+      long slotsCreated,
+      double slotsPerSecond,
+      LocalDateTime startedAt,
+      LocalDateTime finishedAt,
+      List<Failure> failures) {}
+
+  private final String id = UUID.randomUUID().toString();
+  private final Spec spec;
+  private final int clinics;
+  private final int clinicDaysTotal;
+  private final LocalDateTime startedAt = LocalDateTime.now();
+  private final long startedNanos = System.nanoTime();
+
+  private final AtomicInteger clinicsLeft;
+  private final AtomicInteger daysDone = new AtomicInteger();
+  private final AtomicInteger daysFailed = new AtomicInteger();
+  private final AtomicLong slotsCreated = new AtomicLong();
+  // guarded by this
+  private final List<Failure> failures = new ArrayList<>();
+  private volatile LocalDateTime finishedAt;
+  private volatile long finishedNanos;
+
+  SlotGenerationJob(Spec spec, int clinics, int days) {
+    this.spec = spec;
+    this.clinics = clinics;
+    this.clinicDaysTotal = clinics * days;
+    this.clinicsLeft = new AtomicInteger(clinics);
+  }
+
+  String id() {
+    return id;
+  }
+
+  Spec spec() {
+    return spec;
+  }
+
+  boolean finished() {
+    return finishedAt != null;
+  }
+
+  void dayDone(int slots) {
+    slotsCreated.addAndGet(slots);
+    daysDone.incrementAndGet();
+  }
+
+  void dayFailed(Long clinicId, LocalDate date, String reason) {
+    synchronized (this) {
+      if (failures.size() < MAX_FAILURES) failures.add(new Failure(clinicId, date, reason));
+    }
+    daysFailed.incrementAndGet();
+    daysDone.incrementAndGet();
+  }
+
+  /** Called by each clinic's worker when it is through its days; the last one ends the job. */
+  void clinicDone() {
+    if (clinicsLeft.decrementAndGet() == 0) finish();
+  }
+
+  void finish() {
+    finishedNanos = System.nanoTime();
+    finishedAt = LocalDateTime.now();
+  }
+
+  public Status status() {
+    var end = finishedAt;
+    long nanos = (end != null ? finishedNanos : System.nanoTime()) - startedNanos;
+    long slots = slotsCreated.get();
+    int failed = daysFailed.get();
+    State state =
+        end == null
+            ? State.RUNNING
+            : failed > 0 ? State.COMPLETED_WITH_FAILURES : State.COMPLETED;
+    List<Failure> firstFailures;
+    synchronized (this) {
+      firstFailures = List.copyOf(failures);
+    }
+    double seconds = Duration.ofNanos(nanos).toMillis() / 1000.0;
+    return new Status(
+        id,
+        state,
+        clinics,
+        clinicDaysTotal,
+        daysDone.get(),
+        failed,
+        slots,
+        seconds > 0 ? Math.round(slots / seconds * 10) / 10.0 : 0,
+        startedAt,
+        end,
+        firstFailures);
+  }
+}
@@ -0,0 +1,205 @@
+package aqms.service.slots;
+
+import aqms.config.AppProperties;
+import aqms.repository.ClinicRepository;
+import aqms.service.AppointmentSlotManagementService;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+@Service
+@Slf4j
+/**
+ * SlotGenerationJobs
+ *
+ * Bulk slot generation over a date range for many clinics (or all of them). A job is split by
+ * clinic: each clinic's days run in order on one task, so two workers never rebuild the same
+ * clinic-day, and the tasks share a fixed pool of {@code aqms.slots.jobWorkers} virtual threads.
+ * Every clinic-day (all of its sessions) is generated in its own transaction through {@link
+ * AppointmentSlotManagementService#generateSlotsForDate}, so a failing day rolls back alone and
+ * the rest of the job carries on. Progress is read with {@link #status}; the latest {@code
+ * aqms.slots.jobHistory} jobs are kept.
+ */
+public class SlotGenerationJobs {
+  private final AppointmentSlotManagementService slots;
+  private final ClinicRepository clinicRepo;
+  private final AppProperties.Slots props;
+  private final TransactionTemplate tx;
+  private final ExecutorService workers;
+
+  // insertion ordered so the oldest finished jobs are dropped first; guarded by itself
+  private final Map<String, SlotGenerationJob> jobs = new LinkedHashMap<>();
+
+  public SlotGenerationJobs(
+      AppointmentSlotManagementService slots,
+      ClinicRepository clinicRepo,
+      AppProperties props,
+      PlatformTransactionManager txManager) {
+    this.slots = slots;
+    this.clinicRepo = clinicRepo;
+    this.props = props.getSlots();
+    this.tx = new TransactionTemplate(txManager);
+    this.workers =
+        Executors.newFixedThreadPool(
+            Math.max(1, this.props.getJobWorkers()),
+            Thread.ofVirtual().name("slot-generator-", 1).factory());
+  }
+
+  public SlotGenerationJob.Status start(SlotGenerationJob.Spec spec) {
+    validate(spec);
+    var clinicIds = resolveClinics(spec.clinicIds());
+    int days = (int) ChronoUnit.DAYS.between(spec.startDate(), spec.endDate()) + 1;
+    var job = new SlotGenerationJob(spec, clinicIds.size(), days);
+    remember(job);
+
+    log.info(
+        "Slot generation job {}: {} clinic(s), {} to {}",
+        job.id(),
+        clinicIds.size(),
+        spec.startDate(),
+        spec.endDate());
+    if (clinicIds.isEmpty()) {
+      job.finish();
+    }
+    int submitted = 0;
+    try {
+      for (; submitted < clinicIds.size(); submitted++) {
+        var clinicId = clinicIds.get(submitted);
+        workers.execute(() -> runClinic(job, clinicId));
+      }
+    } catch (RejectedExecutionException e) {
+      // clinics that never got a worker count as failed, so the job still finishes
+      for (var clinicId : clinicIds.subList(submitted, clinicIds.size())) {
+        abandon(job, clinicId, "Shutting down");
+      }
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Shutting down");
+    }
+    return job.status();
+  }
+
+  public Optional<SlotGenerationJob.Status> status(String jobId) {
+    synchronized (jobs) {
+      return Optional.ofNullable(jobs.get(jobId)).map(SlotGenerationJob::status);
+    }
+  }
+
+  private void runClinic(SlotGenerationJob job, Long clinicId) {
+    var spec = job.spec();
+    try {
+      for (var date = spec.startDate(); !date.isAfter(spec.endDate()); date = date.plusDays(1)) {
+        runDay(job, clinicId, date);
+      }
+    } finally {
+      job.clinicDone();
+      if (job.finished()) {
+        var status = job.status();
+        log.info(
+            "Slot generation job {} finished: {} slots, {} of {} clinic-days failed, {} slots/s",
+            job.id(),
+            status.slotsCreated(),
+            status.clinicDaysFailed(),
+            status.clinicDaysTotal(),
+            status.slotsPerSecond());
+      }
+    }
+  }
+
+  private void abandon(SlotGenerationJob job, Long clinicId, String reason) {
+    var spec = job.spec();
+    for (var date = spec.startDate(); !date.isAfter(spec.endDate()); date = date.plusDays(1)) {
+      job.dayFailed(clinicId, date, reason);
+    }
+    job.clinicDone();
+  }
+
+  private void runDay(SlotGenerationJob job, Long clinicId, LocalDate date) {
+    var spec = job.spec();
+    try {
+      Integer created =
+          tx.execute(
+              s -> {
+                int count = 0;
+                for (var session : spec.sessions()) {
+                  count +=
+                      slots
+                          .generateSlotsForDate(
+                              clinicId,
+                              date,
+                              session.openTime(),
+                              session.closeTime(),
+                              spec.intervalMinutes(),
+                              spec.slotDurationMinutes())
+                          .size();
+                }
+                return count;
+              });
+      job.dayDone(created != null ? created : 0);
+    } catch (ResponseStatusException e) {
+      job.dayFailed(clinicId, date, e.getReason());
+    } catch (Exception e) {
+      log.warn("Slot generation job {} failed for clinic {} on {}", job.id(), clinicId, date, e);
+      job.dayFailed(clinicId, date, e.getMessage());
+    }
+  }
+
+  private void validate(SlotGenerationJob.Spec spec) {
+    if (spec.startDate() == null || spec.endDate() == null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "startDate and endDate required");
+    }
+    if (spec.endDate().isBefore(spec.startDate())) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "endDate is before startDate");
+    }
+    if (ChronoUnit.DAYS.between(spec.startDate(), spec.endDate()) >= props.getJobMaxDays()) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "Date range longer than " + props.getJobMaxDays() + " days");
+    }
+    if (spec.sessions() == null || spec.sessions().isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one session required");
+    }
+    if (spec.intervalMinutes() < 0 || spec.slotDurationMinutes() <= 0) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid interval or duration");
+    }
+  }
+
+  private List<Long> resolveClinics(List<Long> requested) {
+    if (requested == null || requested.isEmpty()) {
+      return clinicRepo.findAllIds();
+    }
+    var ids = List.copyOf(new HashSet<>(requested));
+    var known = new HashSet<>(clinicRepo.findExistingIds(ids));
+    var missing = ids.stream().filter(id -> !known.contains(id)).sorted().toList();
+    if (!missing.isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Clinics not found: " + missing);
+    }
+    return ids.stream().sorted().toList();
+  }
+
+  private void remember(SlotGenerationJob job) {
+    synchronized (jobs) {
+      jobs.put(job.id(), job);
+      var it = jobs.values().iterator();
+      while (jobs.size() > props.getJobHistory() && it.hasNext()) {
+        if (it.next().finished()) it.remove();
+      }
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    workers.shutdownNow();
+  }
+}
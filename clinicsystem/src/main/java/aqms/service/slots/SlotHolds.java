@@ -0,0 +1,172 @@
+package aqms.service.slots;
+
+import aqms.config.AppProperties;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Service
+/**
+ * SlotHolds
+ *
+ * Short-lived claims on AVAILABLE slots while a patient confirms a booking. A slot has at most one
+ * hold; the first patient to ask gets it (asking again extends it) and everyone else is refused
+ * until it is released, the slot is booked or {@code aqms.slots.holdTtlMillis} passes. Held slots
+ * are left out of availability. A patient holds at most {@code maxHoldsPerPatient} slots at once,
+ * so one client cannot take a clinic's free slots off the market.
+ *
+ * <p>Holds live in memory only and are checked for expiry whenever they are read. Expired ones are
+ * also swept by a timer wheel of {@code holdWheelSize} buckets: each hold is filed in the bucket
+ * of the first tick after it expires, so a tick only looks at the holds due then rather than at
+ * every hold.
+ */
+public class SlotHolds {
+  public record Hold(Long slotId, Long patientId, Instant expiresAt) {
+    boolean expired(Instant now) {
+      return !now.isBefore(expiresAt);
+    }
+  }
+
+  private final AppProperties.Slots props;
+  private final Map<Long, Hold> holds = new ConcurrentHashMap<>();
+  // slots each patient holds; a patient's set is only touched inside byPatient.compute*
+  private final Map<Long, Set<Long>> byPatient = new ConcurrentHashMap<>();
+  private final Queue<Long>[] wheel;
+  private long lastTick;
+
+  @SuppressWarnings("unchecked")
+  public SlotHolds(AppProperties props) {
+    this.props = props.getSlots();
+    this.wheel = new Queue[Math.max(1, this.props.getHoldWheelSize())];
+    for (int i = 0; i < wheel.length; i++) wheel[i] = new ConcurrentLinkedQueue<>();
+    this.lastTick = tick(Instant.now());
+  }
+
+  /**
+   * Hold {@code slotId} for {@code patientId}, or extend the patient's hold on it. Empty if another
+   * patient holds it. Does not check the slot itself is AVAILABLE.
+   *
+   * @throws IllegalStateException if the patient already holds {@code maxHoldsPerPatient} other
+   *     slots
+   */
+  public Optional<Hold> hold(Long slotId, Long patientId) {
+    var now = Instant.now();
+    var fresh = new Hold(slotId, patientId, now.plusMillis(props.getHoldTtlMillis()));
+    var granted = new boolean[1];
+    // the patient's entry is locked while the slot is claimed, so their concurrent holds cannot
+    // all pass the cap
+    byPatient.compute(
+        patientId,
+        (id, slots) -> {
+          var mine = slots != null ? slots : new HashSet<Long>();
+          mine.removeIf(s -> !heldBy(s, patientId, now));
+          if (!mine.contains(slotId) && mine.size() >= props.getMaxHoldsPerPatient()) {
+            throw new IllegalStateException(
+                "Patient already holds " + mine.size() + " slots; book or release one first");
+          }
+          var held =
+              holds.compute(
+                  slotId,
+                  (s, cur) ->
+                      cur == null || cur.expired(now) || cur.patientId().equals(patientId)
+                          ? fresh
+                          : cur);
+          granted[0] = held == fresh;
+          if (granted[0]) mine.add(slotId);
+          return mine.isEmpty() ? null : mine;
+        });
+    if (!granted[0]) return Optional.empty();
+    wheel[bucket(due(fresh))].add(slotId);
+    return Optional.of(fresh);
+  }
+
+  /** True if a patient other than {@code patientId} holds the slot. */
+  public boolean heldByOther(Long slotId, Long patientId) {
+    var hold = current(slotId);
+    return hold != null && !hold.patientId().equals(patientId);
+  }
+
+  public boolean isHeld(Long slotId) {
+    return !holds.isEmpty() && current(slotId) != null;
+  }
+
+  /** Drop the patient's hold on the slot, if they have one. */
+  public void release(Long slotId, Long patientId) {
+    holds.computeIfPresent(slotId, (id, h) -> h.patientId().equals(patientId) ? null : h);
+    forget(slotId, patientId);
+  }
+
+  public int size() {
+    return holds.size();
+  }
+
+  @Scheduled(fixedDelayString = "${aqms.slots.hold-tick-millis:1000}")
+  public synchronized void expire() {
+    var now = Instant.now();
+    long current = tick(now);
+    // after a pause longer than the wheel, one turn visits every bucket
+    long from = Math.max(lastTick + 1, current - wheel.length + 1);
+    for (long t = from; t <= current; t++) {
+      var bucket = wheel[bucket(t)];
+      var keep = new ArrayList<Long>();
+      for (Long slotId; (slotId = bucket.poll()) != null; ) {
+        var removed = new Hold[1];
+        var hold =
+            holds.computeIfPresent(
+                slotId,
+                (id, h) -> {
+                  if (!h.expired(now)) return h;
+                  removed[0] = h;
+                  return null;
+                });
+        if (removed[0] != null) forget(slotId, removed[0].patientId());
+        // still live and filed here: due on a later turn of the wheel. Holds extended since were
+        // filed again under their new expiry, so this entry is dropped.
+        if (hold != null && bucket(due(hold)) == bucket(t)) keep.add(slotId);
+      }
+      bucket.addAll(keep);
+    }
+    lastTick = current;
+  }
+
+  private boolean heldBy(Long slotId, Long patientId, Instant now) {
+    var hold = holds.get(slotId);
+    return hold != null && !hold.expired(now) && hold.patientId().equals(patientId);
+  }
+
+  // drop the slot from the patient's set unless they hold it again by now
+  private void forget(Long slotId, Long patientId) {
+    byPatient.computeIfPresent(
+        patientId,
+        (id, slots) -> {
+          if (!heldBy(slotId, patientId, Instant.now())) slots.remove(slotId);
+          return slots.isEmpty() ? null : slots;
+        });
+  }
+
+  private Hold current(Long slotId) {
+    var hold = holds.get(slotId);
+    return hold == null || hold.expired(Instant.now()) ? null : hold;
+  }
+
+  // the first tick that starts after the hold has expired
+  private long due(Hold hold) {
+    return tick(hold.expiresAt()) + 1;
+  }
+
+  private long tick(Instant instant) {
+    return instant.toEpochMilli() / Math.max(1, props.getHoldTickMillis());
+  }
+
+  private int bucket(long tick) {
+    return (int) Math.floorMod(tick, (long) wheel.length);
+  }
+}
@@ -0,0 +1,178 @@
+package aqms.service.slots;
+
+import aqms.config.AppProperties;
+import aqms.domain.enums.AppointmentStatus;
+import aqms.domain.model.AppointmentSlot;
+import aqms.domain.model.Doctor;
+import aqms.repository.AppointmentSlotRepository;
+import aqms.repository.ClinicRepository;
+import aqms.repository.DoctorRepository;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Service
+/**
+ * SlotTemplates
+ *
+ * Availability computed from each clinic's {@link WeeklyTemplate} instead of stored AVAILABLE
+ * rows. A day's available slots are its template slots, minus those overlapping an appointment_slot
+ * row for the same doctor, plus the AVAILABLE rows themselves (cancelled bookings, slots generated
+ * or created by staff). Only the rows of the day asked for are read, so the cost follows the
+ * bookings rather than the calendar. A template slot becomes a row when it is booked ({@link
+ * #materialize}).
+ *
+ * <p>Templates are cached per clinic for {@code aqms.slots.templateTtlMillis} and dropped early by
+ * {@link #invalidate} when hours, interval or doctors change.
+ */
+public class SlotTemplates {
+  private record Cached(WeeklyTemplate template, long builtNanos) {}
+
+  private final AppointmentSlotRepository slotRepo;
+  private final ClinicRepository clinicRepo;
+  private final DoctorRepository doctorRepo;
+  private final AppProperties.Slots props;
+  private final Map<Long, Cached> templates = new ConcurrentHashMap<>();
+
+  public SlotTemplates(
+      AppointmentSlotRepository slotRepo,
+      ClinicRepository clinicRepo,
+      DoctorRepository doctorRepo,
+      AppProperties props) {
+    this.slotRepo = slotRepo;
+    this.clinicRepo = clinicRepo;
+    this.doctorRepo = doctorRepo;
+    this.props = props.getSlots();
+  }
+
+  public WeeklyTemplate forClinic(Long clinicId) {
+    long now = System.nanoTime();
+    long ttl = props.getTemplateTtlMillis() * 1_000_000;
+    var cached = templates.get(clinicId);
+    if (cached != null && now - cached.builtNanos() < ttl) return cached.template();
+
+    var clinic =
+        clinicRepo
+            .findById(clinicId)
+            .orElseThrow(() -> new IllegalArgumentException("Clinic not found: " + clinicId));
+    var template = WeeklyTemplate.of(clinic, doctorRepo.findByClinicId(clinicId));
+    templates.put(clinicId, new Cached(template, now));
+    return template;
+  }
+
+  /** Drop the clinic's template once the current transaction (if any) has committed. */
+  public void invalidate(Long clinicId) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      templates.remove(clinicId);
+      return;
+    }
+    // after commit, so a concurrent read cannot cache the template from the old rows again
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            templates.remove(clinicId);
+          }
+        });
+  }
+
+  @Transactional(readOnly = true)
+  public List<AppointmentSlot> available(Long clinicId, Long doctorId, LocalDate date) {
+    var template = forClinic(clinicId);
+    var rows = rowsOn(clinicId, date);
+
+    var result = new ArrayList<AppointmentSlot>();
+    for (var row : rows) {
+      if (row.getStatus() == AppointmentStatus.AVAILABLE
+          && sameDoctor(row.getDoctor(), doctorId)) {
+        result.add(row);
+      }
+    }
+    for (var t : template.slotsOn(date)) {
+      if (doctorId != null && !doctorId.equals(t.doctor().getId())) continue;
+      var start = date.atTime(t.start());
+      var end = date.atTime(t.end());
+      if (rows.stream().noneMatch(r -> blocks(r, t.doctor(), start, end))) {
+        result.add(unsaved(template, t, date));
+      }
+    }
+    result.sort(
+        Comparator.comparing(AppointmentSlot::getStartTime)
+            .thenComparing(s -> s.getDoctor() != null ? s.getDoctor().getName() : ""));
+    return result;
+  }
+
+  /**
+   * The row for the template slot of {@code doctorId} (or of any doctor, if null) starting at
+   * {@code start}, inserted as AVAILABLE if the slot has none yet. Holds a lock on the clinic row
+   * until the caller's transaction ends, so two bookings of one template slot cannot both insert
+   * it: the second finds the first one's row.
+   */
+  @Transactional
+  public AppointmentSlot materialize(Long clinicId, Long doctorId, LocalDateTime start) {
+    clinicRepo
+        .lockById(clinicId)
+        .orElseThrow(() -> new IllegalArgumentException("Clinic not found: " + clinicId));
+    var template = forClinic(clinicId);
+    var date = start.toLocalDate();
+    var slot =
+        template.slotsOn(date).stream()
+            .filter(t -> t.start().equals(start.toLocalTime()))
+            .filter(t -> doctorId == null || doctorId.equals(t.doctor().getId()))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("No slot starts at " + start));
+    var end = date.atTime(slot.end());
+
+    var rows = rowsOn(clinicId, date);
+    for (var row : rows) {
+      if (row.getStartTime().equals(start)
+          && row.getDoctor() != null
+          && row.getDoctor().getId().equals(slot.doctor().getId())) {
+        return row;
+      }
+    }
+    if (rows.stream().anyMatch(r -> blocks(r, slot.doctor(), start, end))) {
+      throw new IllegalStateException("Slot not available");
+    }
+    return slotRepo.save(unsaved(template, slot, date));
+  }
+
+  private List<AppointmentSlot> rowsOn(Long clinicId, LocalDate date) {
+    var from = date.atStartOfDay();
+    var to = date.plusDays(1).atStartOfDay();
+    return slotRepo.findByClinicIdAndStartTimeBetween(clinicId, from, to).stream()
+        .filter(r -> r.getStartTime().isBefore(to))
+        .toList();
+  }
+
+  // a row without a doctor stands for the whole clinic
+  private static boolean blocks(
+      AppointmentSlot row, Doctor doctor, LocalDateTime start, LocalDateTime end) {
+    boolean doctorMatches =
+        row.getDoctor() == null || row.getDoctor().getId().equals(doctor.getId());
+    return doctorMatches && row.getStartTime().isBefore(end) && row.getEndTime().isAfter(start);
+  }
+
+  private static boolean sameDoctor(Doctor doctor, Long doctorId) {
+    return doctorId == null || (doctor != null && doctorId.equals(doctor.getId()));
+  }
+
+  private static AppointmentSlot unsaved(
+      WeeklyTemplate template, WeeklyTemplate.TemplateSlot t, LocalDate date) {
+    var slot = new AppointmentSlot();
+    slot.setClinic(template.clinic());
+    slot.setDoctor(t.doctor());
+    slot.setStartTime(date.atTime(t.start()));
+    slot.setEndTime(date.atTime(t.end()));
+    slot.setStatus(AppointmentStatus.AVAILABLE);
+    return slot;
+  }
+}
@@ -0,0 +1,127 @@
+package aqms.service.slots;
+
+import aqms.domain.model.Clinic;
+import aqms.domain.model.Doctor;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * WeeklyTemplate
+ *
+ * A clinic's bookable week: for every day, the slots {@code apptInterval} minutes long that fit in
+ * its operating-hours sessions, each assigned round-robin to the doctors working that half of the
+ * day (before noon: {@code morning}, from noon: {@code afternoon}), the same way {@link
+ * aqms.service.AppointmentSlotManagementService#generateSlotsForDate} assigns generated slots.
+ * Slots whose half of the day has no doctor are left out.
+ *
+ * <p>Operating hours are read in either format the application stores: the same sessions every day
+ * ({@code "0900-1300, 1400-1700"}), or one line per day ({@code "MONDAY: 09:00 - 13:00, 14:00 -
+ * 17:00"}, {@code "SUNDAY: CLOSED"}), where days not listed are closed.
+ */
+public final class WeeklyTemplate {
+  private static final LocalTime NOON = LocalTime.NOON;
+  private static final int DEFAULT_INTERVAL = 30;
+  private static final Pattern RANGE =
+      Pattern.compile("(\\d{1,2}):?(\\d{2})\\s*-\\s*(\\d{1,2}):?(\\d{2})");
+  private static final Pattern DAY_LINE = Pattern.compile("^\\s*([A-Za-z]+)\\s*:(.*)$");
+
+  public record TemplateSlot(LocalTime start, LocalTime end, Doctor doctor) {}
+
+  private final Clinic clinic;
+  private final Map<DayOfWeek, List<TemplateSlot>> days;
+
+  private WeeklyTemplate(Clinic clinic, Map<DayOfWeek, List<TemplateSlot>> days) {
+    this.clinic = clinic;
+    this.days = days;
+  }
+
+  public static WeeklyTemplate of(Clinic clinic, List<Doctor> doctors) {
+    int minutes =
+        clinic.getApptInterval() != null && clinic.getApptInterval() > 0
+            ? clinic.getApptInterval()
+            : DEFAULT_INTERVAL;
+    var sorted = doctors.stream().sorted(Comparator.comparing(Doctor::getId)).toList();
+    var morning = sorted.stream().filter(d -> Boolean.TRUE.equals(d.getMorning())).toList();
+    var afternoon = sorted.stream().filter(d -> Boolean.TRUE.equals(d.getAfternoon())).toList();
+
+    var days = new EnumMap<DayOfWeek, List<TemplateSlot>>(DayOfWeek.class);
+    sessions(clinic.getOperatingHours())
+        .forEach(
+            (day, sessions) -> {
+              var slots = new ArrayList<TemplateSlot>();
+              for (var session : sessions) {
+                int nextMorning = 0;
+                int nextAfternoon = 0;
+                var start = session[0];
+                // the second check stops a slot from wrapping past midnight
+                while (!start.plusMinutes(minutes).isAfter(session[1])
+                    && start.plusMinutes(minutes).isAfter(start)) {
+                  var end = start.plusMinutes(minutes);
+                  var team = start.isBefore(NOON) ? morning : afternoon;
+                  if (!team.isEmpty()) {
+                    int turn = start.isBefore(NOON) ? nextMorning++ : nextAfternoon++;
+                    slots.add(new TemplateSlot(start, end, team.get(turn % team.size())));
+                  }
+                  start = end;
+                }
+              }
+              days.put(day, List.copyOf(slots));
+            });
+    return new WeeklyTemplate(clinic, days);
+  }
+
+  public Clinic clinic() {
+    return clinic;
+  }
+
+  public List<TemplateSlot> slotsOn(LocalDate date) {
+    return days.getOrDefault(date.getDayOfWeek(), List.of());
+  }
+
+  private static Map<DayOfWeek, List<LocalTime[]>> sessions(String hours) {
+    var result = new EnumMap<DayOfWeek, List<LocalTime[]>>(DayOfWeek.class);
+    if (hours == null || hours.isBlank()) return result;
+
+    boolean perDay = false;
+    for (var line : hours.split("\\R")) {
+      var m = DAY_LINE.matcher(line);
+      if (!m.matches()) continue;
+      DayOfWeek day;
+      try {
+        day = DayOfWeek.valueOf(m.group(1).trim().toUpperCase());
+      } catch (IllegalArgumentException e) {
+        continue;
+      }
+      perDay = true;
+      result.put(day, ranges(m.group(2)));
+    }
+    if (!perDay) {
+      var every = ranges(hours);
+      for (var day : DayOfWeek.values()) result.put(day, every);
+    }
+    return result;
+  }
+
+  private static List<LocalTime[]> ranges(String text) {
+    var ranges = new ArrayList<LocalTime[]>();
+    var m = RANGE.matcher(text);
+    while (m.find()) {
+      try {
+        var open = LocalTime.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)));
+        var close = LocalTime.of(Integer.parseInt(m.group(3)), Integer.parseInt(m.group(4)));
+        if (open.isBefore(close)) ranges.add(new LocalTime[] {open, close});
+      } catch (DateTimeException e) {
+        // not a time of day: ignore the range rather than the clinic
+      }
+    }
+    return ranges;
+  }
+}
@@ -2,10 +2,13 @@ package aqms.web.controller;
 
 import aqms.repository.AppointmentSlotRepository;
 import aqms.service.AppointmentService;
+import aqms.service.slots.SlotBookings;
+import aqms.service.slots.SlotHolds;
 import aqms.web.dto.AppointmentDtos;
 import java.time.*;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
@@ -15,12 +18,13 @@ import org.springframework.web.bind.annotation.*;
 /**
  * AppointmentController
  *
- * Public endpoints to query available slots, book/cancel/reschedule appointments and to retrieve
- * a patient's appointments.
+ * Public endpoints to query available slots, hold and book/cancel/reschedule appointments and to
+ * retrieve a patient's appointments.
  */
 public class AppointmentController {
   private final AppointmentService svc;
   private final AppointmentSlotRepository slotRepo;
+  private final SlotBookings bookings;
 
   @GetMapping("/available")
   public List<?> available(
@@ -30,9 +34,35 @@ public class AppointmentController {
     return svc.findAvailable(clinicId, doctorId, date);
   }
 
+  // 404 when nothing is free within aqms.slots.indexWarmDays
+  @GetMapping("/available/first")
+  public ResponseEntity<?> firstAvailable(
+      @RequestParam Long clinicId,
+      @RequestParam(required = false) Long doctorId,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime after) {
+    var from = after != null ? after : LocalDateTime.now();
+    return ResponseEntity.of(svc.findFirstAvailable(clinicId, doctorId, from));
+  }
+
   @PostMapping("/book")
   public Object book(@RequestBody AppointmentDtos.BookRequest req) {
-    return svc.book(req.slotId(), req.patientId());
+    return bookings.book(req.slotId(), req.patientId());
+  }
+
+  @PostMapping("/hold")
+  public SlotHolds.Hold hold(@RequestBody AppointmentDtos.HoldRequest req) {
+    return bookings.hold(req.slotId(), req.patientId());
+  }
+
+  @DeleteMapping("/hold/{slotId}")
+  public void releaseHold(@PathVariable Long slotId, @RequestParam Long patientId) {
+    bookings.release(slotId, patientId);
+  }
+
+  @PostMapping("/book-at")
+  public Object bookAt(@RequestBody AppointmentDtos.BookAtRequest req) {
+    return svc.bookAt(req.clinicId(), req.doctorId(), req.startTime(), req.patientId());
   }
 
   @PutMapping("/{slotId}/reschedule")
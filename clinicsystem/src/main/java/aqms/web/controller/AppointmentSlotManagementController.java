@@ -2,6 +2,8 @@ package aqms.web.controller;
 
 import aqms.domain.model.AppointmentSlot;
 import aqms.service.AppointmentSlotManagementService;
+import aqms.service.slots.SlotGenerationJob;
+import aqms.service.slots.SlotGenerationJobs;
 import aqms.web.dto.AppointmentSlotDtos;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -11,6 +13,7 @@ import java.util.Map;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -25,6 +28,7 @@ import org.springframework.web.bind.annotation.*;
  */
 public class AppointmentSlotManagementController {
   private final AppointmentSlotManagementService slotService;
+  private final SlotGenerationJobs generationJobs;
 
   @PostMapping("/generate")
   public ResponseEntity<List<AppointmentSlotDtos.SlotResponse>> generateSlotsForDate(
@@ -169,6 +173,41 @@ public class AppointmentSlotManagementController {
     }
   }
 
+  /** Start a bulk generation job; poll the returned job with {@code GET /jobs/{jobId}}. */
+  @PostMapping("/generate-range")
+  public ResponseEntity<SlotGenerationJob.Status> generateRange(
+      @RequestBody AppointmentSlotDtos.GenerateRangeRequest request) {
+    if (request.startDate() == null
+        || request.endDate() == null
+        || request.interval() == null
+        || request.slotDuration() == null
+        || request.sessions() == null) {
+      log.warn("Generate range request missing required fields: {}", request);
+      return ResponseEntity.badRequest().build();
+    }
+    var sessions =
+        request.sessions().stream()
+            .map(s -> new SlotGenerationJob.Session(s.openTime(), s.closeTime()))
+            .toList();
+    var status =
+        generationJobs.start(
+            new SlotGenerationJob.Spec(
+                request.clinicIds(),
+                request.startDate(),
+                request.endDate(),
+                request.interval(),
+                request.slotDuration(),
+                sessions));
+    return ResponseEntity.status(HttpStatus.ACCEPTED)
+        .header("Location", "/api/appointment-slots/jobs/" + status.jobId())
+        .body(status);
+  }
+
+  @GetMapping("/jobs/{jobId}")
+  public ResponseEntity<SlotGenerationJob.Status> generationJobStatus(@PathVariable String jobId) {
+    return ResponseEntity.of(generationJobs.status(jobId));
+  }
+
   @PostMapping("/create-custom")
   public ResponseEntity<AppointmentSlotDtos.SlotResponse> createCustomSlot(
       @RequestBody AppointmentSlotDtos.CreateCustomSlotRequest request) {
@@ -2,6 +2,7 @@ package aqms.web.controller;
 
 import aqms.domain.model.*;
 import aqms.repository.*;
+import aqms.service.slots.SlotTemplates;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import java.util.List;
@@ -20,6 +21,7 @@ import org.springframework.web.bind.annotation.*;
 public class ClinicManagementController {
   private final ClinicRepository clinics;
   private final DoctorRepository doctors;
+  private final SlotTemplates slotTemplates;
 
   public record CreateClinicRequest(
       @NotBlank String name,
@@ -54,6 +56,7 @@ public class ClinicManagementController {
     clinic.setOperatingHours(request.operatingHours());
 
     var savedClinic = clinics.save(clinic);
+    slotTemplates.invalidate(savedClinic.getId());
     return ResponseEntity.ok(savedClinic);
   }
 
@@ -73,12 +76,14 @@ public class ClinicManagementController {
     clinic.setApptInterval(request.apptInterval());
 
     var updatedClinic = clinics.save(clinic);
+    slotTemplates.invalidate(id);
     return ResponseEntity.ok(updatedClinic);
   }
 
   @DeleteMapping("/{id}")
   public ResponseEntity<Void> deleteClinic(@PathVariable Long id) {
     clinics.deleteById(id);
+    slotTemplates.invalidate(id);
     return ResponseEntity.noContent().build();
   }
 }
@@ -7,7 +7,10 @@ import aqms.domain.model.UserAccount;
 import aqms.repository.AppointmentSlotRepository;
 import aqms.repository.UserAccountRepository;
 import aqms.service.AppointmentService;
+import aqms.service.CheckInService;
 import aqms.service.PasswordResetService;
+import aqms.service.slots.AvailabilityIndex;
+import aqms.service.slots.SlotBookings;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -37,6 +40,11 @@ public class ClinicStaffController {
   private final aqms.service.QueueService queueService;
   private final aqms.repository.ClinicRepository clinicRepository;
   private final PasswordResetService passwordResetService;
+  private final CheckInService checkInService;
+  private final AvailabilityIndex availabilityIndex;
+  private final SlotBookings slotBookings;
+
+  private static final int MAX_BULK_CHECK_IN = 200;
 
   // Get all upcoming appointments filtered by clinic
   @GetMapping("/appointments/upcoming")
@@ -94,6 +102,9 @@ public class ClinicStaffController {
       @RequestParam Long clinicId,
       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
       @RequestParam(required = false) Long doctorId) {
+    if (availabilityIndex.enabled()) {
+      return availabilityIndex.available(clinicId, doctorId, date);
+    }
     LocalDateTime startOfDay = date.atStartOfDay();
     LocalDateTime endOfDay = date.atTime(23, 59, 59);
 
@@ -109,15 +120,23 @@ public class ClinicStaffController {
   // Check in patient
   @PostMapping("/appointments/{apptId}/check-in")
   public AppointmentSlot checkInPatient(@PathVariable Long apptId) {
-    var slot = appointmentService.checkIn(apptId);
-    // enqueue into clinic queue for staff/live display
-    try {
-      queueService.enqueue(slot.getId());
-    } catch (Exception e) {
-      // don't fail the check-in if queue enqueue fails
-      System.err.println("Failed to enqueue after check-in: " + e.getMessage());
+    // checks in and enqueues for the staff/live display in one transaction
+    return checkInService.checkIn(apptId);
+  }
+
+  public record BulkCheckInRequest(List<Long> appointmentIds) {}
+
+  // Batch of kiosk/QR scans; each appointment reports its own outcome
+  @PostMapping("/appointments/check-in")
+  public List<CheckInService.Result> checkInPatients(@RequestBody BulkCheckInRequest req) {
+    if (req == null || req.appointmentIds() == null || req.appointmentIds().isEmpty()) {
+      throw new IllegalArgumentException("appointmentIds is required");
+    }
+    if (req.appointmentIds().size() > MAX_BULK_CHECK_IN) {
+      throw new IllegalArgumentException(
+          "At most " + MAX_BULK_CHECK_IN + " appointments per check-in batch");
     }
-    return slot;
+    return checkInService.checkInAll(req.appointmentIds());
   }
 
   @DeleteMapping("/appointments/{apptId}/cancel")
@@ -171,7 +190,7 @@ public class ClinicStaffController {
   // Book appointment for walk-in patient (staff version)
   @PostMapping("/appointments/book")
   public AppointmentSlot bookAppointmentForPatient(@RequestBody BookAppointmentRequest request) {
-    return appointmentService.book(request.slotId(), request.patientId());
+    return slotBookings.book(request.slotId(), request.patientId());
   }
 
   record BookAppointmentRequest(Long slotId, Long patientId) {}
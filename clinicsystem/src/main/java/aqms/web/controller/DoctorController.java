@@ -3,6 +3,8 @@ package aqms.web.controller;
 import aqms.domain.model.Doctor;
 import aqms.repository.ClinicRepository;
 import aqms.repository.DoctorRepository;
+import aqms.service.slots.AvailabilityIndex;
+import aqms.service.slots.SlotTemplates;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import java.util.List;
@@ -22,6 +24,8 @@ import org.springframework.web.bind.annotation.*;
 public class DoctorController {
   private final DoctorRepository doctorRepo;
   private final ClinicRepository clinicRepo;
+  private final SlotTemplates slotTemplates;
+  private final AvailabilityIndex availabilityIndex;
 
   public record CreateDoctorRequest(
       @NotBlank String name,
@@ -86,6 +90,7 @@ public class DoctorController {
       doctor.setAfternoon(afternoon);
 
       var savedDoctor = doctorRepo.save(doctor);
+      slotTemplates.invalidate(clinic.getId());
       return ResponseEntity.ok(savedDoctor);
     } catch (IllegalArgumentException e) {
       // Re-throw validation exceptions to preserve error message
@@ -136,6 +141,9 @@ public class DoctorController {
     doctor.setAfternoon(afternoon);
 
     var updatedDoctor = doctorRepo.save(doctor);
+    slotTemplates.invalidate(clinicId);
+    // indexed slots carry the doctor as it was loaded
+    availabilityIndex.invalidate(clinicId);
     return ResponseEntity.ok(updatedDoctor);
   }
 
@@ -170,6 +178,13 @@ public class DoctorController {
 
   @DeleteMapping("/{id}")
   public ResponseEntity<Void> deleteDoctor(@PathVariable Long id) {
+    doctorRepo
+        .findById(id)
+        .ifPresent(
+            doctor -> {
+              slotTemplates.invalidate(doctor.getClinic().getId());
+              availabilityIndex.invalidate(doctor.getClinic().getId());
+            });
     doctorRepo.deleteById(id);
     return ResponseEntity.noContent().build();
   }
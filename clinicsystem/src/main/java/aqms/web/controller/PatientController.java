@@ -4,6 +4,8 @@ package aqms.web.controller;
 // - Get all scheduled appointments: GET /api/patient/appointments
 // - Get specific appointment: GET /api/patient/appointments/{id}
 // - Get appointment history: GET /api/patient/appointments/history
+// - Hold a slot while confirming: POST /api/patient/appointments/hold
+// - Release a hold: DELETE /api/patient/appointments/hold/{slotId}
 // - Update appointment datetime: PUT /api/patient/appointments/{id}/datetime
 // - Cancel appointment: DELETE /api/patient/appointments/{id}
 // - Check reschedule eligibility: GET /api/patient/appointments/{id}/can-reschedule
@@ -15,6 +17,8 @@ import aqms.domain.model.Doctor;
 import aqms.repository.ClinicRepository;
 import aqms.repository.DoctorRepository;
 import aqms.service.AppointmentService;
+import aqms.service.slots.SlotBookings;
+import aqms.service.slots.SlotHolds;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -36,6 +40,7 @@ import org.springframework.web.bind.annotation.*;
 public class PatientController {
 
   private final AppointmentService appointmentService;
+  private final SlotBookings slotBookings;
   private final ClinicRepository clinicRepository;
   private final DoctorRepository doctorRepository;
 
@@ -70,11 +75,31 @@ public class PatientController {
   // Book appointment slot
   @PostMapping("/appointments/book")
   public AppointmentSlot bookAppointment(@RequestBody BookAppointmentRequest request) {
-    return appointmentService.book(request.slotId(), request.patientId());
+    return slotBookings.book(request.slotId(), request.patientId());
   }
 
   record BookAppointmentRequest(Long slotId, Long patientId) {}
 
+  // Hold a slot for a short time while the patient confirms; booking it releases the hold
+  @PostMapping("/appointments/hold")
+  public SlotHolds.Hold holdAppointment(@RequestBody BookAppointmentRequest request) {
+    return slotBookings.hold(request.slotId(), request.patientId());
+  }
+
+  @DeleteMapping("/appointments/hold/{slotId}")
+  public void releaseHold(@PathVariable Long slotId, @RequestParam Long patientId) {
+    slotBookings.release(slotId, patientId);
+  }
+
+  // Book a template slot by its start time (template availability has no slot ids)
+  @PostMapping("/appointments/book-at")
+  public AppointmentSlot bookAppointmentAt(@RequestBody BookAtRequest request) {
+    return appointmentService.bookAt(
+        request.clinicId(), request.doctorId(), request.startTime(), request.patientId());
+  }
+
+  record BookAtRequest(Long clinicId, Long doctorId, LocalDateTime startTime, Long patientId) {}
+
   // Update appointment datetime (reschedule)
   @PutMapping("/appointments/{apptId}/datetime")
   public AppointmentSlot updateAppointmentDatetime(
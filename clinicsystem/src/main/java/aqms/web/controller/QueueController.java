@@ -1,17 +1,32 @@
 package aqms.web.controller;
 
 import aqms.domain.enums.AppointmentStatus;
-import aqms.domain.model.QueueEntry;
+import aqms.domain.enums.QueuePriority;
 import aqms.domain.model.UserAccount;
 import aqms.repository.AppointmentSlotRepository;
 import aqms.repository.UserAccountRepository;
+import aqms.service.PatientQueueResponse;
+import aqms.service.QueueEntryView;
+import aqms.service.QueueHistoryPage;
 import aqms.service.QueueService;
+import aqms.service.QueueStreamService;
+import aqms.service.event.QueueEventStore;
+import aqms.service.queue.QueueVersions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api")
@@ -20,12 +35,22 @@ import org.springframework.web.bind.annotation.*;
  * QueueController
  *
  * Provides queue management endpoints used by staff and patient-facing endpoints for interacting
- * with clinic queues (start/pause/resume, call next, fast-track, and patient queue status).
+ * with clinic queues (start/pause/resume, call next, fast-track, and patient queue status, either
+ * polled or streamed), plus the clinic's event history for replay.
  */
 public class QueueController {
+  private static final int DEFAULT_HISTORY_PAGE = 200;
+  private static final int MAX_HISTORY_PAGE = 1000;
+  private static final int DEFAULT_POLL_SECONDS = 25;
+  private static final int MAX_POLL_SECONDS = 60;
+
   private final QueueService queueService;
   private final UserAccountRepository userRepo;
   private final AppointmentSlotRepository slotRepo;
+  private final QueueStreamService queueStreamService;
+  private final ObjectMapper objectMapper;
+  private final QueueVersions queueVersions;
+  private final QueueEventStore queueEventStore;
 
   // Staff endpoints
   @PostMapping("/queue/start")
@@ -51,9 +76,9 @@ public class QueueController {
 
   @PostMapping("/queue/call-next")
   @PreAuthorize("hasRole('STAFF')")
-  public org.springframework.http.ResponseEntity<?> callNext(@RequestBody ClinicRequest req) {
+  public org.springframework.http.ResponseEntity<?> callNext(@RequestBody CallNextRequest req) {
     try {
-      var entry = queueService.callNext(req.clinicId());
+      var entry = queueService.callNext(req.clinicId(), req.room(), req.doctorName());
       return org.springframework.http.ResponseEntity.ok(entry);
     } catch (IllegalStateException e) {
       return org.springframework.http.ResponseEntity.status(409)
@@ -63,16 +88,26 @@ public class QueueController {
 
   @PostMapping("/queue/fast-track")
   @PreAuthorize("hasRole('STAFF')")
-  public QueueEntry fastTrack(@RequestBody FastTrackRequest req) {
+  public QueueEntryView fastTrack(@RequestBody FastTrackRequest req) {
     return queueService.fastTrack(req.appointmentId(), req.reason());
   }
 
+  @PostMapping("/queue/priority")
+  @PreAuthorize("hasRole('STAFF')")
+  public QueueEntryView setPriority(@RequestBody PriorityRequest req) {
+    return queueService.setPriority(req.appointmentId(), req.priority());
+  }
+
   @GetMapping("/queue/status")
   @PreAuthorize("hasRole('STAFF')")
   public org.springframework.http.ResponseEntity<?> getQueueStatus(
       @RequestParam String clinicId,
       @RequestParam(required = false, defaultValue = "false") boolean all,
-      @RequestParam(required = false) String date) {
+      @RequestParam(required = false) String date,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false, defaultValue = "" + DEFAULT_HISTORY_PAGE) int limit,
+      @RequestParam(required = false, defaultValue = "false") boolean stream,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
     Long cid;
     try {
       cid = Long.valueOf(clinicId);
@@ -81,9 +116,40 @@ public class QueueController {
           .body(java.util.Map.of("error", "Invalid clinicId", "value", clinicId));
     }
     List<?> list;
-    if (all) {
-      // return all entries for debugging (no date filter)
-      list = queueService.getAllQueueStatusView(cid);
+    String nextCursor = null;
+    if (all && stream) {
+      // full history (no date filter) as newline-delimited JSON, written row by row
+      StreamingResponseBody body =
+          out -> {
+            var writer = new java.io.BufferedOutputStream(out);
+            queueService.forEachQueueHistoryEntry(
+                cid,
+                view -> {
+                  try {
+                    writer.write(objectMapper.writeValueAsBytes(view));
+                    writer.write('\n');
+                  } catch (java.io.IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                  }
+                });
+            writer.flush();
+          };
+      return org.springframework.http.ResponseEntity.ok()
+          .contentType(MediaType.parseMediaType("application/x-ndjson"))
+          .body(body);
+    } else if (all) {
+      // full history (no date filter), newest first, one keyset page at a time
+      QueueHistoryPage page;
+      try {
+        page =
+            queueService.getQueueHistoryPage(
+                cid, cursor, Math.max(1, Math.min(limit, MAX_HISTORY_PAGE)));
+      } catch (IllegalArgumentException e) {
+        return org.springframework.http.ResponseEntity.badRequest()
+            .body(java.util.Map.of("error", e.getMessage()));
+      }
+      list = page.entries();
+      nextCursor = page.nextCursor();
     } else if (date != null && !date.isBlank()) {
       // parse date (expect ISO yyyy-MM-dd) and use date-aware view
       java.time.LocalDate d;
@@ -97,119 +163,102 @@ public class QueueController {
       }
       list = queueService.getQueueStatusView(cid, d);
     } else {
-      list = queueService.getQueueStatusView(cid);
+      // today's board: answer unchanged polls from the version counter alone
+      if (queueVersions.matches(cid, ifNoneMatch)) return notModified(cid);
+      return todayStatus(cid);
     }
-    var body =
-        java.util.Map.of(
-            "entries", list,
-            "queueStarted", queueService.isRunning(cid),
-            "queuePaused", queueService.isPaused(cid));
+    var body = statusBody(cid, list);
+    if (all) body.put("nextCursor", nextCursor);
     return org.springframework.http.ResponseEntity.ok(body);
   }
 
+  // Long-poll for the staff board: answers as soon as today's queue no longer matches
+  // If-None-Match, or with 304 once timeoutSeconds pass without a change
+  @GetMapping("/queue/status/poll")
+  @PreAuthorize("hasRole('STAFF')")
+  public DeferredResult<ResponseEntity<?>> pollQueueStatus(
+      @RequestParam Long clinicId,
+      @RequestParam(required = false, defaultValue = "" + DEFAULT_POLL_SECONDS) int timeoutSeconds,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    var timeout = Duration.ofSeconds(Math.max(1, Math.min(timeoutSeconds, MAX_POLL_SECONDS)));
+    // the container's own timeout is only a backstop for the one on the version wait
+    var result = new DeferredResult<ResponseEntity<?>>(timeout.plusSeconds(5).toMillis());
+    // built off the thread that bumped the version, which is finishing a queue change
+    queueVersions
+        .awaitChange(clinicId, ifNoneMatch, timeout)
+        .thenApplyAsync(changed -> changed ? todayStatus(clinicId) : notModified(clinicId))
+        .whenComplete(
+            (response, e) -> {
+              if (e != null) result.setErrorResult(e);
+              else result.setResult(response);
+            });
+    return result;
+  }
+
+  /**
+   * The clinic's queue and appointment events with a sequence number after {@code after}, oldest
+   * first. A client replays from 0 and then passes the last seq it has seen.
+   */
+  @GetMapping("/queue/events")
+  @PreAuthorize("hasRole('STAFF')")
+  public List<QueueEventStore.StoredEvent> getQueueEvents(
+      @RequestParam Long clinicId,
+      @RequestParam(required = false, defaultValue = "0") long after,
+      @RequestParam(required = false, defaultValue = "" + DEFAULT_HISTORY_PAGE) int limit) {
+    return queueEventStore.since(clinicId, after, Math.max(1, Math.min(limit, MAX_HISTORY_PAGE)));
+  }
+
+  private ResponseEntity<?> todayStatus(Long clinicId) {
+    // tag first: if the queue changes while the body is built, the next poll fetches it again
+    String etag = queueVersions.etag(clinicId);
+    var body = statusBody(clinicId, queueService.getQueueStatusView(clinicId));
+    var ok = ResponseEntity.ok();
+    if (etag != null) ok.eTag(etag).cacheControl(CacheControl.noCache());
+    return ok.body(body);
+  }
+
+  private ResponseEntity<?> notModified(Long clinicId) {
+    return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+        .eTag(queueVersions.etag(clinicId))
+        .cacheControl(CacheControl.noCache())
+        .build();
+  }
+
+  private java.util.Map<String, Object> statusBody(Long clinicId, List<?> entries) {
+    var body = new java.util.LinkedHashMap<String, Object>();
+    body.put("entries", entries);
+    body.put("queueStarted", queueService.isRunning(clinicId));
+    body.put("queuePaused", queueService.isPaused(clinicId));
+    body.put("waitEstimate", queueService.getWaitEstimate(clinicId));
+    return body;
+  }
+
   // Patient endpoints
   @GetMapping("/patient/queue")
   @PreAuthorize("hasRole('PATIENT')")
   public PatientQueueResponse getPatientQueueByAppointment(@RequestParam Long appointmentId) {
+    // patients already in today's queue are answered from memory, without loading the slot
+    var opt = queueService.findPatientQueue(appointmentId, true);
+    if (opt.isPresent()) return opt.get();
     var slotOpt = slotRepo.findById(appointmentId);
-    if (slotOpt.isEmpty()) return new PatientQueueResponse(null, false, null, 0, 0, false);
+    if (slotOpt.isEmpty()) return PatientQueueResponse.empty();
     var slot = slotOpt.get();
 
-    var opt = queueService.findBySlotId(slot.getId());
     // If there's no queue entry yet but the slot is already CHECKED_IN, allow the patient to
     // create an entry for themselves (this covers cases where staff checked in but enqueue
     // wasn't persisted for some reason).
-    if (opt.isEmpty()) {
-      try {
-        if (slot.getStatus() == AppointmentStatus.CHECKED_IN) {
-          var created = queueService.enqueue(slot.getId());
-          // compute summary
-          var list = queueService.getQueueStatusView(created.getClinicId());
-          int total =
-              (int)
-                  list.stream()
-                      .filter(
-                          e ->
-                              e.status() == aqms.domain.enums.QueueStatus.QUEUED
-                                  || e.status() == aqms.domain.enums.QueueStatus.CALLED)
-                      .count();
-          // Use the highest called/serving queue number as "Now Serving" (most recently called)
-          int currentCalled =
-              list.stream()
-                  .filter(
-                      e ->
-                          e.status() == aqms.domain.enums.QueueStatus.CALLED
-                              || e.status() == aqms.domain.enums.QueueStatus.SERVING)
-                  .mapToInt(e -> e.queueNumber() == null ? 0 : e.queueNumber())
-                  .max()
-                  .orElse(0);
-          int ahead =
-              (int)
-                  list.stream()
-                      .filter(
-                          e ->
-                              (e.status() == aqms.domain.enums.QueueStatus.QUEUED
-                                      || e.status() == aqms.domain.enums.QueueStatus.CALLED)
-                                  && e.queueNumber() < created.getQueueNumber())
-                      .count();
-          boolean started = queueService.isRunning(created.getClinicId());
-          return new PatientQueueResponse(
-              created,
-              started,
-              currentCalled == 0 ? null : currentCalled,
-              ahead,
-              total,
-              queueService.isPaused(created.getClinicId()));
-        }
-      } catch (Exception e) {
-        // fall through and return empty response
-        System.err.println("Failed to auto-enqueue patient request: " + e.getMessage());
+    try {
+      if (slot.getStatus() == AppointmentStatus.CHECKED_IN) {
+        queueService.enqueue(slot.getId());
+        return queueService
+            .findPatientQueue(slot.getId(), true)
+            .orElseGet(PatientQueueResponse::empty);
       }
-      return new PatientQueueResponse(null, false, null, 0, 0, false);
+    } catch (Exception e) {
+      // fall through and return empty response
+      System.err.println("Failed to auto-enqueue patient request: " + e.getMessage());
     }
-    var entry = opt.get();
-    var list = queueService.getQueueStatusView(entry.getClinicId());
-    int total =
-        (int)
-            list.stream()
-                .filter(
-                    e ->
-                        e.status() == aqms.domain.enums.QueueStatus.QUEUED
-                            || e.status() == aqms.domain.enums.QueueStatus.CALLED)
-                .count();
-    // Use the highest called/serving queue number as "Now Serving"
-    int currentCalled =
-        list.stream()
-            .filter(
-                e ->
-                    e.status() == aqms.domain.enums.QueueStatus.CALLED
-                        || e.status() == aqms.domain.enums.QueueStatus.SERVING)
-            .mapToInt(e -> e.queueNumber() == null ? 0 : e.queueNumber())
-            .max()
-            .orElse(0);
-    // If this patient's own entry is CALLED or SERVING, prefer their number explicitly
-    if (entry != null
-        && (entry.getStatus() == aqms.domain.enums.QueueStatus.CALLED
-            || entry.getStatus() == aqms.domain.enums.QueueStatus.SERVING)) {
-      currentCalled = entry.getQueueNumber() == null ? currentCalled : entry.getQueueNumber();
-    }
-    int ahead =
-        (int)
-            list.stream()
-                .filter(
-                    e ->
-                        (e.status() == aqms.domain.enums.QueueStatus.QUEUED
-                                || e.status() == aqms.domain.enums.QueueStatus.CALLED)
-                            && e.queueNumber() < entry.getQueueNumber())
-                .count();
-    boolean started = queueService.isRunning(entry.getClinicId());
-    return new PatientQueueResponse(
-        entry,
-        started,
-        currentCalled == 0 ? null : currentCalled,
-        ahead,
-        total,
-        queueService.isPaused(entry.getClinicId()));
+    return PatientQueueResponse.empty();
   }
 
   @GetMapping("/patient/queue/mine")
@@ -218,65 +267,35 @@ public class QueueController {
     var email = SecurityContextHolder.getContext().getAuthentication().getName();
     UserAccount u = userRepo.findByEmail(email).orElseThrow();
     var slots = slotRepo.findByPatientIdOrderByStartTimeAsc(u.getId());
-    if (slots.isEmpty()) return new PatientQueueResponse(null, false, null, 0, 0, false);
+    if (slots.isEmpty()) return PatientQueueResponse.empty();
     // assume first upcoming slot
     var slot = slots.get(0);
-    var opt = queueService.findBySlotId(slot.getId());
-    if (opt.isEmpty()) return new PatientQueueResponse(null, false, null, 0, 0, false);
-    var entry = opt.get();
-    var list = queueService.getQueueStatusView(entry.getClinicId());
-    int total =
-        (int)
-            list.stream()
-                .filter(
-                    e ->
-                        e.status() == aqms.domain.enums.QueueStatus.QUEUED
-                            || e.status() == aqms.domain.enums.QueueStatus.CALLED)
-                .count();
-    // Use the highest called/serving queue number as "Now Serving"
-    int currentCalled =
-        list.stream()
-            .filter(
-                e ->
-                    e.status() == aqms.domain.enums.QueueStatus.CALLED
-                        || e.status() == aqms.domain.enums.QueueStatus.SERVING)
-            .mapToInt(e -> e.queueNumber() == null ? 0 : e.queueNumber())
-            .max()
-            .orElse(0);
-    // If this patient's own entry is CALLED or SERVING, prefer their number explicitly
-    if (entry != null
-        && (entry.getStatus() == aqms.domain.enums.QueueStatus.CALLED
-            || entry.getStatus() == aqms.domain.enums.QueueStatus.SERVING)) {
-      currentCalled = entry.getQueueNumber() == null ? currentCalled : entry.getQueueNumber();
-    }
-    int ahead =
-        (int)
-            list.stream()
-                .filter(
-                    e ->
-                        e.status() == aqms.domain.enums.QueueStatus.QUEUED
-                            && e.queueNumber() < entry.getQueueNumber())
-                .count();
-    boolean started = queueService.isRunning(entry.getClinicId());
-    return new PatientQueueResponse(
-        entry,
-        started,
-        currentCalled == 0 ? null : currentCalled,
-        ahead,
-        total,
-        queueService.isPaused(entry.getClinicId()));
+    return queueService
+        .findPatientQueue(slot.getId(), false)
+        .orElseGet(PatientQueueResponse::empty);
+  }
+
+  /**
+   * Live variant of {@code GET /patient/queue}: a Server-Sent Events stream that sends a
+   * {@code queue} event with the current {@link PatientQueueResponse} and another one whenever it
+   * changes, plus periodic heartbeat comments.
+   */
+  @GetMapping(path = "/patient/queue/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  @PreAuthorize("hasRole('PATIENT')")
+  public SseEmitter streamPatientQueue(@RequestParam Long appointmentId) {
+    var slot =
+        slotRepo
+            .findById(appointmentId)
+            .orElseThrow(() -> new IllegalArgumentException("Appointment not found"));
+    return queueStreamService.subscribe(slot.getClinic().getId(), slot.getId());
   }
 
   record ClinicRequest(Long clinicId) {}
 
+  // room and doctorName are optional; without a room the clinic is treated as a single room
+  record CallNextRequest(Long clinicId, String room, String doctorName) {}
+
   record FastTrackRequest(Long appointmentId, String reason) {}
 
-  // Response for patient-facing queue info
-  public static record PatientQueueResponse(
-      QueueEntry entry,
-      boolean queueStarted,
-      Integer currentCalledNumber,
-      int peopleAhead,
-      int totalInQueue,
-      boolean queuePaused) {}
+  record PriorityRequest(Long appointmentId, QueuePriority priority) {}
 }
@@ -3,6 +3,7 @@ package aqms.web.controller;
 import aqms.domain.enums.AppointmentStatus;
 import aqms.domain.model.*;
 import aqms.repository.*;
+import aqms.service.slots.AvailabilityIndex;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -31,6 +32,7 @@ public class SeedController {
   private final DoctorRepository doctorRepo;
   private final UserAccountRepository userRepo;
   private final PasswordEncoder passwordEncoder;
+  private final AvailabilityIndex availabilityIndex;
 
   @PostMapping("/appointment-slots")
   public String seedAppointmentSlots() {
@@ -70,6 +72,7 @@ public class SeedController {
     }
 
     slotRepo.saveAll(slots);
+    availabilityIndex.invalidate(clinic.getId());
 
     return "Created "
         + slots.size()
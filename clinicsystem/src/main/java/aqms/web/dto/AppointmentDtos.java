@@ -11,6 +11,16 @@ import java.time.*;
 public class AppointmentDtos {
   public record BookRequest(@NotNull Long slotId, @NotNull Long patientId) {}
 
+  /** Hold a slot for the patient while they confirm; booking it then releases the hold. */
+  public record HoldRequest(@NotNull Long slotId, @NotNull Long patientId) {}
+
+  /** Book a template slot, which has no id until booked; doctorId null means any doctor. */
+  public record BookAtRequest(
+      @NotNull Long clinicId,
+      Long doctorId,
+      @NotNull LocalDateTime startTime,
+      @NotNull Long patientId) {}
+
   public record RescheduleRequest(
       @NotNull LocalDateTime startTime, @NotNull LocalDateTime endTime) {}
 }
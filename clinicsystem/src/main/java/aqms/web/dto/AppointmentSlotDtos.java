@@ -69,4 +69,13 @@ public class AppointmentSlotDtos {
       @NotNull @Positive Integer interval,
       @NotNull @Positive Integer slotDuration,
       @NotNull List<SessionTime> sessions) {}
+
+  /** Bulk generation over a date range; no clinicIds means every clinic. */
+  public record GenerateRangeRequest(
+      List<Long> clinicIds,
+      @NotNull @JsonFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+      @NotNull @JsonFormat(pattern = "yyyy-MM-dd") LocalDate endDate,
+      @NotNull @Positive Integer interval,
+      @NotNull @Positive Integer slotDuration,
+      @NotNull List<SessionTime> sessions) {}
 }
@@ -1,8 +1,11 @@
 package aqms.web.error;
 
+import aqms.service.slots.SlotConflictException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.*;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
 
 @RestControllerAdvice
@@ -20,6 +23,28 @@ public class GlobalExceptionHandler {
     return Map.of("error", ex.getClass().getSimpleName(), "message", ex.getMessage());
   }
 
+  // nextAvailable may be null, which Map.of does not allow
+  @ExceptionHandler(SlotConflictException.class)
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public Map<String, Object> slotConflict(SlotConflictException ex) {
+    var body = new LinkedHashMap<String, Object>();
+    body.put("error", ex.getClass().getSimpleName());
+    body.put("message", ex.getMessage());
+    body.put("slotId", ex.getSlotId());
+    body.put("nextAvailable", ex.getNextAvailable());
+    return body;
+  }
+
+  @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public Map<String, Object> concurrentUpdate(ObjectOptimisticLockingFailureException ex) {
+    return Map.of(
+        "error",
+        ex.getClass().getSimpleName(),
+        "message",
+        "Changed by another request at the same time, please reload and try again");
+  }
+
   @ExceptionHandler(RuntimeException.class)
   @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
   public Map<String, Object> runtimeException(RuntimeException ex) {
@@ -0,0 +1,7 @@
+-- Per-clinic daily queue-number sequence.
+-- queue_date is the day last_queue_number belongs to; a different date means the sequence
+-- restarts at 1 (see QueueNumberAllocator and the midnight reset in QueueService).
+
+ALTER TABLE clinic_queue_state
+  ADD COLUMN IF NOT EXISTS queue_date DATE,
+  ADD COLUMN IF NOT EXISTS last_queue_number INTEGER NOT NULL DEFAULT 0;
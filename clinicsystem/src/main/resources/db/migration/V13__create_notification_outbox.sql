@@ -0,0 +1,22 @@
+-- Outbox for outgoing emails. Rows are written in the same transaction as the change that
+-- triggers the mail and are delivered afterwards by OutboxDispatcher.
+-- next_attempt_at doubles as the lease expiry while a row is SENDING, so rows claimed by a
+-- dispatcher that died are picked up again.
+
+CREATE TABLE IF NOT EXISTS notification_outbox (
+  id bigserial PRIMARY KEY,
+  recipient text NOT NULL,
+  subject text,
+  body text,
+  status varchar(16) NOT NULL DEFAULT 'PENDING'
+    CHECK (status IN ('PENDING','SENDING','SENT','DEAD')),
+  attempts integer NOT NULL DEFAULT 0,
+  next_attempt_at timestamp NOT NULL DEFAULT now(),
+  last_error text,
+  created_at timestamp NOT NULL DEFAULT now(),
+  sent_at timestamp
+);
+
+CREATE INDEX IF NOT EXISTS ix_notification_outbox_due
+  ON notification_outbox(next_attempt_at, id)
+  WHERE status IN ('PENDING','SENDING');
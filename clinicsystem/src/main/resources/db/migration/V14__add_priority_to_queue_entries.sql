@@ -0,0 +1,4 @@
+-- Priority lane of a queue entry (see QueueSchedulingPolicy)
+ALTER TABLE queue_entries
+  ADD COLUMN IF NOT EXISTS priority varchar(16) NOT NULL DEFAULT 'NORMAL'
+    CHECK (priority IN ('NORMAL','EXPRESS','EMERGENCY'));
@@ -0,0 +1,5 @@
+-- Optimistic-lock version for clinic_queue_state (see ClinicQueueStateRegistry).
+-- Bumped by every start/pause/resume/reset write; the queue-number bulk updates leave it alone.
+
+ALTER TABLE clinic_queue_state
+  ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,3 @@
+-- Keyset index for the queue history view: newest first per clinic, id breaks ties on created_at
+CREATE INDEX IF NOT EXISTS ix_queue_entries_clinic_created_at_id
+  ON queue_entries(clinic_id, created_at DESC, id DESC);
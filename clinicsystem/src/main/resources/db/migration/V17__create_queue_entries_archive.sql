@@ -0,0 +1,29 @@
+-- Archive of finished queue days, filled by QueueArchiver after the midnight reset so that
+-- queue_entries only holds the current day.
+-- Range-partitioned by month on created_at; QueueArchiver creates each month's partition before
+-- moving rows into it. The default partition only catches rows outside every created range.
+-- The primary key has to include the partition key.
+
+CREATE TABLE IF NOT EXISTS queue_entries_archive (
+  id bigint NOT NULL,
+  clinic_id bigint NOT NULL,
+  slot_id bigint NOT NULL,
+  queue_number integer,
+  status varchar(30) NOT NULL,
+  created_at timestamp NOT NULL,
+  called_at timestamp,
+  room text,
+  doctor_name text,
+  fast_tracked boolean DEFAULT false,
+  fast_tracked_at timestamp,
+  fast_track_reason text,
+  priority varchar(16) NOT NULL DEFAULT 'NORMAL',
+  archived_at timestamp NOT NULL DEFAULT now(),
+  PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE IF NOT EXISTS queue_entries_archive_default
+  PARTITION OF queue_entries_archive DEFAULT;
+
+CREATE INDEX IF NOT EXISTS ix_queue_entries_archive_clinic_created_at_id
+  ON queue_entries_archive(clinic_id, created_at DESC, id DESC);
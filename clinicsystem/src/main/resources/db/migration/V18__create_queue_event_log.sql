@@ -0,0 +1,15 @@
+-- Append-only log of clinic events (queue changes, bookings, cancellations, reschedules).
+-- Rows are written in batches by QueueEventStore after the events were delivered in-process;
+-- seq is the event's position in its clinic's stream as published by the bus.
+
+CREATE TABLE IF NOT EXISTS queue_event_log (
+  id bigserial PRIMARY KEY,
+  clinic_id bigint NOT NULL,
+  seq bigint NOT NULL,
+  event_type varchar(64) NOT NULL,
+  slot_id bigint,
+  payload text,
+  occurred_at timestamp NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS ix_queue_event_log_clinic_seq ON queue_event_log(clinic_id, seq);
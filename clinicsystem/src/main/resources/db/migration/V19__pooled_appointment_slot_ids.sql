@@ -0,0 +1,11 @@
+-- Pooled id generation for appointment_slot so Hibernate can batch slot inserts (IDENTITY forces
+-- one INSERT per row to read the key back). Each nextval reserves the 50 ids ending at the value
+-- returned, matching allocationSize on AppointmentSlot, so the sequence starts one block past
+-- every existing id. The column default moves to the same sequence so rows inserted by hand
+-- cannot collide with ids Hibernate has reserved.
+
+CREATE SEQUENCE IF NOT EXISTS appointment_slot_seq INCREMENT BY 50;
+
+SELECT setval('appointment_slot_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM appointment_slot));
+
+ALTER TABLE appointment_slot ALTER COLUMN id SET DEFAULT nextval('appointment_slot_seq');
@@ -0,0 +1,10 @@
+-- One row per clinic room, locked by ClusterQueueCaller while it checks the room is free and
+-- calls a patient into it, so call-next in different rooms of a clinic never waits on a shared
+-- row. Callers without a room use the row whose room is ''.
+
+CREATE TABLE IF NOT EXISTS queue_room_guard (
+  id bigserial PRIMARY KEY,
+  clinic_id bigint NOT NULL,
+  room varchar(255) NOT NULL,
+  CONSTRAINT uq_queue_room_guard UNIQUE (clinic_id, room)
+);
@@ -0,0 +1,118 @@
+package aqms.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import aqms.domain.model.AppointmentSlot;
+import aqms.domain.model.Clinic;
+import aqms.domain.model.QueueEntry;
+import aqms.service.QueueEntryView;
+import aqms.support.DatabaseTest;
+import aqms.support.TestData;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@DatabaseTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class QueueEntryViewQueryTest {
+  @Autowired TestData data;
+  @Autowired QueueEntryRepository queueRepo;
+  @Autowired AppointmentSlotRepository slotRepo;
+  @Autowired EntityManagerFactory emf;
+  @Autowired PlatformTransactionManager txManager;
+
+  private Clinic clinic;
+  private Statistics stats;
+  private int patients;
+
+  @BeforeEach
+  void setUp() {
+    data.clear();
+    clinic = data.clinic();
+    stats = emf.unwrap(SessionFactory.class).getStatistics();
+  }
+
+  @Test
+  void statementCountDoesNotGrowWithQueueLength() {
+    var from = LocalDateTime.now().minusHours(1);
+    var to = LocalDateTime.now().plusHours(1);
+
+    Long id = clinic.getId();
+    enqueue(5);
+    long small = statements(() -> queueRepo.findViewsByClinicAndCreatedAtBetween(id, from, to));
+    enqueue(45);
+    long large = statements(() -> queueRepo.findViewsByClinicAndCreatedAtBetween(id, from, to));
+    long all = statements(() -> queueRepo.findViewsByClinicOrderByCreatedAtDesc(id, Limit.of(50)));
+
+    assertThat(small).isEqualTo(1);
+    assertThat(large).isEqualTo(small);
+    assertThat(all).isEqualTo(small);
+
+    var views = queueRepo.findViewsByClinicAndCreatedAtBetween(id, from, to);
+    assertThat(views).hasSize(50);
+    assertThat(views.get(0).queueNumber()).isEqualTo(1);
+    assertThat(views.get(0).patientName()).isEqualTo("Patient 1");
+    // walk-in slots without a patient still appear
+    assertThat(views).anyMatch(v -> v.patientId() == null && v.appointmentId() != null);
+  }
+
+  @Test
+  void keysetPagesAndStreamWalkTheWholeHistoryNewestFirst() {
+    enqueue(25);
+    Long id = clinic.getId();
+
+    var paged = new ArrayList<QueueEntryView>();
+    var page = queueRepo.findViewsByClinicOrderByCreatedAtDesc(id, Limit.of(10));
+    while (!page.isEmpty()) {
+      paged.addAll(page);
+      var last = page.get(page.size() - 1);
+      page = queueRepo.findViewsByClinicBefore(id, last.createdAt(), last.id(), Limit.of(10));
+    }
+
+    var streamed = new ArrayList<QueueEntryView>();
+    new TransactionTemplate(txManager)
+        .executeWithoutResult(
+            status -> {
+              try (var views = queueRepo.streamViewsByClinic(id)) {
+                views.forEach(streamed::add);
+              }
+            });
+
+    assertThat(paged).hasSize(25).doesNotHaveDuplicates();
+    assertThat(paged.get(0).queueNumber()).isEqualTo(25);
+    assertThat(streamed).containsExactlyElementsOf(paged);
+  }
+
+  private long statements(Runnable query) {
+    stats.clear();
+    query.run();
+    return stats.getPrepareStatementCount();
+  }
+
+  private void enqueue(int count) {
+    for (int i = 0; i < count; i++) {
+      int number = ++patients;
+      var slot = new AppointmentSlot();
+      slot.setClinic(clinic);
+      slot.setStartTime(LocalDateTime.now());
+      if (number % 10 != 0) slot.setPatient(data.patient(number));
+      slot = slotRepo.save(slot);
+
+      var entry = new QueueEntry();
+      entry.setClinicId(clinic.getId());
+      entry.setSlot(slot);
+      entry.setQueueNumber(number);
+      entry.setCreatedAt(LocalDateTime.now());
+      queueRepo.save(entry);
+    }
+  }
+}
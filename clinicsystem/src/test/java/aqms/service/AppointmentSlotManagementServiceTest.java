@@ -0,0 +1,120 @@
+package aqms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import aqms.domain.model.Clinic;
+import aqms.repository.AppointmentSlotRepository;
+import aqms.service.slots.AvailabilityIndex;
+import aqms.service.slots.SlotTemplates;
+import aqms.support.DatabaseTest;
+import aqms.support.TestData;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+@DatabaseTest
+@TestPropertySource(
+    properties = {
+      "spring.jpa.properties.hibernate.generate_statistics=true",
+      "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+      "spring.jpa.properties.hibernate.order_inserts=true",
+      // the slot and SQL debug logging from application.properties would dominate the timing
+      "spring.jpa.show-sql=false",
+      "logging.file.name=",
+      "logging.level.aqms=WARN",
+      "logging.level.org.hibernate=WARN",
+      "logging.level.org.hibernate.SQL=OFF",
+      "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=OFF"
+    })
+@Import({
+  AppointmentSlotManagementService.class,
+  SlotTemplates.class,
+  AvailabilityIndex.class
+})
+class AppointmentSlotManagementServiceTest {
+  @Autowired TestData data;
+  @Autowired AppointmentSlotManagementService slots;
+  @Autowired AppointmentSlotRepository slotRepo;
+  @Autowired EntityManagerFactory emf;
+
+  private final LocalDate day = LocalDate.now().plusDays(7);
+  private Statistics stats;
+
+  @BeforeEach
+  void setUp() {
+    data.clear();
+    stats = emf.unwrap(SessionFactory.class).getStatistics();
+  }
+
+  @Test
+  void aDayOfSlotsIsInsertedInBatches() {
+    var clinic = clinic("Batch Clinic");
+    stats.clear();
+
+    // 08:00-18:00 in 5 minute slots
+    var generated = generate(clinic);
+
+    assertThat(generated).hasSize(120);
+    assertThat(stats.getEntityInsertCount()).isEqualTo(120);
+    // a handful of reads, two sequence calls and three insert batches instead of 120 inserts
+    assertThat(stats.getPrepareStatementCount()).isLessThanOrEqualTo(12);
+    assertThat(generated.get(0).getDoctor().getName()).isEqualTo("Dr Morning Batch Clinic");
+    assertThat(generated.get(119).getDoctor().getName()).isEqualTo("Dr Afternoon Batch Clinic");
+
+    // regenerating an untouched window replaces its slots
+    generate(clinic);
+    assertThat(slotRepo.count()).isEqualTo(120);
+  }
+
+  @Test
+  @Tag("benchmark")
+  void slotsPerSecond() {
+    var clinics = new ArrayList<Clinic>();
+    for (int i = 0; i < 20; i++) clinics.add(clinic("Clinic " + i));
+
+    long started = System.nanoTime();
+    int created = 0;
+    for (int d = 0; d < 30; d++) {
+      for (var clinic : clinics) {
+        created +=
+            slots
+                .generateSlotsForDate(
+                    clinic.getId(),
+                    day.plusDays(d),
+                    LocalTime.of(8, 0),
+                    LocalTime.of(18, 0),
+                    0,
+                    5)
+                .size();
+      }
+    }
+    double seconds = (System.nanoTime() - started) / 1e9;
+
+    System.out.printf(
+        "Generated %d slots (20 clinics x 30 days) in %.2f s: %.0f slots/s%n",
+        created, seconds, created / seconds);
+    assertThat(created).isEqualTo(20 * 30 * 120);
+  }
+
+  private List<aqms.domain.model.AppointmentSlot> generate(Clinic clinic) {
+    return slots.generateSlotsForDate(
+        clinic.getId(), day, LocalTime.of(8, 0), LocalTime.of(18, 0), 0, 5);
+  }
+
+  private Clinic clinic(String name) {
+    var clinic = data.clinic(name);
+    data.doctor(clinic, "Dr Morning " + name, true, false);
+    data.doctor(clinic, "Dr Afternoon " + name, false, true);
+    return clinic;
+  }
+}
@@ -0,0 +1,203 @@
+package aqms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import aqms.domain.enums.AppointmentStatus;
+import aqms.domain.model.AppointmentSlot;
+import aqms.domain.model.Clinic;
+import aqms.domain.model.QueueEntry;
+import aqms.repository.AppointmentHistoryRepository;
+import aqms.repository.AppointmentSlotRepository;
+import aqms.repository.ClinicQueueStateRepository;
+import aqms.repository.QueueEntryRepository;
+import aqms.service.event.ClinicEventBus;
+import aqms.service.event.QueueEventStore;
+import aqms.service.queue.ClinicQueueStateRegistry;
+import aqms.service.queue.ClusterQueueCaller;
+import aqms.service.queue.FastTrackFirstPolicy;
+import aqms.service.queue.QueueArchiver;
+import aqms.service.queue.QueueEngine;
+import aqms.service.queue.QueueJournal;
+import aqms.service.queue.QueueNumberAllocator;
+import aqms.service.queue.QueueVersions;
+import aqms.service.queue.QueueWriteBehind;
+import aqms.service.queue.WaitTimeEstimator;
+import aqms.service.queue.WeightedFairPolicy;
+import aqms.support.DatabaseTest;
+import aqms.support.TestData;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+@DatabaseTest
+@TestPropertySource(
+    properties = {
+      "spring.jpa.properties.hibernate.generate_statistics=true",
+      // scheduled write-behind and event-log flushes would land in the statement counts below
+      "aqms.queue.write-behind-millis=3600000",
+      "aqms.events.flush-millis=3600000"
+    })
+@Import({
+  CheckInService.class,
+  QueueService.class,
+  QueueEngine.class,
+  QueueNumberAllocator.class,
+  QueueVersions.class,
+  QueueWriteBehind.class,
+  QueueJournal.class,
+  QueueArchiver.class,
+  ClinicQueueStateRegistry.class,
+  ClusterQueueCaller.class,
+  WaitTimeEstimator.class,
+  FastTrackFirstPolicy.class,
+  WeightedFairPolicy.class,
+  ClinicEventBus.class,
+  QueueEventStore.class
+})
+class CheckInServiceTest {
+  @Autowired TestData data;
+  @Autowired CheckInService checkIns;
+  @Autowired QueueService queueService;
+  @Autowired QueueEngine engine;
+  @Autowired QueueEntryRepository queueRepo;
+  @Autowired ClinicQueueStateRepository stateRepo;
+  @Autowired AppointmentSlotRepository slotRepo;
+  @Autowired AppointmentHistoryRepository histRepo;
+  @Autowired EntityManagerFactory emf;
+  @MockitoBean NotificationService notificationService;
+  @MockitoBean QueuePositionNotifier positionNotifier;
+
+  private Clinic clinic;
+  private Statistics stats;
+  private int patients;
+
+  @BeforeEach
+  void setUp() {
+    data.clear();
+    clinic = data.clinic();
+    stats = emf.unwrap(SessionFactory.class).getStatistics();
+    // load today's (empty) queue so the engine's first read is not counted below
+    engine.summary(clinic.getId());
+  }
+
+  @Test
+  void batchCheckInCostsAFixedNumberOfStatementsPerPatient() {
+    checkIns.checkIn(booked(1).get(0));
+    Long next = booked(1).get(0);
+    var batch = booked(20);
+
+    stats.clear();
+    checkIns.checkIn(next);
+    long single = stats.getPrepareStatementCount();
+
+    stats.clear();
+    var results = checkIns.checkInAll(batch);
+    long bulk = stats.getPrepareStatementCount();
+
+    // slot read, existing-entry read, then status, history and insert per patient, plus the
+    // queue-number block write
+    assertThat(single).isLessThanOrEqualTo(6);
+    assertThat(bulk).isLessThanOrEqualTo(2 + 4L * batch.size());
+    assertThat(results).allMatch(CheckInService.Result::checkedIn);
+    assertThat(results).extracting(CheckInService.Result::queueNumber).doesNotHaveDuplicates();
+    assertThat(engine.summary(clinic.getId()).waiting()).isEqualTo(22);
+    // one notifier hand-off per committed check-in, not per patient
+    verify(positionNotifier, times(3)).positionsChanged(eq(clinic.getId()), anyList());
+  }
+
+  @Test
+  void concurrentCheckInsReceiveDistinctContiguousNumbers() throws Exception {
+    var ids = booked(60);
+    var start = new CountDownLatch(1);
+    var futures = new ArrayList<Future<?>>();
+    try (var pool = Executors.newFixedThreadPool(12)) {
+      for (Long id : ids) {
+        futures.add(
+            pool.submit(
+                () -> {
+                  start.await();
+                  return checkIns.checkIn(id);
+                }));
+      }
+      start.countDown();
+      for (var f : futures) f.get();
+    }
+
+    var numbers = queueRepo.findAll().stream().map(QueueEntry::getQueueNumber).sorted().toList();
+    assertThat(numbers).isEqualTo(IntStream.rangeClosed(1, ids.size()).boxed().toList());
+    assertThat(engine.summary(clinic.getId()).waiting()).isEqualTo(ids.size());
+    // the sequence is stored once per block, so it only runs ahead of the numbers handed out
+    assertThat(stateRepo.findByClinicId(clinic.getId()).orElseThrow().getLastQueueNumber())
+        .isGreaterThanOrEqualTo(ids.size());
+  }
+
+  @Test
+  void rescansKeepTheirNumberAndBadScansDoNotFailTheBatch() {
+    var ids = booked(2);
+    var cancelled = slotRepo.findById(ids.get(1)).orElseThrow();
+    cancelled.setStatus(AppointmentStatus.CANCELLED);
+    slotRepo.save(cancelled);
+    var first = checkIns.checkInAll(List.of(ids.get(0))).get(0);
+
+    var results = checkIns.checkInAll(List.of(ids.get(0), ids.get(1), -1L));
+
+    assertThat(results.get(0).queueNumber()).isEqualTo(first.queueNumber());
+    assertThat(results.get(1).error()).isEqualTo("Appointment is CANCELLED");
+    assertThat(results.get(2).error()).isEqualTo("Appointment not found");
+    assertThat(queueRepo.count()).isEqualTo(1);
+    assertThat(histRepo.count()).isEqualTo(1);
+    assertThatThrownBy(() -> checkIns.checkIn(ids.get(1)))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void aCompletedAppointmentWithASummaryNoLongerHoldsTheRoom() {
+    var ids = booked(2);
+    checkIns.checkInAll(ids);
+    assertThat(queueService.callNext(clinic.getId(), "1", null).appointmentId())
+        .isEqualTo(ids.get(0));
+    assertThatThrownBy(() -> queueService.callNext(clinic.getId(), "1", null))
+        .isInstanceOf(IllegalStateException.class);
+
+    // completed on the slot (e.g. the queue update failed) but still CALLED in the queue
+    var seen = slotRepo.findById(ids.get(0)).orElseThrow();
+    seen.setStatus(AppointmentStatus.COMPLETED);
+    seen.setTreatmentSummary("Rest and fluids");
+    slotRepo.save(seen);
+
+    assertThat(queueService.callNext(clinic.getId(), "1", null).appointmentId())
+        .isEqualTo(ids.get(1));
+  }
+
+  private List<Long> booked(int count) {
+    var ids = new ArrayList<Long>();
+    for (int i = 0; i < count; i++) {
+      int number = ++patients;
+      var slot = new AppointmentSlot();
+      slot.setClinic(clinic);
+      slot.setStartTime(LocalDateTime.now());
+      slot.setStatus(AppointmentStatus.BOOKED);
+      slot.setPatient(data.patient(number));
+      ids.add(slotRepo.save(slot).getId());
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,118 @@
+package aqms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import aqms.config.AppProperties;
+import aqms.domain.model.Clinic;
+import aqms.repository.ClinicRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class QueuePositionNotifierTest {
+  private final NotificationService mail = mock(NotificationService.class);
+  private final ClinicRepository clinicRepo = mock(ClinicRepository.class);
+  private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+  private QueuePositionNotifier notifier;
+
+  @AfterEach
+  void tearDown() {
+    if (notifier != null) notifier.shutdown();
+  }
+
+  @Test
+  void repeatedChangesWithinTheWindowSendOnlyTheLatestPosition() {
+    notifier = notifier(2, 100, 200);
+
+    notifier.positionsChanged(1L, List.of(update(1L, 3)));
+    notifier.positionsChanged(1L, List.of(update(1L, 2), update(2L, 4), noEmail(3L)));
+
+    verify(mail, timeout(2000))
+        .notifyPatientQueue("p1@example.com", "Patient 1", "Main Clinic", 1, 2);
+    verify(mail, timeout(2000))
+        .notifyPatientQueue("p2@example.com", "Patient 2", "Main Clinic", 2, 4);
+    verify(mail, after(300).times(2))
+        .notifyPatientQueue(anyString(), anyString(), anyString(), anyInt(), anyInt());
+    assertThat(meters.counter("aqms.notify.coalesced").count()).isEqualTo(1);
+    assertThat(meters.get("aqms.notify.pending").gauge().value()).isZero();
+    assertThat(meters.get("aqms.notify.enqueue").timer().count()).isEqualTo(2);
+  }
+
+  @Test
+  void aChangeAfterTheWindowClosesIsSentAgain() {
+    notifier = notifier(2, 100, 100);
+
+    notifier.positionsChanged(1L, List.of(update(1L, 3)));
+    verify(mail, timeout(2000))
+        .notifyPatientQueue("p1@example.com", "Patient 1", "Main Clinic", 1, 3);
+
+    // the first window has been flushed, so this opens a new one rather than being coalesced
+    notifier.positionsChanged(1L, List.of(update(1L, 2)));
+    verify(mail, timeout(2000))
+        .notifyPatientQueue("p1@example.com", "Patient 1", "Main Clinic", 1, 2);
+    verify(mail, times(2))
+        .notifyPatientQueue(anyString(), anyString(), anyString(), anyInt(), anyInt());
+    assertThat(meters.counter("aqms.notify.coalesced").count()).isZero();
+  }
+
+  @Test
+  void batchesBeyondTheBacklogCapacityAreDropped() throws Exception {
+    notifier = notifier(1, 1, 100);
+    var sending = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+    doAnswer(
+            inv -> {
+              sending.countDown();
+              release.await();
+              return null;
+            })
+        .when(mail)
+        .notifyNextInLine(eq("busy@example.com"), anyString(), anyString(), anyInt());
+
+    // one send occupies the only worker, one waits in the backlog, the third has no room
+    notifier.nextInLine(1L, "busy@example.com", "Busy", 1);
+    sending.await();
+    notifier.nextInLine(1L, "p2@example.com", "Patient 2", 2);
+    notifier.nextInLine(1L, "p3@example.com", "Patient 3", 3);
+    assertThat(meters.counter("aqms.notify.dropped").count()).isEqualTo(1);
+
+    release.countDown();
+    verify(mail, timeout(2000)).notifyNextInLine("p2@example.com", "Patient 2", "Main Clinic", 2);
+    verify(mail, after(200).never())
+        .notifyNextInLine(eq("p3@example.com"), anyString(), anyString(), anyInt());
+  }
+
+  private QueuePositionNotifier notifier(int workers, int queueCapacity, long coalesceMillis) {
+    var props = new AppProperties();
+    props.getNotify().setWorkers(workers);
+    props.getNotify().setQueueCapacity(queueCapacity);
+    props.getNotify().setCoalesceMillis(coalesceMillis);
+    var clinic = new Clinic();
+    clinic.setName("Main Clinic");
+    when(clinicRepo.findById(1L)).thenReturn(Optional.of(clinic));
+    return new QueuePositionNotifier(mail, clinicRepo, props, meters);
+  }
+
+  private static QueuePositionNotifier.Update update(Long slotId, int ahead) {
+    return new QueuePositionNotifier.Update(
+        slotId, "p" + slotId + "@example.com", "Patient " + slotId, slotId.intValue(), ahead);
+  }
+
+  private static QueuePositionNotifier.Update noEmail(Long slotId) {
+    return new QueuePositionNotifier.Update(slotId, null, "Patient " + slotId, 3, 5);
+  }
+}
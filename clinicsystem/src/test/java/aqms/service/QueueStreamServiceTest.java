@@ -0,0 +1,211 @@
+package aqms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import aqms.config.AppProperties;
+import aqms.domain.event.ClinicEvent;
+import aqms.domain.event.QueueAdvancedEvent;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+class QueueStreamServiceTest {
+  private final QueueService queueService = mock(QueueService.class);
+  private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+  private QueueStreamService streams;
+
+  @BeforeEach
+  void noQueueEntry() {
+    when(queueService.findPatientQueue(anyLong(), anyBoolean())).thenReturn(Optional.empty());
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (streams != null) streams.shutdown();
+  }
+
+  @Test
+  void theClinicLimitRejectsFurtherSubscribersUntilOneLeaves() {
+    streams = streams(2, 2);
+    streams.subscribe(1L, 11L);
+    streams.subscribe(1L, 12L);
+
+    assertThatThrownBy(() -> streams.subscribe(1L, 13L))
+        .isInstanceOfSatisfying(
+            ResponseStatusException.class,
+            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+    streams.subscribe(2L, 21L);
+    assertThat(streams.subscriberCount()).isEqualTo(3);
+
+    onCompletion(emitters.get(0)).run();
+    streams.subscribe(1L, 13L);
+    assertThat(streams.subscriberCount()).isEqualTo(3);
+  }
+
+  @Test
+  void aQueueAdvancedEventPushesTheChangedState() throws Exception {
+    streams = streams(10, 2);
+    when(queueService.findPatientQueue(11L, true)).thenReturn(Optional.of(ahead(3)));
+    var emitter = streams.subscribe(1L, 11L);
+    verify(emitter, timeout(2000)).send(argThat(sends(ahead(3))));
+
+    when(queueService.findPatientQueue(11L, true)).thenReturn(Optional.of(ahead(2)));
+    streams.onClinicEvent(new ClinicEvent(1L, 1, LocalDateTime.now(), "not a queue change"));
+    streams.onClinicEvent(advanced(2L));
+    verify(emitter, after(200).never()).send(argThat(sends(ahead(2))));
+
+    streams.onClinicEvent(advanced(1L));
+    verify(emitter, timeout(2000)).send(argThat(sends(ahead(2))));
+  }
+
+  @Test
+  void anUnchangedStateIsNotSentAgain() throws Exception {
+    streams = streams(10, 2);
+    when(queueService.findPatientQueue(11L, true)).thenReturn(Optional.of(ahead(3)));
+    var emitter = streams.subscribe(1L, 11L);
+    verify(emitter, timeout(2000)).send(any(SseEventBuilder.class));
+
+    streams.onClinicEvent(advanced(1L));
+    verify(queueService, timeout(2000).times(2)).findPatientQueue(11L, true);
+    verify(emitter, after(200).times(1)).send(any(SseEventBuilder.class));
+  }
+
+  @Test
+  void timeoutErrorOrCompletionRemovesTheSubscriber() {
+    streams = streams(10, 2);
+    streams.subscribe(1L, 11L);
+    streams.subscribe(1L, 12L);
+    streams.subscribe(2L, 21L);
+
+    onTimeout(emitters.get(0)).run();
+    onError(emitters.get(1)).accept(new IOException("reset"));
+    onCompletion(emitters.get(2)).run();
+
+    assertThat(streams.subscriberCount()).isZero();
+    streams.onClinicEvent(advanced(1L));
+    streams.onClinicEvent(advanced(2L));
+    verify(queueService, after(200).times(3)).findPatientQueue(anyLong(), anyBoolean());
+  }
+
+  @Test
+  void aFailedSendRemovesTheSubscriber() throws Exception {
+    when(queueService.findPatientQueue(11L, true)).thenReturn(Optional.of(ahead(3)));
+    var emitter = mock(SseEmitter.class);
+    doThrow(new IOException("broken pipe")).when(emitter).send(any(SseEventBuilder.class));
+    streams = streams(10, 2, emitter);
+
+    streams.subscribe(1L, 11L);
+    verify(emitter, timeout(2000)).complete();
+    assertThat(streams.subscriberCount()).isZero();
+  }
+
+  @Test
+  void aSlowClientDelaysNeitherOtherClientsNorItsLatestState() throws Exception {
+    when(queueService.findPatientQueue(11L, true)).thenReturn(Optional.of(ahead(5)));
+    when(queueService.findPatientQueue(21L, true)).thenReturn(Optional.of(ahead(1)));
+    var sending = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+    var slow = mock(SseEmitter.class);
+    doAnswer(
+            inv -> {
+              sending.countDown();
+              release.await();
+              return null;
+            })
+        .when(slow)
+        .send(argThat(sends(ahead(5))));
+    streams = streams(10, 2, slow);
+
+    streams.subscribe(1L, 11L);
+    sending.await();
+    when(queueService.findPatientQueue(11L, true)).thenReturn(Optional.of(ahead(4)));
+    streams.onClinicEvent(advanced(1L));
+    verify(queueService, timeout(2000).times(2)).findPatientQueue(11L, true);
+    when(queueService.findPatientQueue(11L, true)).thenReturn(Optional.of(ahead(3)));
+    streams.onClinicEvent(advanced(1L));
+    verify(queueService, timeout(2000).times(3)).findPatientQueue(11L, true);
+
+    var other = streams.subscribe(2L, 21L);
+    verify(other, timeout(2000)).send(argThat(sends(ahead(1))));
+
+    release.countDown();
+    // the update queued behind the slow send was replaced by the newer one
+    verify(slow, timeout(2000)).send(argThat(sends(ahead(3))));
+    verify(slow, after(200).never()).send(argThat(sends(ahead(4))));
+  }
+
+  private QueueStreamService streams(int perClinic, int senderThreads, SseEmitter... fixed) {
+    var props = new AppProperties();
+    props.getStream().setMaxSubscribersPerClinic(perClinic);
+    props.getStream().setSenderThreads(senderThreads);
+    emitters.clear();
+    var first = List.of(fixed);
+    return new QueueStreamService(queueService, props) {
+      @Override
+      SseEmitter newEmitter() {
+        var emitter = emitters.size() < first.size() ? first.get(emitters.size()) : null;
+        if (emitter == null) emitter = mock(SseEmitter.class);
+        emitters.add(emitter);
+        return emitter;
+      }
+    };
+  }
+
+  private static Runnable onCompletion(SseEmitter emitter) {
+    var callback = ArgumentCaptor.forClass(Runnable.class);
+    verify(emitter).onCompletion(callback.capture());
+    return callback.getValue();
+  }
+
+  private static Runnable onTimeout(SseEmitter emitter) {
+    var callback = ArgumentCaptor.forClass(Runnable.class);
+    verify(emitter).onTimeout(callback.capture());
+    return callback.getValue();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Consumer<Throwable> onError(SseEmitter emitter) {
+    ArgumentCaptor<Consumer<Throwable>> callback = ArgumentCaptor.forClass(Consumer.class);
+    verify(emitter).onError(callback.capture());
+    return callback.getValue();
+  }
+
+  private static ArgumentMatcher<SseEventBuilder> sends(PatientQueueResponse r) {
+    return event ->
+        event != null && event.build().stream().anyMatch(part -> r.equals(part.getData()));
+  }
+
+  private static ClinicEvent advanced(Long clinicId) {
+    var event = new QueueAdvancedEvent(clinicId, QueueAdvancedEvent.Change.CALLED, null);
+    return new ClinicEvent(clinicId, 1, LocalDateTime.now(), event);
+  }
+
+  private static PatientQueueResponse ahead(int peopleAhead) {
+    return new PatientQueueResponse(null, true, 1, peopleAhead, peopleAhead + 1, false, null);
+  }
+}
@@ -0,0 +1,102 @@
+package aqms.service.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import aqms.config.AppProperties;
+import aqms.domain.event.AppointmentBookedEvent;
+import aqms.domain.event.ClinicEvent;
+import aqms.domain.event.QueueAdvancedEvent;
+import aqms.repository.QueueEventLogRepository;
+import aqms.support.DatabaseTest;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+
+@DatabaseTest
+@Import({ClinicEventBus.class, QueueEventStore.class, ClinicEventBusTest.Recorder.class})
+class ClinicEventBusTest {
+  private static final int EVENTS_PER_CLINIC = 200;
+
+  @Autowired ClinicEventBus bus;
+  @Autowired QueueEventStore store;
+  @Autowired Recorder recorder;
+  @Autowired QueueEventLogRepository logRepo;
+  @Autowired ApplicationEventPublisher publisher;
+  @Autowired AppProperties props;
+
+  static class Recorder {
+    final Map<Long, List<Long>> seqs = new ConcurrentHashMap<>();
+
+    @EventListener
+    void on(ClinicEvent e) {
+      seqs.computeIfAbsent(e.clinicId(), id -> new CopyOnWriteArrayList<>()).add(e.seq());
+    }
+
+    void await(long clinicId, int count) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + 5000;
+      while (seqs.getOrDefault(clinicId, List.of()).size() < count
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+    }
+  }
+
+  @Test
+  void eachClinicSeesItsEventsInOrderAndCanReplayThem() throws Exception {
+    var threads = new Thread[2];
+    for (int t = 0; t < threads.length; t++) {
+      long clinicId = 101 + t;
+      threads[t] =
+          new Thread(
+              () -> {
+                for (int i = 0; i < EVENTS_PER_CLINIC; i++) {
+                  bus.publish(clinicId, new AppointmentBookedEvent((long) i, 1L));
+                }
+              });
+      threads[t].start();
+    }
+    for (var t : threads) t.join();
+    recorder.await(101, EVENTS_PER_CLINIC);
+    recorder.await(102, EVENTS_PER_CLINIC);
+
+    for (long clinicId : List.of(101L, 102L)) {
+      var expected = LongStream.rangeClosed(1, EVENTS_PER_CLINIC).boxed().toList();
+      assertThat(recorder.seqs.get(clinicId)).isEqualTo(expected);
+      var stored = store.since(clinicId, 0, 1000);
+      assertThat(stored).extracting(QueueEventStore.StoredEvent::seq).isEqualTo(expected);
+      assertThat(stored.get(7).type()).isEqualTo("AppointmentBookedEvent");
+      assertThat(stored.get(7).slotId()).isEqualTo(7L);
+      assertThat(store.since(clinicId, 150, 10))
+          .extracting(QueueEventStore.StoredEvent::seq)
+          .startsWith(151L)
+          .hasSize(10);
+    }
+  }
+
+  @Test
+  void numberingContinuesFromTheStoreAfterARestart() throws Exception {
+    bus.publish(103L, new QueueAdvancedEvent(103L, QueueAdvancedEvent.Change.STARTED, null));
+    recorder.await(103, 1);
+    store.flush();
+
+    var restarted = new ClinicEventBus(logRepo, publisher, props);
+    try {
+      restarted.publish(
+          103L, new QueueAdvancedEvent(103L, QueueAdvancedEvent.Change.PAUSED, null));
+      recorder.await(103, 2);
+    } finally {
+      restarted.shutdown();
+    }
+    assertThat(recorder.seqs.get(103L)).containsExactly(1L, 2L);
+    assertThat(store.since(103L, 1, 10))
+        .singleElement()
+        .satisfies(e -> assertThat(e.payload()).contains("\"change\":\"PAUSED\""));
+  }
+}
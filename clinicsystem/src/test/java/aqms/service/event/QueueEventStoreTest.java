@@ -0,0 +1,53 @@
+package aqms.service.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import aqms.domain.event.ClinicEvent;
+import aqms.domain.event.QueueAdvancedEvent;
+import aqms.domain.model.QueueEventLog;
+import aqms.repository.QueueEventLogRepository;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class QueueEventStoreTest {
+  private final QueueEventLogRepository logRepo = mock(QueueEventLogRepository.class);
+  private final QueueEventStore store = new QueueEventStore(logRepo);
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void aFailedBatchIsWrittenBeforeNewerEvents() {
+    var written = new ArrayList<Long>();
+    when(logRepo.saveAll(anyList()))
+        .thenThrow(new RuntimeException("database down"))
+        .thenAnswer(
+            inv -> {
+              for (var e : (List<QueueEventLog>) inv.getArgument(0)) written.add(e.getSeq());
+              return inv.getArgument(0);
+            });
+
+    publish(1);
+    publish(2);
+    store.flush();
+    assertThat(written).isEmpty();
+    assertThat(store.pendingCount()).isEqualTo(2);
+
+    publish(3);
+    store.flush();
+    assertThat(written).containsExactly(1L, 2L, 3L);
+    assertThat(store.pendingCount()).isZero();
+  }
+
+  private void publish(long seq) {
+    store.onClinicEvent(
+        new ClinicEvent(
+            1L,
+            seq,
+            LocalDateTime.now(),
+            new QueueAdvancedEvent(1L, QueueAdvancedEvent.Change.STARTED, null)));
+  }
+}
@@ -0,0 +1,161 @@
+package aqms.service.outbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import aqms.domain.enums.OutboxStatus;
+import aqms.domain.model.NotificationOutbox;
+import aqms.repository.NotificationOutboxRepository;
+import aqms.support.DatabaseTest;
+import aqms.support.TestData;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@DatabaseTest
+@TestPropertySource(
+    properties = {
+      "aqms.outbox.poll-millis=3600000",
+      "aqms.outbox.workers=4",
+      "aqms.outbox.batch-size=100",
+      "aqms.outbox.max-attempts=3",
+      "aqms.outbox.initial-backoff-millis=0"
+    })
+@Import({OutboxDispatcherTest.Config.class, OutboxDispatcher.class, MailOutbox.class})
+class OutboxDispatcherTest {
+  @Autowired TestData data;
+  @Autowired NotificationOutboxRepository outboxRepo;
+  @Autowired OutboxDispatcher dispatcher;
+  @Autowired MailOutbox mailOutbox;
+  @Autowired FakeMailSender smtp;
+  @Autowired PlatformTransactionManager txManager;
+
+  @BeforeEach
+  void clean() {
+    data.clear();
+    smtp.reset();
+  }
+
+  @Test
+  void drainsBacklogExactlyOnce() {
+    int total = 2000;
+    var rows = new ArrayList<NotificationOutbox>(total);
+    for (int i = 0; i < total; i++) {
+      rows.add(new NotificationOutbox("patient" + i + "@example.com", "Queue", "#" + i));
+    }
+    outboxRepo.saveAll(rows);
+
+    long started = System.nanoTime();
+    drainUntil(() -> smtp.sent() >= total);
+    double seconds = (System.nanoTime() - started) / 1e9;
+    System.out.printf(
+        "Outbox delivered %d emails in %.2f s (%.0f/s)%n", total, seconds, total / seconds);
+
+    assertThat(smtp.deliveries).hasSize(total);
+    assertThat(smtp.deliveries.values()).allMatch(n -> n.get() == 1);
+    assertThat(outboxRepo.countByStatus(OutboxStatus.SENT)).isEqualTo(total);
+  }
+
+  @Test
+  void failingRecipientBacksOffThenGoesDead() {
+    outboxRepo.save(new NotificationOutbox("bounce@example.com", "Queue", "x"));
+    outboxRepo.save(new NotificationOutbox("ok@example.com", "Queue", "y"));
+
+    drainUntil(() -> outboxRepo.countByStatus(OutboxStatus.DEAD) == 1);
+
+    var dead = outboxRepo.findAll().stream().filter(r -> r.getStatus() == OutboxStatus.DEAD);
+    assertThat(dead)
+        .singleElement()
+        .satisfies(
+            r -> {
+              assertThat(r.getRecipient()).isEqualTo("bounce@example.com");
+              assertThat(r.getAttempts()).isEqualTo(3);
+              assertThat(r.getLastError()).contains("mailbox unavailable");
+            });
+    assertThat(outboxRepo.countByStatus(OutboxStatus.SENT)).isEqualTo(1);
+  }
+
+  @Test
+  void rolledBackTransactionLeavesNothingToSend() {
+    var tx = new TransactionTemplate(txManager);
+    var message = new SimpleMailMessage();
+    message.setTo("patient@example.com");
+    message.setSubject("Queue");
+    message.setText("hello");
+
+    assertThatThrownBy(
+            () ->
+                tx.executeWithoutResult(
+                    status -> {
+                      mailOutbox.enqueue(message);
+                      throw new IllegalStateException("booking failed");
+                    }))
+        .isInstanceOf(IllegalStateException.class);
+
+    assertThat(outboxRepo.count()).isZero();
+    dispatcher.drainOnce();
+    assertThat(smtp.sent()).isZero();
+  }
+
+  private void drainUntil(BooleanSupplier done) {
+    long deadline = System.currentTimeMillis() + 30_000;
+    while (!done.getAsBoolean()) {
+      assertThat(System.currentTimeMillis()).as("outbox drained in time").isLessThan(deadline);
+      dispatcher.dispatch();
+    }
+  }
+
+  /** Stand-in for the SMTP server: records deliveries and takes a little time per message. */
+  static class FakeMailSender extends JavaMailSenderImpl {
+    final Map<String, AtomicInteger> deliveries = new ConcurrentHashMap<>();
+
+    @Override
+    public void send(SimpleMailMessage message) {
+      String to = message.getTo()[0];
+      if (to.startsWith("bounce")) throw new MailSendException("550 mailbox unavailable");
+      try {
+        Thread.sleep(1);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      deliveries.computeIfAbsent(to, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    int sent() {
+      return deliveries.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    void reset() {
+      deliveries.clear();
+    }
+  }
+
+  @TestConfiguration
+  static class Config {
+    @Bean
+    FakeMailSender mailSender() {
+      return new FakeMailSender();
+    }
+
+    @Bean
+    MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
+  }
+}
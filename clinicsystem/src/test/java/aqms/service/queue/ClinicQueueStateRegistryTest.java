@@ -0,0 +1,77 @@
+package aqms.service.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import aqms.repository.ClinicQueueStateRepository;
+import aqms.support.DatabaseTest;
+import aqms.support.TestData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+
+@DatabaseTest
+@Import(ClinicQueueStateRegistry.class)
+class ClinicQueueStateRegistryTest {
+  @Autowired TestData data;
+  @Autowired ClinicQueueStateRegistry registry;
+  @Autowired ClinicQueueStateRepository stateRepo;
+
+  @BeforeEach
+  void clean() {
+    data.clear();
+    registry.clear();
+  }
+
+  @Test
+  void writesThroughAndServesReadsFromCache() {
+    assertThat(registry.get(1L).exists()).isFalse();
+
+    var started = registry.update(1L, s -> s.setRunning(true));
+    assertThat(started.running()).isTrue();
+    assertThat(stateRepo.findByClinicId(1L)).hasValueSatisfying(s -> assertThat(s.isRunning()));
+
+    // once cached, reads no longer depend on the row
+    stateRepo.deleteAll();
+    assertThat(registry.get(1L)).isEqualTo(started);
+  }
+
+  @Test
+  void concurrentTogglesAreSerialisedAndVersioned() throws Exception {
+    registry.update(2L, s -> s.setRunning(true));
+    int threads = 8;
+    int togglesPerThread = 25;
+    var start = new CountDownLatch(1);
+    var pool = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      boolean pause = t % 2 == 0;
+      futures.add(
+          pool.submit(
+              () -> {
+                start.await();
+                for (int i = 0; i < togglesPerThread; i++) {
+                  registry.update(2L, s -> s.setPaused(pause));
+                  registry.get(2L);
+                }
+                return null;
+              }));
+    }
+    start.countDown();
+    for (var f : futures) f.get();
+    pool.shutdown();
+
+    var cached = registry.get(2L);
+    var row = stateRepo.findByClinicId(2L).orElseThrow();
+    assertThat(cached.version())
+        .isEqualTo(row.getVersion())
+        .isGreaterThanOrEqualTo(threads * togglesPerThread);
+    assertThat(cached.paused()).isEqualTo(row.isPaused());
+    assertThat(cached.running()).isTrue();
+  }
+}
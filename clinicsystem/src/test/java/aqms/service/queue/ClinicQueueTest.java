@@ -0,0 +1,165 @@
+package aqms.service.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import aqms.domain.enums.QueuePriority;
+import aqms.domain.enums.QueueStatus;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ClinicQueueTest {
+  private final LocalDateTime now = LocalDateTime.now();
+  private long nextId = 1;
+
+  @Test
+  void doctorSubQueueTakesOwnAndUnassignedPatientsInOrder() {
+    var queue = new ClinicQueue(1L, new FastTrackFirstPolicy().newScheduler());
+    var lee = node("Dr Lee");
+    var tan = node("Dr Tan");
+    var walkIn = node(null);
+    queue.add(lee);
+    queue.add(tan);
+    queue.add(walkIn);
+
+    assertThat(queue.peekNext("Dr Tan")).containsSame(tan);
+    queue.call(tan, "2", now);
+    assertThat(queue.peekNext("Dr Tan")).containsSame(walkIn);
+    assertThat(queue.peekNext("Dr Lee")).containsSame(lee);
+    assertThat(queue.peekNext()).containsSame(lee);
+  }
+
+  @Test
+  void activePatientsAreTrackedPerRoom() {
+    var queue = new ClinicQueue(1L, new FastTrackFirstPolicy().newScheduler());
+    var first = node(null);
+    var second = node(null);
+    queue.add(first);
+    queue.add(second);
+
+    queue.call(first, "1", now);
+    assertThat(queue.activeIn("1")).containsExactly(first);
+    assertThat(queue.activeIn("2")).isEmpty();
+
+    queue.call(second, "2", now);
+    queue.complete(first);
+    assertThat(queue.activeIn("1")).isEmpty();
+    assertThat(queue.activeIn("2")).containsExactly(second);
+    assertThat(queue.activeIn(null)).containsExactly(second);
+    assertThat(second.getRoom()).isEqualTo("2");
+  }
+
+  @Test
+  void peopleAheadFollowTheCallOrder() {
+    var queue = new ClinicQueue(1L, new FastTrackFirstPolicy().newScheduler());
+    var first = node(null);
+    var second = node(null);
+    var express = node(null);
+    express.setPriority(QueuePriority.EXPRESS);
+    queue.add(first);
+    queue.add(second);
+    queue.add(express);
+
+    // #3 has the highest number but is called first
+    assertThat(queue.waiting()).containsExactly(express, first, second);
+    assertThat(queue.countAhead(express, false)).isZero();
+    assertThat(queue.countAhead(first, false)).isEqualTo(1);
+    assertThat(queue.countAhead(second, false)).isEqualTo(2);
+
+    queue.call(express, "1", now);
+    assertThat(queue.countAhead(second, false)).isEqualTo(1);
+    // the called express patient has a higher number, so is not counted as ahead of #2
+    assertThat(queue.countAhead(second, true)).isEqualTo(1);
+    queue.call(first, "2", now);
+    assertThat(queue.countAhead(second, true)).isEqualTo(1);
+  }
+
+  @Test
+  void callOrderIsReplayedOncePerChangeForAllLookups() {
+    var replays = new AtomicInteger();
+    var policy = new FastTrackFirstPolicy().newScheduler();
+    var queue =
+        new ClinicQueue(
+            1L,
+            new QueueSchedulingPolicy.Scheduler() {
+              @Override
+              public QueuePriority pick(Map<QueuePriority, QueueNode> heads, LocalDateTime at) {
+                return policy.pick(heads, at);
+              }
+
+              @Override
+              public void served(QueuePriority lane) {
+                policy.served(lane);
+              }
+
+              @Override
+              public QueueSchedulingPolicy.Scheduler copy() {
+                replays.incrementAndGet();
+                return policy.copy();
+              }
+            });
+    var nodes = new ArrayList<QueueNode>();
+    for (int i = 0; i < 50; i++) {
+      var node = node(null);
+      nodes.add(node);
+      queue.add(node);
+    }
+
+    for (int i = 0; i < nodes.size(); i++) {
+      assertThat(queue.countAhead(nodes.get(i), false)).isEqualTo(i);
+    }
+    assertThat(replays).hasValue(1);
+
+    queue.call(nodes.get(0), "1", now);
+    for (int i = 1; i < nodes.size(); i++) {
+      assertThat(queue.countAhead(nodes.get(i), true)).isEqualTo(i);
+    }
+    // the called entry is counted by number, not from the call order
+    assertThat(queue.countAhead(nodes.get(0), false)).isZero();
+    assertThat(replays).hasValue(2);
+  }
+
+  @Test
+  void summaryCountsWaitingAndCalledEntries() {
+    var queue = new ClinicQueue(1L, new FastTrackFirstPolicy().newScheduler());
+    assertThat(queue.summary()).isEqualTo(new QueueSummary(null, 0, 0));
+    var first = node(null);
+    var second = node(null);
+    var third = node(null);
+    queue.add(first);
+    queue.add(second);
+    queue.add(third);
+    assertThat(queue.summary()).isEqualTo(new QueueSummary(null, 3, 0));
+    assertThat(queue.countAhead(3, false)).isEqualTo(2);
+
+    queue.call(second, "1", now);
+    assertThat(queue.summary()).isEqualTo(new QueueSummary(2, 2, 1));
+    queue.call(first, "2", now);
+    // now serving is the highest called number
+    assertThat(queue.summary()).isEqualTo(new QueueSummary(2, 1, 2));
+    assertThat(queue.countAhead(3, false)).isZero();
+    assertThat(queue.countAhead(3, true)).isEqualTo(2);
+
+    queue.complete(second);
+    assertThat(queue.summary()).isEqualTo(new QueueSummary(1, 1, 1));
+    queue.complete(first);
+    queue.call(third, "1", now);
+    queue.complete(third);
+    assertThat(queue.summary()).isEqualTo(new QueueSummary(null, 0, 0));
+
+    // a reload recounts from the entries it is given
+    var again = node(null);
+    queue.reload(List.of(again));
+    assertThat(queue.summary()).isEqualTo(new QueueSummary(null, 1, 0));
+  }
+
+  private QueueNode node(String doctor) {
+    long id = nextId++;
+    var node = new QueueNode(id, 1L, id, (int) id, now, null, null, null, null, doctor);
+    node.setStatus(QueueStatus.QUEUED);
+    return node;
+  }
+}
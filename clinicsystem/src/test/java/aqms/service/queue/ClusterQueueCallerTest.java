@@ -0,0 +1,256 @@
+package aqms.service.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import aqms.config.AppProperties;
+import aqms.domain.enums.QueuePriority;
+import aqms.domain.enums.QueueStatus;
+import aqms.domain.model.AppointmentSlot;
+import aqms.domain.model.Clinic;
+import aqms.domain.model.QueueEntry;
+import aqms.repository.AppointmentSlotRepository;
+import aqms.repository.QueueEntryRepository;
+import aqms.support.DatabaseTest;
+import aqms.support.TestData;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+@DatabaseTest
+@TestPropertySource(
+    properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import(ClusterQueueCaller.class)
+class ClusterQueueCallerTest {
+  @Autowired TestData data;
+  @Autowired ClusterQueueCaller caller;
+  @Autowired QueueEntryRepository queueRepo;
+  @Autowired AppointmentSlotRepository slotRepo;
+
+  private static final QueueSchedulingPolicy.Scheduler STRICT =
+      new FastTrackFirstPolicy().newScheduler();
+
+  private Clinic clinic;
+  private final LocalDateTime from = LocalDateTime.now().minusHours(1);
+  private final LocalDateTime to = LocalDateTime.now().plusHours(1);
+
+  @BeforeEach
+  void setUp() {
+    data.clear();
+    clinic = data.clinic();
+  }
+
+  @Test
+  void parallelCallersNeverCallTheSamePatient() throws Exception {
+    int entries = 100;
+    for (int i = 1; i <= entries; i++) enqueue(i, QueuePriority.NORMAL, false);
+
+    int threads = 8;
+    Set<Long> called = ConcurrentHashMap.newKeySet();
+    var duplicates = new AtomicInteger();
+    var start = new CountDownLatch(1);
+    var pool = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(
+          pool.submit(
+              () -> {
+                start.await();
+                while (true) {
+                  var slotId = callNext(null);
+                  if (slotId.isEmpty()) {
+                    // skipped rows may still be locked by another caller; stop once none remain
+                    if (queueRepo.findByClinicIdAndStatus(clinic.getId(), QueueStatus.QUEUED)
+                        .isEmpty()) {
+                      return null;
+                    }
+                    continue;
+                  }
+                  if (!called.add(slotId.get())) duplicates.incrementAndGet();
+                }
+              }));
+    }
+    start.countDown();
+    for (var f : futures) f.get();
+    pool.shutdown();
+
+    assertThat(duplicates).hasValue(0);
+    assertThat(called).hasSize(entries);
+    assertThat(queueRepo.findByClinicIdAndStatus(clinic.getId(), QueueStatus.CALLED))
+        .hasSize(entries);
+  }
+
+  @Test
+  void callsInStrictPriorityOrder() {
+    var normal = enqueue(1, QueuePriority.NORMAL, false);
+    var express = enqueue(2, QueuePriority.EXPRESS, false);
+    var fastTracked = enqueue(3, QueuePriority.NORMAL, true);
+    var emergency = enqueue(4, QueuePriority.EMERGENCY, false);
+
+    var order = new ArrayList<Long>();
+    for (int i = 0; i < 4; i++) {
+      order.add(callNext(null).orElseThrow());
+    }
+
+    assertThat(order).containsExactly(fastTracked, emergency, express, normal);
+    assertThat(callNext(null)).isEmpty();
+  }
+
+  @Test
+  void doctorRoomOnlyCallsOwnAndUnassignedPatients() {
+    var other = enqueue(1, QueuePriority.EMERGENCY, false, "Dr Lee");
+    var own = enqueue(2, QueuePriority.NORMAL, false, "Dr Tan");
+    var unassigned = enqueue(3, QueuePriority.NORMAL, false, null);
+
+    assertThat(callNext("Dr Tan")).contains(own);
+    assertThat(callNext("Dr Tan")).contains(unassigned);
+    assertThat(callNext("Dr Tan")).isEmpty();
+    assertThat(callNext(null)).contains(other);
+  }
+
+  @Test
+  void roomGuardSeesCalledRowsInTheDatabase() {
+    var first = enqueue(1, QueuePriority.NORMAL, false);
+    enqueue(2, QueuePriority.NORMAL, false);
+    assertThat(callNext(null)).contains(first);
+
+    var seen = new ArrayList<Long>();
+    assertThatThrownBy(
+            () ->
+                caller.callNext(
+                    clinic.getId(),
+                    null,
+                    "1",
+                    from,
+                    to,
+                    LocalDateTime.now(),
+                    STRICT,
+                    active -> {
+                      active.forEach(n -> seen.add(n.getSlotId()));
+                      if (!active.isEmpty()) throw new IllegalStateException("room busy");
+                    }))
+        .isInstanceOf(IllegalStateException.class);
+    assertThat(seen).containsExactly(first);
+    assertThat(queueRepo.findByClinicIdAndStatus(clinic.getId(), QueueStatus.QUEUED)).hasSize(1);
+  }
+
+  @Test
+  void roomsCallInParallelWhileCallsIntoOneRoomTakeTurns() throws Exception {
+    var first = enqueue(1, QueuePriority.NORMAL, false);
+    var second = enqueue(2, QueuePriority.NORMAL, false);
+    var third = enqueue(3, QueuePriority.NORMAL, false);
+    var inGuard = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+
+    try (var pool = Executors.newFixedThreadPool(3)) {
+      // room 1 holds its guard row until released
+      var blocked =
+          pool.submit(
+              () ->
+                  callNextInto(
+                      "1",
+                      active -> {
+                        inGuard.countDown();
+                        await(release);
+                      }));
+      assertThat(inGuard.await(5, TimeUnit.SECONDS)).isTrue();
+
+      var otherRoom = pool.submit(() -> callNextInto("2", active -> {}));
+      assertThat(otherRoom.get(5, TimeUnit.SECONDS)).contains(first);
+
+      var sameRoom = pool.submit(() -> callNextInto("1", active -> {}));
+      Thread.sleep(200);
+      assertThat(sameRoom).isNotDone();
+
+      release.countDown();
+      assertThat(blocked.get(5, TimeUnit.SECONDS)).contains(second);
+      assertThat(sameRoom.get(5, TimeUnit.SECONDS)).contains(third);
+    }
+  }
+
+  @Test
+  void weightedFairSchedulerSharesCallsBetweenLanes() {
+    var props = new AppProperties();
+    props.getQueue().setEmergencyFraction(0.5);
+    props.getQueue().setExpressFraction(0.0);
+    var scheduler = new WeightedFairPolicy(props).newScheduler();
+    var normal = enqueue(1, QueuePriority.NORMAL, false);
+    var emergency1 = enqueue(2, QueuePriority.EMERGENCY, false);
+    var emergency2 = enqueue(3, QueuePriority.EMERGENCY, false);
+
+    var order = new ArrayList<Long>();
+    for (int i = 0; i < 3; i++) {
+      var slotId =
+          caller
+              .callNext(
+                  clinic.getId(), null, null, from, to, LocalDateTime.now(), scheduler, a -> {})
+              .orElseThrow();
+      // the engine advances its scheduler once the call is applied locally
+      var lane = slotId.equals(normal) ? QueuePriority.NORMAL : QueuePriority.EMERGENCY;
+      scheduler.served(lane);
+      order.add(slotId);
+    }
+
+    // strict priority would call both emergencies before the normal patient
+    assertThat(order).containsExactly(emergency1, normal, emergency2);
+  }
+
+  private Optional<Long> callNext(String doctorName) {
+    return caller.callNext(
+        clinic.getId(), doctorName, "1", from, to, LocalDateTime.now(), STRICT, active -> {});
+  }
+
+  private Optional<Long> callNextInto(String room, Consumer<Collection<QueueNode>> guard) {
+    return caller.callNext(
+        clinic.getId(), null, room, from, to, LocalDateTime.now(), STRICT, guard);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private Long enqueue(int number, QueuePriority priority, boolean fastTracked) {
+    return enqueue(number, priority, fastTracked, null);
+  }
+
+  private Long enqueue(int number, QueuePriority priority, boolean fastTracked, String doctor) {
+    var slot = new AppointmentSlot();
+    slot.setClinic(clinic);
+    slot.setStartTime(LocalDateTime.now());
+    slot = slotRepo.save(slot);
+
+    var entry = new QueueEntry();
+    entry.setClinicId(clinic.getId());
+    entry.setSlot(slot);
+    entry.setQueueNumber(number);
+    entry.setStatus(QueueStatus.QUEUED);
+    entry.setCreatedAt(LocalDateTime.now());
+    entry.setPriority(priority);
+    entry.setDoctorName(doctor);
+    if (fastTracked) {
+      entry.setFastTracked(true);
+      entry.setFastTrackedAt(LocalDateTime.now());
+    }
+    queueRepo.save(entry);
+    return slot.getId();
+  }
+}
@@ -0,0 +1,68 @@
+package aqms.service.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class FenwickTreeTest {
+  @Test
+  void prefixSumsFollowUpdates() {
+    var tree = new FenwickTree();
+    tree.add(3, 1);
+    tree.add(5, 1);
+    tree.add(5, 1);
+    tree.add(9, 1);
+
+    assertThat(tree.prefix(2)).isZero();
+    assertThat(tree.prefix(3)).isEqualTo(1);
+    assertThat(tree.prefix(4)).isEqualTo(1);
+    assertThat(tree.prefix(5)).isEqualTo(3);
+    assertThat(tree.prefix(9)).isEqualTo(4);
+
+    tree.add(5, -2);
+    assertThat(tree.prefix(5)).isEqualTo(1);
+    assertThat(tree.prefix(9)).isEqualTo(2);
+  }
+
+  @Test
+  void outOfRangeNumbersAreHandled() {
+    var tree = new FenwickTree();
+    // numbers start at 1; anything else is ignored
+    tree.add(0, 1);
+    tree.add(-4, 1);
+    tree.add(1, 1);
+    assertThat(tree.prefix(0)).isZero();
+    assertThat(tree.prefix(-1)).isZero();
+    assertThat(tree.prefix(1)).isEqualTo(1);
+    // asking past the end counts everything
+    assertThat(tree.prefix(Integer.MAX_VALUE)).isEqualTo(1);
+
+    // growing past the initial size keeps the counts already there
+    tree.add(63, 1);
+    tree.add(64, 1);
+    tree.add(1000, 1);
+    assertThat(tree.prefix(62)).isEqualTo(1);
+    assertThat(tree.prefix(63)).isEqualTo(2);
+    assertThat(tree.prefix(64)).isEqualTo(3);
+    assertThat(tree.prefix(999)).isEqualTo(3);
+    assertThat(tree.prefix(1000)).isEqualTo(4);
+  }
+
+  @Test
+  void matchesANaiveCount() {
+    var tree = new FenwickTree();
+    var counts = new int[2049];
+    var random = new Random(42);
+    for (int i = 0; i < 5000; i++) {
+      int number = 1 + random.nextInt(2048);
+      int delta = counts[number] > 0 && random.nextBoolean() ? -1 : 1;
+      tree.add(number, delta);
+      counts[number] += delta;
+      int at = random.nextInt(2049);
+      int expected = 0;
+      for (int n = 1; n <= at; n++) expected += counts[n];
+      assertThat(tree.prefix(at)).isEqualTo(expected);
+    }
+  }
+}
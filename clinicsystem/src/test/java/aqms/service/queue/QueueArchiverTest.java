@@ -0,0 +1,126 @@
+package aqms.service.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import aqms.domain.enums.QueueStatus;
+import aqms.domain.model.AppointmentSlot;
+import aqms.domain.model.Clinic;
+import aqms.repository.AppointmentSlotRepository;
+import aqms.repository.QueueEntryArchiveRepository;
+import aqms.repository.QueueEntryRepository;
+import aqms.support.DatabaseTest;
+import aqms.support.TestData;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+@DatabaseTest
+@TestPropertySource(properties = {"spring.jpa.show-sql=false", "aqms.archive.batch-size=500"})
+@Import(QueueArchiver.class)
+class QueueArchiverTest {
+  @Autowired TestData data;
+  @Autowired QueueArchiver archiver;
+  @Autowired QueueEntryRepository queueRepo;
+  @Autowired QueueEntryArchiveRepository archiveRepo;
+  @Autowired AppointmentSlotRepository slotRepo;
+  @Autowired JdbcTemplate jdbc;
+
+  private final LocalDateTime todayStart = LocalDate.now().atStartOfDay();
+  private Clinic clinic;
+  private AppointmentSlot slot;
+
+  @BeforeEach
+  void setUp() {
+    data.clear();
+    clinic = data.clinic();
+    slot = new AppointmentSlot();
+    slot.setClinic(clinic);
+    slot.setStartTime(todayStart.minusDays(3));
+    slot.setPatient(data.patient(1));
+    slot = slotRepo.save(slot);
+  }
+
+  @Test
+  void movesFinishedDaysAndKeepsToday() {
+    insert(todayStart.minusDays(3), 5);
+    insert(todayStart.minusMinutes(1), 7);
+    insert(todayStart.plusHours(9), 4);
+
+    assertThat(archiver.archiveBefore(todayStart)).isEqualTo(12);
+    assertThat(archiver.archiveBefore(todayStart)).isZero();
+
+    assertThat(queueRepo.count()).isEqualTo(4);
+    assertThat(queueRepo.findAll()).allMatch(e -> !e.getCreatedAt().isBefore(todayStart));
+    var archived =
+        archiveRepo.findViewsByClinicAndCreatedAtBetween(
+            clinic.getId(), todayStart.minusDays(3), todayStart.minusDays(3).with(LocalTime.MAX));
+    assertThat(archived).hasSize(5);
+    assertThat(archived).allMatch(v -> "Patient 1".equals(v.patientName()));
+  }
+
+  @Test
+  @Tag("benchmark")
+  void todaysQueueLatencyIsIndependentOfHistoryLength() {
+    insert(todayStart.plusHours(8), 200);
+    double baseline = todaysQueueMillis();
+
+    for (int day = 1; day <= 200; day++) insert(todayStart.minusDays(day).plusHours(8), 250);
+    double withHistory = todaysQueueMillis();
+
+    int moved = archiver.archiveBefore(todayStart);
+    double archived = todaysQueueMillis();
+
+    System.out.printf(
+        "Today's queue (200 entries): %.2f ms empty history, %.2f ms with %d history rows,"
+            + " %.2f ms after archiving%n",
+        baseline, withHistory, moved, archived);
+    assertThat(moved).isEqualTo(50_000);
+    assertThat(queueRepo.count()).isEqualTo(200);
+    assertThat(archived).isLessThan(Math.max(baseline * 3, baseline + 5));
+  }
+
+  // median of repeated loads of today's queue, the query the engine runs per clinic
+  private double todaysQueueMillis() {
+    var to = LocalDate.now().atTime(LocalTime.MAX);
+    for (int i = 0; i < 200; i++) {
+      queueRepo.findLiveWithPatientByClinic(clinic.getId(), todayStart, to);
+    }
+    var samples = new double[101];
+    for (int i = 0; i < samples.length; i++) {
+      long started = System.nanoTime();
+      queueRepo.findLiveWithPatientByClinic(clinic.getId(), todayStart, to);
+      samples[i] = (System.nanoTime() - started) / 1e6;
+    }
+    Arrays.sort(samples);
+    return samples[samples.length / 2];
+  }
+
+  private void insert(LocalDateTime createdAt, int count) {
+    List<Object[]> rows = new ArrayList<>(count);
+    for (int i = 1; i <= count; i++) {
+      rows.add(
+          new Object[] {
+            clinic.getId(),
+            slot.getId(),
+            i,
+            QueueStatus.COMPLETED.name(),
+            Timestamp.valueOf(createdAt.plusSeconds(i))
+          });
+    }
+    jdbc.batchUpdate(
+        "INSERT INTO queue_entries (clinic_id, slot_id, queue_number, status, created_at,"
+            + " fast_tracked, priority) VALUES (?, ?, ?, ?, ?, false, 'NORMAL')",
+        rows);
+  }
+}
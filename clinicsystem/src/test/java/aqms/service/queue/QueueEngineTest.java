@@ -0,0 +1,125 @@
+package aqms.service.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.reset;
+
+import aqms.domain.enums.QueueStatus;
+import aqms.domain.model.AppointmentSlot;
+import aqms.domain.model.Clinic;
+import aqms.domain.model.QueueEntry;
+import aqms.repository.QueueEntryRepository;
+import aqms.service.QueueEntryView;
+import aqms.support.DatabaseTest;
+import aqms.support.TestData;
+import java.time.LocalDate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+@DatabaseTest
+// flushes happen when the tests ask for them
+@TestPropertySource(properties = "aqms.queue.write-behind-millis=3600000")
+@Import({
+  QueueEngine.class,
+  QueueWriteBehind.class,
+  QueueJournal.class,
+  ClinicQueueStateRegistry.class,
+  ClusterQueueCaller.class,
+  WaitTimeEstimator.class,
+  FastTrackFirstPolicy.class,
+  WeightedFairPolicy.class
+})
+class QueueEngineTest {
+  @Autowired TestData data;
+  @Autowired QueueEngine engine;
+  @Autowired QueueWriteBehind writeBehind;
+  @MockitoSpyBean QueueEntryRepository queueRepo;
+
+  private Clinic clinic;
+
+  @BeforeEach
+  void setUp() {
+    engine.reset();
+    data.clear();
+    clinic = data.clinic();
+  }
+
+  @Test
+  void warmUpLoadsTodaysEntriesOnly() {
+    var first = data.queued(slot(9), 1);
+    var second = data.queued(slot(10), 2);
+    var yesterday = data.queued(slot(11), 3);
+    yesterday.setCreatedAt(LocalDate.now().minusDays(1).atTime(9, 0));
+    queueRepo.save(yesterday);
+
+    engine.warmUp();
+
+    assertThat(engine.clinicOfSlot(first.getSlot().getId())).contains(clinic.getId());
+    assertThat(engine.clinicOfSlot(yesterday.getSlot().getId())).isEmpty();
+    assertThat(engine.views(clinic.getId()))
+        .extracting(QueueEntryView::id)
+        .containsExactly(first.getId(), second.getId());
+    assertThat(engine.summary(clinic.getId()).waiting()).isEqualTo(2);
+    assertThat(engine.maxQueueNumber(clinic.getId())).isEqualTo(2);
+  }
+
+  @Test
+  void callNextAndCompleteArePersistedByTheWriteBehind() {
+    var first = data.queued(slot(9), 1);
+    data.queued(slot(10), 2);
+
+    var called = engine.callNext(clinic.getId(), "Room 1", null, active -> {});
+    assertThat(called.id()).isEqualTo(first.getId());
+    // written on the next flush, not on the caller's thread
+    assertThat(stored(first).getStatus()).isEqualTo(QueueStatus.QUEUED);
+    assertThat(writeBehind.pendingCount()).isOne();
+
+    writeBehind.flush();
+    var row = stored(first);
+    assertThat(row.getStatus()).isEqualTo(QueueStatus.CALLED);
+    assertThat(row.getRoom()).isEqualTo("Room 1");
+    assertThat(row.getCalledAt()).isNotNull();
+
+    engine.complete(clinic.getId(), first.getSlot().getId());
+    writeBehind.flush();
+    assertThat(stored(first).getStatus()).isEqualTo(QueueStatus.COMPLETED);
+    assertThat(writeBehind.pendingCount()).isZero();
+  }
+
+  @Test
+  void aFailedFlushIsRetriedWithoutOverwritingANewerState() {
+    var first = data.queued(slot(9), 1);
+    engine.callNext(clinic.getId(), "Room 1", null, active -> {});
+    doAnswer(
+            inv -> {
+              // the entry moves on while the failing flush is in flight
+              engine.complete(clinic.getId(), first.getSlot().getId());
+              throw new DataAccessResourceFailureException("database unavailable");
+            })
+        .when(queueRepo)
+        .saveAll(anyIterable());
+
+    writeBehind.flush();
+    assertThat(stored(first).getStatus()).isEqualTo(QueueStatus.QUEUED);
+    assertThat(writeBehind.pendingCount()).isOne();
+
+    reset(queueRepo);
+    writeBehind.flush();
+    assertThat(stored(first).getStatus()).isEqualTo(QueueStatus.COMPLETED);
+    assertThat(writeBehind.pendingCount()).isZero();
+  }
+
+  private AppointmentSlot slot(int hour) {
+    return data.slot(clinic, null, LocalDate.now().atTime(hour, 0));
+  }
+
+  private QueueEntry stored(QueueEntry entry) {
+    return queueRepo.findById(entry.getId()).orElseThrow();
+  }
+}
@@ -0,0 +1,132 @@
+package aqms.service.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import aqms.config.AppProperties;
+import aqms.domain.enums.QueuePriority;
+import aqms.domain.enums.QueueStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+class QueueJournalTest {
+  @TempDir Path dir;
+
+  private final LocalDateTime now = LocalDateTime.now().withNano(123_456_000);
+  private final MeterRegistry meters = new SimpleMeterRegistry();
+
+  @Test
+  void restartAfterKillRecoversTheQueueMidSession() {
+    var journal = open();
+    journal.checkpoint(List.of());
+    var queue = new ClinicQueue(1L, new FastTrackFirstPolicy().newScheduler());
+    var nodes = new QueueNode[5];
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i] = node(i + 1);
+      queue.add(nodes[i]);
+      journal.record(nodes[i]);
+    }
+    queue.call(nodes[0], "1", now);
+    journal.record(nodes[0]);
+    queue.complete(nodes[0]);
+    journal.record(nodes[0]);
+    // half the session is in the snapshot, the rest only in the journal
+    journal.snapshot();
+    queue.call(nodes[1], "2", now);
+    journal.record(nodes[1]);
+    queue.fastTrack(nodes[4], "chest pain", now);
+    journal.record(nodes[4]);
+    queue.setPriority(nodes[3], QueuePriority.EXPRESS);
+    journal.record(nodes[3]);
+    // killed: no close(), no final snapshot
+
+    var restarted = open();
+    var recovered =
+        restarted.takeRecovered().orElseThrow().stream()
+            .collect(Collectors.toMap(QueueNode::getId, Function.identity()));
+
+    assertThat(recovered).hasSize(5);
+    assertThat(recovered.get(1L).getStatus()).isEqualTo(QueueStatus.COMPLETED);
+    assertThat(recovered.get(2L).getStatus()).isEqualTo(QueueStatus.CALLED);
+    assertThat(recovered.get(2L).getRoom()).isEqualTo("2");
+    assertThat(recovered.get(2L).getCalledAt()).isEqualTo(now);
+    assertThat(recovered.get(3L).getStatus()).isEqualTo(QueueStatus.QUEUED);
+    assertThat(recovered.get(4L).getPriority()).isEqualTo(QueuePriority.EXPRESS);
+    assertThat(recovered.get(5L).isFastTracked()).isTrue();
+    assertThat(recovered.get(5L).getFastTrackReason()).isEqualTo("chest pain");
+    assertThat(recovered.get(5L).getPatientEmail()).isEqualTo("p5@example.com");
+
+    // the rebuilt queue calls the same patient the old one would have
+    var rebuilt = new ClinicQueue(1L, new FastTrackFirstPolicy().newScheduler());
+    recovered.values().forEach(rebuilt::add);
+    assertThat(rebuilt.peekNext().map(QueueNode::getId))
+        .isEqualTo(queue.peekNext().map(QueueNode::getId));
+    assertThat(restarted.takeRecovered()).isEmpty();
+  }
+
+  @Test
+  void aFillingJournalIsCompactedInTheBackgroundWithoutLosingRecords() throws Exception {
+    var journal = open();
+    journal.checkpoint(List.of());
+    // each record is ~100 bytes: several times the 64 KiB journal, so compactions run while
+    // recording carries on
+    int count = 3000;
+    for (int i = 1; i <= count; i++) {
+      var node = node(i);
+      journal.record(node);
+      if (i % 3 == 0) {
+        node.setStatus(QueueStatus.COMPLETED);
+        journal.record(node);
+      }
+    }
+    // let the last background compaction finish; then killed without close()
+    Thread.sleep(200);
+
+    var recovered =
+        open().takeRecovered().orElseThrow().stream()
+            .collect(Collectors.toMap(QueueNode::getId, Function.identity()));
+    assertThat(recovered).hasSize(count);
+    assertThat(recovered.get(3L).getStatus()).isEqualTo(QueueStatus.COMPLETED);
+    assertThat(recovered.get((long) count).getStatus()).isEqualTo(QueueStatus.COMPLETED);
+    assertThat(recovered.get((long) count - 1).getStatus()).isEqualTo(QueueStatus.QUEUED);
+  }
+
+  @Test
+  void withoutABaselineRestartFallsBackToTheDatabase() {
+    var journal = open();
+    journal.record(node(1));
+    journal.snapshot();
+
+    assertThat(open().takeRecovered()).isEmpty();
+  }
+
+  private QueueJournal open() {
+    var props = new AppProperties();
+    props.getJournal().setEnabled(true);
+    props.getJournal().setDir(dir.toString());
+    props.getJournal().setSizeBytes(64 * 1024);
+    var journal =
+        new QueueJournal(
+            props,
+            new StaticListableBeanFactory(Map.of("meters", meters))
+                .getBeanProvider(MeterRegistry.class));
+    journal.open();
+    return journal;
+  }
+
+  private QueueNode node(long id) {
+    var name = "Patient " + id;
+    var email = "p" + id + "@example.com";
+    var node = new QueueNode(id, 1L, id, (int) id, now, now.plusHours(1), id, name, email, null);
+    node.setStatus(QueueStatus.QUEUED);
+    return node;
+  }
+}
@@ -0,0 +1,106 @@
+package aqms.service.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import aqms.config.AppProperties;
+import aqms.domain.model.ClinicQueueState;
+import aqms.repository.ClinicQueueStateRepository;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class QueueNumberAllocatorTest {
+  private final ClinicQueueStateRepository stateRepo = mock(ClinicQueueStateRepository.class);
+  private final QueueEngine engine = mock(QueueEngine.class);
+  private final QueueNumberAllocator allocator =
+      new QueueNumberAllocator(stateRepo, engine, new AppProperties());
+
+  @Test
+  void concurrentAllocationsAreDistinctAndWriteOncePerBlock() throws Exception {
+    when(stateRepo.findByClinicId(anyLong())).thenReturn(Optional.empty());
+    when(stateRepo.advanceQueueNumber(anyLong(), any(), anyInt())).thenReturn(1);
+
+    int threads = 16;
+    int perThread = 250;
+    Set<Integer> numbers = ConcurrentHashMap.newKeySet();
+    var start = new CountDownLatch(1);
+    var pool = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(
+          pool.submit(
+              () -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) numbers.add(allocator.next(1L));
+                return null;
+              }));
+    }
+    start.countDown();
+    for (var f : futures) f.get();
+    pool.shutdown();
+
+    assertThat(numbers).hasSize(threads * perThread);
+    assertThat(numbers).allSatisfy(n -> assertThat(n).isBetween(1, threads * perThread));
+    // blocks of 20: one write per block rather than per number
+    verify(stateRepo, times(threads * perThread / 20))
+        .advanceQueueNumber(anyLong(), any(), anyInt());
+  }
+
+  @Test
+  void continuesFromPersistedSequenceAndEngineMaximum() {
+    var state = new ClinicQueueState(7L);
+    state.setQueueDate(LocalDate.now());
+    state.setLastQueueNumber(12);
+    when(stateRepo.findByClinicId(7L)).thenReturn(Optional.of(state));
+    when(engine.maxQueueNumber(7L)).thenReturn(15);
+    when(engine.maxQueueNumber(8L)).thenReturn(3);
+    when(stateRepo.findByClinicId(8L)).thenReturn(Optional.of(state));
+
+    assertThat(allocator.next(7L)).isEqualTo(16);
+    assertThat(allocator.next(8L)).isEqualTo(13);
+  }
+
+  @Test
+  void ignoresSequenceFromPreviousDayAndRestartsAfterReset() {
+    var state = new ClinicQueueState(1L);
+    state.setQueueDate(LocalDate.now().minusDays(1));
+    state.setLastQueueNumber(40);
+    when(stateRepo.findByClinicId(1L)).thenReturn(Optional.of(state));
+
+    assertThat(allocator.next(1L)).isEqualTo(1);
+    assertThat(allocator.next(1L)).isEqualTo(2);
+
+    allocator.reset();
+    state.setQueueDate(LocalDate.now());
+    state.setLastQueueNumber(0);
+    assertThat(allocator.next(1L)).isEqualTo(1);
+  }
+
+  @Test
+  void aBlockWhoseWriteFailsIsWrittenByTheNextNumber() {
+    when(stateRepo.findByClinicId(1L)).thenReturn(Optional.empty());
+    when(stateRepo.advanceQueueNumber(anyLong(), any(), anyInt()))
+        .thenThrow(new IllegalStateException("connection lost"))
+        .thenReturn(1);
+
+    assertThatThrownBy(() -> allocator.next(1L)).isInstanceOf(IllegalStateException.class);
+    assertThat(allocator.next(1L)).isEqualTo(2);
+    assertThat(allocator.next(1L)).isEqualTo(3);
+    verify(stateRepo, times(2)).advanceQueueNumber(anyLong(), any(), anyInt());
+  }
+}
@@ -0,0 +1,39 @@
+package aqms.service.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import aqms.config.AppProperties;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class QueueVersionsTest {
+  private final QueueVersions versions = new QueueVersions(new AppProperties());
+
+  @Test
+  void etagChangesOnlyWhenTheClinicChanges() {
+    String before = versions.etag(1L);
+    versions.bump(2L);
+    assertThat(versions.matches(1L, before)).isTrue();
+    assertThat(versions.matches(1L, "\"other\", " + before)).isTrue();
+
+    versions.bump(1L);
+    assertThat(versions.matches(1L, before)).isFalse();
+    assertThat(versions.etag(1L)).isNotEqualTo(before).startsWith("\"").endsWith("\"");
+    assertThat(new QueueVersions(new AppProperties()).matches(1L, before)).isFalse();
+  }
+
+  @Test
+  void longPollWakesOnChangeAndTimesOutWithout() throws Exception {
+    var stale = versions.awaitChange(1L, "\"old\"", Duration.ofSeconds(5));
+    assertThat(stale.getNow(null)).isTrue();
+
+    var waiting = versions.awaitChange(1L, versions.etag(1L), Duration.ofSeconds(5));
+    assertThat(waiting).isNotDone();
+    versions.bump(1L);
+    assertThat(waiting.get(1, TimeUnit.SECONDS)).isTrue();
+
+    var idle = versions.awaitChange(1L, versions.etag(1L), Duration.ofMillis(50));
+    assertThat(idle.get(1, TimeUnit.SECONDS)).isFalse();
+  }
+}
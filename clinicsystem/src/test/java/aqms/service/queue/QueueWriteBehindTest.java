@@ -0,0 +1,87 @@
+package aqms.service.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import aqms.domain.enums.QueuePriority;
+import aqms.domain.enums.QueueStatus;
+import aqms.domain.model.QueueEntry;
+import aqms.repository.QueueEntryRepository;
+import aqms.support.DatabaseTest;
+import aqms.support.TestData;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@DatabaseTest
+// flushes happen when the tests ask for them
+@TestPropertySource(properties = "aqms.queue.write-behind-millis=3600000")
+@Import(QueueWriteBehind.class)
+class QueueWriteBehindTest {
+  @Autowired TestData data;
+  @Autowired QueueWriteBehind writeBehind;
+  @Autowired QueueEntryRepository queueRepo;
+  @Autowired PlatformTransactionManager txManager;
+
+  private QueueEntry entry;
+
+  @BeforeEach
+  void setUp() {
+    data.clear();
+    var clinic = data.clinic();
+    var slot = data.slot(clinic, null, LocalDate.now().atTime(9, 0));
+    entry = data.queued(slot, 1);
+  }
+
+  @Test
+  void submittedStatesAreWrittenOnFlushAndCollapsePerEntry() {
+    writeBehind.submit(state(QueueStatus.CALLED));
+    writeBehind.submit(state(QueueStatus.COMPLETED));
+    assertThat(writeBehind.pendingCount()).isOne();
+    assertThat(stored()).isEqualTo(QueueStatus.QUEUED);
+
+    writeBehind.flush();
+    assertThat(writeBehind.pendingCount()).isZero();
+    assertThat(stored()).isEqualTo(QueueStatus.COMPLETED);
+  }
+
+  @Test
+  void writeCommitsAtOnceAndReplacesAPendingState() {
+    writeBehind.submit(state(QueueStatus.CALLED));
+    writeBehind.write(state(QueueStatus.COMPLETED));
+    assertThat(stored()).isEqualTo(QueueStatus.COMPLETED);
+
+    // the older state is not written over it later
+    writeBehind.flush();
+    assertThat(stored()).isEqualTo(QueueStatus.COMPLETED);
+  }
+
+  @Test
+  void writeFromAnAfterCommitCallbackIsCommitted() {
+    new TransactionTemplate(txManager)
+        .executeWithoutResult(
+            status -> QueueEngine.afterCommit(() -> writeBehind.write(state(QueueStatus.CALLED))));
+    assertThat(stored()).isEqualTo(QueueStatus.CALLED);
+  }
+
+  private QueueNode.State state(QueueStatus status) {
+    return new QueueNode.State(
+        entry.getId(),
+        status,
+        LocalDateTime.now(),
+        "Room 1",
+        false,
+        null,
+        null,
+        QueuePriority.NORMAL);
+  }
+
+  private QueueStatus stored() {
+    return queueRepo.findById(entry.getId()).orElseThrow().getStatus();
+  }
+}
@@ -0,0 +1,75 @@
+package aqms.service.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+  private final SingleFlight<Long, String> flight = new SingleFlight<>("test");
+
+  @Test
+  void concurrentCallersShareOneComputation() throws Exception {
+    int callers = 50;
+    var computations = new AtomicInteger();
+    var started = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+    var pool = Executors.newFixedThreadPool(callers);
+    List<Future<String>> results = new ArrayList<>();
+    results.add(
+        pool.submit(
+            () ->
+                flight.get(
+                    1L,
+                    () -> {
+                      computations.incrementAndGet();
+                      started.countDown();
+                      await(release);
+                      return "views";
+                    })));
+    started.await();
+    for (int i = 1; i < callers; i++) {
+      results.add(pool.submit(() -> flight.get(1L, () -> "recomputed" + computations.get())));
+    }
+    // let the followers reach the running computation before it finishes
+    while (flight.coalesced() < callers - 1) Thread.onSpinWait();
+    release.countDown();
+    for (var r : results) assertThat(r.get(5, TimeUnit.SECONDS)).isEqualTo("views");
+    pool.shutdown();
+
+    assertThat(computations).hasValue(1);
+    assertThat(flight.misses()).isEqualTo(1);
+    assertThat(flight.coalesced()).isEqualTo(callers - 1);
+    // without a version nothing is remembered
+    assertThat(flight.get(1L, () -> "fresh")).isEqualTo("fresh");
+  }
+
+  @Test
+  void versionedResultIsReusedUntilTheVersionMoves() {
+    assertThat(flight.get(1L, "v1", () -> "a")).isEqualTo("a");
+    assertThat(flight.get(1L, "v1", () -> "b")).isEqualTo("a");
+    assertThat(flight.get(2L, "v1", () -> "c")).isEqualTo("c");
+    assertThat(flight.get(1L, "v2", () -> "d")).isEqualTo("d");
+    assertThat(flight.hits()).isEqualTo(1);
+    assertThat(flight.misses()).isEqualTo(3);
+
+    assertThatThrownBy(() -> flight.get(3L, "v1", () -> { throw new IllegalStateException("x"); }))
+        .isInstanceOf(IllegalStateException.class);
+    assertThat(flight.get(3L, "v1", () -> "retried")).isEqualTo("retried");
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
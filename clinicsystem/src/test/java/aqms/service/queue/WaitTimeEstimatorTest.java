@@ -0,0 +1,50 @@
+package aqms.service.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import aqms.config.AppProperties;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class WaitTimeEstimatorTest {
+  private final WaitTimeEstimator estimator = new WaitTimeEstimator(new AppProperties());
+
+  @Test
+  void usesDefaultUntilFirstConsultation() {
+    assertThat(estimator.forClinic(1L).samples()).isZero();
+    assertThat(estimator.estimateWaitMinutes(1L, "Dr A", 3)).isEqualTo(30);
+  }
+
+  @Test
+  void tracksMeanAndP90PerClinicAndDoctor() {
+    var random = new Random(42);
+    var samples = new double[2000];
+    for (int i = 0; i < samples.length; i++) {
+      // exponential service times with a 6 minute mean
+      samples[i] = -Math.log(1 - random.nextDouble()) * 360;
+      estimator.record(1L, "Dr A", Duration.ofMillis((long) (samples[i] * 1000)));
+    }
+    estimator.record(1L, "Dr B", Duration.ofMinutes(20));
+    Arrays.sort(samples);
+    double exactP90 = samples[(int) (0.9 * samples.length)];
+
+    var clinic = estimator.forClinic(1L);
+    assertThat(clinic.samples()).isEqualTo(2001);
+    assertThat(estimator.forDoctor(1L, "Dr A").p90Seconds()).isCloseTo(exactP90, within(60.0));
+    assertThat(estimator.forDoctor(1L, "Dr B").meanSeconds()).isEqualTo(1200.0);
+    // unknown doctor falls back to the clinic-wide estimate
+    assertThat(estimator.forDoctor(1L, "Dr C")).isEqualTo(clinic);
+  }
+
+  @Test
+  void ignoresForgottenCompletions() {
+    estimator.record(1L, null, Duration.ofMinutes(5));
+    estimator.record(1L, null, Duration.ofHours(8));
+
+    assertThat(estimator.forClinic(1L).samples()).isEqualTo(1);
+    assertThat(estimator.estimateWaitMinutes(1L, null, 2)).isEqualTo(10);
+  }
+}
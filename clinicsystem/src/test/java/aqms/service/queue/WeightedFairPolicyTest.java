@@ -0,0 +1,75 @@
+package aqms.service.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import aqms.config.AppProperties;
+import aqms.domain.enums.QueuePriority;
+import aqms.domain.enums.QueueStatus;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import org.junit.jupiter.api.Test;
+
+class WeightedFairPolicyTest {
+  private final AppProperties props = new AppProperties();
+  private long nextId = 1;
+
+  @Test
+  void callsFollowConfiguredFractions() {
+    var queue = new ClinicQueue(1L, new WeightedFairPolicy(props).newScheduler());
+    var now = LocalDateTime.now();
+    for (int i = 0; i < 300; i++) {
+      queue.add(node(QueuePriority.NORMAL, now));
+      queue.add(node(QueuePriority.EXPRESS, now));
+      queue.add(node(QueuePriority.EMERGENCY, now));
+    }
+
+    var served = new EnumMap<QueuePriority, Integer>(QueuePriority.class);
+    int calls = 400;
+    for (int i = 0; i < calls; i++) {
+      var next = queue.peekNext().orElseThrow();
+      served.merge(next.getPriority(), 1, Integer::sum);
+      queue.call(next, now);
+    }
+
+    assertThat(served.get(QueuePriority.EMERGENCY) / (double) calls).isCloseTo(0.125, within(0.02));
+    assertThat(served.get(QueuePriority.EXPRESS) / (double) calls).isCloseTo(0.333, within(0.02));
+    assertThat(served.get(QueuePriority.NORMAL) / (double) calls).isCloseTo(0.542, within(0.02));
+  }
+
+  @Test
+  void starvingHeadIsCalledFirst() {
+    var queue = new ClinicQueue(1L, new WeightedFairPolicy(props).newScheduler());
+    var now = LocalDateTime.now();
+    var old = node(QueuePriority.NORMAL, now.minusMinutes(props.getQueue().getMaxWaitMinutes() + 1));
+    queue.add(old);
+    for (int i = 0; i < 5; i++) queue.add(node(QueuePriority.EMERGENCY, now));
+
+    assertThat(queue.peekNext()).containsSame(old);
+  }
+
+  @Test
+  void predictedOrderMatchesActualCalls() {
+    var queue = new ClinicQueue(1L, new WeightedFairPolicy(props).newScheduler());
+    var now = LocalDateTime.now();
+    for (int i = 0; i < 20; i++) {
+      queue.add(node(QueuePriority.values()[i % 3], now));
+    }
+
+    var predicted = queue.waiting();
+    for (var expected : predicted) {
+      var next = queue.peekNext().orElseThrow();
+      assertThat(next).isSameAs(expected);
+      queue.call(next, now);
+    }
+    assertThat(queue.peekNext()).isEmpty();
+  }
+
+  private QueueNode node(QueuePriority priority, LocalDateTime createdAt) {
+    long id = nextId++;
+    var node = new QueueNode(id, 1L, id, (int) id, createdAt, null, null, null, null, null);
+    node.setStatus(QueueStatus.QUEUED);
+    node.setPriority(priority);
+    return node;
+  }
+}
@@ -0,0 +1,120 @@
+package aqms.service.slots;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import aqms.domain.enums.AppointmentStatus;
+import aqms.domain.model.AppointmentSlot;
+import aqms.domain.model.Clinic;
+import aqms.domain.model.Doctor;
+import aqms.repository.AppointmentSlotRepository;
+import aqms.service.AppointmentService;
+import aqms.service.PasswordResetService;
+import aqms.service.QueueService;
+import aqms.service.event.ClinicEventBus;
+import aqms.support.DatabaseTest;
+import aqms.support.TestData;
+import java.time.LocalDate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+@DatabaseTest
+@Import({AvailabilityIndex.class, AppointmentService.class, SlotTemplates.class, SlotHolds.class})
+class AvailabilityIndexTest {
+  @Autowired TestData data;
+  @Autowired AvailabilityIndex index;
+  @Autowired AppointmentService appointments;
+  @Autowired AppointmentSlotRepository slotRepo;
+  @MockitoBean QueueService queueService;
+  @MockitoBean PasswordResetService passwordResetService;
+  @MockitoBean ClinicEventBus clinicEvents;
+
+  private final LocalDate day = LocalDate.now().plusDays(3);
+
+  private Clinic clinic;
+  private Doctor first;
+  private Doctor second;
+
+  @BeforeEach
+  void setUp() {
+    data.clear();
+    clinic = data.clinic("Index Clinic");
+    first = data.doctor(clinic, "Dr A");
+    second = data.doctor(clinic, "Dr B");
+    // 09:00-11:00 in half hours, alternating doctors
+    for (int i = 0; i < 4; i++) {
+      data.slot(clinic, i % 2 == 0 ? first : second, day.atTime(9, 0).plusMinutes(30L * i));
+    }
+    index.invalidate(clinic.getId());
+  }
+
+  @Test
+  void bookingAndCancellingFlipTheDaysBits() {
+    assertThat(index.available(clinic.getId(), null, day)).hasSize(4);
+    var mine = index.available(clinic.getId(), second.getId(), day);
+    assertThat(mine).extracting(s -> s.getDoctor().getId()).containsOnly(second.getId());
+    assertThat(mine).hasSize(2);
+
+    var booked = slotRepo.findById(mine.get(0).getId()).orElseThrow();
+    booked.setStatus(AppointmentStatus.BOOKED);
+    booked = slotRepo.save(booked);
+    index.taken(booked);
+    assertThat(index.available(clinic.getId(), second.getId(), day))
+        .extracting(AppointmentSlot::getId)
+        .containsExactly(mine.get(1).getId());
+
+    booked.setStatus(AppointmentStatus.AVAILABLE);
+    slotRepo.save(booked);
+    index.freed(booked);
+    assertThat(index.available(clinic.getId(), null, day)).hasSize(4);
+  }
+
+  @Test
+  void firstAvailableSkipsTakenSlotsAndLaterDaysAreFound() {
+    var nineThirty = day.atTime(9, 30);
+    var found = index.firstAvailable(clinic.getId(), null, nineThirty).orElseThrow();
+    assertThat(found.getStartTime()).isEqualTo(nineThirty);
+    var taken = slotRepo.findById(found.getId()).orElseThrow();
+    taken.setStatus(AppointmentStatus.BOOKED);
+    slotRepo.save(taken);
+    index.taken(taken);
+
+    assertThat(index.firstAvailable(clinic.getId(), null, nineThirty).orElseThrow().getStartTime())
+        .isEqualTo(day.atTime(10, 0));
+    // nothing left for the first doctor after 10:00 until a slot is added the next day
+    assertThat(index.firstAvailable(clinic.getId(), first.getId(), day.atTime(10, 1))).isEmpty();
+
+    var next = data.slot(clinic, first, day.plusDays(1).atTime(14, 0));
+    index.invalidate(clinic.getId(), next.getStartTime().toLocalDate());
+    assertThat(index.firstAvailable(clinic.getId(), first.getId(), day.atTime(10, 1)))
+        .map(AppointmentSlot::getId)
+        .contains(next.getId());
+  }
+
+  @Test
+  void bookingAndCancellingThroughTheServiceKeepTheIndexInStep() {
+    var patient = data.patient(1).getId();
+    var nine = index.available(clinic.getId(), null, day).get(0);
+
+    // the service's transaction commits before the index is updated
+    appointments.book(nine.getId(), patient);
+    assertThat(index.available(clinic.getId(), null, day))
+        .extracting(AppointmentSlot::getId)
+        .hasSize(3)
+        .doesNotContain(nine.getId());
+    assertThat(index.firstAvailable(clinic.getId(), first.getId(), day.atTime(9, 0)))
+        .map(AppointmentSlot::getStartTime)
+        .contains(day.atTime(10, 0));
+
+    appointments.cancel(nine.getId(), true);
+    assertThat(index.available(clinic.getId(), null, day))
+        .extracting(AppointmentSlot::getId)
+        .hasSize(4)
+        .contains(nine.getId());
+    assertThat(index.firstAvailable(clinic.getId(), first.getId(), day.atTime(9, 0)))
+        .map(AppointmentSlot::getId)
+        .contains(nine.getId());
+  }
+}
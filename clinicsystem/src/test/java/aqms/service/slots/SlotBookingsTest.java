@@ -0,0 +1,175 @@
+package aqms.service.slots;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import aqms.domain.enums.AppointmentStatus;
+import aqms.domain.enums.UserRole;
+import aqms.domain.model.AppointmentSlot;
+import aqms.domain.model.Clinic;
+import aqms.domain.model.UserAccount;
+import aqms.repository.AppointmentHistoryRepository;
+import aqms.repository.AppointmentSlotRepository;
+import aqms.repository.UserAccountRepository;
+import aqms.service.AppointmentService;
+import aqms.service.PasswordResetService;
+import aqms.service.QueueService;
+import aqms.service.event.ClinicEventBus;
+import aqms.support.DatabaseTest;
+import aqms.support.TestData;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+@DatabaseTest
+@TestPropertySource(properties = {"aqms.slots.holdTtlMillis=300", "aqms.slots.holdTickMillis=50"})
+@Import({
+  SlotBookings.class,
+  SlotHolds.class,
+  AppointmentService.class,
+  SlotTemplates.class,
+  AvailabilityIndex.class
+})
+class SlotBookingsTest {
+  @Autowired TestData data;
+  @Autowired SlotBookings bookings;
+  @Autowired SlotHolds holds;
+  @Autowired AppointmentService appointments;
+  @Autowired AppointmentSlotRepository slotRepo;
+  @Autowired AppointmentHistoryRepository histRepo;
+  @Autowired UserAccountRepository userRepo;
+  @MockitoBean QueueService queueService;
+  @MockitoBean PasswordResetService passwordResetService;
+  @MockitoBean ClinicEventBus clinicEvents;
+
+  private final LocalDate day = LocalDate.now().plusDays(5);
+
+  private Clinic clinic;
+  private AppointmentSlot popular;
+  private AppointmentSlot next;
+
+  @BeforeEach
+  void setUp() {
+    data.clear();
+    clinic = data.clinic("Busy Clinic");
+    var doctor = data.doctor(clinic, "Dr Popular");
+    popular = data.slot(clinic, doctor, day.atTime(9, 0));
+    next = data.slot(clinic, doctor, day.atTime(9, 30));
+  }
+
+  @Test
+  void concurrentBookingsOfOneSlotHaveOneWinnerAndConflictsOfferTheNextSlot() throws Exception {
+    int contenders = 16;
+    var patients = new ArrayList<Long>();
+    for (int i = 0; i < contenders; i++) patients.add(data.patient(i).getId());
+
+    var start = new CountDownLatch(1);
+    var results = new ArrayList<Future<AppointmentSlot>>();
+    try (var pool = Executors.newFixedThreadPool(contenders)) {
+      for (Long patientId : patients) {
+        results.add(
+            pool.submit(
+                () -> {
+                  start.await();
+                  return bookings.book(popular.getId(), patientId);
+                }));
+      }
+      start.countDown();
+    }
+
+    int won = 0;
+    var conflicts = new ArrayList<SlotConflictException>();
+    for (var result : results) {
+      try {
+        result.get();
+        won++;
+      } catch (java.util.concurrent.ExecutionException e) {
+        // anything other than a conflict (e.g. a raw optimistic lock failure) fails the test
+        conflicts.add((SlotConflictException) e.getCause());
+      }
+    }
+    assertThat(won).isEqualTo(1);
+    assertThat(conflicts)
+        .hasSize(contenders - 1)
+        .allSatisfy(
+            c -> {
+              assertThat(c.getSlotId()).isEqualTo(popular.getId());
+              assertThat(c.getNextAvailable().getId()).isEqualTo(next.getId());
+            });
+    var booked = slotRepo.findById(popular.getId()).orElseThrow();
+    assertThat(booked.getStatus()).isEqualTo(AppointmentStatus.BOOKED);
+    assertThat(histRepo.count()).isEqualTo(1);
+  }
+
+  @Test
+  void aHoldKeepsTheSlotForItsPatientUntilItExpires() throws Exception {
+    Long first = data.patient(1).getId();
+    Long second = data.patient(2).getId();
+
+    var hold = bookings.hold(popular.getId(), first);
+    assertThat(hold.patientId()).isEqualTo(first);
+    assertThat(appointments.findAvailable(clinic.getId(), null, day))
+        .extracting(AppointmentSlot::getId)
+        .containsExactly(next.getId());
+    assertThatThrownBy(() -> bookings.hold(popular.getId(), second))
+        .isInstanceOf(SlotConflictException.class)
+        .satisfies(
+            e ->
+                assertThat(((SlotConflictException) e).getNextAvailable().getId())
+                    .isEqualTo(next.getId()));
+    assertThatThrownBy(() -> bookings.book(popular.getId(), second))
+        .isInstanceOf(SlotConflictException.class);
+
+    // unconfirmed: the sweep drops the hold and the slot is open to others again
+    Thread.sleep(400);
+    holds.expire();
+    assertThat(holds.size()).isZero();
+    bookings.hold(popular.getId(), second);
+    assertThat(bookings.book(popular.getId(), second).getPatient().getId()).isEqualTo(second);
+    assertThat(holds.isHeld(popular.getId())).isFalse();
+  }
+
+  @Test
+  void holdsAreForPatientsOnlyAndCappedPerPatient() throws Exception {
+    Long patient = data.patient(1).getId();
+    var staff =
+        userRepo
+            .save(new UserAccount("Staff", "staff@example.com", "x", UserRole.STAFF))
+            .getId();
+    assertThatThrownBy(() -> bookings.hold(popular.getId(), staff))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> bookings.hold(popular.getId(), -1L))
+        .isInstanceOf(IllegalArgumentException.class);
+
+    var doctor = popular.getDoctor();
+    var more = new ArrayList<AppointmentSlot>();
+    for (int i = 0; i < 3; i++) more.add(data.slot(clinic, doctor, day.atTime(10 + i, 0)));
+    bookings.hold(popular.getId(), patient);
+    bookings.hold(next.getId(), patient);
+    bookings.hold(more.get(0).getId(), patient);
+    // extending a hold the patient already has is not a new one
+    bookings.hold(popular.getId(), patient);
+    assertThatThrownBy(() -> bookings.hold(more.get(1).getId(), patient))
+        .isInstanceOf(IllegalStateException.class)
+        .isNotInstanceOf(SlotConflictException.class);
+
+    bookings.release(next.getId(), patient);
+    bookings.hold(more.get(1).getId(), patient);
+    assertThat(holds.isHeld(more.get(1).getId())).isTrue();
+
+    // expired holds stop counting
+    Thread.sleep(400);
+    holds.expire();
+    bookings.hold(more.get(2).getId(), patient);
+    bookings.hold(next.getId(), patient);
+    bookings.hold(popular.getId(), patient);
+  }
+}
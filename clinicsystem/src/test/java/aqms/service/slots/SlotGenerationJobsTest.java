@@ -0,0 +1,130 @@
+package aqms.service.slots;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import aqms.domain.enums.AppointmentStatus;
+import aqms.domain.model.Clinic;
+import aqms.repository.AppointmentSlotRepository;
+import aqms.service.AppointmentSlotManagementService;
+import aqms.service.slots.SlotGenerationJob.Session;
+import aqms.service.slots.SlotGenerationJob.State;
+import aqms.support.DatabaseTest;
+import aqms.support.TestData;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+@DatabaseTest
+@TestPropertySource(properties = "aqms.slots.jobWorkers=2")
+@Import({
+  SlotGenerationJobs.class,
+  SlotTemplates.class,
+  AvailabilityIndex.class,
+  AppointmentSlotManagementService.class
+})
+class SlotGenerationJobsTest {
+  @Autowired TestData data;
+  @Autowired SlotGenerationJobs jobs;
+  @Autowired AppointmentSlotRepository slotRepo;
+
+  private final LocalDate start = LocalDate.now().plusDays(14);
+
+  @BeforeEach
+  void setUp() {
+    data.clear();
+  }
+
+  @Test
+  void generatesEveryClinicDayAndReportsTheOnesThatFail() throws Exception {
+    var staffed = List.of(clinic("North", true), clinic("South", true));
+    var unstaffed = clinic("East", false);
+
+    // two sessions of 09:00-11:00 and 14:00-16:00 in 30 minute slots: 8 slots a day
+    var started =
+        jobs.start(
+            new SlotGenerationJob.Spec(
+                List.of(),
+                start,
+                start.plusDays(4),
+                0,
+                30,
+                List.of(
+                    new Session(LocalTime.of(9, 0), LocalTime.of(11, 0)),
+                    new Session(LocalTime.of(14, 0), LocalTime.of(16, 0)))));
+    assertThat(started.clinics()).isEqualTo(3);
+    assertThat(started.clinicDaysTotal()).isEqualTo(15);
+
+    var status = awaitFinished(started.jobId());
+
+    assertThat(status.state()).isEqualTo(State.COMPLETED_WITH_FAILURES);
+    assertThat(status.clinicDaysDone()).isEqualTo(15);
+    assertThat(status.clinicDaysFailed()).isEqualTo(5);
+    assertThat(status.slotsCreated()).isEqualTo(2 * 5 * 8);
+    assertThat(slotRepo.count()).isEqualTo(2 * 5 * 8);
+    assertThat(status.failures())
+        .hasSize(5)
+        .allSatisfy(
+            f -> {
+              assertThat(f.clinicId()).isEqualTo(unstaffed.getId());
+              assertThat(f.reason()).contains("No doctors available");
+            });
+    for (var clinic : staffed) {
+      assertThat(slotRepo.findByClinicIdAndStatus(clinic.getId(), AppointmentStatus.AVAILABLE))
+          .hasSize(5 * 8);
+    }
+    // failed days leave nothing behind
+    assertThat(
+            slotRepo.findByClinicIdAndStartTimeBetween(
+                unstaffed.getId(), start.atStartOfDay(), start.plusDays(5).atStartOfDay()))
+        .isEmpty();
+  }
+
+  @Test
+  void aDayWhoseSecondSessionFailsKeepsNoneOfItsSlots() throws Exception {
+    // a morning-only doctor: the morning session generates, the afternoon one is refused
+    var clinic = data.clinic("West");
+    data.doctor(clinic, "Dr Morning", true, false);
+
+    var started =
+        jobs.start(
+            new SlotGenerationJob.Spec(
+                List.of(clinic.getId()),
+                start,
+                start,
+                0,
+                30,
+                List.of(
+                    new Session(LocalTime.of(9, 0), LocalTime.of(11, 0)),
+                    new Session(LocalTime.of(14, 0), LocalTime.of(16, 0)))));
+    var status = awaitFinished(started.jobId());
+
+    assertThat(status.state()).isEqualTo(State.COMPLETED_WITH_FAILURES);
+    assertThat(status.clinicDaysFailed()).isEqualTo(1);
+    assertThat(status.slotsCreated()).isZero();
+    assertThat(status.failures())
+        .singleElement()
+        .satisfies(f -> assertThat(f.reason()).contains("afternoon session"));
+    // the morning's slots were written in the same transaction and rolled back with it
+    assertThat(slotRepo.count()).isZero();
+  }
+
+  private SlotGenerationJob.Status awaitFinished(String jobId) throws InterruptedException {
+    for (int i = 0; i < 200; i++) {
+      var status = jobs.status(jobId).orElseThrow();
+      if (status.state() != State.RUNNING) return status;
+      Thread.sleep(50);
+    }
+    throw new AssertionError("job did not finish: " + jobs.status(jobId));
+  }
+
+  private Clinic clinic(String name, boolean staffed) {
+    var clinic = data.clinic(name);
+    if (staffed) data.doctor(clinic, "Dr " + name);
+    return clinic;
+  }
+}
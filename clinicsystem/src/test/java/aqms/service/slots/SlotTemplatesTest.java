@@ -0,0 +1,100 @@
+package aqms.service.slots;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import aqms.domain.enums.AppointmentStatus;
+import aqms.domain.model.AppointmentSlot;
+import aqms.domain.model.Clinic;
+import aqms.domain.model.Doctor;
+import aqms.repository.AppointmentSlotRepository;
+import aqms.repository.ClinicRepository;
+import aqms.support.DatabaseTest;
+import aqms.support.TestData;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+@DatabaseTest
+@TestPropertySource(
+    properties = {
+      // H2 has no SELECT ... FOR NO KEY UPDATE, which the PostgreSQL dialect uses for row locks
+      "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+    })
+@Import(SlotTemplates.class)
+class SlotTemplatesTest {
+  @Autowired TestData data;
+  @Autowired SlotTemplates templates;
+  @Autowired AppointmentSlotRepository slotRepo;
+  @Autowired ClinicRepository clinicRepo;
+
+  private final LocalDate monday =
+      LocalDate.now().plusWeeks(1).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+
+  private Clinic clinic;
+  private Doctor morningDoctor;
+  private Doctor afternoonDoctor;
+
+  @BeforeEach
+  void setUp() {
+    data.clear();
+    clinic = data.clinic("Template Clinic");
+    clinic.setOperatingHours("0900-1300, 1400-1700");
+    clinic.setApptInterval(30);
+    clinic = clinicRepo.save(clinic);
+    morningDoctor = data.doctor(clinic, "Dr Morning", true, false);
+    afternoonDoctor = data.doctor(clinic, "Dr Afternoon", false, true);
+  }
+
+  @Test
+  void availabilityComesFromTheTemplateWithoutStoredSlots() {
+    var available = templates.available(clinic.getId(), null, monday);
+
+    // 8 morning and 6 afternoon half-hour slots
+    assertThat(available).hasSize(14);
+    assertThat(available.get(0).getStartTime()).isEqualTo(monday.atTime(9, 0));
+    assertThat(available.get(0).getDoctor().getId()).isEqualTo(morningDoctor.getId());
+    assertThat(available.get(13).getEndTime()).isEqualTo(monday.atTime(17, 0));
+    assertThat(available.get(13).getDoctor().getId()).isEqualTo(afternoonDoctor.getId());
+    assertThat(available).allMatch(s -> s.getId() == null);
+    assertThat(slotRepo.count()).isZero();
+  }
+
+  @Test
+  void bookingMaterializesOnlyThatSlot() {
+    var start = monday.atTime(10, 0);
+    var row = templates.materialize(clinic.getId(), null, start);
+    row.setStatus(AppointmentStatus.BOOKED);
+    slotRepo.save(row);
+
+    assertThat(slotRepo.count()).isEqualTo(1);
+    assertThat(templates.available(clinic.getId(), null, monday))
+        .hasSize(13)
+        .extracting(AppointmentSlot::getStartTime)
+        .doesNotContain(start);
+    // the same slot again resolves to its row, which is no longer available
+    assertThat(templates.materialize(clinic.getId(), null, start).getId()).isEqualTo(row.getId());
+    assertThat(slotRepo.count()).isEqualTo(1);
+    assertThatThrownBy(() -> templates.materialize(clinic.getId(), null, monday.atTime(10, 15)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void perDayHoursCloseUnlistedDays() {
+    clinic.setOperatingHours("MONDAY: 09:00 - 10:00\nTUESDAY: CLOSED");
+    clinicRepo.save(clinic);
+    templates.invalidate(clinic.getId());
+
+    assertThat(templates.available(clinic.getId(), null, monday))
+        .extracting(s -> s.getStartTime().toLocalTime())
+        .containsExactly(LocalTime.of(9, 0), LocalTime.of(9, 30));
+    assertThat(templates.available(clinic.getId(), null, monday.plusDays(1))).isEmpty();
+    assertThat(templates.available(clinic.getId(), null, monday.plusDays(2))).isEmpty();
+  }
+}
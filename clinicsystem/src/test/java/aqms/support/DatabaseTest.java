@@ -0,0 +1,33 @@
+package aqms.support;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+@DataJpaTest(
+    properties = {"spring.flyway.enabled=false", "spring.jpa.hibernate.ddl-auto=create-drop"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(TestData.class)
+/**
+ * DatabaseTest
+ *
+ * JPA slice against the H2 database from the test profile, with the schema generated from the
+ * entities: the Flyway migrations are PostgreSQL-only and are covered by {@code MigrationsTest}.
+ * Tests run outside a transaction, so their writes commit as they would in production and other
+ * threads see them; {@link TestData#clear} empties the tables between tests. Extra properties go
+ * in {@code @TestPropertySource}, beans under test in {@code @Import}.
+ */
+public @interface DatabaseTest {}
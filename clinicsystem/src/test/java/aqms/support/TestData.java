@@ -0,0 +1,116 @@
+package aqms.support;
+
+import aqms.domain.enums.AppointmentStatus;
+import aqms.domain.enums.UserRole;
+import aqms.domain.model.AppointmentSlot;
+import aqms.domain.model.Clinic;
+import aqms.domain.model.Doctor;
+import aqms.domain.model.QueueEntry;
+import aqms.domain.model.UserAccount;
+import aqms.repository.AppointmentHistoryRepository;
+import aqms.repository.AppointmentSlotRepository;
+import aqms.repository.ClinicQueueStateRepository;
+import aqms.repository.ClinicRepository;
+import aqms.repository.DoctorRepository;
+import aqms.repository.DoctorScheduleRepository;
+import aqms.repository.NotificationOutboxRepository;
+import aqms.repository.QueueEntryArchiveRepository;
+import aqms.repository.QueueEntryRepository;
+import aqms.repository.QueueEventLogRepository;
+import aqms.repository.QueueRoomGuardRepository;
+import aqms.repository.QueueTicketRepository;
+import aqms.repository.UserAccountRepository;
+import java.time.LocalDateTime;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+/**
+ * TestData
+ *
+ * Rows shared by the {@link DatabaseTest}s: a clinic, its doctors, patients and slots, saved
+ * with the same defaults everywhere, and {@link #clear()} to empty every table before a test.
+ */
+public class TestData {
+  private final QueueEntryArchiveRepository archiveRepo;
+  private final QueueTicketRepository ticketRepo;
+  private final QueueEntryRepository queueRepo;
+  private final AppointmentHistoryRepository histRepo;
+  private final DoctorScheduleRepository scheduleRepo;
+  private final AppointmentSlotRepository slotRepo;
+  private final DoctorRepository doctorRepo;
+  private final UserAccountRepository userRepo;
+  private final ClinicQueueStateRepository stateRepo;
+  private final ClinicRepository clinicRepo;
+  private final QueueEventLogRepository eventLogRepo;
+  private final NotificationOutboxRepository outboxRepo;
+  private final QueueRoomGuardRepository guardRepo;
+
+  /** Delete every row, children before the rows they reference. */
+  public void clear() {
+    archiveRepo.deleteAllInBatch();
+    ticketRepo.deleteAllInBatch();
+    queueRepo.deleteAllInBatch();
+    histRepo.deleteAllInBatch();
+    scheduleRepo.deleteAllInBatch();
+    slotRepo.deleteAllInBatch();
+    doctorRepo.deleteAllInBatch();
+    userRepo.deleteAllInBatch();
+    stateRepo.deleteAllInBatch();
+    clinicRepo.deleteAllInBatch();
+    eventLogRepo.deleteAllInBatch();
+    outboxRepo.deleteAllInBatch();
+    guardRepo.deleteAllInBatch();
+  }
+
+  public Clinic clinic() {
+    return clinic("Test Clinic");
+  }
+
+  public Clinic clinic(String name) {
+    var clinic = new Clinic();
+    clinic.setName(name);
+    clinic.setClinicType("GP");
+    clinic.setAddress("1 Test Street");
+    return clinicRepo.save(clinic);
+  }
+
+  /** A doctor working both sessions. */
+  public Doctor doctor(Clinic clinic, String name) {
+    return doctor(clinic, name, true, true);
+  }
+
+  public Doctor doctor(Clinic clinic, String name, boolean morning, boolean afternoon) {
+    var doctor = new Doctor();
+    doctor.setClinic(clinic);
+    doctor.setName(name);
+    doctor.setMorning(morning);
+    doctor.setAfternoon(afternoon);
+    return doctorRepo.save(doctor);
+  }
+
+  /** "Patient n" with the address pn@example.com. */
+  public UserAccount patient(int n) {
+    return userRepo.save(
+        new UserAccount("Patient " + n, "p" + n + "@example.com", "x", UserRole.PATIENT));
+  }
+
+  /** A free 30 minute slot; {@code doctor} may be null. */
+  public AppointmentSlot slot(Clinic clinic, Doctor doctor, LocalDateTime start) {
+    var slot = new AppointmentSlot();
+    slot.setClinic(clinic);
+    slot.setDoctor(doctor);
+    slot.setStartTime(start);
+    slot.setEndTime(start.plusMinutes(30));
+    slot.setStatus(AppointmentStatus.AVAILABLE);
+    return slotRepo.save(slot);
+  }
+
+  /** A QUEUED entry for {@code slot}, created now. */
+  public QueueEntry queued(AppointmentSlot slot, int number) {
+    var entry = new QueueEntry();
+    entry.setClinicId(slot.getClinic().getId());
+    entry.setSlot(slot);
+    entry.setQueueNumber(number);
+    return queueRepo.save(entry);
+  }
+}